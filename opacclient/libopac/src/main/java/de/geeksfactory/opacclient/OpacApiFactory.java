@@ -50,6 +50,7 @@ import de.geeksfactory.opacclient.i18n.StringProvider;
 import de.geeksfactory.opacclient.networking.HttpClientFactory;
 import de.geeksfactory.opacclient.objects.Library;
 import de.geeksfactory.opacclient.reporting.ReportHandler;
+import de.geeksfactory.opacclient.utils.LibopacExecutors;
 
 /**
  * This class is used to simplify obtaining {@link OpacApi} instances.
@@ -91,6 +92,13 @@ public class OpacApiFactory {
         return create(lib, sp, hcf, lang, reportHandler, debug, CoverDownloadStrategy.SYNCHRONOUS);
     }
 
+    public static OpacApi create(Library lib, StringProvider sp, HttpClientFactory hcf,
+            String lang, ReportHandler reportHandler, boolean debug,
+            CoverDownloadStrategy coverDownloadStrategy) {
+        return create(lib, sp, hcf, lang, reportHandler, debug, coverDownloadStrategy,
+                LibopacExecutors.getDefault());
+    }
+
     /**
      * Creates an {@link OpacApi} instance for accessing the given {@link Library}
      *
@@ -101,11 +109,12 @@ public class OpacApiFactory {
      * {@link OpacApi#setLanguage(String)}
      * @param debug turn on debug mode (if supported by library system)
      * @param coverDownloadStrategy how to download covers (if supported by library system)
+     * @param executors the {@link LibopacExecutors} to run background work on
      * @return a new {@link OpacApi} instance
      */
     public static OpacApi create(Library lib, StringProvider sp, HttpClientFactory hcf,
             String lang, ReportHandler reportHandler, boolean debug,
-            CoverDownloadStrategy coverDownloadStrategy) {
+            CoverDownloadStrategy coverDownloadStrategy, LibopacExecutors executors) {
         OpacApi newApiInstance;
         if (lib.getApi().equals("bibliotheca")) {
             newApiInstance = new Bibliotheca();
@@ -172,6 +181,7 @@ public class OpacApiFactory {
         } else {
             return null;
         }
+        newApiInstance.setExecutors(executors);
         newApiInstance.init(lib, hcf, debug);
         newApiInstance.setStringProvider(sp);
         newApiInstance.setReportHandler(reportHandler);
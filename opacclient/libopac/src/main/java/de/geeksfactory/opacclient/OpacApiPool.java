@@ -0,0 +1,615 @@
+package de.geeksfactory.opacclient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.geeksfactory.opacclient.apis.BaseApi;
+import de.geeksfactory.opacclient.apis.OpacApi;
+import de.geeksfactory.opacclient.metrics.Histogram;
+import de.geeksfactory.opacclient.networking.Session;
+import de.geeksfactory.opacclient.objects.Account;
+import de.geeksfactory.opacclient.objects.Library;
+import de.geeksfactory.opacclient.utils.LibopacExecutors;
+
+/**
+ * Keeps started {@link OpacApi} sessions per library, for services that would otherwise pay for
+ * creating and starting an API instance on every request. Sessions are leased out to one user at
+ * a time:
+ * <pre>
+ * OpacApiPool pool = OpacApiPool.builder(lib -> OpacApiFactory.create(lib, "MyService/1.0"))
+ *                               .build();
+ * try (OpacApiPool.Lease lease = pool.lease(library, null, 5000)) {
+ *     lease.getApi().search(query);
+ * } catch (IOException e) {
+ *     // lease.invalidate() if the session is broken
+ * }
+ * </pre>
+ * Sessions are kept per library and, if an account is given, per user name and password, so
+ * that a logged-in session is only handed to requests with the same credentials. The first
+ * session of a key is created with the factory, all others with {@link OpacApi#newSession()}. At
+ * most {@code maxSessions} sessions exist per key, further leases wait until one is returned.
+ * <p>
+ * An idle session is discarded when it was not used for {@code maxIdleMillis}, when it gets
+ * close to the session lifetime of its backend (see {@link BaseApi#getSessionLifetime()}), or when
+ * it is older than {@code maxAgeMillis}. A maintenance thread discards them in the background and
+ * starts new sessions on {@link LibopacExecutors#operations()}, so that each key that was leased
+ * within the last {@code maxIdleMillis} has at least {@code warmSessions} sessions, idle or
+ * leased. Keys that were not leased for longer are forgotten once their last session is gone.
+ */
+public class OpacApiPool implements Closeable {
+    /**
+     * A session close to its backend's session lifetime is not handed out any more.
+     */
+    private static final long LIFETIME_MARGIN = 15 * 1000;
+
+    public interface SessionFactory {
+        /**
+         * @return a new, initialized API instance for the library
+         */
+        OpacApi create(Library library);
+    }
+
+    private final SessionFactory factory;
+    private final LibopacExecutors executors;
+    private final int maxSessions;
+    private final int warmSessions;
+    private final long maxIdleMillis;
+    private final long maxAgeMillis;
+    private final ScheduledThreadPoolExecutor maintenance;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final byte[] secret = Session.newSecret();
+    private volatile boolean closed;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final Histogram leaseWait = new Histogram();
+    private final Histogram sessionAge = new Histogram();
+
+    private OpacApiPool(Builder builder) {
+        factory = builder.factory;
+        executors = builder.executors;
+        maxSessions = builder.maxSessions;
+        warmSessions = Math.min(builder.warmSessions, builder.maxSessions);
+        maxIdleMillis = builder.maxIdleMillis;
+        maxAgeMillis = builder.maxAgeMillis;
+        if (builder.maintenanceIntervalMillis > 0) {
+            maintenance = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "libopac-pool");
+                thread.setDaemon(true);
+                return thread;
+            });
+            maintenance.scheduleWithFixedDelay(this::evictIdle,
+                    builder.maintenanceIntervalMillis, builder.maintenanceIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            maintenance = null;
+        }
+    }
+
+    public static Builder builder(SessionFactory factory) {
+        return new Builder(factory);
+    }
+
+    /**
+     * Account IDs are local to the app that stores the account and not set by most services, so
+     * the credentials identify the user.
+     */
+    private String key(Library library, Account account) {
+        return account != null ? library.getIdent() + "/" + Session.hashCredentials(secret,
+                library.getIdent(), account.getName(), account.getPassword())
+                : library.getIdent();
+    }
+
+    private synchronized Entry getEntry(Library library, Account account) {
+        String key = key(library, account);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(library);
+            entries.put(key, entry);
+        }
+        entry.lastLeased = System.currentTimeMillis();
+        return entry;
+    }
+
+    /**
+     * @return whether the entry was leased recently enough to keep sessions started for it
+     */
+    private boolean isInUse(Entry entry) {
+        return maxIdleMillis <= 0
+                || System.currentTimeMillis() - entry.lastLeased < maxIdleMillis;
+    }
+
+    /**
+     * Forgets entries that have no sessions left and were not leased recently.
+     */
+    private synchronized void removeUnused() {
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            synchronized (entry) {
+                if (entry.total == 0 && !isInUse(entry)) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Leases a started session for the library, waiting until one is available.
+     *
+     * @param account       the account the session is used for, or {@code null} if it is not
+     *                      used to log in
+     * @param timeoutMillis how long to wait for a session if {@code maxSessions} are in use
+     * @return the lease, which needs to be closed to return the session
+     * @throws TimeoutException if no session was returned in time
+     * @throws IOException      if a new session could not be started
+     */
+    public Lease lease(Library library, Account account, long timeoutMillis)
+            throws IOException, InterruptedException, TimeoutException {
+        if (closed) {
+            throw new IllegalStateException("pool is closed");
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Entry entry = getEntry(library, account);
+        List<PooledSession> expired = new ArrayList<>();
+        PooledSession session = null;
+        boolean create = false;
+        try {
+            synchronized (entry) {
+                while (true) {
+                    session = entry.pollValid(expired);
+                    if (session != null) {
+                        break;
+                    }
+                    if (entry.total < maxSessions) {
+                        entry.total++;
+                        create = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts.incrementAndGet();
+                        throw new TimeoutException("no session available for " +
+                                library.getIdent());
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(entry, remaining);
+                }
+            }
+        } finally {
+            discard(expired);
+        }
+
+        if (create) {
+            misses.incrementAndGet();
+            try {
+                session = entry.createSession();
+            } catch (IOException | RuntimeException e) {
+                entry.release(null);
+                throw e;
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+        leaseWait.record((System.nanoTime() - start) / 1000000);
+        sessionAge.record(session.getAgeMillis());
+        warmUp(entry);
+        return new Lease(entry, session);
+    }
+
+    /**
+     * Discards the idle sessions that expired and starts sessions for recently leased keys with
+     * fewer than {@code warmSessions} ones. Called periodically by the maintenance thread.
+     */
+    public void evictIdle() {
+        for (Entry entry : getEntries()) {
+            List<PooledSession> expired = new ArrayList<>();
+            synchronized (entry) {
+                for (Iterator<PooledSession> it = entry.idle.iterator(); it.hasNext(); ) {
+                    PooledSession session = it.next();
+                    if (!isValid(session)) {
+                        it.remove();
+                        entry.total--;
+                        expired.add(session);
+                    }
+                }
+            }
+            discard(expired);
+            if (isInUse(entry)) {
+                warmUp(entry);
+            }
+        }
+        removeUnused();
+    }
+
+    private void warmUp(final Entry entry) {
+        while (!closed) {
+            synchronized (entry) {
+                // leased sessions count, as they are returned to the pool
+                if (entry.total >= warmSessions) {
+                    return;
+                }
+                entry.total++;
+                entry.starting++;
+            }
+            try {
+                executors.operations().execute(() -> {
+                    PooledSession session = null;
+                    try {
+                        session = entry.createSession();
+                    } catch (IOException | RuntimeException e) {
+                        // the next lease tries again
+                    }
+                    entry.release(session, true);
+                });
+            } catch (RejectedExecutionException e) {
+                entry.release(null, true);
+                return;
+            }
+        }
+    }
+
+    private boolean isValid(PooledSession session) {
+        long now = System.currentTimeMillis();
+        long idle = now - session.lastUsed;
+        if (maxIdleMillis > 0 && idle >= maxIdleMillis) {
+            return false;
+        }
+        if (session.lifetime > 0 && idle >= session.lifetime - LIFETIME_MARGIN) {
+            return false;
+        }
+        return maxAgeMillis <= 0 || now - session.created < maxAgeMillis;
+    }
+
+    private void discard(List<PooledSession> sessions) {
+        for (PooledSession session : sessions) {
+            evicted.incrementAndGet();
+            session.api.dispose();
+        }
+    }
+
+    /**
+     * @return the current state of the pool and its counters since it was created
+     */
+    public Stats getStats() {
+        int idle = 0;
+        int leased = 0;
+        int starting = 0;
+        for (Entry entry : getEntries()) {
+            synchronized (entry) {
+                idle += entry.idle.size();
+                leased += entry.total - entry.idle.size() - entry.starting;
+                starting += entry.starting;
+            }
+        }
+        return new Stats(hits.get(), misses.get(), timeouts.get(), evicted.get(), idle, leased,
+                starting);
+    }
+
+    /**
+     * @return milliseconds {@link #lease(Library, Account, long)} took, including starting a new
+     * session
+     */
+    public Histogram getLeaseWaitHistogram() {
+        return leaseWait;
+    }
+
+    /**
+     * @return age in milliseconds of the sessions when they were leased
+     */
+    public Histogram getSessionAgeHistogram() {
+        return sessionAge;
+    }
+
+    /**
+     * Discards all idle sessions and stops the maintenance thread. Sessions that are still
+     * leased are discarded when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+        for (Entry entry : getEntries()) {
+            List<PooledSession> sessions;
+            synchronized (entry) {
+                sessions = new ArrayList<>(entry.idle);
+                entry.total -= entry.idle.size();
+                entry.idle.clear();
+                entry.notifyAll();
+            }
+            discard(sessions);
+        }
+    }
+
+    private static class PooledSession {
+        final OpacApi api;
+        final long created;
+        final long lifetime;
+        long lastUsed;
+
+        PooledSession(OpacApi api) {
+            this.api = api;
+            this.created = System.currentTimeMillis();
+            this.lastUsed = created;
+            this.lifetime = api instanceof BaseApi ? ((BaseApi) api).getSessionLifetime() : 0;
+        }
+
+        long getAgeMillis() {
+            return System.currentTimeMillis() - created;
+        }
+    }
+
+    /**
+     * The sessions of one library and account. Guarded by its own monitor, which leases also
+     * wait on.
+     */
+    private class Entry {
+        final Library library;
+        /**
+         * Most recently returned first, so that few sessions stay in use when there is little
+         * load and the others expire
+         */
+        final Deque<PooledSession> idle = new ArrayDeque<>();
+        /**
+         * Sessions that are idle, leased or starting
+         */
+        int total;
+        int starting;
+        /**
+         * Time of the last lease
+         */
+        volatile long lastLeased;
+        private OpacApi template;
+
+        Entry(Library library) {
+            this.library = library;
+        }
+
+        PooledSession pollValid(List<PooledSession> expired) {
+            PooledSession session;
+            while ((session = idle.pollFirst()) != null) {
+                if (isValid(session)) {
+                    return session;
+                }
+                total--;
+                expired.add(session);
+            }
+            return null;
+        }
+
+        PooledSession createSession() throws IOException {
+            OpacApi api;
+            synchronized (this) {
+                if (template == null) {
+                    template = factory.create(library);
+                }
+                api = template.newSession();
+            }
+            api.start();
+            return new PooledSession(api);
+        }
+
+        /**
+         * Returns a session to the pool, or frees its slot if it is {@code null}.
+         */
+        void release(PooledSession session) {
+            release(session, false);
+        }
+
+        /**
+         * @param started whether the session was started in the background
+         */
+        void release(PooledSession session, boolean started) {
+            boolean discard;
+            synchronized (this) {
+                if (started) {
+                    starting--;
+                }
+                discard = session == null || closed || !isValid(session);
+                if (discard) {
+                    total--;
+                } else {
+                    session.lastUsed = System.currentTimeMillis();
+                    idle.addFirst(session);
+                }
+                notifyAll();
+            }
+            if (discard && session != null) {
+                evicted.incrementAndGet();
+                session.api.dispose();
+            }
+        }
+    }
+
+    /**
+     * A session leased from the pool. It may only be used by one thread at a time until the lease
+     * is closed.
+     */
+    public class Lease implements Closeable {
+        private final Entry entry;
+        private final PooledSession session;
+        private boolean invalid;
+        private boolean returned;
+
+        private Lease(Entry entry, PooledSession session) {
+            this.entry = entry;
+            this.session = session;
+        }
+
+        public OpacApi getApi() {
+            return session.api;
+        }
+
+        /**
+         * Marks the session as unusable, e.g. after an error that might have left it in an
+         * unknown state, so that it is discarded instead of being returned to the pool.
+         */
+        public void invalidate() {
+            invalid = true;
+        }
+
+        /**
+         * Returns the session to the pool.
+         */
+        @Override
+        public void close() {
+            if (returned) {
+                return;
+            }
+            returned = true;
+            if (invalid) {
+                entry.release(null);
+                evicted.incrementAndGet();
+                session.api.dispose();
+            } else {
+                entry.release(session);
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the counters of a pool.
+     */
+    public static class Stats {
+        /**
+         * Leases served with an idle session
+         */
+        public final long hits;
+        /**
+         * Leases that started a new session
+         */
+        public final long misses;
+        public final long timeouts;
+        /**
+         * Sessions discarded because they expired, were invalidated or the pool was closed
+         */
+        public final long evicted;
+        public final int idle;
+        public final int leased;
+        /**
+         * Sessions being started in the background
+         */
+        public final int starting;
+
+        public Stats(long hits, long misses, long timeouts, long evicted, int idle, int leased,
+                int starting) {
+            this.hits = hits;
+            this.misses = misses;
+            this.timeouts = timeouts;
+            this.evicted = evicted;
+            this.idle = idle;
+            this.leased = leased;
+            this.starting = starting;
+        }
+
+        /**
+         * @return the share of leases served with an idle session
+         */
+        public double getHitRate() {
+            long leases = hits + misses;
+            return leases > 0 ? (double) hits / leases : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "hits=" + hits +
+                    ", misses=" + misses +
+                    ", timeouts=" + timeouts +
+                    ", evicted=" + evicted +
+                    ", idle=" + idle +
+                    ", leased=" + leased +
+                    ", starting=" + starting +
+                    '}';
+        }
+    }
+
+    public static class Builder {
+        private final SessionFactory factory;
+        private LibopacExecutors executors = LibopacExecutors.getDefault();
+        private int maxSessions = 4;
+        private int warmSessions = 1;
+        private long maxIdleMillis = 5 * 60 * 1000;
+        private long maxAgeMillis = 30 * 60 * 1000;
+        private long maintenanceIntervalMillis = 30 * 1000;
+
+        private Builder(SessionFactory factory) {
+            this.factory = factory;
+        }
+
+        /**
+         * @param executors the executors to start warm sessions on
+         */
+        public Builder executors(LibopacExecutors executors) {
+            this.executors = executors;
+            return this;
+        }
+
+        /**
+         * @param maxSessions the largest number of sessions per library and account
+         */
+        public Builder maxSessions(int maxSessions) {
+            this.maxSessions = maxSessions;
+            return this;
+        }
+
+        /**
+         * @param warmSessions the number of sessions, idle or leased, to keep started per library
+         *                     and account that was leased within {@code maxIdleMillis}. 0 turns
+         *                     off starting sessions in the background.
+         */
+        public Builder warmSessions(int warmSessions) {
+            this.warmSessions = warmSessions;
+            return this;
+        }
+
+        /**
+         * @param maxIdleMillis how long a session may stay unused, 0 for no limit
+         */
+        public Builder maxIdleMillis(long maxIdleMillis) {
+            this.maxIdleMillis = maxIdleMillis;
+            return this;
+        }
+
+        /**
+         * @param maxAgeMillis how long a session may be used in total, 0 for no limit
+         */
+        public Builder maxAgeMillis(long maxAgeMillis) {
+            this.maxAgeMillis = maxAgeMillis;
+            return this;
+        }
+
+        /**
+         * @param maintenanceIntervalMillis how often expired sessions are discarded and warm
+         *                                  sessions started, 0 for never. {@link #evictIdle()}
+         *                                  can be called instead.
+         */
+        public Builder maintenanceIntervalMillis(long maintenanceIntervalMillis) {
+            this.maintenanceIntervalMillis = maintenanceIntervalMillis;
+            return this;
+        }
+
+        public OpacApiPool build() {
+            return new OpacApiPool(this);
+        }
+    }
+}
@@ -48,12 +48,22 @@ import de.geeksfactory.opacclient.searchfields.DropdownSearchField;
 import de.geeksfactory.opacclient.searchfields.SearchField;
 import de.geeksfactory.opacclient.searchfields.SearchQuery;
 import de.geeksfactory.opacclient.searchfields.TextSearchField;
+import de.geeksfactory.opacclient.utils.HtmlRegions;
 import okhttp3.FormBody;
 
+import static de.geeksfactory.opacclient.utils.Selectors.pattern;
+import static de.geeksfactory.opacclient.utils.Selectors.select;
+
 public class Adis extends OkHttpBaseApi implements OpacApi {
 
     protected static final String DATA_DISABLE_WHEN_SELECTED = "disableWhenSelected";
     protected static final String DATA_GROUP = "group";
+    /**
+     * The parts of the list of lent media read by {@link #parseMediaList}, including the form
+     * fields that are sent back to the server and the links carrying the request count.
+     */
+    static final HtmlRegions MEDIA_LIST_REGIONS = HtmlRegions.of(".rTable_div", "input",
+            "select", ".message", ".msgpage", "a[href*=requestCount]");
     protected static HashMap<String, MediaType> types = new HashMap<>();
 
     static {
@@ -129,6 +139,13 @@ public class Adis extends OkHttpBaseApi implements OpacApi {
 
     public Document htmlGet(String url) throws
             IOException {
+        return htmlGet(url, null);
+    }
+
+    /**
+     * @param regions the parts of the page to parse, or {@code null} for the whole page
+     */
+    public Document htmlGet(String url, HtmlRegions regions) throws IOException {
 
         if (!url.contains("requestCount") && s_requestCount >= 0) {
             url = url + (url.contains("?") ? "&" : "?") + "requestCount="
@@ -136,9 +153,9 @@ public class Adis extends OkHttpBaseApi implements OpacApi {
         }
 
         String html = httpGet(url, getDefaultEncoding());
-        Document doc = Jsoup.parse(html);
-        Pattern patRequestCount = Pattern.compile("requestCount=([0-9]+)");
-        for (Element a : doc.select("a")) {
+        Document doc = regions != null ? regions.parse(html) : Jsoup.parse(html);
+        Pattern patRequestCount = pattern("requestCount=([0-9]+)");
+        for (Element a : select(doc, "a")) {
             Matcher objid_matcher = patRequestCount.matcher(a.attr("href"));
             if (objid_matcher.matches()) {
                 s_requestCount = Integer.parseInt(objid_matcher.group(1));
@@ -150,6 +167,14 @@ public class Adis extends OkHttpBaseApi implements OpacApi {
 
     public Document htmlPost(String url, List<NameValuePair> data)
             throws IOException {
+        return htmlPost(url, data, null);
+    }
+
+    /**
+     * @param regions the parts of the page to parse, or {@code null} for the whole page
+     */
+    public Document htmlPost(String url, List<NameValuePair> data, HtmlRegions regions)
+            throws IOException {
         boolean rcf = false;
         for (NameValuePair nv : data) {
             if (nv.getName().equals("requestCount")) {
@@ -167,10 +192,9 @@ public class Adis extends OkHttpBaseApi implements OpacApi {
         }
 
         String html = httpPost(url, builder.build(), getDefaultEncoding());
-        Document doc = Jsoup.parse(html);
-        Pattern patRequestCount = Pattern
-                .compile(".*requestCount=([0-9]+)[^0-9].*");
-        for (Element a : doc.select("a")) {
+        Document doc = regions != null ? regions.parse(html) : Jsoup.parse(html);
+        Pattern patRequestCount = pattern(".*requestCount=([0-9]+)[^0-9].*");
+        for (Element a : select(doc, "a")) {
             Matcher objid_matcher = patRequestCount.matcher(a.attr("href"));
             if (objid_matcher.matches()) {
                 s_requestCount = Integer.parseInt(objid_matcher.group(1));
@@ -1419,7 +1443,7 @@ public class Adis extends OkHttpBaseApi implements OpacApi {
             }
         }
         if (alink != null) {
-            Document adoc = htmlGet(alink);
+            Document adoc = htmlGet(alink, MEDIA_LIST_REGIONS);
             s_alink = alink;
             List<NameValuePair> form = new ArrayList<>();
             String prolongTest = null;
@@ -1440,7 +1464,8 @@ public class Adis extends OkHttpBaseApi implements OpacApi {
             if (prolongTest != null) {
                 form.add(new BasicNameValuePair(prolongTest,
                         "Markierte Titel verlängerbar?"));
-                Document adoc_new = htmlPost(opac_url + ";jsessionid=" + s_sid, form);
+                Document adoc_new = htmlPost(opac_url + ";jsessionid=" + s_sid, form,
+                        MEDIA_LIST_REGIONS);
                 if (adoc_new.select(".message h1, .msgpage h1").size() == 0) {
                     adoc = adoc_new;
                 }
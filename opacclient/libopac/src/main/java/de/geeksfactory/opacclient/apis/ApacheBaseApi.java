@@ -2,23 +2,18 @@ package de.geeksfactory.opacclient.apis;
 
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
-import org.apache.http.NameValuePair;
 import org.apache.http.client.CookieStore;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.protocol.HttpClientContext;
-import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
 import java.io.InterruptedIOException;
-import java.io.UnsupportedEncodingException;
-import java.net.URISyntaxException;
 import java.net.UnknownHostException;
-import java.util.List;
 
 import de.geeksfactory.opacclient.i18n.DummyStringProvider;
 import de.geeksfactory.opacclient.networking.HttpClientFactory;
@@ -28,8 +23,18 @@ import de.geeksfactory.opacclient.networking.SSLSecurityException;
 import de.geeksfactory.opacclient.objects.CoverHolder;
 import de.geeksfactory.opacclient.objects.Library;
 
+/**
+ * Base class for APIs using the Apache HttpClient.
+ *
+ * @deprecated All bundled APIs use {@link OkHttpBaseApi}, which shares its connection pool with
+ * all other API instances. Use {@link OkHttpBaseApi} and {@link
+ * de.geeksfactory.opacclient.networking.MemoryCookieJar} instead of a {@code CookieStore} for new
+ * implementations.
+ */
+@Deprecated
 public abstract class ApacheBaseApi extends BaseApi {
     public HttpClient http_client;
+    protected HttpClientFactory http_client_factory;
     protected boolean httpLoggingEnabled = true;
 
     /**
@@ -37,6 +42,7 @@ public abstract class ApacheBaseApi extends BaseApi {
      */
     @Override
     public void init(Library library, HttpClientFactory http_client_factory, boolean debug) {
+        this.http_client_factory = http_client_factory;
         http_client = http_client_factory.getNewApacheHttpClient(
                 library.getData().optBoolean("customssl", false),
                 library.getData().optBoolean("customssl_tls_only", true),
@@ -47,6 +53,11 @@ public abstract class ApacheBaseApi extends BaseApi {
         stringProvider = new DummyStringProvider();
     }
 
+    @Override
+    protected void initSession(BaseApi parent) {
+        init(parent.library, ((ApacheBaseApi) parent).http_client_factory, parent.debug);
+    }
+
     /**
      * Perform a HTTP GET request to a given URL
      *
@@ -259,16 +270,6 @@ public abstract class ApacheBaseApi extends BaseApi {
         return httpPost(url, data, getDefaultEncoding(), false, null);
     }
 
-
-    public static String buildHttpGetParams(List<NameValuePair> params)
-            throws UnsupportedEncodingException {
-        try {
-            return new URIBuilder().addParameters(params).build().toString();
-        } catch (URISyntaxException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     public void setHttpLoggingEnabled(boolean httpLoggingEnabled) {
         this.httpLoggingEnabled = httpLoggingEnabled;
     }
@@ -142,10 +142,26 @@ open class Arena : OkHttpBaseApi() {
         }
         val coverAjaxUrls = getAjaxUrls(doc)
 
-        val results = doc.select(".arena-record").map{ record ->
-            parseSearchResult(record, coverAjaxUrls)
+        val records = doc.select(".arena-record")
+        if (searchResultListener == null) {
+            val results = records.map { record ->
+                parseSearchResult(record, coverAjaxUrls)
+            }
+            return SearchRequestResult(results, count, page)
+        }
+
+        // streaming search: return the results without the AJAX covers and status first, their
+        // status is UNKNOWN until the lookup finished
+        val results = records.map { record -> parseSearchResult(record, emptyMap()) }
+        val result = SearchRequestResult(results, count, page)
+        val updates = records.zip(results).map { (record, item) ->
+            notifyOnUpdate(item, executorScope.runAsync {
+                item.cover = getCover(record, coverAjaxUrls)
+                item.status = getSearchResultStatus(record, coverAjaxUrls)
+            })
         }
-        return SearchRequestResult(results, count, page)
+        completeResultUpdates(result, updates)
+        return result
     }
 
     protected fun parseSearchResult(record: Element, ajaxUrls: Map<String, String>):
@@ -0,0 +1,70 @@
+package de.geeksfactory.opacclient.apis;
+
+import java.util.List;
+import java.util.Map;
+
+import de.geeksfactory.opacclient.objects.Account;
+import de.geeksfactory.opacclient.objects.AccountData;
+import de.geeksfactory.opacclient.objects.DetailedItem;
+import de.geeksfactory.opacclient.objects.Filter;
+import de.geeksfactory.opacclient.objects.SearchRequestResult;
+import de.geeksfactory.opacclient.searchfields.SearchField;
+import de.geeksfactory.opacclient.searchfields.SearchQuery;
+import java8.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link OpacApi}. Every operation returns immediately with a future
+ * that completes with the result or exceptionally with the exception the blocking method would
+ * have thrown.
+ * <p>
+ * An {@link OpacApi} instance holds session state, so operations on the same instance are
+ * executed one after the other, in the order they were requested. Use separate instances to run
+ * operations in parallel.
+ * <p>
+ * Get an instance with {@link AsyncOpacApiAdapter#wrap(OpacApi)} or {@link
+ * AsyncOpacApiAdapter#wrap(OpacApi, java.util.concurrent.Executor)}.
+ */
+public interface AsyncOpacApi {
+    /**
+     * @return the underlying blocking API. Calling it directly while asynchronous operations are
+     * pending is not safe.
+     */
+    OpacApi getApi();
+
+    CompletableFuture<Void> start();
+
+    CompletableFuture<SearchRequestResult> search(List<SearchQuery> query);
+
+    CompletableFuture<SearchRequestResult> volumeSearch(Map<String, String> query);
+
+    CompletableFuture<SearchRequestResult> filterResults(Filter filter, Filter.Option option);
+
+    CompletableFuture<SearchRequestResult> searchGetPage(int page);
+
+    CompletableFuture<DetailedItem> getResultById(String id, String homebranch);
+
+    CompletableFuture<DetailedItem> getResult(int position);
+
+    CompletableFuture<OpacApi.ReservationResult> reservation(DetailedItem item, Account account,
+            int useraction, String selection);
+
+    CompletableFuture<OpacApi.ProlongResult> prolong(String media, Account account,
+            int useraction, String selection);
+
+    CompletableFuture<OpacApi.ProlongAllResult> prolongAll(Account account, int useraction,
+            String selection);
+
+    CompletableFuture<OpacApi.ProlongAllResult> prolongMultiple(List<String> media,
+            Account account, int useraction, String selection);
+
+    CompletableFuture<OpacApi.CancelResult> cancel(String media, Account account,
+            int useraction, String selection);
+
+    CompletableFuture<AccountData> account(Account account);
+
+    CompletableFuture<String> getPendingAccountFees(Account account);
+
+    CompletableFuture<Void> checkAccountData(Account account);
+
+    CompletableFuture<List<SearchField>> getSearchFields();
+}
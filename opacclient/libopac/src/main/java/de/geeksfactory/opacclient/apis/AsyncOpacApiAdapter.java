@@ -0,0 +1,260 @@
+package de.geeksfactory.opacclient.apis;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import de.geeksfactory.opacclient.networking.CancellationToken;
+import de.geeksfactory.opacclient.networking.OperationContext;
+import de.geeksfactory.opacclient.networking.OperationContext.Operation;
+import de.geeksfactory.opacclient.objects.Account;
+import de.geeksfactory.opacclient.objects.AccountData;
+import de.geeksfactory.opacclient.objects.DetailedItem;
+import de.geeksfactory.opacclient.objects.Filter;
+import de.geeksfactory.opacclient.objects.SearchRequestResult;
+import de.geeksfactory.opacclient.searchfields.SearchField;
+import de.geeksfactory.opacclient.searchfields.SearchQuery;
+import de.geeksfactory.opacclient.utils.LibopacExecutors;
+import java8.util.concurrent.CompletableFuture;
+import java8.util.concurrent.CompletionException;
+
+/**
+ * Default {@link AsyncOpacApi} implementation, running the blocking methods of an {@link
+ * OpacApi} on a bounded executor. API implementations can subclass it to perform operations
+ * without blocking a thread, see {@link OkHttpBaseApi#createAsyncApi(Executor)}.
+ */
+public class AsyncOpacApiAdapter implements AsyncOpacApi {
+    protected final OpacApi api;
+    private final Executor executor;
+    /**
+     * Completes when the last requested operation is finished, used to run the operations on
+     * this API one after the other.
+     */
+    private CompletableFuture<?> tail = CompletableFuture.completedFuture(null);
+
+    public AsyncOpacApiAdapter(OpacApi api, Executor executor) {
+        this.api = api;
+        this.executor = executor;
+    }
+
+    /**
+     * Creates an asynchronous facade for an API, using a native implementation if the API
+     * provides one.
+     * <p>
+     * Every call creates a new facade with its own order of operations, so operations requested
+     * through two facades of the same API may run at the same time. Callers must keep using a
+     * single facade per API instance, or use {@link #wrap(OpacApi)}.
+     *
+     * @param executor used to run blocking operations. A rejected execution fails the
+     *                 operation's future.
+     */
+    public static AsyncOpacApi wrap(OpacApi api, Executor executor) {
+        if (api instanceof OkHttpBaseApi) {
+            return ((OkHttpBaseApi) api).createAsyncApi(executor);
+        }
+        return new AsyncOpacApiAdapter(api, executor);
+    }
+
+    /**
+     * Returns an asynchronous facade for an API using the operation pool of the API's {@link
+     * LibopacExecutors}. For a {@link BaseApi}, this is the same facade on every call, see {@link
+     * BaseApi#getAsyncApi()}. Other APIs get a new facade, as with {@link #wrap(OpacApi,
+     * Executor)}.
+     */
+    public static AsyncOpacApi wrap(OpacApi api) {
+        if (api instanceof BaseApi) {
+            return ((BaseApi) api).getAsyncApi();
+        }
+        return wrap(api, getDefaultExecutor());
+    }
+
+    /**
+     * @return the operation pool of {@link LibopacExecutors#getDefault()}, with a bounded number
+     * of daemon threads and a bounded queue
+     */
+    public static Executor getDefaultExecutor() {
+        return LibopacExecutors.getDefault().operations();
+    }
+
+    protected interface AsyncOperation<T> {
+        CompletableFuture<T> start() throws Exception;
+    }
+
+    protected interface BlockingOperation<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * Starts an operation once all previously requested operations on this API are finished.
+     * The operation is started within an {@link OperationContext}, so requests created while
+     * starting it are attributed to it. Cancelling the returned future cancels the operation's
+     * {@link CancellationToken}, aborting its requests and background tasks.
+     */
+    @SuppressWarnings("try")
+    protected <T> CompletableFuture<T> enqueue(final Operation operation,
+            final AsyncOperation<T> body) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<?> previous;
+        synchronized (this) {
+            previous = tail;
+            tail = done;
+        }
+        previous.whenComplete((ignored, error) -> {
+            if (result.isDone()) {
+                // cancelled while waiting
+                done.complete(null);
+                return;
+            }
+            final CancellationToken token = new CancellationToken();
+            CompletableFuture<T> future;
+            try (OperationContext ctx = OperationContext.enter(operation, token)) {
+                future = body.start();
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+                done.complete(null);
+                return;
+            }
+            future.whenComplete((value, e) -> {
+                if (e != null) {
+                    result.completeExceptionally(unwrap(e));
+                } else {
+                    result.complete(value);
+                }
+                done.complete(null);
+            });
+            result.whenComplete((value, e) -> {
+                if (result.isCancelled()) {
+                    token.cancel();
+                    future.cancel(true);
+                }
+            });
+        });
+        return result;
+    }
+
+    /**
+     * Runs a blocking operation on the executor, after all previously requested operations on
+     * this API are finished.
+     */
+    @SuppressWarnings("try")
+    protected <T> CompletableFuture<T> blocking(final Operation operation,
+            final BlockingOperation<T> body) {
+        return enqueue(operation, () -> {
+            final CompletableFuture<T> future = new CompletableFuture<>();
+            final CancellationToken token = CancellationToken.current();
+            executor.execute(() -> {
+                try (OperationContext ctx = OperationContext.enter(operation, token)) {
+                    future.complete(body.run());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+            return future;
+        });
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    @Override
+    public OpacApi getApi() {
+        return api;
+    }
+
+    @Override
+    public CompletableFuture<Void> start() {
+        return blocking(Operation.OTHER, () -> {
+            api.start();
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<SearchRequestResult> search(List<SearchQuery> query) {
+        return blocking(Operation.SEARCH, () -> api.search(query));
+    }
+
+    @Override
+    public CompletableFuture<SearchRequestResult> volumeSearch(Map<String, String> query) {
+        return blocking(Operation.SEARCH, () -> api.volumeSearch(query));
+    }
+
+    @Override
+    public CompletableFuture<SearchRequestResult> filterResults(Filter filter,
+            Filter.Option option) {
+        return blocking(Operation.SEARCH, () -> api.filterResults(filter, option));
+    }
+
+    @Override
+    public CompletableFuture<SearchRequestResult> searchGetPage(int page) {
+        return blocking(Operation.SEARCH_GET_PAGE, () -> api.searchGetPage(page));
+    }
+
+    @Override
+    public CompletableFuture<DetailedItem> getResultById(String id, String homebranch) {
+        return blocking(Operation.GET_RESULT, () -> api.getResultById(id, homebranch));
+    }
+
+    @Override
+    public CompletableFuture<DetailedItem> getResult(int position) {
+        return blocking(Operation.GET_RESULT, () -> api.getResult(position));
+    }
+
+    @Override
+    public CompletableFuture<OpacApi.ReservationResult> reservation(DetailedItem item,
+            Account account, int useraction, String selection) {
+        return blocking(Operation.OTHER,
+                () -> api.reservation(item, account, useraction, selection));
+    }
+
+    @Override
+    public CompletableFuture<OpacApi.ProlongResult> prolong(String media, Account account,
+            int useraction, String selection) {
+        return blocking(Operation.PROLONG,
+                () -> api.prolong(media, account, useraction, selection));
+    }
+
+    @Override
+    public CompletableFuture<OpacApi.ProlongAllResult> prolongAll(Account account,
+            int useraction, String selection) {
+        return blocking(Operation.PROLONG, () -> api.prolongAll(account, useraction, selection));
+    }
+
+    @Override
+    public CompletableFuture<OpacApi.ProlongAllResult> prolongMultiple(List<String> media,
+            Account account, int useraction, String selection) {
+        return blocking(Operation.PROLONG,
+                () -> api.prolongMultiple(media, account, useraction, selection));
+    }
+
+    @Override
+    public CompletableFuture<OpacApi.CancelResult> cancel(String media, Account account,
+            int useraction, String selection) {
+        return blocking(Operation.OTHER, () -> api.cancel(media, account, useraction, selection));
+    }
+
+    @Override
+    public CompletableFuture<AccountData> account(Account account) {
+        return blocking(Operation.ACCOUNT, () -> api.account(account));
+    }
+
+    @Override
+    public CompletableFuture<String> getPendingAccountFees(Account account) {
+        return blocking(Operation.ACCOUNT, () -> api.getPendingAccountFees(account));
+    }
+
+    @Override
+    public CompletableFuture<Void> checkAccountData(Account account) {
+        return blocking(Operation.ACCOUNT, () -> {
+            api.checkAccountData(account);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<SearchField>> getSearchFields() {
+        return blocking(Operation.OTHER, () -> api.getSearchFields());
+    }
+}
@@ -22,6 +22,7 @@
 package de.geeksfactory.opacclient.apis;
 
 import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.http.message.BasicNameValuePair;
 import org.json.JSONException;
@@ -32,6 +33,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
+import java.net.URISyntaxException;
 import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -40,30 +42,45 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import de.geeksfactory.opacclient.i18n.DummyStringProvider;
 import de.geeksfactory.opacclient.i18n.StringProvider;
+import de.geeksfactory.opacclient.networking.CancellationToken;
 import de.geeksfactory.opacclient.networking.HttpClientFactory;
 import de.geeksfactory.opacclient.objects.Account;
 import de.geeksfactory.opacclient.objects.AccountData;
 import de.geeksfactory.opacclient.objects.Library;
 import de.geeksfactory.opacclient.objects.SearchRequestResult;
+import de.geeksfactory.opacclient.objects.SearchResult;
 import de.geeksfactory.opacclient.reporting.ReportHandler;
 import de.geeksfactory.opacclient.searchfields.MeaningDetector;
 import de.geeksfactory.opacclient.searchfields.MeaningDetectorImpl;
 import de.geeksfactory.opacclient.searchfields.SearchField;
 import de.geeksfactory.opacclient.searchfields.SearchQuery;
+import de.geeksfactory.opacclient.utils.LibopacExecutors;
+import java8.util.concurrent.CompletableFuture;
+import java8.util.concurrent.CompletionException;
 
 /**
  * Abstract Base class for OpacApi implementations providing some helper methods for HTTP
  */
-public abstract class BaseApi implements OpacApi {
+public abstract class BaseApi implements OpacApi, StreamingSearchApi {
     protected boolean debug;
     protected Library library;
     protected StringProvider stringProvider;
     protected Set<String> supportedLanguages;
     protected boolean initialised;
     protected ReportHandler reportHandler;
+    protected LibopacExecutors executors = LibopacExecutors.getDefault();
+    private LibopacExecutors.Scope executorScope;
+    private AsyncOpacApi asyncApi;
+    private SerializedListener searchResultListener;
+    private boolean searchResultsStreamed;
+    private long searchDeadline;
 
     /**
      * Keywords to do a free search. Some APIs do support this, some don't. If supported, it must at
@@ -286,6 +303,15 @@ public abstract class BaseApi implements OpacApi {
         return queryMap;
     }
 
+    public static String buildHttpGetParams(List<NameValuePair> params)
+            throws UnsupportedEncodingException {
+        try {
+            return new URIBuilder().addParameters(params).build().toString();
+        } catch (URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /*
      * Gets all values of all query parameters in an URL.
      */
@@ -365,6 +391,45 @@ public abstract class BaseApi implements OpacApi {
         initialised = true;
     }
 
+    @Override
+    public OpacApi newSession() {
+        BaseApi session = newInstance();
+        session.initSession(this);
+        session.stringProvider = stringProvider;
+        session.reportHandler = reportHandler;
+        session.executors = executors;
+        return session;
+    }
+
+    /**
+     * @return milliseconds after which the OPAC discards a session that was not used, or 0 if
+     * this is not known
+     */
+    public long getSessionLifetime() {
+        return 0;
+    }
+
+    /**
+     * Creates an uninitialized instance of this API for {@link #newSession()}. The default uses
+     * the constructor without arguments.
+     */
+    protected BaseApi newInstance() {
+        try {
+            return getClass().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException(
+                    getClass().getSimpleName() + " does not support new sessions", e);
+        }
+    }
+
+    /**
+     * Initializes a new instance created by {@link #newSession()} with the configuration of
+     * {@code parent}, usually by calling {@link #init(Library, HttpClientFactory, boolean)} with
+     * the HTTP client factory of {@code parent}. Implementations override this to also take over
+     * state that is not set in {@code init}, e.g. constructor arguments.
+     */
+    protected abstract void initSession(BaseApi parent);
+
     protected String getDefaultEncoding() {
         return "ISO-8859-1";
     }
@@ -405,6 +470,186 @@ public abstract class BaseApi implements OpacApi {
         this.reportHandler = reportHandler;
     }
 
+    @Override
+    public SearchRequestResult search(List<SearchQuery> query, SearchResultListener listener)
+            throws IOException, OpacErrorException, JSONException {
+        return search(query, 0, listener);
+    }
+
+    @Override
+    public SearchRequestResult searchGetPage(int page, SearchResultListener listener)
+            throws IOException, OpacErrorException, JSONException {
+        return searchGetPage(page, 0, listener);
+    }
+
+    @Override
+    public SearchRequestResult search(List<SearchQuery> query, long timeoutMillis,
+            SearchResultListener listener)
+            throws IOException, OpacErrorException, JSONException {
+        startStreaming(listener, timeoutMillis);
+        try {
+            return finishStreaming(search(query));
+        } finally {
+            searchResultListener = null;
+        }
+    }
+
+    @Override
+    public SearchRequestResult searchGetPage(int page, long timeoutMillis,
+            SearchResultListener listener)
+            throws IOException, OpacErrorException, JSONException {
+        startStreaming(listener, timeoutMillis);
+        try {
+            return finishStreaming(searchGetPage(page));
+        } finally {
+            searchResultListener = null;
+        }
+    }
+
+    private void startStreaming(SearchResultListener listener, long timeoutMillis) {
+        searchResultListener = new SerializedListener(listener);
+        searchResultsStreamed = false;
+        searchDeadline = timeoutMillis > 0 ?
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0;
+    }
+
+    private SearchRequestResult finishStreaming(SearchRequestResult result) {
+        searchResultListener.pageReturned();
+        if (!searchResultsStreamed) {
+            searchResultListener.onComplete(result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the listener of the streaming search in progress, or {@code null} for a blocking
+     * search
+     */
+    protected SearchResultListener getSearchResultListener() {
+        return searchResultListener;
+    }
+
+    /**
+     * Reports a result to the listener of a streaming search when an update of its status or
+     * cover completes.
+     *
+     * @return a future completing after the listener was called
+     */
+    protected <T> CompletableFuture<T> notifyOnUpdate(final SearchResult result,
+            CompletableFuture<T> update) {
+        final SearchResultListener listener = searchResultListener;
+        if (listener == null) {
+            return update;
+        }
+        return update.whenComplete((value, throwable) -> {
+            if (throwable == null) {
+                listener.onResultUpdated(result);
+            }
+        });
+    }
+
+    /**
+     * Completes a page of search results. For a blocking search, this waits for the given
+     * updates. For a streaming search, it waits until the time budget of the search is used up,
+     * or not at all without a budget, and reports the end of the updates to the listener.
+     * <p>
+     * Results of a streaming search must have the status {@link SearchResult.Status#UNKNOWN}
+     * while their status lookup is pending, so that a result returned before its lookup finished
+     * does not lack a status.
+     */
+    protected void completeResultUpdates(final SearchRequestResult result,
+            List<? extends CompletableFuture<?>> updates) {
+        CompletableFuture<Void> all =
+                CompletableFuture.allOf(updates.toArray(new CompletableFuture<?>[updates.size()]));
+        final SearchResultListener listener = searchResultListener;
+        if (listener == null) {
+            try {
+                all.join();
+            } catch (CompletionException | CancellationException e) {
+                // the updates were aborted with the operation
+                CancellationToken.throwIfCurrentCancelled();
+                throw e;
+            }
+            return;
+        }
+        searchResultsStreamed = true;
+        all.whenComplete((value, throwable) -> listener.onComplete(result));
+        if (searchDeadline != 0) {
+            try {
+                all.get(Math.max(0, searchDeadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                // return what we have, the remaining updates go to the listener
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        CancellationToken.throwIfCurrentCancelled();
+    }
+
+    /**
+     * Calls a listener from one thread at a time. Updates completing before the page is returned
+     * are not reported, as they are already part of it.
+     */
+    private static class SerializedListener implements SearchResultListener {
+        private final SearchResultListener listener;
+        private boolean returned;
+
+        SerializedListener(SearchResultListener listener) {
+            this.listener = listener;
+        }
+
+        synchronized void pageReturned() {
+            returned = true;
+        }
+
+        @Override
+        public synchronized void onResultUpdated(SearchResult result) {
+            if (returned && listener != null) {
+                listener.onResultUpdated(result);
+            }
+        }
+
+        @Override
+        public synchronized void onComplete(SearchRequestResult result) {
+            if (listener != null) {
+                listener.onComplete(result);
+            }
+        }
+    }
+
+    /**
+     * @return the asynchronous facade of this instance, running blocking operations on the
+     * operation pool of its executors. It is created once, so that all operations requested
+     * through it run one after the other.
+     */
+    public synchronized AsyncOpacApi getAsyncApi() {
+        if (asyncApi == null) {
+            asyncApi = AsyncOpacApiAdapter.wrap(this, executors.operations());
+        }
+        return asyncApi;
+    }
+
+    @Override
+    public void setExecutors(LibopacExecutors executors) {
+        this.executors = executors;
+    }
+
+    /**
+     * @return the scope to run background I/O tasks of this instance in, cancelled by {@link
+     * #dispose()}
+     */
+    protected synchronized LibopacExecutors.Scope getExecutorScope() {
+        if (executorScope == null) {
+            executorScope = executors.newScope();
+        }
+        return executorScope;
+    }
+
+    @Override
+    public void dispose() {
+        getExecutorScope().cancel();
+    }
+
     @Override
     public String getPendingAccountFees(Account account)
             throws IOException, JSONException, OpacErrorException {
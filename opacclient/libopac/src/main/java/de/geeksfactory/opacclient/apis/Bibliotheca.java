@@ -77,9 +77,13 @@ import de.geeksfactory.opacclient.searchfields.SearchField;
 import de.geeksfactory.opacclient.searchfields.SearchField.Meaning;
 import de.geeksfactory.opacclient.searchfields.SearchQuery;
 import de.geeksfactory.opacclient.searchfields.TextSearchField;
+import de.geeksfactory.opacclient.utils.ParallelRecordParser;
 import de.geeksfactory.opacclient.utils.JsonKeyIterator;
 import okhttp3.FormBody;
 
+import static de.geeksfactory.opacclient.utils.Selectors.pattern;
+import static de.geeksfactory.opacclient.utils.Selectors.select;
+
 /**
  * OpacApi implementation for Bibliotheca Web Opacs, originally developed by BOND, now owned by
  * OCLC. Known to work well with Web Opac versions from 2.6, maybe older, to 2.8
@@ -307,6 +311,11 @@ public class Bibliotheca extends OkHttpBaseApi {
         }
     }
 
+    @Override
+    public long getSessionLifetime() {
+        return SESSION_LIFETIME;
+    }
+
     @Override
     public SearchRequestResult search(List<SearchQuery> queries)
             throws IOException, JSONException,
@@ -394,94 +403,100 @@ public class Bibliotheca extends OkHttpBaseApi {
             start();
         }
 
-        String html = httpGet(opac_url + "/index.asp?scrollAction=" + page,
+        Document doc = httpGetDocument(opac_url + "/index.asp?scrollAction=" + page,
                 getDefaultEncoding());
-        return parseSearch(html, page, data);
+        return parseSearch(doc, page, data);
     }
 
     public static SearchRequestResult parseSearch(String html, int page, JSONObject data)
             throws OpacErrorException {
-        Document doc = Jsoup.parse(html);
+        return parseSearch(Jsoup.parse(html), page, data);
+    }
+
+    public static SearchRequestResult parseSearch(Document doc, int page, JSONObject data)
+            throws OpacErrorException {
         doc.setBaseUri(data.optString("baseurl"));
         Elements table = doc
                 .select(".resulttab tr.result_trefferX, .resulttab tr.result_treffer");
-        List<SearchResult> results = new ArrayList<>();
-        for (int i = 0; i < table.size(); i++) {
-            Element tr = table.get(i);
-            SearchResult sr = new SearchResult();
-            int contentindex = 1;
-            if (tr.select("td a img").size() > 0) {
-                String[] fparts = tr.select("td a img").get(0).attr("src")
-                                    .split("/");
-                String fname = fparts[fparts.length - 1];
-                if (data.has("mediatypes")) {
-                    try {
-                        sr.setType(MediaType.valueOf(data.getJSONObject(
-                                "mediatypes").getString(fname)));
-                    } catch (JSONException | IllegalArgumentException e) {
-                        sr.setType(defaulttypes.get(fname
-                                .toLowerCase(Locale.GERMAN).replace(".jpg", "")
-                                .replace(".gif", "").replace(".png", "")));
-                    }
-                } else {
+        List<SearchResult> results =
+                ParallelRecordParser.parse(table, (tr, i) -> parseSearchRow(tr, i, data));
+        int results_total = -1;
+        if (select(doc, ".result_gefunden").size() > 0) {
+            try {
+                results_total = Integer.parseInt(select(doc, ".result_gefunden")
+                                                    .text().trim()
+                                                    .replaceAll(".*[^0-9]+([0-9]+).*", "$1"));
+            } catch (NumberFormatException e) {
+                e.printStackTrace();
+                results_total = -1;
+            }
+        } else if (select(doc, ".resultzeile").size() > 0) {
+            throw new OpacErrorException(select(doc, ".resultzeile").text());
+        }
+        return new SearchRequestResult(results, results_total, page);
+    }
+
+    private static SearchResult parseSearchRow(Element tr, int i, JSONObject data) {
+        SearchResult sr = new SearchResult();
+        int contentindex = 1;
+        if (select(tr, "td a img").size() > 0) {
+            String[] fparts = select(tr, "td a img").get(0).attr("src")
+                                .split("/");
+            String fname = fparts[fparts.length - 1];
+            if (data.has("mediatypes")) {
+                try {
+                    sr.setType(MediaType.valueOf(data.getJSONObject(
+                            "mediatypes").getString(fname)));
+                } catch (JSONException | IllegalArgumentException e) {
                     sr.setType(defaulttypes.get(fname
                             .toLowerCase(Locale.GERMAN).replace(".jpg", "")
                             .replace(".gif", "").replace(".png", "")));
                 }
             } else {
-                if (tr.children().size() == 3) {
-                    contentindex = 2;
-                }
+                sr.setType(defaulttypes.get(fname
+                        .toLowerCase(Locale.GERMAN).replace(".jpg", "")
+                        .replace(".gif", "").replace(".png", "")));
             }
-            sr.setInnerhtml(tr.child(contentindex).child(0).html());
-
-            sr.setNr(i);
-            Element link = tr.child(contentindex).select("a").first();
-            try {
-                if (link != null && link.attr("href").contains("detmediennr")) {
-                    Map<String, String> params = getQueryParamsFirst(link
-                            .attr("abs:href"));
-                    String nr = params.get("detmediennr");
-                    if (Integer.parseInt(nr) > i + 1) {
-                        // Seems to be an ID…
-                        if (params.get("detDB") != null) {
-                            sr.setId("&detmediennr=" + nr + "&detDB="
-                                    + params.get("detDB"));
-                        } else {
-                            sr.setId("&detmediennr=" + nr);
-                        }
-                    }
-                }
-            } catch (Exception e) {
+        } else {
+            if (tr.children().size() == 3) {
+                contentindex = 2;
             }
-            try {
-                for (Node td: tr.childNodes()) {
-                    if (td.childNode(0) instanceof Comment) {
-                        Comment c = (Comment) td.childNode(0);
-                        String comment = c.getData().trim();
-                        String id = comment.split(": ")[1];
-                        sr.setId(id);
+        }
+        // html() of a copy, the encoder of the document is not thread-safe
+        sr.setInnerhtml(tr.child(contentindex).child(0).clone().html());
+
+        sr.setNr(i);
+        Element link = tr.child(contentindex).select("a").first();
+        try {
+            if (link != null && link.attr("href").contains("detmediennr")) {
+                Map<String, String> params = getQueryParamsFirst(link
+                        .attr("abs:href"));
+                String nr = params.get("detmediennr");
+                if (Integer.parseInt(nr) > i + 1) {
+                    // Seems to be an ID…
+                    if (params.get("detDB") != null) {
+                        sr.setId("&detmediennr=" + nr + "&detDB="
+                                + params.get("detDB"));
+                    } else {
+                        sr.setId("&detmediennr=" + nr);
                     }
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
             }
-            results.add(sr);
+        } catch (Exception e) {
         }
-        int results_total = -1;
-        if (doc.select(".result_gefunden").size() > 0) {
-            try {
-                results_total = Integer.parseInt(doc.select(".result_gefunden")
-                                                    .text().trim()
-                                                    .replaceAll(".*[^0-9]+([0-9]+).*", "$1"));
-            } catch (NumberFormatException e) {
-                e.printStackTrace();
-                results_total = -1;
+        try {
+            for (Node td: tr.childNodes()) {
+                if (td.childNode(0) instanceof Comment) {
+                    Comment c = (Comment) td.childNode(0);
+                    String comment = c.getData().trim();
+                    String id = comment.split(": ")[1];
+                    sr.setId(id);
+                }
             }
-        } else if (doc.select(".resultzeile").size() > 0) {
-            throw new OpacErrorException(doc.select(".resultzeile").text());
+        } catch (Exception e) {
+            e.printStackTrace();
         }
-        return new SearchRequestResult(results, results_total, page);
+        return sr;
     }
 
     @Override
@@ -490,9 +505,9 @@ public class Bibliotheca extends OkHttpBaseApi {
         if (!initialised) {
             start();
         }
-        String html = httpGet(opac_url + "/index.asp?MedienNr=" + a,
+        Document doc = httpGetDocument(opac_url + "/index.asp?MedienNr=" + a,
                 getDefaultEncoding());
-        DetailedItem result = parseResult(html, data);
+        DetailedItem result = parseResult(doc, data);
         if (result.getId() == null) {
             result.setId(a);
         }
@@ -501,25 +516,28 @@ public class Bibliotheca extends OkHttpBaseApi {
 
     @Override
     public DetailedItem getResult(int nr) throws IOException {
-        String html = httpGet(opac_url + "/index.asp?detmediennr=" + nr,
+        Document doc = httpGetDocument(opac_url + "/index.asp?detmediennr=" + nr,
                 getDefaultEncoding());
 
-        return parseResult(html, data);
+        return parseResult(doc, data);
     }
 
     static DetailedItem parseResult(String html, JSONObject data) {
-        Document doc = Jsoup.parse(html);
+        return parseResult(Jsoup.parse(html), data);
+    }
+
+    static DetailedItem parseResult(Document doc, JSONObject data) {
         doc.setBaseUri(data.optString("baseurl"));
 
         DetailedItem result = new DetailedItem();
 
-        if (doc.select(".detail_cover img").size() == 1) {
-            result.setCover(doc.select(".detail_cover img").get(0).attr("src"));
+        if (select(doc, ".detail_cover img").size() == 1) {
+            result.setCover(select(doc, ".detail_cover img").get(0).attr("src"));
         }
 
-        result.setTitle(doc.select(".detail_titel").text());
+        result.setTitle(select(doc, ".detail_titel").text());
 
-        Elements detailtrs = doc.select(".detailzeile table tr");
+        Elements detailtrs = select(doc, ".detailzeile table tr");
         for (int i = 0; i < detailtrs.size(); i++) {
             Element tr = detailtrs.get(i);
             if (tr.child(0).hasClass("detail_feld")) {
@@ -564,7 +582,7 @@ public class Bibliotheca extends OkHttpBaseApi {
             if (data.has("copiestable")) {
                 copymap = data.getJSONObject("copiestable");
             } else {
-                Elements ths = doc.select(".exemplartab .exemplarmenubar th");
+                Elements ths = select(doc, ".exemplartab .exemplarmenubar th");
                 for (int i = 0; i < ths.size(); i++) {
                     Element th = ths.get(i);
                     String head = th.text().trim();
@@ -625,7 +643,7 @@ public class Bibliotheca extends OkHttpBaseApi {
         }
 
         try {
-            Elements bandtrs = doc.select("table .tabBand a");
+            Elements bandtrs = select(doc, "table .tabBand a");
             for (int i = 0; i < bandtrs.size(); i++) {
                 Element tr = bandtrs.get(i);
 
@@ -638,9 +656,9 @@ public class Bibliotheca extends OkHttpBaseApi {
             e.printStackTrace();
         }
 
-        if (doc.select(".detail_vorbest a").size() == 1) {
+        if (select(doc, ".detail_vorbest a").size() == 1) {
             result.setReservable(true);
-            result.setReservation_info(doc.select(".detail_vorbest a").attr(
+            result.setReservation_info(select(doc, ".detail_vorbest a").attr(
                     "href"));
         }
         return result;
@@ -1056,12 +1074,12 @@ public class Bibliotheca extends OkHttpBaseApi {
     public static AccountData parse_account(Account acc, Document doc, JSONObject data,
             ReportHandler reportHandler, JSONObject headers_lent, JSONObject headers_reservations)
             throws JSONException, NotReachableException {
-        if (doc.select(".kontozeile_center table").size() == 0) {
+        if (select(doc, ".kontozeile_center table").size() == 0) {
             throw new NotReachableException();
         }
 
         Map<String, Integer> copymap = new HashMap<>();
-        Elements headerCells = doc.select(".kontozeile_center table").get(0)
+        Elements headerCells = select(doc, ".kontozeile_center table").get(0)
                                   .select("tr.exemplarmenubar").get(0).children();
         JSONArray headersList = new JSONArray();
         JSONArray unknownHeaders = new JSONArray();
@@ -1093,7 +1111,7 @@ public class Bibliotheca extends OkHttpBaseApi {
 
         List<LentItem> media = new ArrayList<>();
 
-        Elements exemplartrs = doc.select(".kontozeile_center table").get(0)
+        Elements exemplartrs = select(doc, ".kontozeile_center table").get(0)
                                   .select("tr.tabKonto");
 
         DateTimeFormatter fmt = DateTimeFormat.forPattern("dd.MM.yyyy").withLocale(Locale.GERMAN);
@@ -1130,7 +1148,7 @@ public class Bibliotheca extends OkHttpBaseApi {
         }
 
         copymap = new HashMap<>();
-        headerCells = doc.select(".kontozeile_center table").get(1)
+        headerCells = select(doc, ".kontozeile_center table").get(1)
                          .select("tr.exemplarmenubar").get(0).children();
         headersList = new JSONArray();
         unknownHeaders = new JSONArray();
@@ -1164,7 +1182,7 @@ public class Bibliotheca extends OkHttpBaseApi {
         }
 
         List<ReservedItem> reservations = new ArrayList<>();
-        exemplartrs = doc.select(".kontozeile_center table").get(1)
+        exemplartrs = select(doc, ".kontozeile_center table").get(1)
                          .select("tr.tabKonto");
         for (Element tr : exemplartrs) {
             ReservedItem item = new ReservedItem();
@@ -1206,7 +1224,7 @@ public class Bibliotheca extends OkHttpBaseApi {
 
         AccountData res = new AccountData(acc.getId());
 
-        for (Element row : doc.select(".kontozeile_center, div[align=center]")) {
+        for (Element row : select(doc, ".kontozeile_center, div[align=center]")) {
             String text = row.text().trim();
             String feesRegex =
                     ".*(?:Ausstehende Geb.+hren|Geb.+hrenkonto):[^0-9]+([0-9.,]+)[^0-9€A-Z]*" +
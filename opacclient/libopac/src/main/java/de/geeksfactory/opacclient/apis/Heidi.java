@@ -23,11 +23,7 @@
 package de.geeksfactory.opacclient.apis;
 
 import org.apache.http.NameValuePair;
-import org.apache.http.client.CookieStore;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.utils.URLEncodedUtils;
-import org.apache.http.impl.client.BasicCookieStore;
-import org.apache.http.impl.cookie.BasicClientCookie;
 import org.apache.http.message.BasicNameValuePair;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
@@ -43,6 +39,7 @@ import org.jsoup.select.Elements;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -52,6 +49,7 @@ import java.util.Set;
 
 import de.geeksfactory.opacclient.i18n.StringProvider;
 import de.geeksfactory.opacclient.networking.HttpClientFactory;
+import de.geeksfactory.opacclient.networking.MemoryCookieJar;
 import de.geeksfactory.opacclient.objects.Account;
 import de.geeksfactory.opacclient.objects.AccountData;
 import de.geeksfactory.opacclient.objects.Copy;
@@ -70,8 +68,11 @@ import de.geeksfactory.opacclient.searchfields.DropdownSearchField;
 import de.geeksfactory.opacclient.searchfields.SearchField;
 import de.geeksfactory.opacclient.searchfields.SearchQuery;
 import de.geeksfactory.opacclient.searchfields.TextSearchField;
+import okhttp3.Cookie;
+import okhttp3.FormBody;
+import okhttp3.HttpUrl;
 
-public class Heidi extends ApacheBaseApi implements OpacApi {
+public class Heidi extends OkHttpBaseApi implements OpacApi {
 
     protected String opac_url = "";
     protected Library library;
@@ -81,7 +82,7 @@ public class Heidi extends ApacheBaseApi implements OpacApi {
     protected String last_error;
     protected int pagesize = 20;
     protected List<SearchQuery> last_query;
-    protected CookieStore cookieStore = new BasicCookieStore();
+    protected MemoryCookieJar cookieStore = new MemoryCookieJar();
 
     @Override
     public void start() throws IOException {
@@ -113,6 +114,15 @@ public class Heidi extends ApacheBaseApi implements OpacApi {
         this.opac_url = data.optString("baseurl", "");
     }
 
+    private static FormBody buildFormBody(List<NameValuePair> nameValuePairs) {
+        // Heidi expects form data in ISO-8859-1, like the Apache UrlEncodedFormEntity sent it
+        FormBody.Builder builder = new FormBody.Builder(Charset.forName("ISO-8859-1"));
+        for (NameValuePair nvp : nameValuePairs) {
+            builder.add(nvp.getName(), nvp.getValue());
+        }
+        return builder.build();
+    }
+
     protected int addParameters(String key, String value,
             List<NameValuePair> params, int index) {
         index++;
@@ -372,7 +382,11 @@ public class Heidi extends ApacheBaseApi implements OpacApi {
 
         // Homebranch
         if (homebranch != null && !"".equals(homebranch)) {
-            cookieStore.addCookie(new BasicClientCookie("zweig", homebranch));
+            cookieStore.addCookie(new Cookie.Builder()
+                    .name("zweig")
+                    .value(homebranch)
+                    .domain(HttpUrl.get(opac_url).host())
+                    .build());
         }
 
         String html = httpGet(opac_url + "/titel.cgi?katkey=" + id + "&sess="
@@ -540,8 +554,7 @@ public class Heidi extends ApacheBaseApi implements OpacApi {
             nameValuePairs.add(new BasicNameValuePair("log", "login"));
             nameValuePairs.add(new BasicNameValuePair("weiter",
                     "bestellung.cgi?ks=" + item.getId()));
-            html = httpPost(opac_url + "/login.cgi", new UrlEncodedFormEntity(
-                    nameValuePairs), ENCODING);
+            html = httpPost(opac_url + "/login.cgi", buildFormBody(nameValuePairs), ENCODING);
             doc = Jsoup.parse(html);
             if (doc.select(".loginbox .meld").size() > 0) {
                 return new ReservationResult(MultiStepResult.Status.ERROR, doc
@@ -558,7 +571,7 @@ public class Heidi extends ApacheBaseApi implements OpacApi {
                 nameValuePairs.add(new BasicNameValuePair("funktion",
                         "Vormerkung"));
                 html = httpPost(opac_url + "/bestellung.cgi",
-                        new UrlEncodedFormEntity(nameValuePairs), ENCODING);
+                        buildFormBody(nameValuePairs), ENCODING);
                 doc = Jsoup.parse(html);
             } else {
                 List<Map<String, String>> options = new ArrayList<>();
@@ -611,7 +624,7 @@ public class Heidi extends ApacheBaseApi implements OpacApi {
         nameValuePairs.add(new BasicNameValuePair("mark", media));
         nameValuePairs.add(new BasicNameValuePair("sess", sessid));
         String html = httpPost(opac_url + "/konto.cgi",
-                new UrlEncodedFormEntity(nameValuePairs), ENCODING);
+                buildFormBody(nameValuePairs), ENCODING);
         Document doc = Jsoup.parse(html);
         if (doc.select("input[name=pw]").size() > 0) {
             try {
@@ -694,7 +707,7 @@ public class Heidi extends ApacheBaseApi implements OpacApi {
         nameValuePairs.add(new BasicNameValuePair("mark", media));
         nameValuePairs.add(new BasicNameValuePair("sess", sessid));
         String html = httpPost(opac_url + "/konto.cgi",
-                new UrlEncodedFormEntity(nameValuePairs), ENCODING);
+                buildFormBody(nameValuePairs), ENCODING);
         Document doc = Jsoup.parse(html);
         if (doc.select("input[name=pw]").size() > 0) {
             login(account);
@@ -862,7 +875,7 @@ public class Heidi extends ApacheBaseApi implements OpacApi {
         nameValuePairs.add(new BasicNameValuePair("log", "login"));
         nameValuePairs.add(new BasicNameValuePair("weiter", "konto.cgi"));
         String html = httpPost(opac_url + "/login.cgi",
-                new UrlEncodedFormEntity(nameValuePairs), ENCODING);
+                buildFormBody(nameValuePairs), ENCODING);
         Document doc = Jsoup.parse(html);
         if (doc.select(".loginbox .meld").size() > 0) {
             throw new OpacErrorException(doc.select(".loginbox .meld").text());
@@ -5,6 +5,7 @@ import de.geeksfactory.opacclient.objects.*
 import de.geeksfactory.opacclient.searchfields.*
 import de.geeksfactory.opacclient.utils.get
 import de.geeksfactory.opacclient.utils.html
+import de.geeksfactory.opacclient.utils.regex
 import de.geeksfactory.opacclient.utils.text
 import okhttp3.FormBody
 import org.joda.time.LocalDate
@@ -204,7 +205,7 @@ open class Lissy : OkHttpBaseApi() {
     private fun parseDetail(doc: Document): DetailedItem {
         return DetailedItem().apply {
             val td = doc.select("table")[1].select("td")[1]
-            val lines = Jsoup.parse(td.html().replace(Regex("</?(p|P|br|BR)>"), "####")).text().split("####")
+            val lines = Jsoup.parse(td.html().replace(regex("</?(p|P|br|BR)>"), "####")).text().split("####")
             lines.forEachIndexed { index, s ->
                 if (index == 0) {
                     title = s
@@ -299,7 +300,7 @@ open class Lissy : OkHttpBaseApi() {
                 lent.add(LentItem().apply {
                     barcode = tr.child(2).text().trim()
                     title = tr.child(3).text().trim()
-                    deadline = dateFormat.parseLocalDate(tr.child(4).text().replace(Regex("[^0-9.]"), ""))
+                    deadline = dateFormat.parseLocalDate(tr.child(4).text().replace(regex("[^0-9.]"), ""))
                     isRenewable = tr.child(0).select("input").first() != null
                     prolongData = if (isRenewable) barcode else null
                 })
@@ -312,9 +313,9 @@ open class Lissy : OkHttpBaseApi() {
 
                 reservations.add(ReservedItem().apply {
                     title = tr.child(5).text().trim()
-                    val ready = tr.child(6).text().replace(Regex("[^0-9.]"), "")
+                    val ready = tr.child(6).text().replace(regex("[^0-9.]"), "")
                     readyDate = if (ready.isBlank()) dateFormat.parseLocalDate(ready) else null
-                    val expiry = tr.child(7).text().replace(Regex("[^0-9.]"), "")
+                    val expiry = tr.child(7).text().replace(regex("[^0-9.]"), "")
                     expirationDate = if (ready.isBlank()) dateFormat.parseLocalDate(expiry) else null
                     cancelData = tr.child(4).text().trim()
                 })
@@ -1,20 +1,39 @@
 package de.geeksfactory.opacclient.apis;
 
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.net.UnknownHostException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import de.geeksfactory.opacclient.i18n.DummyStringProvider;
+import de.geeksfactory.opacclient.networking.CacheRule;
+import de.geeksfactory.opacclient.networking.CancellationToken;
 import de.geeksfactory.opacclient.networking.HttpClientFactory;
 import de.geeksfactory.opacclient.networking.NotReachableException;
+import de.geeksfactory.opacclient.networking.RequestCoalescer;
+import de.geeksfactory.opacclient.networking.RetryPolicy;
+import de.geeksfactory.opacclient.networking.RetryingCallExecutor;
 import de.geeksfactory.opacclient.networking.SSLSecurityException;
+import de.geeksfactory.opacclient.networking.Session;
+import de.geeksfactory.opacclient.networking.SessionStore;
+import de.geeksfactory.opacclient.objects.Account;
 import de.geeksfactory.opacclient.objects.CoverHolder;
 import de.geeksfactory.opacclient.objects.Library;
 import java8.util.concurrent.CompletableFuture;
+import java8.util.concurrent.CompletionException;
 import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.Cookie;
+import okhttp3.CookieJar;
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -31,6 +50,11 @@ public abstract class OkHttpBaseApi extends BaseApi {
     public OkHttpClient http_client;
     public HttpClientFactory http_client_factory;
     protected boolean httpLoggingEnabled = true;
+    protected RetryingCallExecutor call_executor = new RetryingCallExecutor(new RetryPolicy());
+    /**
+     * The instance a new session is created from, while it is initialized
+     */
+    private OkHttpBaseApi sessionParent;
 
     /**
      * Initializes HTTP client and String Provider
@@ -38,31 +62,159 @@ public abstract class OkHttpBaseApi extends BaseApi {
     @Override
     public void init(Library library, HttpClientFactory http_client_factory, boolean debug) {
         this.http_client_factory = http_client_factory;
-        http_client = http_client_factory.getNewOkHttpClient(
-                library.getData().optBoolean("customssl", false),
-                library.getData().optBoolean("customssl_tls_only", true),
-                library.getData().optBoolean("customssl_all_ciphersuites", false)
-        );
-        http_client.dispatcher().setMaxRequestsPerHost(10);
         this.library = library;
+        if (sessionParent != null) {
+            // the client of the parent is already configured for the library
+            http_client = HttpClientFactory.withNewSession(sessionParent.http_client);
+            call_executor = sessionParent.call_executor;
+        } else {
+            http_client = http_client_factory.getNewOkHttpClient(
+                    library.getData().optBoolean("customssl", false),
+                    library.getData().optBoolean("customssl_tls_only", true),
+                    library.getData().optBoolean("customssl_all_ciphersuites", false)
+            );
+            http_client = http_client_factory.withCacheRules(http_client, getCacheRules());
+            http_client = http_client_factory.withMetricsTags(http_client, library.getIdent(),
+                    getClass().getSimpleName());
+            call_executor =
+                    new RetryingCallExecutor(RetryPolicy.fromLibraryData(library.getData()));
+        }
         this.debug = debug;
         stringProvider = new DummyStringProvider();
     }
 
+    @Override
+    protected void initSession(BaseApi parent) {
+        sessionParent = (OkHttpBaseApi) parent;
+        try {
+            init(parent.library, sessionParent.http_client_factory, parent.debug);
+        } finally {
+            sessionParent = null;
+        }
+    }
+
+    /**
+     * Rules for forced caching of responses. Rules from the library configuration take precedence
+     * over the defaults of the API implementation.
+     */
+    protected List<CacheRule> getCacheRules() {
+        List<CacheRule> rules = CacheRule.fromLibraryData(library.getData());
+        rules.addAll(getDefaultCacheRules());
+        return rules;
+    }
+
+    /**
+     * Override this to force caching of semi-static pages of your OPAC. Pages which depend on
+     * the session must never be matched. By default, static cover images are cached for a day.
+     */
+    protected List<CacheRule> getDefaultCacheRules() {
+        List<CacheRule> rules = new ArrayList<>();
+        rules.add(new CacheRule("(?i)[^?]*\\.(jpe?g|png|gif)", 24 * 60 * 60));
+        return rules;
+    }
+
+    /**
+     * Continues a stored session of the given account, if it was used less than {@code maxAge}
+     * milliseconds ago, by restoring its cookies. Sessions are only continued for the username
+     * and password they were opened with. Implementations need to restore their own state
+     * from the tokens of the returned session and must be prepared for the server having ended
+     * the session in the meantime.
+     *
+     * @return the session, or {@code null} if there is none to continue
+     */
+    protected Session resumeSession(Account account, long maxAge) {
+        SessionStore store = HttpClientFactory.getSessionStore();
+        HttpUrl url = getSessionUrl();
+        if (store == null || url == null) {
+            return null;
+        }
+        String credentials = getSessionCredentials(store, account);
+        Session session = store.load(library.getIdent(), account.getId(), credentials);
+        if (session == null) {
+            return null;
+        } else if (!credentials.equals(session.getCredentials())) {
+            // opened by another user or with other credentials
+            return null;
+        } else if (System.currentTimeMillis() - session.getUpdatedAt() > maxAge) {
+            store.remove(library.getIdent(), account.getId(), credentials);
+            return null;
+        }
+        List<Cookie> cookies = new ArrayList<>();
+        for (String header : session.getCookies()) {
+            Cookie cookie = Cookie.parse(url, header);
+            if (cookie != null) {
+                cookies.add(cookie);
+            }
+        }
+        http_client.cookieJar().saveFromResponse(url, cookies);
+        return session;
+    }
+
+    /**
+     * Stores the current cookies and the given tokens as the session of the account, so that it
+     * can be continued by other instances with {@link #resumeSession(Account, long)}. Call this
+     * after each successful login or account operation.
+     */
+    protected void saveSession(Account account, Map<String, String> tokens) {
+        SessionStore store = HttpClientFactory.getSessionStore();
+        HttpUrl url = getSessionUrl();
+        if (store == null || url == null) {
+            return;
+        }
+        List<String> cookies = new ArrayList<>();
+        for (Cookie cookie : http_client.cookieJar().loadForRequest(url)) {
+            cookies.add(cookie.toString());
+        }
+        store.save(new Session(library.getIdent(), account.getId(),
+                getSessionCredentials(store, account), tokens, cookies,
+                System.currentTimeMillis()));
+    }
+
+    /**
+     * Removes the stored session of the account, e.g. after it turned out to be expired.
+     */
+    protected void discardSession(Account account) {
+        SessionStore store = HttpClientFactory.getSessionStore();
+        if (store != null && library != null) {
+            store.remove(library.getIdent(), account.getId(),
+                    getSessionCredentials(store, account));
+        }
+    }
+
+    private String getSessionCredentials(SessionStore store, Account account) {
+        return store.hashCredentials(library.getIdent(), account.getName(),
+                account.getPassword());
+    }
+
+    private HttpUrl getSessionUrl() {
+        if (library == null || http_client == null) {
+            return null;
+        }
+        String baseurl = library.getData().optString("baseurl", null);
+        return baseurl != null ? HttpUrl.parse(baseurl) : null;
+    }
+
     private String readBody(Response response, String encoding) throws IOException {
         ResponseBody body = response.body();
         BufferedSource source = body.source();
 
-        MediaType contentType = body.contentType();
-
         try {
-            Charset charset = contentType != null ? contentType.charset(Charset.forName(encoding)) : Charset.forName(encoding);
-            return source.readString(charset);
+            return source.readString(getCharset(body, encoding));
         } finally {
             Util.closeQuietly(source);
         }
     }
 
+    private Document readDocument(Response response, String encoding) throws IOException {
+        return Jsoup.parse(readBody(response, encoding), response.request().url().toString());
+    }
+
+    private static Charset getCharset(ResponseBody body, String encoding) {
+        MediaType contentType = body.contentType();
+        return contentType != null ? contentType.charset(Charset.forName(encoding)) :
+                Charset.forName(encoding);
+    }
+
     /**
      * Perform a HTTP GET request to a given URL
      *
@@ -75,26 +227,84 @@ public abstract class OkHttpBaseApi extends BaseApi {
      */
     public String httpGet(String url, String encoding, boolean ignore_errors) throws
             IOException {
-        return httpGet(url, encoding, ignore_errors, null);
+        return httpGet(url, encoding, ignore_errors, (String) null);
+    }
+
+    /**
+     * Perform a HTTP GET request to a given URL
+     *
+     * @param url           URL to fetch
+     * @param encoding      Expected encoding of the response body
+     * @param ignore_errors If true, status codes above 400 do not raise an exception
+     * @param cookieJar     If set, the given cookieJar is used instead of the built-in one.
+     * @return Answer content
+     * @throws NotReachableException Thrown when server returns a HTTP status code greater or equal
+     *                               than 400.
+     */
+    public String httpGet(String url, String encoding, boolean ignore_errors,
+            CookieJar cookieJar) throws IOException {
+        return execute(getClientWithCookieJar(cookieJar), buildGetRequest(url, null),
+                ignore_errors, response -> readBody(response, encoding));
     }
 
     public String httpGet(String url, String encoding, boolean ignore_errors, String accept) throws
             IOException {
-        Request request = new Request.Builder()
+        return execute(http_client, buildGetRequest(url, accept), ignore_errors,
+                response -> readBody(response, encoding));
+    }
+
+    /**
+     * Perform a HTTP GET request to a given URL and parse the response body into a {@link
+     * Document}.
+     *
+     * @param url           URL to fetch
+     * @param encoding      Expected encoding of the response body, if the server does not
+     *                      specify one
+     * @param ignore_errors If true, status codes above 400 do not raise an exception
+     * @return Parsed document, with the final URL after redirects as its base URI
+     * @throws NotReachableException Thrown when server returns a HTTP status code greater or equal
+     *                               than 400.
+     */
+    public Document httpGetDocument(String url, String encoding, boolean ignore_errors)
+            throws IOException {
+        return execute(http_client, buildGetRequest(url, null), ignore_errors,
+                response -> readDocument(response, encoding));
+    }
+
+    public Document httpGetDocument(String url, String encoding) throws IOException {
+        return httpGetDocument(url, encoding, false);
+    }
+
+    private Request buildGetRequest(String url, String accept) {
+        return new Request.Builder()
                 .url(cleanUrl(url))
                 .header("Accept", accept != null ? accept : "*/*")
                 .header("User-Agent", getUserAgent())
                 .header("Accept-Language", "*")
                 .build();
+    }
+
+    private interface BodyReader<T> {
+        T read(Response response) throws IOException;
+    }
 
+    /**
+     * Executes a request synchronously within the time budget of the current operation and
+     * reads its body, translating network errors to {@link NotReachableException} and {@link
+     * SSLSecurityException}. Idempotent requests are retried according to the library's {@link
+     * RetryPolicy}.
+     */
+    private <T> T execute(OkHttpClient client, Request request, boolean ignore_errors,
+            BodyReader<T> reader) throws IOException {
         try {
-            Response response = http_client.newCall(request).execute();
+            Response response = call_executor.execute(forHost(client, request), request);
 
             if (!ignore_errors && response.code() >= 400) {
+                response.close();
                 throw new NotReachableException(response.message());
             }
 
-            return readBody(response, encoding);
+            return reader.read(response);
         } catch (javax.net.ssl.SSLPeerUnverifiedException e) {
             logHttpError(e);
             throw new SSLSecurityException(e.getMessage());
@@ -154,7 +364,7 @@ public abstract class OkHttpBaseApi extends BaseApi {
                 .header("User-Agent", getUserAgent())
                 .build();
         try {
-            Response response = http_client.newCall(request).execute();
+            Response response = forHost(http_client, request).newCall(request).execute();
 
             if (response.code() >= 400) {
                 response.close();
@@ -181,6 +391,35 @@ public abstract class OkHttpBaseApi extends BaseApi {
      */
     public String httpPost(String url, RequestBody data, String encoding, boolean ignore_errors, Integer timeout)
             throws IOException {
+        return execute(getClientWithTimeout(timeout), buildPostRequest(url, data), ignore_errors,
+                response -> readBody(response, encoding));
+    }
+
+    /**
+     * Perform a HTTP POST request to a given URL and parse the response body into a {@link
+     * Document}.
+     *
+     * @param url           URL to fetch
+     * @param data          POST data to send
+     * @param encoding      Expected encoding of the response body, if the server does not
+     *                      specify one
+     * @param ignore_errors If true, status codes above 400 do not raise an exception
+     * @return Parsed document, with the final URL after redirects as its base URI
+     * @throws NotReachableException Thrown when server returns a HTTP status code greater or equal
+     *                               than 400.
+     */
+    public Document httpPostDocument(String url, RequestBody data, String encoding,
+            boolean ignore_errors) throws IOException {
+        return execute(http_client, buildPostRequest(url, data), ignore_errors,
+                response -> readDocument(response, encoding));
+    }
+
+    public Document httpPostDocument(String url, RequestBody data, String encoding)
+            throws IOException {
+        return httpPostDocument(url, data, encoding, false);
+    }
+
+    private Request buildPostRequest(String url, RequestBody data) {
         Request.Builder requestbuilder = new Request.Builder()
                 .url(cleanUrl(url))
                 .header("Accept", "*/*")
@@ -189,50 +428,41 @@ public abstract class OkHttpBaseApi extends BaseApi {
         if (data.contentType() != null) {
             requestbuilder = requestbuilder.header("Content-Type", data.contentType().toString());
         }
-        Request request = requestbuilder.post(data).build();
+        return requestbuilder.post(data).build();
+    }
 
-        try {
-            OkHttpClient c = timeout != null ? http_client.newBuilder()
-                    .callTimeout(timeout, TimeUnit.SECONDS)
-                    .readTimeout(timeout, TimeUnit.SECONDS)
-                    .connectTimeout(timeout, TimeUnit.SECONDS)
-                    .writeTimeout(timeout, TimeUnit.SECONDS)
-                    .build() : http_client;
-            Response response = c.newCall(request).execute();
+    /**
+     * Perform a HTTP POST request to a given URL
+     *
+     * @param url           URL to fetch
+     * @param data          POST data to send
+     * @param encoding      Expected encoding of the response body
+     * @param ignore_errors If true, status codes above 400 do not raise an exception
+     * @param cookieJar     If set, the given cookieJar is used instead of the built-in one.
+     * @return Answer content
+     * @throws NotReachableException Thrown when server returns a HTTP status code greater or equal
+     *                               than 400.
+     */
+    public String httpPost(String url, RequestBody data, String encoding, boolean ignore_errors,
+            CookieJar cookieJar) throws IOException {
+        return execute(getClientWithCookieJar(cookieJar), buildPostRequest(url, data),
+                ignore_errors, response -> readBody(response, encoding));
+    }
 
-            if (!ignore_errors && response.code() >= 400) {
-                throw new NotReachableException(response.message());
-            }
+    private OkHttpClient getClientWithCookieJar(CookieJar cookieJar) {
+        // derived clients share the connection pool, so this is cheap
+        return cookieJar != null ?
+                HttpClientFactory.withCookieJar(http_client.newBuilder(), cookieJar).build() :
+                http_client;
+    }
 
-            return readBody(response, encoding);
-        } catch (javax.net.ssl.SSLPeerUnverifiedException e) {
-            logHttpError(e);
-            throw new SSLSecurityException(e.getMessage());
-        } catch (javax.net.ssl.SSLException e) {
-            // Can be "Not trusted server certificate" or can be a
-            // aborted/interrupted handshake/connection
-            if (e.getMessage().contains("timed out")
-                    || e.getMessage().contains("reset by")) {
-                logHttpError(e);
-                throw new NotReachableException(e.getMessage());
-            } else {
-                logHttpError(e);
-                throw new SSLSecurityException(e.getMessage());
-            }
-        } catch (InterruptedIOException e) {
-            logHttpError(e);
-            throw new NotReachableException(e.getMessage());
-        } catch (UnknownHostException e) {
-            throw new NotReachableException(e.getMessage());
-        } catch (IOException e) {
-            if (e.getMessage() != null
-                    && e.getMessage().contains("Request aborted")) {
-                logHttpError(e);
-                throw new NotReachableException(e.getMessage());
-            } else {
-                throw e;
-            }
-        }
+    private OkHttpClient getClientWithTimeout(Integer timeout) {
+        return timeout != null ? http_client.newBuilder()
+                .callTimeout(timeout, TimeUnit.SECONDS)
+                .readTimeout(timeout, TimeUnit.SECONDS)
+                .connectTimeout(timeout, TimeUnit.SECONDS)
+                .writeTimeout(timeout, TimeUnit.SECONDS)
+                .build() : http_client;
     }
 
     /**
@@ -252,58 +482,42 @@ public abstract class OkHttpBaseApi extends BaseApi {
                 .head()
                 .build();
 
-        try {
-            Response response = http_client.newCall(request).execute();
-
-            if (response.code() == 405) {
-                request = request.newBuilder().get().build();
-                response = http_client.newCall(request).execute();
-            }
-            if (!ignore_errors && response.code() >= 400) {
-                throw new NotReachableException(response.message());
-            }
-
-            return response;
-        } catch (javax.net.ssl.SSLPeerUnverifiedException e) {
-            logHttpError(e);
-            throw new SSLSecurityException(e.getMessage());
-        } catch (javax.net.ssl.SSLException e) {
-            // Can be "Not trusted server certificate" or can be a
-            // aborted/interrupted handshake/connection
-            if (e.getMessage().contains("timed out")
-                    || e.getMessage().contains("reset by")) {
-                logHttpError(e);
-                throw new NotReachableException(e.getMessage());
-            } else {
-                logHttpError(e);
-                throw new SSLSecurityException(e.getMessage());
-            }
-        } catch (InterruptedIOException e) {
-            logHttpError(e);
-            throw new NotReachableException(e.getMessage());
-        } catch (UnknownHostException e) {
-            throw new NotReachableException(e.getMessage());
-        } catch (IOException e) {
-            if (e.getMessage() != null
-                    && e.getMessage().contains("Request aborted")) {
-                logHttpError(e);
-                throw new NotReachableException(e.getMessage());
-            } else {
-                throw e;
-            }
+        Response response = execute(http_client, request, true, r -> r);
+        if (response.code() == 405) {
+            response.close();
+            response = execute(http_client, request.newBuilder().get().build(), true, r -> r);
         }
+        if (!ignore_errors && response.code() >= 400) {
+            response.close();
+            throw new NotReachableException(response.message());
+        }
+        return response;
     }
 
     public CompletableFuture<Response> asyncPost(String url, RequestBody data,
             final boolean ignore_errors) {
-        Request request = new Request.Builder()
+        return asyncPost(url, data, ignore_errors, null);
+    }
+
+    /**
+     * Perform a HTTP POST request without blocking.
+     *
+     * @param coalescingKey if set, the request only queries data and identical concurrent
+     *                      requests may share one response, see {@link RequestCoalescer}. The key
+     *                      has to identify the request body.
+     */
+    public CompletableFuture<Response> asyncPost(String url, RequestBody data,
+            final boolean ignore_errors, String coalescingKey) {
+        Request.Builder builder = new Request.Builder()
                 .url(cleanUrl(url))
                 .header("Accept", "*/*")
                 .header("User-Agent", getUserAgent())
-                .post(data)
-                .build();
+                .post(data);
+        if (coalescingKey != null) {
+            RequestCoalescer.coalesce(builder, coalescingKey);
+        }
 
-        return adapt(http_client.newCall(request), ignore_errors);
+        return adapt(builder.build(), ignore_errors);
     }
 
     public CompletableFuture<Response> asyncGet(String url, final boolean ignore_errors) {
@@ -313,7 +527,7 @@ public abstract class OkHttpBaseApi extends BaseApi {
                 .header("User-Agent", getUserAgent())
                 .build();
 
-        return adapt(http_client.newCall(request), ignore_errors);
+        return adapt(request, ignore_errors);
     }
 
     public CompletableFuture<Response> asyncHead(String url, final boolean ignore_errors) {
@@ -324,10 +538,47 @@ public abstract class OkHttpBaseApi extends BaseApi {
                 .head()
                 .build();
 
-        return adapt(http_client.newCall(request), ignore_errors);
+        return adapt(request, ignore_errors);
     }
 
-    private CompletableFuture<Response> adapt(final Call call, final boolean ignore_errors) {
+    /**
+     * Perform a HTTP GET request without blocking and read the response body as a String on
+     * OkHttp's thread.
+     *
+     * @return future completing with the answer content, or exceptionally with a {@link
+     * NotReachableException} if the server returned a status code greater or equal than 400.
+     */
+    public CompletableFuture<String> asyncGetString(String url, final String encoding) {
+        return adapt(buildGetRequest(url, null), false)
+                .thenApply(response -> {
+                    try {
+                        return readBody(response, encoding);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    /**
+     * Creates the {@link AsyncOpacApi} for this API. The default runs the blocking methods on the
+     * given executor, implementations can override this to return an adapter performing some
+     * operations natively with {@link #asyncGetString(String, String)} and friends.
+     */
+    public AsyncOpacApi createAsyncApi(Executor executor) {
+        return new AsyncOpacApiAdapter(this, executor);
+    }
+
+    /**
+     * @return the client to send a request with, trying the TLS connection spec remembered for
+     * the request's host first
+     */
+    private OkHttpClient forHost(OkHttpClient client, Request request) {
+        return http_client_factory != null
+                ? http_client_factory.withRememberedTlsSpec(client, request.url()) : client;
+    }
+
+    private CompletableFuture<Response> adapt(Request request, final boolean ignore_errors) {
+        final Call call = forHost(http_client, request).newCall(request);
         // based on the similar implementation in Retrofit
         // https://github.com/square/retrofit/blob/master/retrofit-adapters/java8/src/main/java
         // /retrofit2/adapter/java8/Java8CallAdapterFactory.java
@@ -340,11 +591,20 @@ public abstract class OkHttpBaseApi extends BaseApi {
                 return super.cancel(mayInterruptIfRunning);
             }
         };
+        CancellationToken token = CancellationToken.current();
+        final CancellationToken.Registration registration =
+                token != null ? token.register(future) : null;
         call.enqueue(new Callback() {
             @Override
             public void onResponse(Call call, Response response) {
+                if (registration != null) {
+                    registration.unregister();
+                }
                 if (response.isSuccessful() || ignore_errors) {
-                    future.complete(response);
+                    if (!future.complete(response)) {
+                        // cancelled meanwhile
+                        response.close();
+                    }
                 } else {
                     response.close();
                     future.completeExceptionally(new NotReachableException(response.message()));
@@ -353,6 +613,9 @@ public abstract class OkHttpBaseApi extends BaseApi {
 
             @Override
             public void onFailure(Call call, IOException t) {
+                if (registration != null) {
+                    registration.unregister();
+                }
                 future.completeExceptionally(t);
             }
         });
@@ -368,7 +631,7 @@ public abstract class OkHttpBaseApi extends BaseApi {
 
     public String httpPost(String url, RequestBody data,
                            String encoding, boolean ignore_errors) throws IOException {
-        return httpPost(url, data, encoding, ignore_errors, null);
+        return httpPost(url, data, encoding, ignore_errors, (Integer) null);
     }
 
 
@@ -40,6 +40,7 @@ import de.geeksfactory.opacclient.objects.SearchRequestResult;
 import de.geeksfactory.opacclient.reporting.ReportHandler;
 import de.geeksfactory.opacclient.searchfields.SearchField;
 import de.geeksfactory.opacclient.searchfields.SearchQuery;
+import de.geeksfactory.opacclient.utils.LibopacExecutors;
 
 /**
  * Generic interface for accessing online library catalogues.
@@ -462,6 +463,35 @@ public interface OpacApi {
      */
     void setReportHandler(ReportHandler reportHandler);
 
+    /**
+     * Sets the executors used for background work such as downloading covers. If this is not
+     * called, {@link LibopacExecutors#getDefault()} is used. Must be called before the first
+     * operation.
+     *
+     * @param executors the executors to use
+     */
+    void setExecutors(LibopacExecutors executors);
+
+    /**
+     * Creates another instance of this API for the same library, with a session of its own. API
+     * instances are not thread-safe, but two sessions can be used from different threads at the
+     * same time, e.g. to load details while the account is refreshed.
+     * <p>
+     * The new session shares the library configuration and the HTTP connection pool and caches
+     * with this instance and uses the same string provider, report handler and executors. It has
+     * its own cookies and scraper state, and {@link #start()} has not been called on it yet. The
+     * language needs to be set again if it was changed.
+     *
+     * @return a new, initialized instance
+     */
+    OpacApi newSession();
+
+    /**
+     * Is called when the API object is no longer used. Cancels background work started by it
+     * that is still waiting or running.
+     */
+    void dispose();
+
     /**
      * A general exception containing a human-readable error message
      */
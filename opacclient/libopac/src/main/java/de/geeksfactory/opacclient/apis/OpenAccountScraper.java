@@ -31,6 +31,7 @@ import de.geeksfactory.opacclient.objects.Copy;
 import de.geeksfactory.opacclient.objects.DetailedItem;
 import de.geeksfactory.opacclient.objects.LentItem;
 import de.geeksfactory.opacclient.objects.ReservedItem;
+import de.geeksfactory.opacclient.utils.HtmlRegions;
 import java8.util.concurrent.CompletableFuture;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
@@ -49,6 +50,16 @@ public class OpenAccountScraper extends OpenSearch {
     }
 
     private Document reservationDoc;
+    /**
+     * The parts of the account page read by {@link #account(Account)}, including the hidden
+     * fields and scripts needed to fetch the prolongability.
+     */
+    static final HtmlRegions ACCOUNT_REGIONS = HtmlRegions.of("[id$=grdViewLoans]",
+            "[id$=grdViewRemoteLoans]", "[id$=grdViewReservations]", "[id$=ReadyForPickups]",
+            "[id$=lblTotalSaldoData]", "[id$=LblMembershipValidUntilData]", ".dnnFormWarning",
+            "[id$=patronAccountExtensionMessage]", ".dnnFormValidationSummary",
+            "input[name$=Culture]", "input[name$=PatronRndId]", "script").keepScripts();
+
     private static final int BASE_ACTION = 10;
     private static final int ACTION_COPY = BASE_ACTION;
     private static final int ACTION_PICKUP_BRANCH = BASE_ACTION + 1;
@@ -635,6 +646,15 @@ public class OpenAccountScraper extends OpenSearch {
     }
 
     protected Document login(Account account) throws IOException, OpacErrorException {
+        return login(account, null);
+    }
+
+    /**
+     * @param regions the parts of the account page to parse, or {@code null} for the whole page,
+     *                which is needed to submit its form
+     */
+    protected Document login(Account account, HtmlRegions regions)
+            throws IOException, OpacErrorException {
         String accountUrl;
         try {
             accountUrl = "/" + data.getJSONObject("urls").getString("account");
@@ -654,7 +674,7 @@ public class OpenAccountScraper extends OpenSearch {
             String postUrl = form.attr("abs:action");
 
             String html = httpPost(postUrl, data, "UTF-8");
-            doc = Jsoup.parse(html);
+            doc = regions != null ? regions.parse(html) : Jsoup.parse(html);
             doc.setBaseUri(postUrl);
         }
 
@@ -667,7 +687,8 @@ public class OpenAccountScraper extends OpenSearch {
             return doc;
         } else {
             // sometimes (-> Verden), we are redirected to the home page, not to the account page.
-            doc = Jsoup.parse(httpGet(opac_url + accountUrl, getDefaultEncoding()));
+            String html = httpGet(opac_url + accountUrl, getDefaultEncoding());
+            doc = regions != null ? regions.parse(html) : Jsoup.parse(html);
             doc.setBaseUri(opac_url + accountUrl);
             if (doc.select("[id$=tpnlReservations_ucReservationsView_grdViewReservations]").first()
                     != null) {
@@ -683,7 +704,7 @@ public class OpenAccountScraper extends OpenSearch {
     @Override
     public AccountData account(Account account)
             throws IOException, JSONException, OpacErrorException {
-        Document doc = login(account);
+        Document doc = login(account, ACCOUNT_REGIONS);
         AccountData data = new AccountData(account.getId());
 
         parse_lent(data, doc, account);
@@ -41,13 +41,12 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import de.geeksfactory.opacclient.CoverDownloadStrategy;
 import de.geeksfactory.opacclient.i18n.StringProvider;
+import de.geeksfactory.opacclient.networking.CancellationToken;
 import de.geeksfactory.opacclient.networking.HttpClientFactory;
 import de.geeksfactory.opacclient.networking.NotReachableException;
 import de.geeksfactory.opacclient.objects.Account;
@@ -68,6 +67,7 @@ import de.geeksfactory.opacclient.searchfields.SearchField;
 import de.geeksfactory.opacclient.searchfields.SearchQuery;
 import de.geeksfactory.opacclient.searchfields.TextSearchField;
 import de.geeksfactory.opacclient.utils.Base64;
+import de.geeksfactory.opacclient.utils.JsonReader;
 import java8.util.concurrent.CompletableFuture;
 import okhttp3.Headers;
 import okhttp3.MediaType;
@@ -75,6 +75,8 @@ import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 
+import static de.geeksfactory.opacclient.utils.Selectors.pattern;
+import static de.geeksfactory.opacclient.utils.Selectors.select;
 import static okhttp3.MultipartBody.Part.create;
 
 /**
@@ -89,7 +91,6 @@ public class OpenSearch extends OkHttpBaseApi implements OpacApi {
     protected Document searchResultDoc;
 
     protected static HashMap<String, SearchResult.MediaType> defaulttypes = new HashMap<>();
-    protected static ExecutorService threadPool = Executors.newFixedThreadPool(10);
 
     static {
         // icons
@@ -241,6 +242,12 @@ public class OpenSearch extends OkHttpBaseApi implements OpacApi {
         this.coverDownloadStrategy = coverDownloadStrategy;
     }
 
+    @Override
+    protected void initSession(BaseApi parent) {
+        coverDownloadStrategy = ((OpenSearch) parent).coverDownloadStrategy;
+        super.initSession(parent);
+    }
+
     @Override
     public void init(Library lib, HttpClientFactory httpClientFactory, boolean debug) {
         super.init(lib, httpClientFactory, debug);
@@ -320,8 +327,7 @@ public class OpenSearch extends OkHttpBaseApi implements OpacApi {
 
     protected CompletableFuture<Void> assignBestCover(final CoverHolder result,
                                                       final List<String> queue) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        threadPool.submit(() -> {
+        return getExecutorScope().runAsync(() -> {
             for (String url : queue) {
                 if (url.startsWith("ajax|")) {
                     if (assignAjaxCover(result, url)) {
@@ -340,9 +346,48 @@ public class OpenSearch extends OkHttpBaseApi implements OpacApi {
                     }
                 }
             }
-            future.complete(null);
         });
-        return future;
+    }
+
+    /**
+     * Reads {@code d.IsAvail}, or {@code d.LookupItem.Available} for e-books, from the response
+     * of an availability request while it is being received.
+     */
+    static String readAvailability(JsonReader reader, boolean ebook)
+            throws JSONException, IOException {
+        String isAvail = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("d")) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (ebook && name.equals("LookupItem")) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("Available")) {
+                            isAvail = reader.nextStringOrNull();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                } else if (!ebook && name.equals("IsAvail")) {
+                    isAvail = reader.nextStringOrNull();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        if (isAvail == null) {
+            throw new JSONException("No availability in response");
+        }
+        return isAvail;
     }
 
     private boolean assignAjaxCover(CoverHolder result, String url) {
@@ -374,9 +419,9 @@ public class OpenSearch extends OkHttpBaseApi implements OpacApi {
     protected SearchRequestResult parse_search(Document doc, int page) throws OpacErrorException {
         searchResultDoc = doc;
 
-        if (doc.select("#Label1, span[id$=LblInfoMessage], .oclc-searchmodule-searchresult > " +
-                ".boldText").size() > 0) {
-            String message = doc.select("#Label1, span[id$=LblInfoMessage], .boldText").text();
+        if (select(doc, "#Label1, span[id$=LblInfoMessage], " +
+                ".oclc-searchmodule-searchresult > .boldText").size() > 0) {
+            String message = select(doc, "#Label1, span[id$=LblInfoMessage], .boldText").text();
             if (message.contains("keine Treffer")) {
                 return new SearchRequestResult(new ArrayList<>(), 0, 1, page);
             } else {
@@ -386,50 +431,51 @@ public class OpenSearch extends OkHttpBaseApi implements OpacApi {
 
 
         int totalCount;
-        if (doc.select("span[id$=TotalItemsLabel]").size() > 0) {
+        if (select(doc, "span[id$=TotalItemsLabel]").size() > 0) {
             totalCount = Integer.parseInt(
-                    doc.select("span[id$=TotalItemsLabel]").first().text().split("[ \\t\\xA0\\u1680\\u180e\\u2000-\\u200a\\u202f\\u205f\\u3000]")[0]);
+                    select(doc, "span[id$=TotalItemsLabel]").first().text().split("[ \\t\\xA0\\u1680\\u180e\\u2000-\\u200a\\u202f\\u205f\\u3000]")[0]);
         } else {
             throw new OpacErrorException(stringProvider.getString(StringProvider.UNKNOWN_ERROR));
         }
 
-        Pattern idPattern = Pattern.compile("\\$(mdv|civ|dcv)(\\d+)\\$");
-        Pattern weakIdPattern = Pattern.compile("(mdv|civ|dcv)(\\d+)[^\\d]");
+        Pattern idPattern = pattern("\\$(mdv|civ|dcv)(\\d+)\\$");
+        Pattern weakIdPattern = pattern("(mdv|civ|dcv)(\\d+)[^\\d]");
 
         // Determine portalID value for availability
         AvailabilityRestInfo restInfo = getAvailabilityRestInfo(doc);
 
-        Elements elements = doc.select("div[id$=divMedium], div[id$=divComprehensiveItem], div[id$=divDependentCatalogue]");
+        Elements elements = select(doc, "div[id$=divMedium], div[id$=divComprehensiveItem], div[id$=divDependentCatalogue]");
         List<SearchResult> results = new ArrayList<>();
         int i = 0;
         List<CompletableFuture<Void>> futuresToWaitFor = new ArrayList<>();
         for (Element element : elements) {
+            CancellationToken.throwIfCurrentCancelled();
             final SearchResult result = new SearchResult();
             // Cover
-            if (element.select("input[id$=mediumImage]").size() > 0) {
-                result.setCover(element.select("input[id$=mediumImage]").first().attr("src"));
-            } else if (coverDownloadStrategy != CoverDownloadStrategy.NEVER && element.select("img[id$=CoverView_Image]").size() > 0) {
-                CompletableFuture<Void> f = assignBestCover(result, getCoverUrlList(element.select("img[id$=CoverView_Image]").first()));
+            if (select(element, "input[id$=mediumImage]").size() > 0) {
+                result.setCover(select(element, "input[id$=mediumImage]").first().attr("src"));
+            } else if (coverDownloadStrategy != CoverDownloadStrategy.NEVER && select(element, "img[id$=CoverView_Image]").size() > 0) {
+                CompletableFuture<Void> f = assignBestCover(result, getCoverUrlList(select(element, "img[id$=CoverView_Image]").first()));
                 if (coverDownloadStrategy == CoverDownloadStrategy.SYNCHRONOUS) {
-                    futuresToWaitFor.add(f);
+                    futuresToWaitFor.add(notifyOnUpdate(result, f));
                 } else {
                     result.setCoverFuture(f);
                 }
             }
 
             Element catalogueContent =
-                    element.select(".catalogueContent, .oclc-searchmodule-mediumview-content, .oclc-searchmodule-comprehensiveitemview-content, .oclc-searchmodule-dependentitemview-content")
+                    select(element, ".catalogueContent, .oclc-searchmodule-mediumview-content, .oclc-searchmodule-comprehensiveitemview-content, .oclc-searchmodule-dependentitemview-content")
                             .first();
             // Media Type
-            if (catalogueContent.select("#spanMediaGrpIcon, .spanMediaGrpIcon").size() > 0) {
-                String mediatype = catalogueContent.select("#spanMediaGrpIcon, .spanMediaGrpIcon").attr("class");
+            if (select(catalogueContent, "#spanMediaGrpIcon, .spanMediaGrpIcon").size() > 0) {
+                String mediatype = select(catalogueContent, "#spanMediaGrpIcon, .spanMediaGrpIcon").attr("class");
                 if (mediatype.startsWith("itemtype ")) {
                     mediatype = mediatype.substring("itemtype ".length());
                 }
 
                 if ("".equals(mediatype)) {
                     // fallback: use text media type if icon is not available (e.g. Wien)
-                    mediatype = catalogueContent.select("[id$=spanMediaGrpValue]").text();
+                    mediatype = select(catalogueContent, "[id$=spanMediaGrpValue]").text();
                 }
 
                 SearchResult.MediaType defaulttype = defaulttypes.get(mediatype);
@@ -452,12 +498,12 @@ public class OpenSearch extends OkHttpBaseApi implements OpacApi {
             // Text
             String title = catalogueContent
                     .select("a[id$=LbtnShortDescriptionValue], a[id$=LbtnTitleValue]").text();
-            String subtitle = catalogueContent.select("span[id$=LblSubTitleValue]").text();
-            String author = catalogueContent.select("span[id$=LblAuthorValue]").text();
-            String year = catalogueContent.select("span[id$=LblProductionYearValue]").text();
+            String subtitle = select(catalogueContent, "span[id$=LblSubTitleValue]").text();
+            String author = select(catalogueContent, "span[id$=LblAuthorValue]").text();
+            String year = select(catalogueContent, "span[id$=LblProductionYearValue]").text();
             String mediumIdentifier =
-                    catalogueContent.select("span[id$=LblMediumIdentifierValue]").text();
-            String series = catalogueContent.select("span[id$=LblSeriesValue]").text();
+                    select(catalogueContent, "span[id$=LblMediumIdentifierValue]").text();
+            String series = select(catalogueContent, "span[id$=LblSeriesValue]").text();
 
             // Some libraries, such as Bern, have labels but no <span id="..Value"> tags
             int j = 0;
@@ -469,16 +515,16 @@ public class OpenSearch extends OkHttpBaseApi implements OpacApi {
                         child.remove();
                     }
                 }
-                if (subtitle.equals("") && div.select("span").size() == 0 && j > 0 && j < 3) {
+                if (subtitle.equals("") && select(div, "span").size() == 0 && j > 0 && j < 3) {
                     subtitle = div.text().trim();
                 }
-                if (author.equals("") && div.select("span[id$=LblAuthor]").size() == 1) {
+                if (author.equals("") && select(div, "span[id$=LblAuthor]").size() == 1) {
                     author = div.text().trim();
                     if (author.contains(":")) {
                         author = author.split(":")[1];
                     }
                 }
-                if (year.equals("") && div.select("span[id$=LblProductionYear]").size() == 1) {
+                if (year.equals("") && select(div, "span[id$=LblProductionYear]").size() == 1) {
                     year = div.text().trim();
                     if (year.contains(":")) {
                         year = year.split(":")[1];
@@ -510,8 +556,8 @@ public class OpenSearch extends OkHttpBaseApi implements OpacApi {
 
             // Availability
             if (result.getId() != null) {
-                String culture = element.select("input[name$=culture]").val();
-                String ekzid = element.select("input[name$=ekzid]").val();
+                String culture = select(element, "input[name$=culture]").val();
+                String ekzid = select(element, "input[name$=ekzid]").val();
                 boolean ebook = !ekzid.equals("");
 
                 String url;
@@ -536,21 +582,17 @@ public class OpenSearch extends OkHttpBaseApi implements OpacApi {
                                 .put("branchFilter", "");
                     }
                     RequestBody entity = RequestBody.create(MEDIA_TYPE_JSON, data.toString());
+                    if (getSearchResultListener() != null) {
+                        // a streaming search may return the result before the lookup finished
+                        result.setStatus(SearchResult.Status.UNKNOWN);
+                    }
 
-                    futuresToWaitFor.add(asyncPost(url, entity, false).handle((response, throwable) -> {
+                    futuresToWaitFor.add(notifyOnUpdate(result, asyncPost(url, entity, false, data.toString()).handle((response, throwable) -> {
                         if (throwable != null) return null;
                         ResponseBody body = response.body();
                         try {
-                            JSONObject availabilityData = new JSONObject(body.string());
-                            String isAvail;
-                            if (ebook) {
-                                isAvail = availabilityData
-                                        .getJSONObject("d").getJSONObject("LookupItem")
-                                        .getString("Available");
-                            } else {
-                                isAvail = availabilityData
-                                        .getJSONObject("d").getString("IsAvail");
-                            }
+                            String isAvail = readAvailability(
+                                    new JsonReader(body.source()), ebook);
                             switch (isAvail) {
                                 case "true":
                                     result.setStatus(SearchResult.Status.GREEN);
@@ -569,7 +611,7 @@ public class OpenSearch extends OkHttpBaseApi implements OpacApi {
                         }
                         body.close();
                         return null;
-                    }));
+                    })));
                 } catch (JSONException e) {
                     if (debug) {
                         e.printStackTrace();
@@ -580,18 +622,18 @@ public class OpenSearch extends OkHttpBaseApi implements OpacApi {
             result.setNr(i);
             results.add(result);
         }
-        CompletableFuture.allOf(futuresToWaitFor.toArray(new CompletableFuture[futuresToWaitFor.size()])).join();
-
-        return new SearchRequestResult(results, totalCount, page);
+        SearchRequestResult searchRequestResult = new SearchRequestResult(results, totalCount, page);
+        completeResultUpdates(searchRequestResult, futuresToWaitFor);
+        return searchRequestResult;
     }
 
     private AvailabilityRestInfo getAvailabilityRestInfo(Document doc) {
         AvailabilityRestInfo info = new AvailabilityRestInfo();
         info.portalId = 1;
-        for (Element scripttag : doc.select("script")) {
+        for (Element scripttag : select(doc, "script")) {
             String scr = scripttag.html();
             if (scr.contains("LoadSharedCatalogueViewAvailabilityAsync")) {
-                Pattern pattern = Pattern.compile(
+                Pattern pattern = pattern(
                         ".*LoadSharedCatalogueViewAvailabilityAsync\\(\"([^,]*)\",\"([^,]*)\"," +
                                 "[^0-9,]*([0-9]+)[^0-9,]*,.*\\).*");
                 Matcher matcher = pattern.matcher(scr);
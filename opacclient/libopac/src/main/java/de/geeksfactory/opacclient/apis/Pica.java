@@ -68,6 +68,7 @@ import de.geeksfactory.opacclient.searchfields.SearchField;
 import de.geeksfactory.opacclient.searchfields.SearchQuery;
 import de.geeksfactory.opacclient.searchfields.TextSearchField;
 import de.geeksfactory.opacclient.utils.ISBNTools;
+import de.geeksfactory.opacclient.utils.ParallelRecordParser;
 
 /**
  * @author Johan von Forstner, 16.09.2013
@@ -300,88 +301,90 @@ public abstract class Pica extends OkHttpBaseApi implements OpacApi {
             }
         }
 
-        for (int i = 0; i < table.size(); i++) {
-            Element tr = table.get(i);
-            SearchResult sr = new SearchResult();
-            if (tr.select("td.hit img").size() > 0) {
-                String[] fparts = tr.select("td img").get(0).attr("src")
-                                    .split("/");
-                String fname = fparts[fparts.length - 1];
-                if (data.has("mediatypes")) {
-                    try {
-                        sr.setType(MediaType.valueOf(data.getJSONObject(
-                                "mediatypes").getString(fname)));
-                    } catch (JSONException | IllegalArgumentException e) {
-                        sr.setType(defaulttypes.get(fname
-                                .toLowerCase(Locale.GERMAN).replace(".jpg", "")
-                                .replace(".gif", "").replace(".png", "")));
-                    }
-                } else {
+        results.addAll(ParallelRecordParser.parse(executors.cpu(), table,
+                (tr, i) -> parseSearchRow(tr, i, page)));
+        resultcount = results.size();
+        return new SearchRequestResult(results, results_total, page);
+    }
+
+    private SearchResult parseSearchRow(Element tr, int i, int page) {
+        SearchResult sr = new SearchResult();
+        if (tr.select("td.hit img").size() > 0) {
+            String[] fparts = tr.select("td img").get(0).attr("src")
+                                .split("/");
+            String fname = fparts[fparts.length - 1];
+            if (data.has("mediatypes")) {
+                try {
+                    sr.setType(MediaType.valueOf(data.getJSONObject(
+                            "mediatypes").getString(fname)));
+                } catch (JSONException | IllegalArgumentException e) {
                     sr.setType(defaulttypes.get(fname
                             .toLowerCase(Locale.GERMAN).replace(".jpg", "")
                             .replace(".gif", "").replace(".png", "")));
                 }
+            } else {
+                sr.setType(defaulttypes.get(fname
+                        .toLowerCase(Locale.GERMAN).replace(".jpg", "")
+                        .replace(".gif", "").replace(".png", "")));
             }
-            Element middlething = tr.child(2);
-
-            List<Node> children = middlething.childNodes();
-            int childrennum = children.size();
-
-            List<String[]> strings = new ArrayList<>();
-            for (int ch = 0; ch < childrennum; ch++) {
-                Node node = children.get(ch);
-                if (node instanceof TextNode) {
-                    String text = ((TextNode) node).text().trim();
-                    if (text.length() > 3) {
-                        strings.add(new String[]{"text", "", text});
-                    }
-                } else if (node instanceof Element) {
-
-                    List<Node> subchildren = node.childNodes();
-                    for (int j = 0; j < subchildren.size(); j++) {
-                        Node subnode = subchildren.get(j);
-                        if (subnode instanceof TextNode) {
-                            String text = ((TextNode) subnode).text().trim();
-                            if (text.length() > 3) {
-                                strings.add(new String[]{
-                                        ((Element) node).tag().getName(),
-                                        "text", text,
-                                        ((Element) node).className(),
-                                        node.attr("style")});
-                            }
-                        } else if (subnode instanceof Element) {
-                            String text = ((Element) subnode).text().trim();
-                            if (text.length() > 3) {
-                                strings.add(new String[]{
-                                        ((Element) node).tag().getName(),
-                                        ((Element) subnode).tag().getName(),
-                                        text, ((Element) node).className(),
-                                        node.attr("style")});
-                            }
+        }
+        Element middlething = tr.child(2);
+
+        List<Node> children = middlething.childNodes();
+        int childrennum = children.size();
+
+        List<String[]> strings = new ArrayList<>();
+        for (int ch = 0; ch < childrennum; ch++) {
+            Node node = children.get(ch);
+            if (node instanceof TextNode) {
+                String text = ((TextNode) node).text().trim();
+                if (text.length() > 3) {
+                    strings.add(new String[]{"text", "", text});
+                }
+            } else if (node instanceof Element) {
+
+                List<Node> subchildren = node.childNodes();
+                for (int j = 0; j < subchildren.size(); j++) {
+                    Node subnode = subchildren.get(j);
+                    if (subnode instanceof TextNode) {
+                        String text = ((TextNode) subnode).text().trim();
+                        if (text.length() > 3) {
+                            strings.add(new String[]{
+                                    ((Element) node).tag().getName(),
+                                    "text", text,
+                                    ((Element) node).className(),
+                                    node.attr("style")});
+                        }
+                    } else if (subnode instanceof Element) {
+                        String text = ((Element) subnode).text().trim();
+                        if (text.length() > 3) {
+                            strings.add(new String[]{
+                                    ((Element) node).tag().getName(),
+                                    ((Element) subnode).tag().getName(),
+                                    text, ((Element) node).className(),
+                                    node.attr("style")});
                         }
                     }
                 }
             }
+        }
 
-            StringBuilder description = new StringBuilder();
+        StringBuilder description = new StringBuilder();
 
-            int k = 0;
-            for (String[] part : strings) {
-                if (part[0].equals("a") && k == 0) {
-                    description.append("<b>").append(part[2]).append("</b>");
-                } else if (k < 3) {
-                    description.append("<br />").append(part[2]);
-                }
-                k++;
+        int k = 0;
+        for (String[] part : strings) {
+            if (part[0].equals("a") && k == 0) {
+                description.append("<b>").append(part[2]).append("</b>");
+            } else if (k < 3) {
+                description.append("<br />").append(part[2]);
             }
-            sr.setInnerhtml(description.toString());
-
-            sr.setNr(10 * (page - 1) + i);
-            sr.setId(null);
-            results.add(sr);
+            k++;
         }
-        resultcount = results.size();
-        return new SearchRequestResult(results, results_total, page);
+        sr.setInnerhtml(description.toString());
+
+        sr.setNr(10 * (page - 1) + i);
+        sr.setId(null);
+        return sr;
     }
 
     @Override
@@ -417,10 +420,10 @@ public abstract class Pica extends OkHttpBaseApi implements OpacApi {
         }
 
         if (id.startsWith("http")) {
-            return parse_result(httpGet(id, getDefaultEncoding()));
+            return parse_result(httpGetDocument(id, getDefaultEncoding()));
         } else {
             try {
-                return parse_result(httpGet(opac_url + "/LNG=" + getLang() + "/DB="
+                return parse_result(httpGetDocument(opac_url + "/LNG=" + getLang() + "/DB="
                         + data.getString("db") + "/PPNSET?PPN=" + id, getDefaultEncoding()));
             } catch (JSONException e) {
                 e.printStackTrace();
@@ -434,16 +437,19 @@ public abstract class Pica extends OkHttpBaseApi implements OpacApi {
         if (!initialised) {
             start();
         }
-        String html = httpGet(opac_url + "/LNG=" + getLang() + "/DB=" + db
+        Document doc = httpGetDocument(opac_url + "/LNG=" + getLang() + "/DB=" + db
                         + "/LNG=" + getLang() + "/SET=" + searchSet
                         + "/TTL=1/SHW?FRST=" + (position + 1), getDefaultEncoding(),
                 false);
 
-        return parse_result(html);
+        return parse_result(doc);
     }
 
     protected DetailedItem parse_result(String html) {
-        Document doc = Jsoup.parse(html);
+        return parse_result(Jsoup.parse(html));
+    }
+
+    protected DetailedItem parse_result(Document doc) {
         doc.setBaseUri(opac_url);
 
         DetailedItem result = new DetailedItem();
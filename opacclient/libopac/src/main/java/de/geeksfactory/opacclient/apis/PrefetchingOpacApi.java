@@ -0,0 +1,453 @@
+package de.geeksfactory.opacclient.apis;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import de.geeksfactory.opacclient.i18n.StringProvider;
+import de.geeksfactory.opacclient.networking.HttpClientFactory;
+import de.geeksfactory.opacclient.objects.Account;
+import de.geeksfactory.opacclient.objects.AccountData;
+import de.geeksfactory.opacclient.objects.DetailedItem;
+import de.geeksfactory.opacclient.objects.Filter;
+import de.geeksfactory.opacclient.objects.Library;
+import de.geeksfactory.opacclient.objects.SearchRequestResult;
+import de.geeksfactory.opacclient.objects.SearchResult;
+import de.geeksfactory.opacclient.reporting.ReportHandler;
+import de.geeksfactory.opacclient.searchfields.SearchField;
+import de.geeksfactory.opacclient.searchfields.SearchQuery;
+import de.geeksfactory.opacclient.utils.LibopacExecutors;
+
+/**
+ * Wraps an {@link OpacApi} supporting {@link OpacApi#SUPPORT_FLAG_ENDLESS_SCROLLING} and loads
+ * the next page of search results in the background whenever a page is returned, so that a
+ * following {@link #searchGetPage(int)} for it returns without a request. Only one page is kept,
+ * and only if its estimated size fits into the memory budget.
+ * <p>
+ * API implementations are not thread-safe, so all calls to the wrapped API, including the
+ * prefetch, are made one after the other. A call made while the prefetch is running waits for
+ * it; {@link #searchGetPage(int)} then uses its result.
+ * <p>
+ * Some backends keep a cursor into the result set on the server or in the API instance (see
+ * {@link #hasServerSideCursor(OpacApi)}). Returning a prefetched page leaves their session in the
+ * same state as loading it would have. Any other call, however, expects the cursor on the page
+ * that was returned last, so for these backends that page is loaded again before the call and
+ * the prefetched page is dropped. For all backends, a new search drops it.
+ */
+public class PrefetchingOpacApi implements OpacApi {
+    /**
+     * Default memory budget for the prefetched page
+     */
+    public static final long DEFAULT_MAX_BYTES = 512 * 1024;
+    private static final int RESULT_OVERHEAD_BYTES = 256;
+
+    private final OpacApi api;
+    private final LibopacExecutors executors;
+    private final long maxBytes;
+    private final boolean serverSideCursor;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // guarded by lock
+    private int generation = 0;
+    private int pageSize = 0;
+    private SearchRequestResult prefetched;
+    private int prefetchedPage;
+    private int prefetchedGeneration;
+    /**
+     * The page returned last, and whether a prefetch moved the cursor away from it
+     */
+    private int shownPage;
+    private boolean cursorMoved;
+
+    public PrefetchingOpacApi(OpacApi api) {
+        this(api, LibopacExecutors.getDefault(), DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param api       the API to wrap
+     * @param executors the executors to run the prefetch on
+     * @param maxBytes  the largest estimated size of a page that is kept
+     */
+    public PrefetchingOpacApi(OpacApi api, LibopacExecutors executors, long maxBytes) {
+        this.api = api;
+        this.executors = executors;
+        this.maxBytes = maxBytes;
+        this.serverSideCursor = hasServerSideCursor(api);
+    }
+
+    /**
+     * @return whether the API keeps a position in the result set in its server-side session, so
+     * that a request for a page changes what following requests refer to
+     */
+    public static boolean hasServerSideCursor(OpacApi api) {
+        return api instanceof SISIS || api instanceof Adis || api instanceof TouchPoint;
+    }
+
+    /**
+     * @return a rough estimate of the memory used by the results of a page
+     */
+    static long estimateSize(SearchRequestResult result) {
+        long size = 0;
+        for (SearchResult item : result.getResults()) {
+            size += RESULT_OVERHEAD_BYTES + 2 * (length(item.getInnerhtml()) +
+                    length(item.getId()) + length(item.getCover()));
+        }
+        return size;
+    }
+
+    private static int length(String s) {
+        return s != null ? s.length() : 0;
+    }
+
+    public OpacApi getWrappedApi() {
+        return api;
+    }
+
+    /**
+     * Locks the wrapped API for a call.
+     *
+     * @param newState whether the call changes the server-side state a prefetched page depends
+     *                 on
+     */
+    private void begin(boolean newState) {
+        lock.lock();
+        if (newState) {
+            generation++;
+            prefetched = null;
+            cursorMoved = false;
+        } else if (cursorMoved) {
+            restoreCursor();
+        }
+    }
+
+    /**
+     * Loads the page returned last again, so that the backend's cursor points to it instead of the
+     * prefetched page. The prefetched page is dropped, as loading it now needs the cursor to be
+     * moved again.
+     */
+    private void restoreCursor() {
+        prefetched = null;
+        cursorMoved = false;
+        // makes a prefetch that did not start yet obsolete
+        generation++;
+        try {
+            api.searchGetPage(shownPage);
+        } catch (Exception e) {
+            // the following call reports errors of the session
+        }
+    }
+
+    private void end() {
+        lock.unlock();
+    }
+
+    private SearchRequestResult returnPage(SearchRequestResult result, int page) {
+        shownPage = page;
+        if (result == null || result.getResults() == null || result.getResults().isEmpty() ||
+                (api.getSupportFlags() & SUPPORT_FLAG_ENDLESS_SCROLLING) == 0) {
+            return result;
+        }
+        if (page == 1) {
+            pageSize = result.getResults().size();
+        }
+        if (hasNextPage(result, page)) {
+            schedulePrefetch(page + 1, generation);
+        }
+        return result;
+    }
+
+    private boolean hasNextPage(SearchRequestResult result, int page) {
+        if (result.getPage_count() > 0) {
+            return page < result.getPage_count();
+        }
+        if (result.getTotal_result_count() > 0 && pageSize > 0) {
+            return (long) page * pageSize < result.getTotal_result_count();
+        }
+        return result.getTotal_result_count() < 0;
+    }
+
+    private void schedulePrefetch(final int page, final int scheduledGeneration) {
+        try {
+            executors.operations().execute(() -> prefetch(page, scheduledGeneration));
+        } catch (RejectedExecutionException e) {
+            // no prefetch when busy
+        }
+    }
+
+    private void prefetch(int page, int scheduledGeneration) {
+        lock.lock();
+        try {
+            if (generation != scheduledGeneration || prefetched != null) {
+                // a new search was made or another call moved the cursor
+                return;
+            }
+            cursorMoved = serverSideCursor;
+            SearchRequestResult result = api.searchGetPage(page);
+            if (result != null && result.getResults() != null &&
+                    estimateSize(result) <= maxBytes) {
+                prefetched = result;
+                prefetchedPage = page;
+                prefetchedGeneration = scheduledGeneration;
+            }
+        } catch (Exception e) {
+            // the page is loaded again when it is requested, reporting the error then
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void start() throws IOException {
+        begin(true);
+        try {
+            api.start();
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public void init(Library library, HttpClientFactory httpClientFactory, boolean debug) {
+        api.init(library, httpClientFactory, debug);
+    }
+
+    @Override
+    public SearchRequestResult search(List<SearchQuery> query)
+            throws IOException, OpacErrorException, JSONException {
+        begin(true);
+        try {
+            return returnPage(api.search(query), 1);
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public SearchRequestResult volumeSearch(Map<String, String> query)
+            throws IOException, OpacErrorException {
+        begin(true);
+        try {
+            return returnPage(api.volumeSearch(query), 1);
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public SearchRequestResult filterResults(Filter filter, Filter.Option option)
+            throws IOException, OpacErrorException {
+        begin(true);
+        try {
+            return returnPage(api.filterResults(filter, option), 1);
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public SearchRequestResult searchGetPage(int page)
+            throws IOException, OpacErrorException, JSONException {
+        lock.lock();
+        try {
+            SearchRequestResult result = prefetched;
+            prefetched = null;
+            if (result == null || prefetchedPage != page ||
+                    prefetchedGeneration != generation) {
+                if (cursorMoved) {
+                    // the backend may not move to a page relative to the prefetched one
+                    restoreCursor();
+                }
+                // makes a prefetch that did not start yet obsolete
+                generation++;
+                result = api.searchGetPage(page);
+            }
+            cursorMoved = false;
+            return returnPage(result, page);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public DetailedItem getResultById(String id, String homebranch)
+            throws IOException, OpacErrorException {
+        begin(false);
+        try {
+            return api.getResultById(id, homebranch);
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public DetailedItem getResult(int position) throws IOException, OpacErrorException {
+        begin(false);
+        try {
+            return api.getResult(position);
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public ReservationResult reservation(DetailedItem item, Account account, int useraction,
+            String selection) throws IOException {
+        begin(false);
+        try {
+            return api.reservation(item, account, useraction, selection);
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public ProlongResult prolong(String media, Account account, int useraction,
+            String selection) throws IOException {
+        begin(false);
+        try {
+            return api.prolong(media, account, useraction, selection);
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public ProlongAllResult prolongAll(Account account, int useraction, String selection)
+            throws IOException {
+        begin(false);
+        try {
+            return api.prolongAll(account, useraction, selection);
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public ProlongAllResult prolongMultiple(List<String> media, Account account, int useraction,
+            String selection) throws IOException {
+        begin(false);
+        try {
+            return api.prolongMultiple(media, account, useraction, selection);
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public CancelResult cancel(String media, Account account, int useraction, String selection)
+            throws IOException, OpacErrorException {
+        begin(false);
+        try {
+            return api.cancel(media, account, useraction, selection);
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public AccountData account(Account account)
+            throws IOException, JSONException, OpacErrorException {
+        begin(false);
+        try {
+            return api.account(account);
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public String getPendingAccountFees(Account account)
+            throws IOException, JSONException, OpacErrorException {
+        begin(false);
+        try {
+            return api.getPendingAccountFees(account);
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public void checkAccountData(Account account)
+            throws IOException, JSONException, OpacErrorException {
+        begin(false);
+        try {
+            api.checkAccountData(account);
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public List<SearchField> getSearchFields()
+            throws IOException, OpacErrorException, JSONException {
+        begin(false);
+        try {
+            return api.getSearchFields();
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public String getShareUrl(String id, String title) {
+        return api.getShareUrl(id, title);
+    }
+
+    @Override
+    public int getSupportFlags() {
+        return api.getSupportFlags();
+    }
+
+    @Override
+    public void setStringProvider(StringProvider stringProvider) {
+        api.setStringProvider(stringProvider);
+    }
+
+    @Override
+    public Set<String> getSupportedLanguages() throws IOException {
+        begin(false);
+        try {
+            return api.getSupportedLanguages();
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public void setLanguage(String language) {
+        api.setLanguage(language);
+    }
+
+    @Override
+    public void setReportHandler(ReportHandler reportHandler) {
+        api.setReportHandler(reportHandler);
+    }
+
+    @Override
+    public void setExecutors(LibopacExecutors executors) {
+        api.setExecutors(executors);
+    }
+
+    @Override
+    public OpacApi newSession() {
+        return new PrefetchingOpacApi(api.newSession(), executors, maxBytes);
+    }
+
+    @Override
+    public void dispose() {
+        lock.lock();
+        try {
+            generation++;
+            prefetched = null;
+            cursorMoved = false;
+        } finally {
+            lock.unlock();
+        }
+        api.dispose();
+    }
+}
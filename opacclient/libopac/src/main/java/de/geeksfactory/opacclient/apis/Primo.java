@@ -1,7 +1,6 @@
 package de.geeksfactory.opacclient.apis;
 
 import org.apache.http.NameValuePair;
-import org.apache.http.client.CookieStore;
 import org.apache.http.message.BasicNameValuePair;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
@@ -45,7 +44,7 @@ import de.geeksfactory.opacclient.searchfields.TextSearchField;
 
 import static java.net.URLDecoder.decode;
 
-public class Primo extends ApacheBaseApi {
+public class Primo extends OkHttpBaseApi {
     protected static HashMap<String, String> languageCodes = new HashMap<>();
     protected static HashMap<String, SearchResult.MediaType> mediaTypeClasses = new HashMap<>();
 
@@ -621,16 +620,16 @@ public class Primo extends ApacheBaseApi {
             throws IOException, JSONException, OpacErrorException {
     }
 
-    public String httpGet(String url, String encoding, boolean ignore_errors,
-            CookieStore cookieStore) throws
-            IOException {
-        String html = super.httpGet(url, encoding, ignore_errors, cookieStore);
+    @Override
+    public String httpGet(String url, String encoding, boolean ignore_errors, String accept)
+            throws IOException {
+        String html = super.httpGet(url, encoding, ignore_errors, accept);
         if (html.contains("id=\"connect\"")) {
             // British Library and Uni Duesburg-Essen do weird JavaScript redirects
             Document doc = Jsoup.parse(html);
             doc.setBaseUri(url);
             return httpGet(doc.select("#connect a").first().attr("href").substring(6), encoding,
-                    ignore_errors, cookieStore);
+                    ignore_errors, accept);
         }
         return html;
     }
@@ -56,8 +56,10 @@ import java.util.stream.Collectors;
 
 import de.geeksfactory.opacclient.apis.OpacApi.MultiStepResult.Status;
 import de.geeksfactory.opacclient.i18n.StringProvider;
+import de.geeksfactory.opacclient.networking.CancellationToken;
 import de.geeksfactory.opacclient.networking.HttpClientFactory;
 import de.geeksfactory.opacclient.networking.NotReachableException;
+import de.geeksfactory.opacclient.networking.Session;
 import de.geeksfactory.opacclient.objects.Account;
 import de.geeksfactory.opacclient.objects.AccountData;
 import de.geeksfactory.opacclient.objects.AccountItem;
@@ -76,9 +78,12 @@ import de.geeksfactory.opacclient.searchfields.DropdownSearchField;
 import de.geeksfactory.opacclient.searchfields.SearchField;
 import de.geeksfactory.opacclient.searchfields.SearchQuery;
 import de.geeksfactory.opacclient.searchfields.TextSearchField;
+import de.geeksfactory.opacclient.utils.HtmlRegions;
 import java8.util.concurrent.CompletableFuture;
 import okhttp3.FormBody;
 
+import static de.geeksfactory.opacclient.utils.Selectors.pattern;
+import static de.geeksfactory.opacclient.utils.Selectors.select;
 import static org.jsoup.parser.Parser.unescapeEntities;
 
 /**
@@ -210,6 +215,22 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
     protected long logged_in;
     protected Account logged_in_as;
     protected static final String ENCODING = "UTF-8";
+    /**
+     * The parts of the account pages read by {@link #parse_medialist}, {@link #parse_reslist},
+     * {@link #parse_fees} and {@link #getAccountPageLinks}.
+     */
+    static final HtmlRegions ACCOUNT_REGIONS = HtmlRegions.of(".data", ".container-fluid",
+            "[id^=label]", ".box3", ".box-right");
+    private static final HtmlRegions LOGOUT_LINK =
+            HtmlRegions.of("a[href*=methodToCall=logout]");
+    private static final HtmlRegions ACCOUNT_LINK =
+            HtmlRegions.of("a[href*=methodToCall=showAccount]");
+    private static final Pattern AJAX_COVER_PATTERN = Pattern.compile(
+            "\\$\\.ajax\\(\\{\\s*url:\\s*'(.*jsp/result/cover.jsp\\?[^']+)'");
+    private static final Pattern IMG_SRC_PATTERN = Pattern.compile("var imgSrc = '([^']+)'");
+    private static final Pattern BOOK_INFO_PATTERN =
+            Pattern.compile("var bookInfo = JSON\\.parse\\('([^']+)'\\)");
+    private static final Pattern IMG_TAG_PATTERN = Pattern.compile("<img .* src=\"([^\"]+)\">");
 
     protected String getDefaultEncoding() {
         return ENCODING;
@@ -299,6 +320,11 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
         }
     }
 
+    @Override
+    public long getSessionLifetime() {
+        return SESSION_LIFETIME;
+    }
+
     @Override
     public SearchRequestResult search(List<SearchQuery> query)
             throws IOException, OpacErrorException,
@@ -358,10 +384,10 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
         params.add(new BasicNameValuePair("callingPage", "searchParameters"));
         params.add(new BasicNameValuePair("numberOfHits", "10"));
 
-        String html = httpGet(
+        Document doc = httpGetDocument(
                 opac_url + "/search.do?"
                         + URLEncodedUtils.format(params, "UTF-8"), ENCODING);
-        return parse_search_wrapped(html, 1);
+        return parse_search_wrapped(doc, 1);
     }
 
     public SearchRequestResult volumeSearch(Map<String, String> query)
@@ -372,10 +398,10 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
                 .get("dbIdentifier")));
         params.add(new BasicNameValuePair("catKey", query.get("catKey")));
         params.add(new BasicNameValuePair("periodical", "N"));
-        String html = httpGet(
+        Document doc = httpGetDocument(
                 opac_url + "/search.do?"
                         + URLEncodedUtils.format(params, "UTF-8"), ENCODING);
-        return parse_search_wrapped(html, 1);
+        return parse_search_wrapped(doc, 1);
     }
 
     @Override
@@ -385,23 +411,24 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
             start();
         }
 
-        String html = httpGet(opac_url
+        Document doc = httpGetDocument(opac_url
                 + "/hitList.do?methodToCall=pos&identifier=" + identifier
                 + "&curPos=" + (((page - 1) * resultcount) + 1), ENCODING);
-        return parse_search_wrapped(html, page);
+        return parse_search_wrapped(doc, page);
     }
 
     public class SingleResultFound extends Exception {
     }
 
-    protected SearchRequestResult parse_search_wrapped(String html, int page)
+    protected SearchRequestResult parse_search_wrapped(Document doc, int page)
             throws IOException, OpacErrorException {
         try {
-            return parse_search(html, page);
+            return parse_search(doc, page);
         } catch (SingleResultFound e) {
-            html = httpGet(opac_url + "/hitList.do?methodToCall=backToPrimaryHitList", ENCODING);
+            doc = httpGetDocument(opac_url + "/hitList.do?methodToCall=backToPrimaryHitList",
+                    ENCODING);
             try {
-                return parse_search(html, page);
+                return parse_search(doc, page);
             } catch (SingleResultFound e1) {
                 throw new NotReachableException();
             }
@@ -410,14 +437,18 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
 
     public SearchRequestResult parse_search(String html, int page)
             throws OpacErrorException, SingleResultFound, IOException {
-        Document doc = Jsoup.parse(html);
+        return parse_search(Jsoup.parse(html), page);
+    }
+
+    public SearchRequestResult parse_search(Document doc, int page)
+            throws OpacErrorException, SingleResultFound, IOException {
         doc.setBaseUri(opac_url + "/searchfoo");
 
-        if (doc.select(".error").size() > 0) {
-            throw new OpacErrorException(doc.select(".error").text().trim());
-        } else if (doc.select(".nohits").size() > 0) {
-            throw new OpacErrorException(doc.select(".nohits").text().trim());
-        } else if (doc.select(".box-header h2, #nohits, .hitlist h1, .hitlistacq h1").text()
+        if (select(doc, ".error").size() > 0) {
+            throw new OpacErrorException(select(doc, ".error").text().trim());
+        } else if (select(doc, ".nohits").size() > 0) {
+            throw new OpacErrorException(select(doc, ".nohits").text().trim());
+        } else if (select(doc, ".box-header h2, #nohits, .hitlist h1, .hitlistacq h1").text()
                       .contains("keine Treffer")) {
             return new SearchRequestResult(new ArrayList<SearchResult>(), 0, 1,
                     1);
@@ -425,7 +456,7 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
 
         int results_total = -1;
 
-        String resultnumstr = doc.select(".box-header h2, .hitlist h1, .hitlistacq h1, #middle h1").first().text();
+        String resultnumstr = select(doc, ".box-header h2, .hitlist h1, .hitlistacq h1, #middle h1").first().text();
         if (resultnumstr.contains("(1/1)") || resultnumstr.contains(" 1/1")) {
             throw new SingleResultFound();
         } else if (resultnumstr.contains("(")) {
@@ -436,10 +467,10 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
                     ".*: ([0-9]+)$", "$1"));
         }
 
-        Elements table = doc.select("table.data tbody tr, .hitlist .container-fluid .row, .hitlistacq .container-fluid .row");
+        Elements table = select(doc, "table.data tbody tr, .hitlist .container-fluid .row, .hitlistacq .container-fluid .row");
         identifier = null;
 
-        Elements links = doc.select("table.data a, .hitlist .row a, .hitlistacq .row a");
+        Elements links = select(doc, "table.data a, .hitlist .row a, .hitlistacq .row a");
         boolean haslink = false;
         for (int i = 0; i < links.size(); i++) {
             Element node = links.get(i);
@@ -466,17 +497,18 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
         List<SearchResult> results = new ArrayList<>();
         List<CompletableFuture<Void>> futures = new ArrayList<>();
         for (int i = 0; i < table.size(); i++) {
+            CancellationToken.throwIfCurrentCancelled();
             SearchResult sr = new SearchResult();
             Element tr = table.get(i);
 
-            MediaTypeOrFormat mediaTypeOrFormat = tr.select("td").size() > 0 ? getMediaTypeOrFormat(tr, "td", data) :  getMediaTypeOrFormat(tr, "div", data);
+            MediaTypeOrFormat mediaTypeOrFormat = select(tr, "td").size() > 0 ? getMediaTypeOrFormat(tr, "td", data) :  getMediaTypeOrFormat(tr, "div", data);
             if (mediaTypeOrFormat.mediaType != null){
                 sr.setType(mediaTypeOrFormat.mediaType);
             }
 
             // static covers
-            if (tr.select("img[title*=cover]").size() == 1) {
-                sr.setCover(tr.select("img[title*=cover]")
+            if (select(tr, "img[title*=cover]").size() == 1) {
+                sr.setCover(select(tr, "img[title*=cover]")
                               .attr("abs:src"));
                 if (sr.getCover().contains("showCover.do")) {
                     downloadCover(sr);
@@ -484,10 +516,11 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
             }
 
             // covers loaded with AJAX (seen in Wuppertal)
-            if (tr.select("script").size() > 0 && tr.select("script").html().contains("jsp/result/cover.jsp")) {
-                String url = getAjaxCoverUrl(tr.select("script").html());
+            String scriptHtml = select(tr, "script").html();
+            if (scriptHtml.contains("jsp/result/cover.jsp")) {
+                String url = getAjaxCoverUrl(scriptHtml);
                 if (url != null ) {
-                    futures.add(CompletableFuture.runAsync(() -> {
+                    futures.add(notifyOnUpdate(sr, getExecutorScope().runAsync(() -> {
                         try {
                             String result = httpGet(url, getDefaultEncoding());
                             sr.setCover(parseCoverJs(result, opac_url));
@@ -497,7 +530,7 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
                         } catch (IOException e) {
                             e.printStackTrace();
                         }
-                    }));
+                    })));
                 }
             }
 
@@ -509,15 +542,15 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
             }
 
             List<Node> children = middlething.childNodes();
-            if (middlething.select("div")
+            if (select(middlething, "div")
                            .not("#hlrightblock,.bestellfunktionen").size() == 1) {
-                Element indiv = middlething.select("div")
+                Element indiv = select(middlething, "div")
                                            .not("#hlrightblock,.bestellfunktionen").first();
-                if (indiv.select("a[href*=Hit]").size() > 0 && indiv.children().size() > 1) {
+                if (select(indiv, "a[href*=Hit]").size() > 0 && indiv.children().size() > 1) {
                     children = indiv.childNodes();
                 }
-            } else if (middlething.select("span.titleData").size() == 1) {
-                children = middlething.select("span.titleData").first()
+            } else if (select(middlething, "span.titleData").size() == 1) {
+                children = select(middlething, "span.titleData").first()
                                       .childNodes();
             }
             int childrennum = children.size();
@@ -559,7 +592,7 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
             }
 
             StringBuilder description = null;
-            if (tr.select("span.Z3988").size() == 1) {
+            if (select(tr, "span.Z3988").size() == 1) {
                 // Sometimes there is a <span class="Z3988"> item which provides
                 // data in a standardized format.
                 List<NameValuePair> z3988data;
@@ -567,7 +600,7 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
                 try {
                     description = new StringBuilder();
                     z3988data = URLEncodedUtils.parse(new URI("http://dummy/?"
-                            + tr.select("span.Z3988").attr("title")), "UTF-8");
+                            + select(tr, "span.Z3988").attr("title")), "UTF-8");
                     for (NameValuePair nv : z3988data) {
                         if (nv.getValue() != null) {
                             if (!nv.getValue().trim().equals("")) {
@@ -696,18 +729,14 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
             results.add(sr);
         }
 
-        CompletableFuture
-                .allOf(futures.toArray(new CompletableFuture[futures.size()]))
-                .join();
-
         resultcount = results.size();
-        return new SearchRequestResult(results, results_total, page);
+        SearchRequestResult result = new SearchRequestResult(results, results_total, page);
+        completeResultUpdates(result, futures);
+        return result;
     }
 
     String getAjaxCoverUrl(String html) {
-        final Pattern coverPattern = Pattern.compile(
-                "\\$\\.ajax\\(\\{\\s*url:\\s*'(.*jsp/result/cover.jsp\\?[^']+)'");
-        Matcher matcher = coverPattern.matcher(html.replace("\n", " "));
+        Matcher matcher = AJAX_COVER_PATTERN.matcher(html.replace("\n", " "));
         String url = null;
         if (matcher.find()) {
             try {
@@ -1142,13 +1171,11 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
 
     static String parseCoverJs(String coverJs, String opac_url) {
         String url;
-        Pattern imgSrcPattern = Pattern.compile("var imgSrc = '([^']+)'");
-        Matcher matcher = imgSrcPattern.matcher(coverJs);
+        Matcher matcher = IMG_SRC_PATTERN.matcher(coverJs);
         if (matcher.find()) {
             url = matcher.group(1);
         } else {
-            Pattern bookInfoPattern = Pattern.compile("var bookInfo = JSON\\.parse\\('([^']+)'\\)");
-            matcher = bookInfoPattern.matcher(coverJs);
+            matcher = BOOK_INFO_PATTERN.matcher(coverJs);
             if (matcher.find()) {
                 try {
                     JSONObject bookInfo = new JSONObject(matcher.group(1));
@@ -1158,8 +1185,7 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
                     return null;
                 }
             } else {
-                Pattern srcPattern = Pattern.compile("<img .* src=\"([^\"]+)\">");
-                matcher = srcPattern.matcher(coverJs);
+                matcher = IMG_TAG_PATTERN.matcher(coverJs);
                 if (matcher.find()) {
                     url = matcher.group(1);
                 } else {
@@ -1590,6 +1616,7 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
 
         logged_in = System.currentTimeMillis();
         logged_in_as = acc;
+        saveSession(acc, getSessionTokens());
 
         return true;
     }
@@ -1601,7 +1628,7 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
 
     public static void parse_medialist(List<LentItem> media, Document doc, int offset,
             JSONObject data) {
-        Elements copytrs = doc.select(".data tr, .container-fluid > .row");
+        Elements copytrs = select(doc, ".data tr, .container-fluid > .row");
         doc.setBaseUri(data.optString("baseurl"));
 
         DateTimeFormatter fmt = DateTimeFormat.forPattern("dd.MM.yyyy").withLocale(Locale.GERMAN);
@@ -1624,7 +1651,7 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
             int firstCol = tr.child(0).select("input[type=checkbox], input[type=hidden]").size() > 0 ? 1 : 0;
 
             item.setTitle(tr.child(1 + firstCol).select("strong").text().trim());
-            MediaTypeOrFormat mediaTypeOrFormat = tr.select("td").size() > 0 ? getMediaTypeOrFormat(tr, "td", data) :  getMediaTypeOrFormat(tr, "div", data);
+            MediaTypeOrFormat mediaTypeOrFormat = select(tr, "td").size() > 0 ? getMediaTypeOrFormat(tr, "td", data) :  getMediaTypeOrFormat(tr, "div", data);
             if (mediaTypeOrFormat.mediaType != null) {
                 item.setMediaType(mediaTypeOrFormat.mediaType);
             } else {
@@ -1669,8 +1696,8 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
                     item.setHomeBranch(col2split[1].trim());
                 }
 
-                if (tr.select("a").size() > 0) {
-                    for (Element link : tr.select("a")) {
+                if (select(tr, "a").size() > 0) {
+                    for (Element link : select(tr, "a")) {
                         String href = link.attr("abs:href");
                         Map<String, String> hrefq = getQueryParamsFirst(href);
                         if (hrefq.get("methodToCall").equals("renewalPossible")) {
@@ -1679,9 +1706,9 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
                             break;
                         }
                     }
-                } else if (tr.select("input[type=checkbox]:not([disabled])").size() > 0) {
-                    Element checkbox = tr.select("input[type=checkbox]").first();
-                    Pattern pattern = Pattern.compile("selectedMediaListentries\\[(\\d+)\\]");
+                } else if (select(tr, "input[type=checkbox]:not([disabled])").size() > 0) {
+                    Element checkbox = select(tr, "input[type=checkbox]").first();
+                    Pattern pattern = pattern("selectedMediaListentries\\[(\\d+)\\]");
                     Matcher matcher = pattern.matcher(checkbox.attr("name"));
                     if (matcher.find()) {
                         String nr = matcher.group(1);
@@ -1689,10 +1716,10 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
                                 offset + "$" + "methodToCall=renewalPossible&actPos=" + nr);
                         item.setRenewable(true);
                     }
-                } else if (tr.select(".textrot, .textgruen, .textdunkelblau")
+                } else if (select(tr, ".textrot, .textgruen, .textdunkelblau")
                              .size() > 0) {
                     item.setProlongData(
-                            "§" + tr.select(".textrot, .textgruen, .textdunkelblau").text());
+                            "§" + select(tr, ".textrot, .textgruen, .textdunkelblau").text());
                     item.setRenewable(false);
                 }
 
@@ -1762,7 +1789,7 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
 
     protected static void parse_reslist(String type,
             List<ReservedItem> reservations, Document doc, int offset, JSONObject data) {
-        Elements copytrs = doc.select(".data tr, .container-fluid > .row");
+        Elements copytrs = select(doc, ".data tr, .container-fluid > .row");
         doc.setBaseUri(data.optString("baseurl"));
         int trs = copytrs.size();
         if (trs == 1) {
@@ -1796,9 +1823,9 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
                 e.printStackTrace();
             }
 
-            if (tr.select("a").size() == 1) {
+            if (select(tr, "a").size() == 1) {
                 item.setCancelData(type + "$" + offset + "$" +
-                        tr.select("a").attr("abs:href").split("\\?")[1]);
+                        select(tr, "a").attr("abs:href").split("\\?")[1]);
             }
 
             reservations.add(item);
@@ -1807,8 +1834,8 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
     }
 
     protected void parse_fees(Document doc, AccountData res) {
-        if (doc.select("#label8").size() > 0) {
-            String text = doc.select("#label8").first().text().trim();
+        if (select(doc, "#label8").size() > 0) {
+            String text = select(doc, "#label8").first().text().trim();
             if (text.matches("Geb.+hren[^\\(]+\\(([0-9.,]+)[^0-9€A-Z]*(€|EUR|CHF|Fr.?)\\)")) {
                 text = text
                         .replaceAll(
@@ -1830,8 +1857,7 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
 
         String html = httpGet(opac_url
                 + "/userAccount.do?methodToCall=showAccount&typ=1", ENCODING);
-        Document doc = Jsoup.parse(html);
-        doc.setBaseUri(opac_url);
+        Document doc = ACCOUNT_REGIONS.parse(html, opac_url);
 
         AccountData res = new AccountData(account.getId());
         parse_fees(doc, res);
@@ -1842,20 +1868,22 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
     public AccountData account(Account acc) throws IOException,
             JSONException,
             OpacErrorException {
-        start(); // TODO: Is this necessary?
-
         int resultNum;
 
-        if (!login(acc)) {
-            return null;
-        }
-
         // Geliehene Medien
-        String html = httpGet(opac_url
-                + "/userAccount.do?methodToCall=showAccount&typ=1", ENCODING);
+        String html = resumeAccountSession(acc);
+        if (html == null) {
+            start(); // TODO: Is this necessary?
+
+            if (!login(acc)) {
+                return null;
+            }
+
+            html = httpGet(opac_url
+                    + "/userAccount.do?methodToCall=showAccount&typ=1", ENCODING);
+        }
         List<LentItem> medien = new ArrayList<>();
-        Document doc = Jsoup.parse(html);
-        doc.setBaseUri(opac_url);
+        Document doc = ACCOUNT_REGIONS.parse(html, opac_url);
 
         parse_medialist(medien, doc, 1, data);
 
@@ -1876,8 +1904,7 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
         // Ordered media ("Bestellungen")
         html = httpGet(opac_url + "/userAccount.do?methodToCall=showAccount&typ=6", ENCODING);
         List<ReservedItem> reserved = new ArrayList<>();
-        doc = Jsoup.parse(html);
-        doc.setBaseUri(opac_url);
+        doc = ACCOUNT_REGIONS.parse(html, opac_url);
         parse_reslist("6", reserved, doc, 1, data);
         Elements label6 = doc.select("#label6");
 
@@ -1887,8 +1914,7 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
         // Prebooked media ("Vormerkungen")
         html = httpGet(opac_url
                 + "/userAccount.do?methodToCall=showAccount&typ=7", ENCODING);
-        doc = Jsoup.parse(html);
-        doc.setBaseUri(opac_url);
+        doc = ACCOUNT_REGIONS.parse(html, opac_url);
         parse_reslist("7", reserved, doc, 1, data);
 
         // additional pages
@@ -1928,9 +1954,48 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
 
         res.setLent(medien);
         res.setReservations(reserved);
+        saveSession(acc, getSessionTokens());
         return res;
     }
 
+    /**
+     * Tries to continue a session stored by another instance for the account, saving the
+     * requests to the start and login pages.
+     *
+     * @return the first page of the account, or {@code null} if there is no valid session
+     */
+    protected String resumeAccountSession(Account acc) throws IOException {
+        Session session = resumeSession(acc, SESSION_LIFETIME);
+        if (session == null || session.getToken("CSId") == null) {
+            return null;
+        }
+        CSId = session.getToken("CSId");
+        String html = httpGet(opac_url
+                + "/userAccount.do?methodToCall=showAccount&typ=1", ENCODING);
+        if (!isAccountPage(html)) {
+            // The server ended the session and shows the login form, an error or the start page
+            discardSession(acc);
+            return null;
+        }
+        logged_in = System.currentTimeMillis();
+        logged_in_as = acc;
+        return html;
+    }
+
+    /**
+     * @return whether the page is a page of the account of a logged-in user, which links to the
+     * other account pages and to the logout
+     */
+    static boolean isAccountPage(String html) {
+        return LOGOUT_LINK.extract(html) != null && ACCOUNT_LINK.extract(html) != null;
+    }
+
+    protected Map<String, String> getSessionTokens() {
+        Map<String, String> tokens = new HashMap<>();
+        tokens.put("CSId", CSId);
+        return tokens;
+    }
+
     <I extends AccountItem> void loadPages(List<I> media, Document doc,
             ParseAccountListFunction<I> func) throws IOException {
         HashSet<Integer> pagesLoaded = new HashSet<>();
@@ -1944,8 +2009,7 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
         for (Map.Entry<String, Integer> link : links.entrySet()) {
             if (!pagesLoaded.contains(link.getValue())) {
                 String html = httpGet(link.getKey(), ENCODING);
-                Document page = Jsoup.parse(html);
-                page.setBaseUri(link.getKey());
+                Document page = ACCOUNT_REGIONS.parse(html, link.getKey());
                 func.apply(media, page, link.getValue(), data);
                 pagesLoaded.add(link.getValue());
                 loadPages(media, page, pagesLoaded, func);
@@ -1955,10 +2019,10 @@ public class SISIS extends OkHttpBaseApi implements OpacApi {
 
     static Map<String, Integer> getAccountPageLinks(Document doc, String opac_url) {
         Map<String, Integer> links = new HashMap<>();
-        if (doc.select(".box-right").size() > 0) {
-            for (Element link : doc.select(".box-right").first().select("a")) {
+        if (select(doc, ".box-right").size() > 0) {
+            for (Element link : select(doc, ".box-right").first().select("a")) {
                 if (link.attr("onclick").startsWith("navigate(")) {
-                    Pattern pattern = Pattern.compile(
+                    Pattern pattern = pattern(
                             "navigate\\('([^']+)','([0-9]+)'\\)");
                     Matcher matcher = pattern.matcher(link.attr("onclick"));
                     if (matcher.find()) {
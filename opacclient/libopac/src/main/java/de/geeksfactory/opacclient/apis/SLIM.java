@@ -47,6 +47,7 @@ import de.geeksfactory.opacclient.searchfields.DropdownSearchField;
 import de.geeksfactory.opacclient.searchfields.SearchField;
 import de.geeksfactory.opacclient.searchfields.SearchQuery;
 import de.geeksfactory.opacclient.searchfields.TextSearchField;
+import de.geeksfactory.opacclient.utils.JsonReader;
 import okhttp3.FormBody;
 
 /**
@@ -76,35 +77,76 @@ public class SLIM extends OkHttpBaseApi {
         this.share_url = data.optString("itemdetail_url", "");
     }
 
-    private SearchRequestResult ParseSearchResults(JSONObject jo)
-            throws JSONException {
+    private SearchRequestResult ParseSearchResults(String json)
+            throws JSONException, IOException {
         list.clear();
-        for (int i = 0; i < jo.getJSONArray("results").length(); i++) {
-            JSONObject l = jo.getJSONArray("results").getJSONObject(i);
-            SearchResult res = new SearchResult();
-            res.setId(l.getString("id"));
-            res.setInnerhtml(l.getString("innerhtml"));
-            res.setCover(l.getString("cover"));
-            res.setStatus(SearchResult.Status.valueOf(l.getString("status").toUpperCase()));
-            res.setType(SearchResult.MediaType.valueOf(l.getString("type").toUpperCase()));
-            res.setNr(l.getInt("seqNum"));
-            res.setPage(Integer.parseInt(l.getString("pageNum")));
-            list.add(res);
+        JsonReader reader = new JsonReader(json);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "results":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        list.add(readSearchResult(reader));
+                    }
+                    reader.endArray();
+                    break;
+                case "total_result_count":
+                    totoal_result_count = reader.nextInt();
+                    break;
+                case "page_count":
+                    total_page = reader.nextInt();
+                    break;
+                default:
+                    reader.skipValue();
+            }
         }
-        totoal_result_count = jo.getInt("total_result_count");
-        total_page = jo.getInt("page_count");
+        reader.endObject();
         return new SearchRequestResult(list, totoal_result_count, total_page, 1);
     }
 
-    private JSONObject fetchSearchResults(List<SearchQuery> query, int page)
+    private static SearchResult readSearchResult(JsonReader reader)
             throws JSONException, IOException {
+        SearchResult res = new SearchResult();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    res.setId(reader.nextString());
+                    break;
+                case "innerhtml":
+                    res.setInnerhtml(reader.nextStringOrNull());
+                    break;
+                case "cover":
+                    res.setCover(reader.nextStringOrNull());
+                    break;
+                case "status":
+                    res.setStatus(SearchResult.Status.valueOf(reader.nextString().toUpperCase()));
+                    break;
+                case "type":
+                    res.setType(SearchResult.MediaType.valueOf(reader.nextString().toUpperCase()));
+                    break;
+                case "seqNum":
+                    res.setNr(reader.nextInt());
+                    break;
+                case "pageNum":
+                    res.setPage(reader.nextInt());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return res;
+    }
+
+    private String fetchSearchResults(List<SearchQuery> query, int page)
+            throws IOException {
         FormBody.Builder formData = new FormBody.Builder();
         BuildSearchParams(formData, query);
         formData.add("page", Integer.toString(page));
-        JSONObject jo = new JSONObject(
-                httpPost(this.opac_url + "OPAC/SearchRequestResult", formData.build(), ENCODING,
-                        true));
-        return jo;
+        return httpPost(this.opac_url + "OPAC/SearchRequestResult", formData.build(), ENCODING,
+                true);
     }
 
     private void BuildSearchParams(FormBody.Builder formData, List<SearchQuery> query) {
@@ -163,8 +205,7 @@ public class SLIM extends OkHttpBaseApi {
     public SearchRequestResult search(List<SearchQuery> query)
             throws IOException, JSONException {
         searchQuery = query;
-        JSONObject sr = fetchSearchResults(query, 1);
-        return ParseSearchResults(sr);
+        return ParseSearchResults(fetchSearchResults(query, 1));
     }
 
     @Override
@@ -179,50 +220,123 @@ public class SLIM extends OkHttpBaseApi {
         if (searchQuery == null) {
             throw new OpacApi.OpacErrorException("Internal Error");
         }
-        JSONObject sr = fetchSearchResults(searchQuery, page);
-        return ParseSearchResults(sr);
+        return ParseSearchResults(fetchSearchResults(searchQuery, page));
     }
 
-    private DetailedItem ParseDetailedItem(JSONObject jo)
-            throws JSONException {
+    private DetailedItem ParseDetailedItem(String json)
+            throws JSONException, IOException {
         DetailedItem item = new DetailedItem();
-        item.setId(jo.getString("id"));
-        item.setTitle(jo.getString("title"));
-        item.setCover(jo.getString("cover"));
-        item.setMediaType(SearchResult.MediaType.valueOf(jo.getString("mediaType").toUpperCase()));
-        item.setReservable(jo.getBoolean("reservable"));
-
-        for (int i = 0; i < jo.getJSONArray("details").length(); i++) {
-            JSONObject l = jo.getJSONArray("details").getJSONObject(i);
-            item.addDetail(new Detail(l.getString("desc"), l.getString("content")));
-        }
-        for (int i = 0; i < jo.getJSONArray("copies").length(); i++) {
-            JSONObject l = jo.getJSONArray("copies").getJSONObject(i);
-            Copy oCopy = new Copy();
-            oCopy.setBarcode(l.getString("barcode"));
-            oCopy.setLocation(l.getString("location"));
-            oCopy.setDepartment(l.getString("department"));
-            oCopy.setBranch(l.getString("branch"));
-            String sRetDt = l.getString("returndate");
-            if (sRetDt != null && !sRetDt.isEmpty()) {
-                oCopy.setReturnDate(LocalDate.parse(l.getString("returndate")));
+        JsonReader reader = new JsonReader(json);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    item.setId(reader.nextString());
+                    break;
+                case "title":
+                    item.setTitle(reader.nextStringOrNull());
+                    break;
+                case "cover":
+                    item.setCover(reader.nextStringOrNull());
+                    break;
+                case "mediaType":
+                    item.setMediaType(
+                            SearchResult.MediaType.valueOf(reader.nextString().toUpperCase()));
+                    break;
+                case "reservable":
+                    item.setReservable(reader.nextBoolean());
+                    break;
+                case "details":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        item.addDetail(readDetail(reader));
+                    }
+                    reader.endArray();
+                    break;
+                case "copies":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        item.addCopy(readCopy(reader));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
             }
-            oCopy.setReservations(l.getString("reservations"));
-            oCopy.setShelfmark(l.getString("shelfmark"));
-            oCopy.setUrl(l.getString("url"));
-            oCopy.setStatus(l.getString("status"));
-            item.addCopy(oCopy);
         }
+        reader.endObject();
         return item;
     }
 
+    private static Detail readDetail(JsonReader reader) throws JSONException, IOException {
+        String desc = null;
+        String content = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "desc":
+                    desc = reader.nextStringOrNull();
+                    break;
+                case "content":
+                    content = reader.nextStringOrNull();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Detail(desc, content);
+    }
+
+    private static Copy readCopy(JsonReader reader) throws JSONException, IOException {
+        Copy oCopy = new Copy();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "barcode":
+                    oCopy.setBarcode(reader.nextStringOrNull());
+                    break;
+                case "location":
+                    oCopy.setLocation(reader.nextStringOrNull());
+                    break;
+                case "department":
+                    oCopy.setDepartment(reader.nextStringOrNull());
+                    break;
+                case "branch":
+                    oCopy.setBranch(reader.nextStringOrNull());
+                    break;
+                case "returndate":
+                    String sRetDt = reader.nextStringOrNull();
+                    if (sRetDt != null && !sRetDt.isEmpty()) {
+                        oCopy.setReturnDate(LocalDate.parse(sRetDt));
+                    }
+                    break;
+                case "reservations":
+                    oCopy.setReservations(reader.nextStringOrNull());
+                    break;
+                case "shelfmark":
+                    oCopy.setShelfmark(reader.nextStringOrNull());
+                    break;
+                case "url":
+                    oCopy.setUrl(reader.nextStringOrNull());
+                    break;
+                case "status":
+                    oCopy.setStatus(reader.nextStringOrNull());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return oCopy;
+    }
+
     @Override
     public DetailedItem getResultById(String id, String homebranch)
             throws IOException, OpacErrorException {
         try {
-            JSONObject jo =
-                    new JSONObject(httpGet(this.opac_url + "OPAC/DetailedItem?id=" + id, ENCODING));
-            return ParseDetailedItem(jo);
+            return ParseDetailedItem(
+                    httpGet(this.opac_url + "OPAC/DetailedItem?id=" + id, ENCODING));
         } catch (JSONException e) {
             e.printStackTrace();
         }
@@ -327,66 +441,157 @@ public class SLIM extends OkHttpBaseApi {
         FormBody.Builder formData = new FormBody.Builder();
         formData.add("userid", account.getName());
         formData.add("pwd", account.getPassword());
-        JSONObject jo = new JSONObject(
+        JsonReader reader = new JsonReader(
                 httpPost(this.opac_url + "Account/AccountData", formData.build(), ENCODING));
-
-        data.setPendingFees(jo.getString("pendingFees"));
-        data.setValidUntil(jo.getString("validUntil"));
-        data.setWarning(jo.getString("warningMessage"));
-
-        for (int i = 0; i < jo.getJSONArray("lentItems").length(); i++) {
-            JSONObject l = jo.getJSONArray("lentItems").getJSONObject(i);
-            LentItem lentItem = new LentItem();
-            lentItem.setTitle(l.getString("title"));
-            lentItem.setAuthor(l.getString("author"));
-            lentItem.setStatus(l.getString("status"));
-            lentItem.setDeadline(l.getString("returnDate"));
-            lentItem.setRenewable(l.getBoolean("renewable"));
-            if (lentItem.isRenewable()) {
-                lentItem.setProlongData(l.getString("prolongData"));
-            }
-            lentItem.setEbook(l.getBoolean("eBook"));
-            if (!l.getString("coverImage").isEmpty()) {
-                lentItem.setCover(l.getString("coverImage"));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "pendingFees":
+                    data.setPendingFees(reader.nextStringOrNull());
+                    break;
+                case "validUntil":
+                    data.setValidUntil(reader.nextStringOrNull());
+                    break;
+                case "warningMessage":
+                    data.setWarning(reader.nextStringOrNull());
+                    break;
+                case "lentItems":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        lent.add(readLentItem(reader));
+                    }
+                    reader.endArray();
+                    break;
+                case "reservations":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        reservations.add(readReservedItem(reader));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
             }
-            lentItem.setDownloadData(l.getString("downloadData"));
-            lentItem.setHomeBranch(l.getString("homeBranch"));
-            lentItem.setLendingBranch(l.getString("lendingBranch"));
-            lentItem.setBarcode(l.getString("barcode"));
-            lentItem.setId(l.getString("catrefnum"));
-            lentItem.setMediaType(
-                    SearchResult.MediaType.valueOf(l.getString("mediaType").toUpperCase()));
-            lent.add(lentItem);
         }
+        reader.endObject();
+        data.setLent(lent);
+        data.setReservations(reservations);
 
-        for (int i = 0; i < jo.getJSONArray("reservations").length(); i++) {
-            JSONObject l = jo.getJSONArray("reservations").getJSONObject(i);
-            ReservedItem reservedItem = new ReservedItem();
-            reservedItem.setAuthor(l.getString("author"));
-            reservedItem.setTitle(l.getString("title"));
-            reservedItem.setStatus(l.getString("status"));
-            if (!l.getString("readyDate").isEmpty()) {
-                reservedItem.setReadyDate(l.getString("readyDate"));
-            }
-            if (!l.getString("expirationDate").isEmpty()) {
-                reservedItem.setExpirationDate(l.getString("expirationDate"));
-            }
-            reservedItem.setBranch(l.getString("branch"));
-            if (!l.getString("cancelData").isEmpty()) {
-                reservedItem.setCancelData(l.getString("cancelData"));
+        return data;
+    }
+
+    private static LentItem readLentItem(JsonReader reader) throws JSONException, IOException {
+        LentItem lentItem = new LentItem();
+        String prolongData = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "title":
+                    lentItem.setTitle(reader.nextStringOrNull());
+                    break;
+                case "author":
+                    lentItem.setAuthor(reader.nextStringOrNull());
+                    break;
+                case "status":
+                    lentItem.setStatus(reader.nextStringOrNull());
+                    break;
+                case "returnDate":
+                    lentItem.setDeadline(reader.nextString());
+                    break;
+                case "renewable":
+                    lentItem.setRenewable(reader.nextBoolean());
+                    break;
+                case "prolongData":
+                    prolongData = reader.nextStringOrNull();
+                    break;
+                case "eBook":
+                    lentItem.setEbook(reader.nextBoolean());
+                    break;
+                case "coverImage":
+                    lentItem.setCover(nextNonEmptyString(reader));
+                    break;
+                case "downloadData":
+                    lentItem.setDownloadData(reader.nextStringOrNull());
+                    break;
+                case "homeBranch":
+                    lentItem.setHomeBranch(reader.nextStringOrNull());
+                    break;
+                case "lendingBranch":
+                    lentItem.setLendingBranch(reader.nextStringOrNull());
+                    break;
+                case "barcode":
+                    lentItem.setBarcode(reader.nextStringOrNull());
+                    break;
+                case "catrefnum":
+                    lentItem.setId(reader.nextStringOrNull());
+                    break;
+                case "mediaType":
+                    lentItem.setMediaType(
+                            SearchResult.MediaType.valueOf(reader.nextString().toUpperCase()));
+                    break;
+                default:
+                    reader.skipValue();
             }
-            reservedItem.setId(l.getString("catrefnum"));
-            if (!l.getString("coverImage").isEmpty()) {
-                reservedItem.setCover(l.getString("coverImage"));
+        }
+        reader.endObject();
+        if (lentItem.isRenewable()) {
+            lentItem.setProlongData(prolongData);
+        }
+        return lentItem;
+    }
+
+    private static ReservedItem readReservedItem(JsonReader reader)
+            throws JSONException, IOException {
+        ReservedItem reservedItem = new ReservedItem();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "author":
+                    reservedItem.setAuthor(reader.nextStringOrNull());
+                    break;
+                case "title":
+                    reservedItem.setTitle(reader.nextStringOrNull());
+                    break;
+                case "status":
+                    reservedItem.setStatus(reader.nextStringOrNull());
+                    break;
+                case "readyDate":
+                    reservedItem.setReadyDate(nextNonEmptyString(reader));
+                    break;
+                case "expirationDate":
+                    reservedItem.setExpirationDate(nextNonEmptyString(reader));
+                    break;
+                case "branch":
+                    reservedItem.setBranch(reader.nextStringOrNull());
+                    break;
+                case "cancelData":
+                    reservedItem.setCancelData(nextNonEmptyString(reader));
+                    break;
+                case "catrefnum":
+                    reservedItem.setId(reader.nextStringOrNull());
+                    break;
+                case "coverImage":
+                    reservedItem.setCover(nextNonEmptyString(reader));
+                    break;
+                case "mediaType":
+                    reservedItem.setMediaType(
+                            SearchResult.MediaType.valueOf(reader.nextString().toUpperCase()));
+                    break;
+                default:
+                    reader.skipValue();
             }
-            reservedItem.setMediaType(
-                    SearchResult.MediaType.valueOf(l.getString("mediaType").toUpperCase()));
-            reservations.add(reservedItem);
         }
-        data.setLent(lent);
-        data.setReservations(reservations);
+        reader.endObject();
+        return reservedItem;
+    }
 
-        return data;
+    /**
+     * @return the next string, or null if it is null or empty
+     */
+    private static String nextNonEmptyString(JsonReader reader)
+            throws JSONException, IOException {
+        String value = reader.nextStringOrNull();
+        return value != null && !value.isEmpty() ? value : null;
     }
 
     @Override
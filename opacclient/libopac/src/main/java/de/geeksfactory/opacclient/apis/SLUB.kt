@@ -102,6 +102,8 @@ open class SLUB : OkHttpBaseApi() {
             "a14" to "Zentralbibliothek, Ebene -1, SB-Regal Zeitungen"
     )
 
+    private val reservationTypes = listOf("hold", "request_ready", "readingroom", "request_progress", "reserve")
+
     private val pickupLocations = mapOf(
             "zell1" to "Zentralbibliothek",
             "bebel1" to "ZwB Erziehungswissenschaften",
@@ -140,7 +142,7 @@ open class SLUB : OkHttpBaseApi() {
             throw OpacApi.OpacErrorException(stringProvider.getString(StringProvider.NO_CRITERIA_INPUT))
         }
         try {
-            return parseSearchResults(JSONObject(httpGet(queryUrl.toString(), ENCODING)))
+            return parseSearchResults(httpGet(queryUrl.toString(), ENCODING))
         } catch (e: JSONException) {
             throw OpacApi.OpacErrorException(stringProvider.getFormattedString(
                     StringProvider.UNKNOWN_ERROR_WITH_DESCRIPTION,
@@ -148,22 +150,45 @@ open class SLUB : OkHttpBaseApi() {
         }
     }
 
-    internal fun parseSearchResults(json: JSONObject): SearchRequestResult {
-        val searchresults = json.getJSONArray("docs").map<JSONObject, SearchResult> {
-            SearchResult().apply {
-                innerhtml = "<b>${it.getString("title")}</b><br>${it.getJSONArray("author").optString(0)}"
-                it.getString("creationDate").run {
-                    if (this != "null") {
-                        innerhtml += "<br>(${this})"
-                    }
-                }
-                type = mediaTypes[it.getJSONArray("format").optString(0)]
-                        ?: SearchResult.MediaType.NONE
-                id = "id/${it.getString("id")}"
+    internal fun parseSearchResults(json: String): SearchRequestResult {
+        val searchresults = mutableListOf<SearchResult>()
+        var numFound: Int? = null
+        JsonReader(json).readObject { name ->
+            when (name) {
+                "docs" -> readArray { searchresults.add(readSearchResult()) }
+                "numFound" -> numFound = nextInt()
+                else -> skipValue()
             }
         }
         //TODO: get status (one request per item!)
-        return SearchRequestResult(searchresults, json.getInt("numFound"), 1)
+        return SearchRequestResult(searchresults,
+                numFound ?: throw JSONException("JSONObject[\"numFound\"] not found."), 1)
+    }
+
+    private fun JsonReader.readSearchResult(): SearchResult {
+        var title: String? = null
+        var author: String? = ""
+        var creationDate: String? = null
+        var format: String? = ""
+        var id: String? = null
+        readObject { name ->
+            when (name) {
+                "title" -> title = nextStringOrNull()
+                "author" -> author = nextFirstString()
+                "creationDate" -> creationDate = nextStringOrNull()
+                "format" -> format = nextFirstString()
+                "id" -> id = nextString()
+                else -> skipValue()
+            }
+        }
+        return SearchResult().apply {
+            innerhtml = "<b>$title</b><br>${author ?: ""}"
+            if (creationDate != null && creationDate != "null") {
+                innerhtml += "<br>($creationDate)"
+            }
+            type = mediaTypes[format] ?: SearchResult.MediaType.NONE
+            this.id = "id/$id"
+        }
     }
 
     override fun filterResults(filter: Filter, option: Filter.Option): SearchRequestResult {
@@ -462,109 +487,244 @@ open class SLUB : OkHttpBaseApi() {
     }
 
     override fun account(account: Account): AccountData {
-        val json = requestAccount(account, "account")
-        return parseAccountData(account, json)
+        try {
+            return parseAccountData(account, postAccount(account, "account"))
+        } catch (e: JSONException) {
+            throw OpacApi.OpacErrorException(stringProvider.getFormattedString(
+                    StringProvider.UNKNOWN_ERROR_ACCOUNT_WITH_DESCRIPTION,
+                    "accountRequest didn't return JSON object: ${e.message}"))
+        }
     }
 
-    internal fun parseAccountData(account: Account, json: JSONObject): AccountData {
+    /**
+     * Maps the response of the account action in one pass, without building a JSONObject of it
+     */
+    internal fun parseAccountData(account: Account, json: String): AccountData {
         val fmt = DateTimeFormat.shortDate()
-        fun getReservations(items: JSONObject?): MutableList<ReservedItem> {
-            val types = listOf("hold", "request_ready", "readingroom", "request_progress", "reserve")
-            // "requests" is a copy of "request_ready" + "readingroom" + "request_progress"
-            val reservationsList = mutableListOf<ReservedItem>()
-            for (type in types) {
-                items?.optJSONArray(type)?.forEach<JSONObject> {
-                    reservationsList.add(ReservedItem().apply {
-                        title = it.optString("about").replace("¬", "")
-                        author = it.optJSONArray("X_author")?.optString(0)
-                        format = it.optString("X_medientyp")
-                        if (format != "FL"){
-                            id = "bc/${it.optString("label")}"
+        var status = false
+        var message: String? = null
+        var pendingFees: String? = null
+        var expires: String? = null
+        val lent = mutableListOf<LentItem>()
+        // "requests" is a copy of "request_ready" + "readingroom" + "request_progress"
+        val reservationsByType = mutableMapOf<String, List<ReservedItem>>()
+        val ill = mutableListOf<ReservedItem>()
+        JsonReader(json).readObject { name ->
+            when (name) {
+                "status" -> status = nextStatus()
+                "message" -> message = nextStringOrNull()
+                "fees" -> readObject { if (it == "topay_list") pendingFees = nextString() else skipValue() }
+                "memberInfo" -> readObject { if (it == "expires") expires = nextStringOrNull() else skipValue() }
+                "items" -> if (peek() != JsonReader.Token.BEGIN_OBJECT) skipValue() else readObject { type ->
+                    when (type) {
+                        // TODO: plus permanent loans? (need example)
+                        "loan" -> if (peek() != JsonReader.Token.BEGIN_ARRAY) skipValue() else readArray { lent.add(readLentItem()) }
+                        in reservationTypes -> if (peek() != JsonReader.Token.BEGIN_ARRAY) skipValue() else {
+                            val list = mutableListOf<ReservedItem>()
+                            readArray { list.add(readReservedItem(type, fmt)) }
+                            reservationsByType[type] = list
                         }
-                        status = when (type) {  // TODO: maybe we need time (LocalDateTime) too make an educated guess on actual ready date for stack requests
-                            "hold" -> stringProvider.getFormattedString(StringProvider.HOLD,
-                                    fmt.print(LocalDate(it.optString("X_date_reserved").substring(0, 10))))
-                            "request_ready" -> stringProvider.getFormattedString(StringProvider.REQUEST_READY,
-                                    fmt.print(LocalDate(it.optString("X_date_requested").substring(0, 10))))
-                            "readingroom" -> stringProvider.getFormattedString(StringProvider.READINGROOM,
-                                    fmt.print(LocalDate(it.optString("X_date_provided").substring(0, 10))))
-                            "request_progress" -> stringProvider.getFormattedString(StringProvider.REQUEST_PROGRESS,
-                                    fmt.print(LocalDate(it.optString("X_date_requested").substring(0, 10))))
-                            "reserve" -> stringProvider.getFormattedString(StringProvider.RESERVED_POS,
-                                    it.optInt("X_queue_number"))
-                            else -> null
-                        }
-                        branch = it.optString("X_pickup_desc", null)
-                        if (type == "reserve") {
-                            cancelData = "${it.optString("label")}_${it.getInt("X_delete_number")}"
-                        }
-                    })
+                        "ill" -> if (peek() != JsonReader.Token.BEGIN_ARRAY) skipValue() else readArray { readIllItem()?.let { ill.add(it) } }
+                        else -> skipValue()
+                    }
                 }
+                else -> skipValue()
             }
-            items?.optJSONArray("ill")?.forEach<JSONObject> {
-                if (it.getString("Status") !in listOf("6", "11", "13", "16")){
-                    reservationsList.add(ReservedItem().apply {
-                        title = it.optString("Titel").replace("¬", "")
-                        author = it.optString("Autor")
-                        //id = it.optString("Fernleih_ID") --> this id is of no use whatsoever
-                        it.optString("Medientyp").run {
-                            format = if (length > 0 && this != "*") this else "FL"
-                        }
-                        branch = it.optString("Zweigstelle").let {
-                            pickupLocations.getOrElse(it) { it }
-                        }
-                        status = it.optString("Status_DESC")
-                    })
+        }
+        if (!status) {
+            throw OpacApi.OpacErrorException(stringProvider.getFormattedString(
+                    StringProvider.UNKNOWN_ERROR_ACCOUNT_WITH_DESCRIPTION,
+                    message ?: "error requesting account data"))
+        }
+
+        return AccountData(account.id).apply {
+            this.pendingFees = pendingFees ?: throw JSONException("JSONObject[\"fees\"] not found.")
+            validUntil = (expires ?: throw JSONException("JSONObject[\"memberInfo\"] not found."))
+                    .substring(0, 10).let { fmt.print(LocalDate(it)) }
+            this.lent = lent
+            reservations = reservationTypes.flatMapTo(mutableListOf()) {
+                reservationsByType[it] ?: emptyList()
+            }.apply { addAll(ill) }
+        }
+    }
+
+    private fun JsonReader.readLentItem(): LentItem {
+        var about = ""
+        var author: String? = null
+        var dateDue = ""
+        var medientyp = ""
+        var label = ""
+        var barcode = ""
+        var isRenewable = 0
+        var isFlRenewable = 0
+        var isReserved = 0
+        var renewals = 0
+        readObject { name ->
+            when (name) {
+                "about" -> about = nextOptString()
+                "X_author" -> author = nextFirstString()
+                "X_date_due" -> dateDue = nextOptString()
+                "X_medientyp" -> medientyp = nextOptString()
+                "label" -> label = nextOptString()
+                "X_barcode" -> barcode = nextOptString()
+                "X_is_renewable" -> isRenewable = nextIntOrDefault(0)
+                "X_is_flrenewable" -> isFlRenewable = nextIntOrDefault(0)
+                "X_is_reserved" -> isReserved = nextIntOrDefault(0)
+                "renewals" -> renewals = nextIntOrDefault(0)
+                else -> skipValue()
+            }
+        }
+        return LentItem().apply {
+            title = about.replace("¬", "")
+            this.author = author
+            setDeadline(dateDue)
+            format = medientyp
+            if (format != "FL") {
+                id = "bc/$label"
+            }
+            this.barcode = barcode
+            if (isRenewable == 1) {
+                this.isRenewable = true
+                prolongData = "$format\t$barcode"
+            } else {
+                this.isRenewable = false
+                status = when {
+                    isFlRenewable == 1 -> stringProvider.getString(StringProvider.NOT_YET_RENEWABLE)
+                    isReserved != 0 -> stringProvider.getString(StringProvider.RESERVED)
+                    renewals > 0 -> stringProvider.getFormattedString(
+                            StringProvider.RENEWED, renewals)
+                    else -> null
                 }
             }
+        }
+    }
 
-            return reservationsList
+    private fun JsonReader.readReservedItem(type: String, fmt: DateTimeFormatter): ReservedItem {
+        var about = ""
+        var author: String? = null
+        var medientyp = ""
+        var label = ""
+        var dateReserved = ""
+        var dateRequested = ""
+        var dateProvided = ""
+        var queueNumber = 0
+        var pickupDesc: String? = null
+        var deleteNumber: Int? = null
+        readObject { name ->
+            when (name) {
+                "about" -> about = nextOptString()
+                "X_author" -> author = nextFirstString()
+                "X_medientyp" -> medientyp = nextOptString()
+                "label" -> label = nextOptString()
+                "X_date_reserved" -> dateReserved = nextOptString()
+                "X_date_requested" -> dateRequested = nextOptString()
+                "X_date_provided" -> dateProvided = nextOptString()
+                "X_queue_number" -> queueNumber = nextIntOrDefault(0)
+                "X_pickup_desc" -> pickupDesc = nextStringOrNull()
+                "X_delete_number" -> deleteNumber = nextInt()
+                else -> skipValue()
+            }
         }
+        return ReservedItem().apply {
+            title = about.replace("¬", "")
+            this.author = author
+            format = medientyp
+            if (format != "FL") {
+                id = "bc/$label"
+            }
+            status = when (type) {  // TODO: maybe we need time (LocalDateTime) too make an educated guess on actual ready date for stack requests
+                "hold" -> stringProvider.getFormattedString(StringProvider.HOLD,
+                        fmt.print(LocalDate(dateReserved.substring(0, 10))))
+                "request_ready" -> stringProvider.getFormattedString(StringProvider.REQUEST_READY,
+                        fmt.print(LocalDate(dateRequested.substring(0, 10))))
+                "readingroom" -> stringProvider.getFormattedString(StringProvider.READINGROOM,
+                        fmt.print(LocalDate(dateProvided.substring(0, 10))))
+                "request_progress" -> stringProvider.getFormattedString(StringProvider.REQUEST_PROGRESS,
+                        fmt.print(LocalDate(dateRequested.substring(0, 10))))
+                "reserve" -> stringProvider.getFormattedString(StringProvider.RESERVED_POS,
+                        queueNumber)
+                else -> null
+            }
+            branch = pickupDesc
+            if (type == "reserve") {
+                cancelData = "${label}_${deleteNumber ?: throw JSONException("JSONObject[\"X_delete_number\"] not found.")}"
+            }
+        }
+    }
 
-        return AccountData(account.id).apply {
-            pendingFees = json.getJSONObject("fees").getString("topay_list")
-            validUntil = json.getJSONObject("memberInfo").getString("expires")
-                    ?.substring(0, 10)?.let { fmt.print(LocalDate(it)) }
-            lent = json.optJSONObject("items")?.optJSONArray("loan")    // TODO: plus permanent loans? (need example)
-                    ?.map<JSONObject, LentItem> {
-                        LentItem().apply {
-                            title = it.optString("about").replace("¬", "")
-                            author = it.optJSONArray("X_author")?.optString(0)
-                            setDeadline(it.optString("X_date_due"))
-                            format = it.optString("X_medientyp")
-                            if (format != "FL") {
-                                id = "bc/${it.optString("label")}"
-                            }
-                            barcode = it.optString("X_barcode")
-                            if (it.optInt("X_is_renewable") == 1) {
-                                isRenewable = true
-                                prolongData = "$format\t$barcode"
-                            } else {
-                                isRenewable = false
-                                status = when {
-                                    it.optInt("X_is_flrenewable") == 1 -> stringProvider.getString(StringProvider.NOT_YET_RENEWABLE)
-                                    it.optInt("X_is_reserved") != 0 -> stringProvider.getString(StringProvider.RESERVED)
-                                    it.optInt("renewals") > 0 -> stringProvider.getFormattedString(
-                                            StringProvider.RENEWED, it.optInt("renewals"))
-                                    else -> null
-                                }
-                            }
-                        }
-                    } ?: emptyList()
-            reservations = getReservations(json.optJSONObject("items"))
+    /**
+     * @return the interlibrary loan, or null if it is finished or cancelled
+     */
+    private fun JsonReader.readIllItem(): ReservedItem? {
+        var status: String? = null
+        var titel = ""
+        var autor = ""
+        var medientyp = ""
+        var zweigstelle = ""
+        var statusDesc = ""
+        readObject { name ->
+            when (name) {
+                "Status" -> status = nextString()
+                "Titel" -> titel = nextOptString()
+                "Autor" -> autor = nextOptString()
+                "Medientyp" -> medientyp = nextOptString()
+                "Zweigstelle" -> zweigstelle = nextOptString()
+                "Status_DESC" -> statusDesc = nextOptString()
+                else -> skipValue()
+            }
+        }
+        if ((status ?: throw JSONException("JSONObject[\"Status\"] not found.")) in listOf("6", "11", "13", "16")) {
+            return null
+        }
+        return ReservedItem().apply {
+            title = titel.replace("¬", "")
+            author = autor
+            //id = it.optString("Fernleih_ID") --> this id is of no use whatsoever
+            format = if (medientyp.isNotEmpty() && medientyp != "*") medientyp else "FL"
+            branch = pickupLocations.getOrElse(zweigstelle) { zweigstelle }
+            this.status = statusDesc
         }
     }
 
+    /**
+     * Reads the status of an account response, which is 1 (as number or string) or true if the
+     * request succeeded
+     */
+    private fun JsonReader.nextStatus(): Boolean = when (peek()) {
+        JsonReader.Token.BOOLEAN -> nextBoolean()
+        JsonReader.Token.STRING -> nextString().let { it.equals("true", true) || it.toDoubleOrNull() == 1.0 }
+        else -> nextIntOrDefault(0) == 1
+    }
+
+    /**
+     * Like JSONObject.optString: the text of the value, "null" for null and "" for arrays and
+     * objects
+     */
+    private fun JsonReader.nextOptString(): String = when (peek()) {
+        JsonReader.Token.BEGIN_ARRAY, JsonReader.Token.BEGIN_OBJECT -> "".also { skipValue() }
+        else -> nextStringOrNull() ?: "null"
+    }
+
+    /**
+     * Like JSONObject.optJSONArray(name)?.optString(0): the first element of an array, "" for an
+     * empty array and null if the value is not an array
+     */
+    private fun JsonReader.nextFirstString(): String? {
+        if (peek() != JsonReader.Token.BEGIN_ARRAY) {
+            skipValue()
+            return null
+        }
+        var first = ""
+        var index = 0
+        readArray {
+            if (index++ == 0) first = nextOptString() else skipValue()
+        }
+        return first
+    }
+
     internal fun requestAccount(account: Account, action: String, parameters: Map<String, String>? = null): JSONObject {
-        val formBody = FormBody.Builder()
-                .add("type", "1")
-                .add("tx_slubaccount_account[controller]", "API")
-                .add("tx_slubaccount_account[action]", action)
-                .add("tx_slubaccount_account[username]", account.name)
-                .add("tx_slubaccount_account[password]", account.password)
-        parameters?.forEach { formBody.add(it.key, it.value) }
         try {
-            return JSONObject(httpPost("$baseurl/mein-konto/", formBody.build(), ENCODING)).also {
+            return JSONObject(postAccount(account, action, parameters)).also {
                 if (!(it.optInt("status") == 1 || it.optBoolean("status"))) {
                     throw OpacApi.OpacErrorException(stringProvider.getFormattedString(
                             StringProvider.UNKNOWN_ERROR_ACCOUNT_WITH_DESCRIPTION,
@@ -578,6 +738,17 @@ open class SLUB : OkHttpBaseApi() {
         }
     }
 
+    private fun postAccount(account: Account, action: String, parameters: Map<String, String>? = null): String {
+        val formBody = FormBody.Builder()
+                .add("type", "1")
+                .add("tx_slubaccount_account[controller]", "API")
+                .add("tx_slubaccount_account[action]", action)
+                .add("tx_slubaccount_account[username]", account.name)
+                .add("tx_slubaccount_account[password]", account.password)
+        parameters?.forEach { formBody.add(it.key, it.value) }
+        return httpPost("$baseurl/mein-konto/", formBody.build(), ENCODING)
+    }
+
     override fun checkAccountData(account: Account) {
         requestAccount(account, "validate")
     }
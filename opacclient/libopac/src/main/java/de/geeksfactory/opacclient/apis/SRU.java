@@ -2,11 +2,7 @@ package de.geeksfactory.opacclient.apis;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.parser.Parser;
-import org.jsoup.select.Elements;
+import org.xml.sax.SAXException;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -14,10 +10,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
+import de.geeksfactory.opacclient.apis.SRUResponseParser.Field;
 import de.geeksfactory.opacclient.i18n.StringProvider;
 import de.geeksfactory.opacclient.networking.HttpClientFactory;
 import de.geeksfactory.opacclient.networking.NotReachableException;
+import de.geeksfactory.opacclient.networking.OperationContext.Operation;
 import de.geeksfactory.opacclient.objects.Account;
 import de.geeksfactory.opacclient.objects.AccountData;
 import de.geeksfactory.opacclient.objects.Detail;
@@ -35,8 +34,10 @@ import de.geeksfactory.opacclient.searchfields.SearchField.Meaning;
 import de.geeksfactory.opacclient.searchfields.SearchQuery;
 import de.geeksfactory.opacclient.searchfields.TextSearchField;
 import de.geeksfactory.opacclient.utils.ISBNTools;
+import java8.util.concurrent.CompletableFuture;
+import java8.util.concurrent.CompletionException;
 
-public class SRU extends ApacheBaseApi implements OpacApi {
+public class SRU extends OkHttpBaseApi implements OpacApi {
 
     protected static HashMap<String, MediaType> defaulttypes = new HashMap<>();
 
@@ -55,7 +56,7 @@ public class SRU extends ApacheBaseApi implements OpacApi {
     protected int resultcount = 10;
     protected String shareUrl;
     private String currentSearchParams;
-    private Document searchDoc;
+    private List<SRUResponseParser.Record> searchRecords;
     private HashMap<String, String> searchQueries = new HashMap<>();
     private String idSearchQuery;
 
@@ -121,12 +122,16 @@ public class SRU extends ApacheBaseApi implements OpacApi {
     @Override
     public SearchRequestResult search(List<SearchQuery> queryList)
             throws IOException, OpacErrorException {
+        start();
+        String xml = httpGet(buildSearchUrl(queryList), getDefaultEncoding());
+        return parse_result(xml);
+    }
+
+    private String buildSearchUrl(List<SearchQuery> queryList) throws OpacErrorException {
         Map<String, String> query = searchQueryListToMap(queryList);
         StringBuilder params = new StringBuilder();
 
         int index = 0;
-        start();
-
         for (String parameter : searchQueries.keySet()) {
             index = addParameters(query, parameter,
                     searchQueries.get(parameter), params, index);
@@ -137,45 +142,38 @@ public class SRU extends ApacheBaseApi implements OpacApi {
                     stringProvider.getString(StringProvider.NO_CRITERIA_INPUT));
         }
         currentSearchParams = params.toString();
-        String xml = httpGet(opac_url
+        return opac_url
                 + "?version=1.1&operation=searchRetrieve&maximumRecords="
                 + resultcount
                 + "&recordSchema=mods&sortKeys=relevance,,1&query="
-                + currentSearchParams, getDefaultEncoding());
-
-        return parse_result(xml);
+                + currentSearchParams;
     }
 
     private SearchRequestResult parse_result(String xml)
             throws OpacErrorException {
-        searchDoc = Jsoup.parse(xml, "", Parser.xmlParser());
-        if (searchDoc.select("diag|diagnostic").size() > 0) {
-            throw new OpacErrorException(searchDoc.select("diag|message")
-                                                  .text());
-        }
+        SRUResponseParser response = parseResponse(xml);
+        searchRecords = response.getRecords();
 
         int resultcount;
         List<SearchResult> results = new ArrayList<>();
 
-        resultcount = Integer.valueOf(searchDoc.select("zs|numberOfRecords")
-                                               .text());
+        resultcount = Integer.valueOf(response.getNumberOfRecords());
 
-        Elements records = searchDoc.select("zs|records > zs|record");
         int i = 0;
-        for (Element record : records) {
+        for (SRUResponseParser.Record record : searchRecords) {
             SearchResult sr = new SearchResult();
-            String title = getDetail(record, "titleInfo title");
-            String firstName = getDetail(record, "name > namePart[type=given]");
-            String lastName = getDetail(record, "name > namePart[type=family]");
-            String year = getDetail(record, "dateIssued");
-            String mType = getDetail(record, "physicalDescription > form");
-            String isbn = getDetail(record, "identifier[type=isbn]");
-            String coverUrl = getDetail(record, "url[displayLabel=C Cover]");
+            String title = record.get(Field.TITLE);
+            String firstName = record.get(Field.GIVEN_NAME);
+            String lastName = record.get(Field.FAMILY_NAME);
+            String year = record.get(Field.DATE_ISSUED);
+            String mType = record.get(Field.FORM);
+            String isbn = record.get(Field.ISBN);
+            String coverUrl = record.get(Field.COVER_URL);
             String additionalInfo = firstName + " " + lastName + ", " + year;
             sr.setInnerhtml("<b>" + title + "</b><br>" + additionalInfo);
             sr.setType(defaulttypes.get(mType));
             sr.setNr(i);
-            sr.setId(getDetail(record, "recordIdentifier"));
+            sr.setId(record.get(Field.RECORD_IDENTIFIER));
             if (coverUrl.equals("")) {
                 sr.setCover(ISBNTools.getAmazonCoverURL(isbn, false));
             } else {
@@ -188,12 +186,19 @@ public class SRU extends ApacheBaseApi implements OpacApi {
         return new SearchRequestResult(results, resultcount, 1);
     }
 
-    private String getDetail(Element record, String selector) {
-        if (record.select(selector).size() > 0) {
-            return record.select(selector).first().text();
-        } else {
-            return "";
+    private SRUResponseParser parseResponse(String xml) throws OpacErrorException {
+        SRUResponseParser response;
+        try {
+            response = SRUResponseParser.parse(xml);
+        } catch (SAXException | IOException e) {
+            e.printStackTrace();
+            throw new OpacErrorException(
+                    stringProvider.getString(StringProvider.INTERNAL_ERROR));
         }
+        if (response.hasDiagnostics()) {
+            throw new OpacErrorException(response.getDiagnosticMessage());
+        }
+        return response;
     }
 
     @Override
@@ -209,48 +214,113 @@ public class SRU extends ApacheBaseApi implements OpacApi {
             start();
         }
 
-        String xml = httpGet(opac_url
+        String xml = httpGet(buildPageUrl(page), getDefaultEncoding());
+        return parse_result(xml);
+    }
+
+    private String buildPageUrl(int page) {
+        return opac_url
                 + "?version=1.1&operation=searchRetrieve&maximumRecords="
                 + resultcount
                 + "&recordSchema=mods&sortKeys=relevance,,1&startRecord="
                 + String.valueOf(page * resultcount + 1) + "&query="
-                + currentSearchParams, getDefaultEncoding());
-        return parse_result(xml);
+                + currentSearchParams;
     }
 
     @Override
     public DetailedItem getResultById(String id, String homebranch)
             throws IOException, OpacErrorException {
         if (idSearchQuery != null) {
-            String xml = httpGet(opac_url
-                    + "?version=1.1&operation=searchRetrieve&maximumRecords="
-                    + resultcount
-                    + "&recordSchema=mods&sortKeys=relevance,,1&query="
-                    + idSearchQuery + "%3D" + id, getDefaultEncoding());
-            searchDoc = Jsoup.parse(xml, "", Parser.xmlParser());
-            if (searchDoc.select("diag|diagnostic").size() > 0) {
-                throw new OpacErrorException(searchDoc.select("diag|message")
-                                                      .text());
-            }
-            if (searchDoc.select("zs|record").size() != 1) { // should not
-                // happen
-                throw new OpacErrorException(
-                        stringProvider.getString(StringProvider.INTERNAL_ERROR));
-            }
-            return parse_detail(searchDoc.select("zs|record").first());
+            String xml = httpGet(buildIdUrl(id), getDefaultEncoding());
+            return parse_id_result(xml);
         } else {
             return null;
         }
     }
 
-    private DetailedItem parse_detail(Element record) {
-        String title = getDetail(record, "titleInfo title");
-        String firstName = getDetail(record, "name > namePart[type=given]");
-        String lastName = getDetail(record, "name > namePart[type=family]");
-        String year = getDetail(record, "dateIssued");
-        String desc = getDetail(record, "abstract");
-        String isbn = getDetail(record, "identifier[type=isbn]");
-        String coverUrl = getDetail(record, "url[displayLabel=C Cover]");
+    private String buildIdUrl(String id) {
+        return opac_url
+                + "?version=1.1&operation=searchRetrieve&maximumRecords="
+                + resultcount
+                + "&recordSchema=mods&sortKeys=relevance,,1&query="
+                + idSearchQuery + "%3D" + id;
+    }
+
+    private DetailedItem parse_id_result(String xml) throws OpacErrorException {
+        List<SRUResponseParser.Record> records = parseResponse(xml).getRecords();
+        if (records.size() != 1) { // should not
+            // happen
+            throw new OpacErrorException(
+                    stringProvider.getString(StringProvider.INTERNAL_ERROR));
+        }
+        return parse_detail(records.get(0));
+    }
+
+    /**
+     * Search and detail requests are single GET requests, so they can be performed without
+     * blocking a thread.
+     */
+    @Override
+    public AsyncOpacApi createAsyncApi(Executor executor) {
+        return new AsyncOpacApiAdapter(this, executor) {
+            @Override
+            public CompletableFuture<SearchRequestResult> search(List<SearchQuery> query) {
+                return enqueue(Operation.SEARCH, () -> {
+                    start();
+                    return asyncGetString(buildSearchUrl(query), getDefaultEncoding())
+                            .thenApply(xml -> {
+                                try {
+                                    return parse_result(xml);
+                                } catch (OpacErrorException e) {
+                                    throw new CompletionException(e);
+                                }
+                            });
+                });
+            }
+
+            @Override
+            public CompletableFuture<SearchRequestResult> searchGetPage(int page) {
+                return enqueue(Operation.SEARCH_GET_PAGE, () -> {
+                    if (!initialised) {
+                        start();
+                    }
+                    return asyncGetString(buildPageUrl(page), getDefaultEncoding())
+                            .thenApply(xml -> {
+                                try {
+                                    return parse_result(xml);
+                                } catch (OpacErrorException e) {
+                                    throw new CompletionException(e);
+                                }
+                            });
+                });
+            }
+
+            @Override
+            public CompletableFuture<DetailedItem> getResultById(String id, String homebranch) {
+                if (idSearchQuery == null) {
+                    return super.getResultById(id, homebranch);
+                }
+                return enqueue(Operation.GET_RESULT, () ->
+                        asyncGetString(buildIdUrl(id), getDefaultEncoding())
+                                .thenApply(xml -> {
+                                    try {
+                                        return parse_id_result(xml);
+                                    } catch (OpacErrorException e) {
+                                        throw new CompletionException(e);
+                                    }
+                                }));
+            }
+        };
+    }
+
+    private DetailedItem parse_detail(SRUResponseParser.Record record) {
+        String title = record.get(Field.TITLE);
+        String firstName = record.get(Field.GIVEN_NAME);
+        String lastName = record.get(Field.FAMILY_NAME);
+        String year = record.get(Field.DATE_ISSUED);
+        String desc = record.get(Field.ABSTRACT);
+        String isbn = record.get(Field.ISBN);
+        String coverUrl = record.get(Field.COVER_URL);
 
         DetailedItem item = new DetailedItem();
         item.setTitle(title);
@@ -273,8 +343,7 @@ public class SRU extends ApacheBaseApi implements OpacApi {
     @Override
     public DetailedItem getResult(int position) throws IOException,
             OpacErrorException {
-        return parse_detail(searchDoc.select("zs|records > zs|record").get(
-                position));
+        return parse_detail(searchRecords.get(position));
     }
 
     @Override
@@ -0,0 +1,273 @@
+package de.geeksfactory.opacclient.apis;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * Single pass parser for SRU searchRetrieve responses with MODS records.
+ * <p>
+ * Instead of building a DOM of the whole response and running a selector per field and record,
+ * this keeps only the few MODS fields {@link SRU} displays for each record. Matching follows the
+ * selectors used before: the first element in document order wins, tag names are compared
+ * without their namespace prefix and texts are normalized like jsoup's {@code Element.text()}.
+ */
+class SRUResponseParser {
+
+    enum Field {
+        /** {@code titleInfo title} */
+        TITLE,
+        /** {@code name > namePart[type=given]} */
+        GIVEN_NAME,
+        /** {@code name > namePart[type=family]} */
+        FAMILY_NAME,
+        /** {@code dateIssued} */
+        DATE_ISSUED,
+        /** {@code physicalDescription > form} */
+        FORM,
+        /** {@code identifier[type=isbn]} */
+        ISBN,
+        /** {@code url[displayLabel=C Cover]} */
+        COVER_URL,
+        /** {@code recordIdentifier} */
+        RECORD_IDENTIFIER,
+        /** {@code abstract} */
+        ABSTRACT
+    }
+
+    /**
+     * The compact data of one {@code zs:record}.
+     */
+    static class Record {
+        private final Map<Field, String> values = new EnumMap<>(Field.class);
+
+        /**
+         * @return the text of the field, or an empty string if the record does not contain it
+         */
+        String get(Field field) {
+            String value = values.get(field);
+            return value != null ? value : "";
+        }
+    }
+
+    private final List<Record> records = new ArrayList<>();
+    private final List<String> diagnosticMessages = new ArrayList<>();
+    private boolean diagnostic;
+    private String numberOfRecords;
+
+    private SRUResponseParser() {
+    }
+
+    static SRUResponseParser parse(String xml) throws SAXException, IOException {
+        return parse(new StringReader(xml));
+    }
+
+    static SRUResponseParser parse(Reader reader) throws SAXException, IOException {
+        SRUResponseParser result = new SRUResponseParser();
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        try {
+            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+        } catch (Exception e) {
+            // not supported by every implementation, e.g. on Android
+        }
+        try {
+            SAXParser parser = factory.newSAXParser();
+            parser.parse(new InputSource(reader), result.new Handler());
+        } catch (ParserConfigurationException e) {
+            throw new SAXException(e);
+        }
+        return result;
+    }
+
+    /**
+     * @return the records in {@code zs:records}, in the order of the response
+     */
+    List<Record> getRecords() {
+        return records;
+    }
+
+    boolean hasDiagnostics() {
+        return diagnostic;
+    }
+
+    /**
+     * @return the texts of all {@code diag:message} elements, separated by spaces
+     */
+    String getDiagnosticMessage() {
+        StringBuilder message = new StringBuilder();
+        for (String text : diagnosticMessages) {
+            if (message.length() > 0) message.append(" ");
+            message.append(text);
+        }
+        return message.toString();
+    }
+
+    /**
+     * @return the text of {@code zs:numberOfRecords}, or an empty string if it is missing
+     */
+    String getNumberOfRecords() {
+        return numberOfRecords != null ? numberOfRecords : "";
+    }
+
+    private static String localName(String qName) {
+        int colon = qName.indexOf(':');
+        return colon >= 0 ? qName.substring(colon + 1) : qName;
+    }
+
+    private static boolean hasAttribute(Attributes attributes, String name, String value) {
+        String actual = attributes.getValue(name);
+        return actual != null && actual.trim().equalsIgnoreCase(value);
+    }
+
+    private static String normalize(CharSequence text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean whitespace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r') {
+                whitespace = normalized.length() > 0;
+            } else {
+                if (whitespace) normalized.append(' ');
+                normalized.append(c);
+                whitespace = false;
+            }
+        }
+        return normalized.toString();
+    }
+
+    private class Handler extends DefaultHandler {
+        private final List<String> path = new ArrayList<>();
+        private final Map<Field, Integer> captureDepth = new EnumMap<>(Field.class);
+        private final Map<Field, StringBuilder> captured = new EnumMap<>(Field.class);
+        private Record record;
+        private int recordDepth = -1;
+        private int titleInfoDepth;
+        private int diagnosticDepth = -1;
+        private int textDepth = -1;
+        private StringBuilder text;
+
+        @Override
+        public void startElement(String uri, String localName, String qName,
+                Attributes attributes) {
+            String name = localName(qName);
+            String parent = path.isEmpty() ? "" : path.get(path.size() - 1);
+            path.add(name);
+            int depth = path.size();
+
+            if (record == null) {
+                if (name.equalsIgnoreCase("record") && parent.equalsIgnoreCase("records")) {
+                    record = new Record();
+                    recordDepth = depth;
+                } else if (name.equalsIgnoreCase("diagnostic")) {
+                    diagnostic = true;
+                    diagnosticDepth = depth;
+                } else if (textDepth < 0 && (name.equalsIgnoreCase("numberOfRecords") ||
+                        diagnosticDepth >= 0 && name.equalsIgnoreCase("message"))) {
+                    textDepth = depth;
+                    text = new StringBuilder();
+                }
+                return;
+            }
+
+            Field field = null;
+            if (name.equalsIgnoreCase("title") && titleInfoDepth > 0) {
+                field = Field.TITLE;
+            } else if (name.equalsIgnoreCase("namePart") && parent.equalsIgnoreCase("name")) {
+                if (hasAttribute(attributes, "type", "given")) {
+                    field = Field.GIVEN_NAME;
+                } else if (hasAttribute(attributes, "type", "family")) {
+                    field = Field.FAMILY_NAME;
+                }
+            } else if (name.equalsIgnoreCase("dateIssued")) {
+                field = Field.DATE_ISSUED;
+            } else if (name.equalsIgnoreCase("form") &&
+                    parent.equalsIgnoreCase("physicalDescription")) {
+                field = Field.FORM;
+            } else if (name.equalsIgnoreCase("identifier") &&
+                    hasAttribute(attributes, "type", "isbn")) {
+                field = Field.ISBN;
+            } else if (name.equalsIgnoreCase("url") &&
+                    hasAttribute(attributes, "displayLabel", "C Cover")) {
+                field = Field.COVER_URL;
+            } else if (name.equalsIgnoreCase("recordIdentifier")) {
+                field = Field.RECORD_IDENTIFIER;
+            } else if (name.equalsIgnoreCase("abstract")) {
+                field = Field.ABSTRACT;
+            }
+            if (name.equalsIgnoreCase("titleInfo")) {
+                titleInfoDepth++;
+            }
+            if (field != null && !record.values.containsKey(field) &&
+                    !captureDepth.containsKey(field)) {
+                captureDepth.put(field, depth);
+                captured.put(field, new StringBuilder());
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (text != null) {
+                text.append(ch, start, length);
+            }
+            for (StringBuilder builder : captured.values()) {
+                builder.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            int depth = path.size();
+            String name = path.remove(depth - 1);
+
+            if (record == null) {
+                if (depth == textDepth) {
+                    if (name.equalsIgnoreCase("numberOfRecords")) {
+                        numberOfRecords = numberOfRecords == null ? normalize(text)
+                                : normalize(numberOfRecords + " " + text);
+                    } else {
+                        diagnosticMessages.add(normalize(text));
+                    }
+                    textDepth = -1;
+                    text = null;
+                } else if (depth == diagnosticDepth) {
+                    diagnosticDepth = -1;
+                }
+                return;
+            }
+
+            if (depth == recordDepth) {
+                records.add(record);
+                record = null;
+                recordDepth = -1;
+                titleInfoDepth = 0;
+                captureDepth.clear();
+                captured.clear();
+                return;
+            }
+            if (name.equalsIgnoreCase("titleInfo")) {
+                titleInfoDepth--;
+            }
+            for (Field field : Field.values()) {
+                Integer fieldDepth = captureDepth.get(field);
+                if (fieldDepth != null && fieldDepth == depth) {
+                    record.values.put(field, normalize(captured.remove(field)));
+                    captureDepth.remove(field);
+                }
+            }
+        }
+    }
+}
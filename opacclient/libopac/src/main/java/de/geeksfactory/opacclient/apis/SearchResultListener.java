@@ -0,0 +1,25 @@
+package de.geeksfactory.opacclient.apis;
+
+import de.geeksfactory.opacclient.objects.SearchRequestResult;
+import de.geeksfactory.opacclient.objects.SearchResult;
+
+/**
+ * Receives the updates of a search made with {@link StreamingSearchApi}. The methods are called
+ * from background threads, but never concurrently for the same search.
+ */
+public interface SearchResultListener {
+    /**
+     * Called when the status or cover of a result was loaded after the page was returned.
+     *
+     * @param result the updated result, one of the results returned by the search
+     */
+    void onResultUpdated(SearchResult result);
+
+    /**
+     * Called once when all updates of the page were delivered, which may be before the page is
+     * returned. Lookups that failed leave the result as it was.
+     *
+     * @param result the page returned by the search
+     */
+    void onComplete(SearchRequestResult result);
+}
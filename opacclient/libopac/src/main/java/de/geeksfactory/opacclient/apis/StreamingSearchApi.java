@@ -0,0 +1,57 @@
+package de.geeksfactory.opacclient.apis;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.List;
+
+import de.geeksfactory.opacclient.objects.SearchRequestResult;
+import de.geeksfactory.opacclient.searchfields.SearchQuery;
+
+/**
+ * Search methods returning a page of results as soon as it is parsed, without waiting for the
+ * availability and cover lookups some backends make for every result. The lookups continue in
+ * the background and report to a {@link SearchResultListener}. Optionally, the search waits for
+ * the lookups up to a time budget, so that fast lookups are still part of the returned page while
+ * a slow availability service cannot delay it.
+ * <p>
+ * All {@link BaseApi} subclasses implement this. Backends that load the status or covers of
+ * results with separate requests (currently {@link OpenSearch}, {@link SISIS} and {@link Arena})
+ * stream them; the others return the complete page and call {@link
+ * SearchResultListener#onComplete(SearchRequestResult)} right away.
+ */
+public interface StreamingSearchApi {
+    /**
+     * Like {@link OpacApi#search(List)}, but returns before the results are complete.
+     */
+    SearchRequestResult search(List<SearchQuery> query, SearchResultListener listener)
+            throws IOException, OpacApi.OpacErrorException, JSONException;
+
+    /**
+     * Like {@link OpacApi#searchGetPage(int)}, but returns before the results are complete.
+     */
+    SearchRequestResult searchGetPage(int page, SearchResultListener listener)
+            throws IOException, OpacApi.OpacErrorException, JSONException;
+
+    /**
+     * Like {@link OpacApi#search(List)}, but waits for the status and cover lookups only until
+     * the time budget is used up. Results whose lookups did not finish in time are returned
+     * with the status {@link de.geeksfactory.opacclient.objects.SearchResult.Status#UNKNOWN}
+     * and without a cover. Their listener is called once the lookups finished.
+     *
+     * @param timeoutMillis the time budget for the whole search, {@code 0} to not wait for the
+     *                      lookups at all
+     * @param listener      receives the lookups finishing later, may be {@code null}
+     */
+    SearchRequestResult search(List<SearchQuery> query, long timeoutMillis,
+            SearchResultListener listener)
+            throws IOException, OpacApi.OpacErrorException, JSONException;
+
+    /**
+     * Like {@link OpacApi#searchGetPage(int)}, but waits for the status and cover lookups only
+     * until the time budget is used up, see {@link #search(List, long, SearchResultListener)}.
+     */
+    SearchRequestResult searchGetPage(int page, long timeoutMillis,
+            SearchResultListener listener)
+            throws IOException, OpacApi.OpacErrorException, JSONException;
+}
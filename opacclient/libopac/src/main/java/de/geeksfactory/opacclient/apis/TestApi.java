@@ -31,7 +31,7 @@ import de.geeksfactory.opacclient.searchfields.SearchField;
 import de.geeksfactory.opacclient.searchfields.SearchQuery;
 import de.geeksfactory.opacclient.searchfields.TextSearchField;
 
-public class TestApi extends ApacheBaseApi {
+public class TestApi extends OkHttpBaseApi {
     private Library library;
     private List<SearchResult> list = new ArrayList<>();
     private List<DetailedItem> detailList = new ArrayList<>();
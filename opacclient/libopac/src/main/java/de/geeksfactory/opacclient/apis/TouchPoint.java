@@ -54,6 +54,7 @@ import java.util.regex.Pattern;
 import de.geeksfactory.opacclient.i18n.StringProvider;
 import de.geeksfactory.opacclient.networking.HttpClientFactory;
 import de.geeksfactory.opacclient.networking.NotReachableException;
+import de.geeksfactory.opacclient.networking.Session;
 import de.geeksfactory.opacclient.objects.Account;
 import de.geeksfactory.opacclient.objects.AccountData;
 import de.geeksfactory.opacclient.objects.Copy;
@@ -71,9 +72,13 @@ import de.geeksfactory.opacclient.searchfields.DropdownSearchField;
 import de.geeksfactory.opacclient.searchfields.SearchField;
 import de.geeksfactory.opacclient.searchfields.SearchQuery;
 import de.geeksfactory.opacclient.searchfields.TextSearchField;
+import de.geeksfactory.opacclient.utils.HtmlRegions;
 import okhttp3.FormBody;
 import okhttp3.HttpUrl;
 
+import static de.geeksfactory.opacclient.utils.Selectors.pattern;
+import static de.geeksfactory.opacclient.utils.Selectors.select;
+
 /**
  * OpacApi implementation for Web Opacs of the TouchPoint product, developed by OCLC.
  */
@@ -155,6 +160,16 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
     }
 
     protected final long SESSION_LIFETIME = 1000 * 60 * 3;
+    /**
+     * The parts of the account pages read by {@link #parse_medialist}, {@link #parse_reslist},
+     * the pagination and the fees.
+     */
+    static final HtmlRegions ACCOUNT_REGIONS = HtmlRegions.of(".data", "#account-data",
+            ".pagination", "#fees");
+    private static final HtmlRegions LOGOUT_LINK =
+            HtmlRegions.of("a[href*=methodToCall=logout]");
+    private static final HtmlRegions ACCOUNT_LINK =
+            HtmlRegions.of("a[href*=methodToCall=showAccount]");
     protected String opac_url = "";
     protected JSONObject data;
     protected String CSId;
@@ -265,6 +280,11 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
         }
     }
 
+    @Override
+    public long getSessionLifetime() {
+        return SESSION_LIFETIME;
+    }
+
     @Override
     public SearchRequestResult search(List<SearchQuery> query)
             throws IOException, OpacErrorException,
@@ -325,10 +345,10 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
         params.add(new BasicNameValuePair("submitButtonCall_submitSearch", "Suchen"));
         params.add(new BasicNameValuePair("methodToCallParameter", "submitSearch"));
 
-        String html = httpGet(
+        Document doc = httpGetDocument(
                 opac_url + "/search.do?"
                         + URLEncodedUtils.format(params, "UTF-8"), ENCODING);
-        return parse_search_wrapped(html, 1);
+        return parse_search_wrapped(doc, 1);
     }
 
     public SearchRequestResult volumeSearch(Map<String, String> query)
@@ -339,10 +359,10 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
                 .get("dbIdentifier")));
         params.add(new BasicNameValuePair("catKey", query.get("catKey")));
         params.add(new BasicNameValuePair("periodical", "N"));
-        String html = httpGet(
+        Document doc = httpGetDocument(
                 opac_url + "/search.do?"
                         + URLEncodedUtils.format(params, "UTF-8"), ENCODING);
-        return parse_search_wrapped(html, 1);
+        return parse_search_wrapped(doc, 1);
     }
 
     @Override
@@ -352,23 +372,23 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
             start();
         }
 
-        String html = httpGet(opac_url
+        Document doc = httpGetDocument(opac_url
                 + "/hitList.do?methodToCall=pos&identifier=" + identifier
                 + "&curPos=" + (((page - 1) * resultcount) + 1), ENCODING);
-        return parse_search_wrapped(html, page);
+        return parse_search_wrapped(doc, page);
     }
 
     public class SingleResultFound extends Exception {
     }
 
-    protected SearchRequestResult parse_search_wrapped(String html, int page) throws IOException, OpacErrorException {
+    protected SearchRequestResult parse_search_wrapped(Document doc, int page) throws IOException, OpacErrorException {
         try {
-            return parse_search(html, page);
+            return parse_search(doc, page);
         } catch (SingleResultFound e) {
-            html = httpGet(opac_url + "/hitList.do?methodToCall=backToCompleteList&identifier=" +
+            doc = httpGetDocument(opac_url + "/hitList.do?methodToCall=backToCompleteList&identifier=" +
                     identifier, ENCODING);
             try {
-                return parse_search(html, page);
+                return parse_search(doc, page);
             } catch (SingleResultFound e1) {
                 throw new NotReachableException();
             }
@@ -376,19 +396,21 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
     }
 
     protected SearchRequestResult parse_search(String html, int page)
-            throws OpacErrorException, IOException, IOException, SingleResultFound {
-        Document doc = Jsoup.parse(html);
+            throws OpacErrorException, IOException, SingleResultFound {
+        return parse_search(Jsoup.parse(html), page);
+    }
 
-        if (doc.select("#RefineHitListForm").size() > 0) {
+    protected SearchRequestResult parse_search(Document doc, int page)
+            throws OpacErrorException, IOException, SingleResultFound {
+        if (select(doc, "#RefineHitListForm").size() > 0) {
             // the results are located on a different page loaded via AJAX
-            html = httpGet(
+            doc = httpGetDocument(
                     opac_url + "/speedHitList.do?_="
                             + String.valueOf(System.currentTimeMillis() / 1000)
                             + "&hitlistindex=0&exclusionList=", ENCODING);
-            doc = Jsoup.parse(html);
         }
 
-        if (doc.select(".nodata").size() > 0) {
+        if (select(doc, ".nodata").size() > 0) {
             return new SearchRequestResult(new ArrayList<SearchResult>(), 0, 1,
                     1);
         }
@@ -397,7 +419,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
 
         int results_total = -1;
 
-        String resultnumstr = doc.select(".box-header h2, .box-header h1").first().text();
+        String resultnumstr = select(doc, ".box-header h2, .box-header h1").first().text();
         if (resultnumstr.contains("(1/1)") || resultnumstr.contains(" 1/1")) {
             throw new SingleResultFound();
         } else if (resultnumstr.contains("(")) {
@@ -415,10 +437,10 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
             }
         }
 
-        Elements table = doc.select("table.data > tbody > tr");
+        Elements table = select(doc, "table.data > tbody > tr");
         identifier = null;
 
-        Elements links = doc.select("table.data a");
+        Elements links = select(doc, "table.data a");
         boolean haslink = false;
         for (Element node : links) {
             if (node.hasAttr("href")
@@ -445,7 +467,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
         for (int i = 0; i < table.size(); i++) {
             Element tr = table.get(i);
             SearchResult sr = new SearchResult();
-            Element icon = tr.select(".icn, img[width=32], .icon img").first();
+            Element icon = select(tr, ".icn, img[width=32], .icon img").first();
             if (icon != null) {
                 String[] fparts = icon.attr("src").split("/");
                 String fname = fparts[fparts.length - 1];
@@ -454,7 +476,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
                                            .replace(".png", "");
 
                 // File names can look like this: "20_DVD_Video.gif"
-                Pattern pattern = Pattern.compile("(\\d+)_.*");
+                Pattern pattern = pattern("(\\d+)_.*");
                 Matcher matcher = pattern.matcher(changedFname);
                 if (matcher.find()) {
                     changedFname = matcher.group(1);
@@ -474,12 +496,12 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
             }
             String title;
             String text;
-            if (tr.select(".results table").size() > 0) { // e.g. RWTH Aachen
-                title = tr.select(".title a").text();
-                text = tr.select(".title div").text();
+            if (select(tr, ".results table").size() > 0) { // e.g. RWTH Aachen
+                title = select(tr, ".title a").text();
+                text = select(tr, ".title div").text();
             } else { // e.g. Schaffhausen, BSB München
-                title = tr.select(".title, .hitlistTitle").text();
-                text = tr.select(".results, .hitlistMetadata").first()
+                title = select(tr, ".title, .hitlistTitle").text();
+                text = select(tr, ".results, .hitlistMetadata").first()
                          .ownText();
             }
 
@@ -489,8 +511,8 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
             // get cover
             sr.setCover(findCoverUrl(tr, true));
             // get loan status and media ID
-            if (tr.select("div[id^=loanstatus] + script").size() > 0) {
-                String js = tr.select("div[id^=loanstatus] + script").first()
+            if (select(tr, "div[id^=loanstatus] + script").size() > 0) {
+                String js = select(tr, "div[id^=loanstatus] + script").first()
                               .html();
                 String[] variables = new String[]{"loanstateDBId",
                         "itemIdentifier", "hitlistIdentifier",
@@ -525,8 +547,8 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
                     Document loanStatusDoc = Jsoup.parse(loanStatusHtml);
 
                     String loanstatus;
-                    if (loanStatusDoc.select("a").size() == 1) {
-                        loanstatus = loanStatusDoc.select("a").first().text();
+                    if (select(loanStatusDoc, "a").size() == 1) {
+                        loanstatus = select(loanStatusDoc, "a").first().text();
                     } else {
                         loanstatus = loanStatusDoc.text();
                     }
@@ -580,7 +602,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
     }
 
     private String matchJSVariable(String js, String varName) {
-        Pattern patternVar = Pattern.compile("var \\s*" + varName
+        Pattern patternVar = pattern("var \\s*" + varName
                 + "\\s*=\\s*[\"']([^\"']*)[\"']\\s*;");
         Matcher matcher = patternVar.matcher(js);
         if (matcher.find()) {
@@ -591,7 +613,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
     }
 
     private String matchJSParameter(String js, String varName) {
-        Pattern patternParam = Pattern.compile(".*\\s*" + varName
+        Pattern patternParam = pattern(".*\\s*" + varName
                 + "\\s*:\\s*('|\")([^\"']*)('|\")\\s*,?.*");
         Matcher matcher = patternParam.matcher(js);
         if (matcher.find()) {
@@ -602,7 +624,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
     }
 
     private String matchHTMLAttr(String js, String varName) {
-        Pattern patternParam = Pattern.compile(".*" + varName
+        Pattern patternParam = pattern(".*" + varName
                 + "=('|\")([^\"']*)('|\")\\s*,?.*");
         Matcher matcher = patternParam.matcher(js);
         if (matcher.find()) {
@@ -615,8 +637,8 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
     @Override
     public DetailedItem getResultById(String id, String homebranch)
             throws IOException {
-        String html = httpGet(getUrlForId(id), ENCODING);
-        return parse_result(html);
+        Document doc = httpGetDocument(getUrlForId(id), ENCODING);
+        return parse_result(doc);
     }
 
     public String getUrlForId(String id) throws UnsupportedEncodingException {
@@ -647,14 +669,17 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
 
     @Override
     public DetailedItem getResult(int nr) throws IOException {
-        String html = httpGet(opac_url
+        Document doc = httpGetDocument(opac_url
                 + "/singleHit.do?methodToCall=showHit&curPos=" + nr
                 + "&identifier=" + identifier, ENCODING);
-        return parse_result(html);
+        return parse_result(doc);
     }
 
     protected DetailedItem parse_result(String html) throws IOException {
-        Document doc = Jsoup.parse(html);
+        return parse_result(Jsoup.parse(html));
+    }
+
+    protected DetailedItem parse_result(Document doc) throws IOException {
         doc.setBaseUri(opac_url);
 
         DetailedItem result = new DetailedItem();
@@ -1034,25 +1059,23 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
     public AccountData account(Account acc) throws IOException,
             JSONException,
             OpacErrorException {
-        start();
-        LoginResponse login = login(acc);
-        if (!login.success) {
-            return null;
-        }
         AccountData adata = new AccountData(acc.getId());
-        if (login.warning != null) {
-            adata.setWarning(login.warning);
-        }
 
         // Lent media
-        httpGet(opac_url + "/userAccount.do?methodToCall=start",
-                ENCODING);
-        String html = httpGet(opac_url
-                        + "/userAccount.do?methodToCall=showAccount&accountTyp=loaned",
-                ENCODING);
+        String html = resumeAccountSession(acc, adata);
+        if (html == null) {
+            start();
+            LoginResponse login = login(acc);
+            if (!login.success) {
+                return null;
+            }
+            if (login.warning != null) {
+                adata.setWarning(login.warning);
+            }
+            html = fetchLentPage();
+        }
         List<LentItem> lent = new ArrayList<>();
-        Document doc = Jsoup.parse(html);
-        doc.setBaseUri(opac_url);
+        Document doc = ACCOUNT_REGIONS.parse(html, opac_url);
         List<LentItem> nextpageLent = parse_medialist(doc);
         if (nextpageLent != null) {
             lent.addAll(nextpageLent);
@@ -1074,8 +1097,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
                     }
                 }
                 html = httpGet(url, ENCODING);
-                doc = Jsoup.parse(html);
-                doc.setBaseUri(opac_url);
+                doc = ACCOUNT_REGIONS.parse(html, opac_url);
                 nextpageLent = parse_medialist(doc);
                 if (nextpageLent != null) {
                     lent.addAll(nextpageLent);
@@ -1087,8 +1109,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
         // Requested media ("Vormerkungen")
         html = httpGet(opac_url + "/userAccount.do?methodToCall=showAccount&accountTyp=requested",
                 ENCODING);
-        doc = Jsoup.parse(html);
-        doc.setBaseUri(opac_url);
+        doc = ACCOUNT_REGIONS.parse(html, opac_url);
 
         List<ReservedItem> requested = new ArrayList<>();
         List<ReservedItem> nextpageRes = parse_reslist(doc);
@@ -1112,8 +1133,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
                     }
                 }
                 html = httpGet(url, ENCODING);
-                doc = Jsoup.parse(html);
-                doc.setBaseUri(opac_url);
+                doc = ACCOUNT_REGIONS.parse(html, opac_url);
                 nextpageRes = parse_reslist(doc);
                 if (nextpageRes != null) {
                     requested.addAll(nextpageRes);
@@ -1124,8 +1144,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
         // Ordered media ("Bestellungen")
         html = httpGet(opac_url + "/userAccount.do?methodToCall=showAccount&accountTyp=ordered",
                 ENCODING);
-        doc = Jsoup.parse(html);
-        doc.setBaseUri(opac_url);
+        doc = ACCOUNT_REGIONS.parse(html, opac_url);
         List<ReservedItem> nextpageOrd = parse_reslist(doc);
         if (nextpageOrd != null) {
             requested.addAll(nextpageOrd);
@@ -1147,8 +1166,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
                     }
                 }
                 html = httpGet(url, ENCODING);
-                doc = Jsoup.parse(html);
-                doc.setBaseUri(opac_url);
+                doc = ACCOUNT_REGIONS.parse(html, opac_url);
                 nextpageOrd = parse_reslist(doc);
                 if (nextpageOrd != null) {
                     requested.addAll(nextpageOrd);
@@ -1169,12 +1187,62 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
             }
         }
 
+        saveSession(acc, getSessionTokens(adata.getWarning()));
         return adata;
     }
 
+    private String fetchLentPage() throws IOException {
+        httpGet(opac_url + "/userAccount.do?methodToCall=start",
+                ENCODING);
+        return httpGet(opac_url
+                        + "/userAccount.do?methodToCall=showAccount&accountTyp=loaned",
+                ENCODING);
+    }
+
+    /**
+     * Tries to continue a session stored by another instance for the account, saving the
+     * requests to the start and login pages.
+     *
+     * @return the page of lent media, or {@code null} if there is no valid session
+     */
+    protected String resumeAccountSession(Account acc, AccountData adata) throws IOException {
+        Session session = resumeSession(acc, SESSION_LIFETIME);
+        if (session == null || session.getToken("CSId") == null) {
+            return null;
+        }
+        CSId = session.getToken("CSId");
+        String html = fetchLentPage();
+        if (!isAccountPage(html)) {
+            // The server ended the session and shows the login form, an error or the start page
+            discardSession(acc);
+            return null;
+        }
+        logged_in = System.currentTimeMillis();
+        logged_in_as = acc;
+        adata.setWarning(session.getToken("warning"));
+        return html;
+    }
+
+    /**
+     * @return whether the page is a page of the account of a logged-in user, which links to the
+     * other account pages and to the logout
+     */
+    static boolean isAccountPage(String html) {
+        return LOGOUT_LINK.extract(html) != null && ACCOUNT_LINK.extract(html) != null;
+    }
+
+    protected Map<String, String> getSessionTokens(String warning) {
+        Map<String, String> tokens = new HashMap<>();
+        tokens.put("CSId", CSId);
+        if (warning != null) {
+            tokens.put("warning", warning);
+        }
+        return tokens;
+    }
+
     static List<LentItem> parse_medialist(Document doc) {
         List<LentItem> media = new ArrayList<>();
-        Elements copytrs = doc.select(".data tr, .data .row");
+        Elements copytrs = select(doc, ".data tr, .data .row");
 
         DateTimeFormatter fmt = DateTimeFormat.forPattern("dd.MM.yyyy").withLocale(Locale.GERMAN);
 
@@ -1190,12 +1258,12 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
             if (tr.text().contains("keine Daten")) {
                 return null;
             }
-            item.setTitle(tr.select(".account-display-title").select("b, strong")
+            item.setTitle(select(tr, ".account-display-title").select("b, strong")
                             .text().trim());
             try {
                 item.setRenewable(false);
-                if (tr.select("a").size() > 0) {
-                    for (Element link : tr.select("a")) {
+                if (select(tr, "a").size() > 0) {
+                    for (Element link : select(tr, "a")) {
                         String href = link.attr("abs:href");
                         Map<String, String> hrefq = getQueryParamsFirst(href);
                         if (hrefq.containsKey("q")) {
@@ -1209,7 +1277,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
                     }
                 }
 
-                String[] lines = tr.select(".account-display-title").html().split("<br[ /]*>");
+                String[] lines = select(tr, ".account-display-title").html().split("<br[ /]*>");
                 if (lines.length == 4 || lines.length == 5) {
                     // Winterthur
                     item.setAuthor(Jsoup.parse(lines[1]).text().trim());
@@ -1238,7 +1306,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
                     }
                 }
 
-                String[] col3split = tr.select(".account-display-state").html().split("<br[ /]*>");
+                String[] col3split = select(tr, ".account-display-state").html().split("<br[ /]*>");
                 String deadline = Jsoup.parse(col3split[0].trim()).text().trim();
                 if (deadline.contains(":")) {
                     // BSB Munich: <span class="hidden-sm hidden-md hidden-lg">Fälligkeitsdatum :
@@ -1268,7 +1336,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
     }
 
     private static String extractIdFromQ(String q) {
-        Pattern pattern = Pattern.compile("(\\d+)=\"(?:\\\\\")?([^\\\\]+)(?:\\\\\")?\" IN \\[" +
+        Pattern pattern = pattern("(\\d+)=\"(?:\\\\\")?([^\\\\]+)(?:\\\\\")?\" IN \\[" +
                 "(\\d+)\\]");
         Matcher matcher = pattern.matcher(q);
         if (matcher.find()) {
@@ -1289,7 +1357,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
 
     static List<ReservedItem> parse_reslist(Document doc) {
         List<ReservedItem> reservations = new ArrayList<>();
-        Elements copytrs = doc.select(".data tr, #account-data .table tr, .data .row");
+        Elements copytrs = select(doc, ".data tr, #account-data .table tr, .data .row");
         int trs = copytrs.size();
         if (trs <= 1) {
             return null;
@@ -1308,11 +1376,11 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
                 if (tr.hasClass("row")) {
                     // Chemnitz 2019
                     item.setTitle(
-                            tr.select(".account-display-title").select("b, strong").text().trim());
+                            select(tr, ".account-display-title").select("b, strong").text().trim());
 
-                    rowsplit2 = tr.select(".account-display-title > div").first().html().split("<br[ /]*>");
+                    rowsplit2 = select(tr, ".account-display-title > div").first().html().split("<br[ /]*>");
                     rowsplit3 =
-                            tr.select(".account-display-state").last().html().split("<br[ /]*>");
+                            select(tr, ".account-display-state").last().html().split("<br[ /]*>");
                 } else {
                     item.setTitle(
                             tr.child(2).select("b, strong").text().trim());
@@ -1329,8 +1397,8 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
                     item.setStatus(rowsplit3[0].trim() + " (" + rowsplit3[1].trim() + ")");
                 }
 
-                if (tr.select("a").size() > 0) {
-                    for (Element link : tr.select("a")) {
+                if (select(tr, "a").size() > 0) {
+                    for (Element link : select(tr, "a")) {
                         String href = link.attr("abs:href");
                         Map<String, String> hrefq = getQueryParamsFirst(href);
                         if (hrefq.containsKey("q")) {
@@ -1381,6 +1449,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
                 logged_in_as = acc;
 
                 boolean showMessage = message.contains("Nutzungseinschr");
+                saveSession(acc, getSessionTokens(showMessage ? message : null));
                 return new LoginResponse(true, showMessage ? message : null);
             } else {
                 throw new OpacErrorException(doc.getElementsByClass("alert").get(0).text());
@@ -1395,6 +1464,7 @@ public class TouchPoint extends OkHttpBaseApi implements OpacApi {
 
         logged_in = System.currentTimeMillis();
         logged_in_as = acc;
+        saveSession(acc, getSessionTokens(null));
 
         return new LoginResponse(true);
     }
@@ -58,6 +58,7 @@ import de.geeksfactory.opacclient.i18n.StringProvider;
 import de.geeksfactory.opacclient.networking.HttpClientFactory;
 import de.geeksfactory.opacclient.objects.Account;
 import de.geeksfactory.opacclient.objects.AccountData;
+import de.geeksfactory.opacclient.objects.AccountItem;
 import de.geeksfactory.opacclient.objects.Copy;
 import de.geeksfactory.opacclient.objects.Detail;
 import de.geeksfactory.opacclient.objects.DetailedItem;
@@ -74,6 +75,7 @@ import de.geeksfactory.opacclient.searchfields.SearchField;
 import de.geeksfactory.opacclient.searchfields.SearchQuery;
 import de.geeksfactory.opacclient.searchfields.TextSearchField;
 import de.geeksfactory.opacclient.utils.Base64;
+import de.geeksfactory.opacclient.utils.JsonReader;
 import okhttp3.FormBody;
 import okhttp3.RequestBody;
 import okio.Buffer;
@@ -168,42 +170,30 @@ public class WebOpacNet extends OkHttpBaseApi implements OpacApi {
         if (!text.equals("")) {
             try {
                 List<SearchResult> results = new ArrayList<>();
-                JSONObject json = new JSONObject(text);
-                int total_result_count = Integer.parseInt(json
-                        .getString("totalcount"));
-
-                JSONArray resultList = json.getJSONArray("mobmeds");
-                for (int i = 0; i < resultList.length(); i++) {
-                    JSONObject resultJson = resultList.getJSONObject(i);
-                    SearchResult result = new SearchResult();
-                    result.setId(resultJson.getString("medid"));
-
-                    String title = resultJson.getString("titel");
-                    String[] titleAndSubtitle = getTitleAndSubtitle(title);
-
-                    String publisher = resultJson.getString("verlag");
-                    String series = resultJson.getString("reihe");
-                    StringBuilder html = new StringBuilder();
-                    html.append("<b>").append(titleAndSubtitle[0]).append("</b><br />");
-                    if (titleAndSubtitle.length == 2) {
-                        html.append("<i>").append(titleAndSubtitle[1]).append("</i><br />");
+                int total_result_count = 0;
+                JsonReader reader = new JsonReader(text);
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "totalcount":
+                            total_result_count = Integer.parseInt(reader.nextString());
+                            break;
+                        case "mobmeds":
+                            reader.beginArray();
+                            while (reader.hasNext()) {
+                                results.add(readSearchResult(reader));
+                            }
+                            reader.endArray();
+                            break;
+                        default:
+                            reader.skipValue();
                     }
-                    html.append(publisher).append(", ").append(series);
-
-                    result.setType(getMediaType(resultJson.getString("iconurl")));
-
-                    result.setInnerhtml(html.toString());
-
-                    if (resultJson.getString("imageurl").length() > 0) {
-                        result.setCover(resultJson.getString("imageurl"));
-                    }
-
-                    results.add(result);
                 }
+                reader.endObject();
 
                 return new SearchRequestResult(results, total_result_count,
                         page);
-            } catch (JSONException e) {
+            } catch (JSONException | IOException e) {
                 e.printStackTrace();
                 throw new OpacErrorException(stringProvider.getFormattedString(
                         StringProvider.INTERNAL_ERROR_WITH_DESCRIPTION,
@@ -216,6 +206,53 @@ public class WebOpacNet extends OkHttpBaseApi implements OpacApi {
 
     }
 
+    private static SearchResult readSearchResult(JsonReader reader)
+            throws JSONException, IOException {
+        SearchResult result = new SearchResult();
+        String title = null;
+        String publisher = null;
+        String series = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "medid":
+                    result.setId(reader.nextString());
+                    break;
+                case "titel":
+                    title = reader.nextString();
+                    break;
+                case "verlag":
+                    publisher = reader.nextStringOrNull();
+                    break;
+                case "reihe":
+                    series = reader.nextStringOrNull();
+                    break;
+                case "iconurl":
+                    result.setType(getMediaType(reader.nextString()));
+                    break;
+                case "imageurl":
+                    result.setCover(ifNotEmpty(reader.nextStringOrNull()));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (title == null) {
+            throw new JSONException("JSONObject[\"titel\"] not found.");
+        }
+        String[] titleAndSubtitle = getTitleAndSubtitle(title);
+        StringBuilder html = new StringBuilder();
+        html.append("<b>").append(titleAndSubtitle[0]).append("</b><br />");
+        if (titleAndSubtitle.length == 2) {
+            html.append("<i>").append(titleAndSubtitle[1]).append("</i><br />");
+        }
+        html.append(publisher).append(", ").append(series);
+        result.setInnerhtml(html.toString());
+        return result;
+    }
+
     private static MediaType getMediaType(String iconurl) {
         String number = iconurl.substring(12, 13);
         return defaulttypes.get(number);
@@ -623,6 +660,11 @@ public class WebOpacNet extends OkHttpBaseApi implements OpacApi {
      */
     private JSONObject httpPostAccount(String url, FormBody body, Account acc)
             throws IOException, OpacErrorException, JSONException {
+        return new JSONObject(httpPostAccountText(url, body, acc));
+    }
+
+    private String httpPostAccountText(String url, FormBody body, Account acc)
+            throws IOException, OpacErrorException, JSONException {
         String s = httpPost(url, body, getDefaultEncoding());
         if (s.equals("")) {
             login(acc);
@@ -641,7 +683,7 @@ public class WebOpacNet extends OkHttpBaseApi implements OpacApi {
                 }
             }, getDefaultEncoding());
         }
-        return new JSONObject(s);
+        return s;
     }
 
     private String bodyToString(FormBody body) throws IOException {
@@ -718,8 +760,8 @@ public class WebOpacNet extends OkHttpBaseApi implements OpacApi {
         formData.add("art", "7");
         formData.add("rsa", "");
         formData.add("sessionId", sessionId);
-        JSONObject response =
-                httpPostAccount(opac_url + "/de/mobile/Konto.ashx", formData.build(), account);
+        String response = httpPostAccountText(opac_url + "/de/mobile/Konto.ashx",
+                formData.build(), account);
 
         AccountData data = new AccountData(account.getId());
         parseAccount(response, data);
@@ -727,58 +769,151 @@ public class WebOpacNet extends OkHttpBaseApi implements OpacApi {
         return data;
     }
 
-    static void parseAccount(JSONObject response, AccountData data) throws JSONException {
-        data.setValidUntil(ifNotEmpty(response.getString("gueltigbis")));
-        data.setPendingFees(ifNotEmpty(response.getString("gebuehren")));
-
-        DateTimeFormatter format = DateTimeFormat.forPattern("dd.MM.yyyy");
+    static void parseAccount(String response, AccountData data)
+            throws JSONException, IOException {
         List<LentItem> lent = new ArrayList<>();
-        JSONArray ausleihen = response.getJSONArray("ausleihen");
-        for (int i = 0; i < ausleihen.length(); i++) {
-            LentItem item = new LentItem();
-            JSONObject json = ausleihen.getJSONObject(i);
-            item.setAuthor(json.getString("urheber"));
-            item.setTitle(json.getString("titelkurz").replace(item.getAuthor() + " : ", ""));
-
-            item.setCover(json.getString("imageurl"));
-            item.setMediaType(getMediaType(json.getString("iconurl")));
-            item.setStatus(ifNotEmpty(json.getString("hinweis")));
-            item.setProlongData(json.getString("exemplarid"));
-
-            JSONArray felder = json.getJSONArray("felder");
-            for (int j = 0; j < felder.length(); j++) {
-                String value = felder.getJSONObject(j).getString("display");
-                if (value.startsWith("Leihfrist: ")) {
-                    String dateStr = value.replace("Leihfrist: ", "");
-                    item.setDeadline(format.parseLocalDate(dateStr));
+        List<ReservedItem> reservations = new ArrayList<>();
+        JsonReader reader = new JsonReader(response);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "gueltigbis":
+                    data.setValidUntil(ifNotEmpty(reader.nextStringOrNull()));
                     break;
-                }
+                case "gebuehren":
+                    data.setPendingFees(ifNotEmpty(reader.nextStringOrNull()));
+                    break;
+                case "ausleihen":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        lent.add(AccountEntry.read(reader).toLentItem());
+                    }
+                    reader.endArray();
+                    break;
+                case "reservationen":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        reservations.add(AccountEntry.read(reader).toReservedItem());
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
             }
-            lent.add(item);
         }
+        reader.endObject();
         data.setLent(lent);
+        data.setReservations(reservations);
+    }
 
-        List<ReservedItem> reservations = new ArrayList<>();
-        JSONArray reservationen = response.getJSONArray("reservationen");
-        for (int i = 0; i < reservationen.length(); i++) {
+    /**
+     * The fields of an entry in "ausleihen" or "reservationen" of the account response.
+     */
+    private static class AccountEntry {
+        private static final DateTimeFormatter FORMAT = DateTimeFormat.forPattern("dd.MM.yyyy");
+
+        String author;
+        String title;
+        String cover;
+        String iconUrl;
+        String note;
+        String copyId;
+        String pickupDate = "";
+        String status;
+        String deadline;
+
+        static AccountEntry read(JsonReader reader) throws JSONException, IOException {
+            AccountEntry entry = new AccountEntry();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "urheber":
+                        entry.author = reader.nextStringOrNull();
+                        break;
+                    case "titelkurz":
+                        entry.title = reader.nextString();
+                        break;
+                    case "imageurl":
+                        entry.cover = reader.nextStringOrNull();
+                        break;
+                    case "iconurl":
+                        entry.iconUrl = reader.nextString();
+                        break;
+                    case "hinweis":
+                        entry.note = reader.nextStringOrNull();
+                        break;
+                    case "exemplarid":
+                        entry.copyId = reader.nextStringOrNull();
+                        break;
+                    case "abholdat":
+                        entry.pickupDate = reader.nextString();
+                        break;
+                    case "status":
+                        entry.status = reader.nextStringOrNull();
+                        break;
+                    case "felder":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            readField(reader, entry);
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (entry.title == null || entry.iconUrl == null) {
+                throw new JSONException("Account entry without titelkurz or iconurl");
+            }
+            return entry;
+        }
+
+        private static void readField(JsonReader reader, AccountEntry entry)
+                throws JSONException, IOException {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("display")) {
+                    String value = reader.nextString();
+                    if (entry.deadline == null && value.startsWith("Leihfrist: ")) {
+                        entry.deadline = value.replace("Leihfrist: ", "");
+                    }
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+
+        LentItem toLentItem() {
+            LentItem item = new LentItem();
+            fill(item);
+            item.setProlongData(copyId);
+            if (deadline != null) {
+                item.setDeadline(FORMAT.parseLocalDate(deadline));
+            }
+            return item;
+        }
+
+        ReservedItem toReservedItem() {
             ReservedItem item = new ReservedItem();
-            JSONObject json = reservationen.getJSONObject(i);
-            item.setAuthor(json.getString("urheber"));
-            item.setTitle(json.getString("titelkurz").replace(item.getAuthor() + " : ", ""));
-
-            item.setCover(json.getString("imageurl"));
-            item.setMediaType(getMediaType(json.getString("iconurl")));
-            item.setStatus(ifNotEmpty(json.getString("hinweis")));
-            if (!json.getString("abholdat").equals("")) {
-                item.setExpirationDate(format.parseLocalDate(json.getString("abholdat")));
+            fill(item);
+            if (!pickupDate.equals("")) {
+                item.setExpirationDate(FORMAT.parseLocalDate(pickupDate));
             }
-            if (json.getString("status").equals("1")) {
-                item.setCancelData(json.getString("exemplarid"));
+            if ("1".equals(status)) {
+                item.setCancelData(copyId);
             }
-            reservations.add(item);
+            return item;
+        }
+
+        private void fill(AccountItem item) {
+            item.setAuthor(author);
+            item.setTitle(title.replace(author + " : ", ""));
+            item.setCover(cover);
+            item.setMediaType(getMediaType(iconUrl));
+            item.setStatus(ifNotEmpty(note));
         }
-        data.setLent(lent);
-        data.setReservations(reservations);
     }
 
     private static String ifNotEmpty(String value) {
@@ -252,12 +252,12 @@ public class Zones extends OkHttpBaseApi {
                     stringProvider.getString(StringProvider.NO_CRITERIA_INPUT));
         }
 
-        String html = httpGet(opac_url + "/" + searchobj + "?"
+        Document doc = httpGetDocument(opac_url + "/" + searchobj + "?"
                 + URLEncodedUtils.format(params, "UTF-8"), getDefaultEncoding());
 
         page = 1;
 
-        return parse_search(html, page);
+        return parse_search(doc, page);
     }
 
     @Override
@@ -278,16 +278,15 @@ public class Zones extends OkHttpBaseApi {
         }
         params.add(new BasicNameValuePair("PageSize", "10"));
 
-        String html = httpGet(opac_url + "/" + searchobj + "?"
+        Document doc = httpGetDocument(opac_url + "/" + searchobj + "?"
                 + URLEncodedUtils.format(params, "UTF-8"), getDefaultEncoding());
         this.page = page;
 
-        return parse_search(html, page);
+        return parse_search(doc, page);
     }
 
-    private SearchRequestResult parse_search(String html, int page)
+    private SearchRequestResult parse_search(Document doc, int page)
             throws OpacErrorException {
-        Document doc = Jsoup.parse(html);
         doc.setBaseUri(opac_url + "/APS_PRESENT_BIB");
 
         if (doc.select("#ErrorAdviceRow").size() > 0) {
@@ -450,12 +449,12 @@ public class Zones extends OkHttpBaseApi {
         params.add(new BasicNameValuePair("ResponseEncoding", "utf-8"));
         params.add(new BasicNameValuePair("no", id));
 
-        String html = httpGet(
+        Document doc = httpGetDocument(
                 opac_url + "/APS_PRESENT_BIB?"
                         + URLEncodedUtils.format(params, "UTF-8"),
                 getDefaultEncoding());
 
-        return parse_result(id, html);
+        return parse_result(id, doc);
     }
 
     @Override
@@ -463,8 +462,7 @@ public class Zones extends OkHttpBaseApi {
         return null;
     }
 
-    private DetailedItem parse_result(String id, String html) {
-        Document doc = Jsoup.parse(html);
+    private DetailedItem parse_result(String id, Document doc) {
 
         DetailedItem result = new DetailedItem();
         result.setTitle("");
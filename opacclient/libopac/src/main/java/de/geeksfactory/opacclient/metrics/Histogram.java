@@ -0,0 +1,75 @@
+package de.geeksfactory.opacclient.metrics;
+
+/**
+ * A thread-safe histogram with exponentially growing buckets (powers of two), suitable for
+ * durations and sizes spanning several orders of magnitude. Percentiles are estimated from the
+ * upper bounds of the buckets.
+ */
+public class Histogram {
+    private static final int BUCKETS = 40;
+
+    private final long[] buckets = new long[BUCKETS];
+    private long count = 0;
+    private long sum = 0;
+    private long max = 0;
+
+    public synchronized void record(long value) {
+        if (value < 0) {
+            return;
+        }
+        buckets[bucketOf(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    private static int bucketOf(long value) {
+        int bucket = 64 - Long.numberOfLeadingZeros(value);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket == 0 ? 0 : (1L << bucket) - 1;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getSum() {
+        return sum;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public synchronized double getMean() {
+        return count > 0 ? (double) sum / count : 0;
+    }
+
+    /**
+     * @param p percentile between 0 and 1
+     * @return an estimate of the percentile, never larger than the maximum recorded value
+     */
+    public synchronized long getPercentile(double p) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(p * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank && buckets[i] > 0) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "count=" + count + ", mean=" + Math.round(getMean()) + ", p50=" +
+                getPercentile(0.5) + ", p95=" + getPercentile(0.95) + ", max=" + max;
+    }
+}
@@ -0,0 +1,85 @@
+package de.geeksfactory.opacclient.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.geeksfactory.opacclient.networking.OperationContext.Operation;
+
+/**
+ * Aggregates request timings in memory into one {@link Histogram} per library, operation and
+ * phase, e.g. to find libraries that are slow to connect or slow to respond.
+ */
+public class InMemoryMetricsSink implements MetricsSink {
+    public enum Phase {
+        DNS, CONNECT, TLS, TTFB, TOTAL, BYTES
+    }
+
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> failures = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(RequestTiming timing) {
+        String prefix = key(timing.library, timing.operation);
+        if (timing.isFailed()) {
+            AtomicLong counter = failures.get(prefix);
+            if (counter == null) {
+                counter = new AtomicLong();
+                AtomicLong existing = failures.putIfAbsent(prefix, counter);
+                if (existing != null) {
+                    counter = existing;
+                }
+            }
+            counter.incrementAndGet();
+        }
+        histogram(prefix, Phase.DNS).record(timing.dnsMillis);
+        histogram(prefix, Phase.CONNECT).record(timing.connectMillis);
+        histogram(prefix, Phase.TLS).record(timing.tlsMillis);
+        histogram(prefix, Phase.TTFB).record(timing.ttfbMillis);
+        histogram(prefix, Phase.TOTAL).record(timing.totalMillis);
+        histogram(prefix, Phase.BYTES).record(timing.bodyBytes);
+    }
+
+    private static String key(String library, Operation operation) {
+        return (library != null ? library : "-") + "/" + operation.name();
+    }
+
+    private Histogram histogram(String prefix, Phase phase) {
+        String key = prefix + "/" + phase.name();
+        Histogram histogram = histograms.get(key);
+        if (histogram == null) {
+            histogram = new Histogram();
+            Histogram existing = histograms.putIfAbsent(key, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * @return the histogram for the given library, operation and phase, or {@code null} if no
+     * request was recorded for it
+     */
+    public Histogram getHistogram(String library, Operation operation, Phase phase) {
+        return histograms.get(key(library, operation) + "/" + phase.name());
+    }
+
+    public long getFailures(String library, Operation operation) {
+        AtomicLong counter = failures.get(key(library, operation));
+        return counter != null ? counter.get() : 0;
+    }
+
+    /**
+     * @return all histograms, keyed by {@code library/operation/phase} and sorted by key
+     */
+    public Map<String, Histogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    public void clear() {
+        histograms.clear();
+        failures.clear();
+    }
+}
@@ -0,0 +1,13 @@
+package de.geeksfactory.opacclient.metrics;
+
+/**
+ * Receives timing information about the HTTP requests made by the {@link
+ * de.geeksfactory.opacclient.apis.OpacApi} implementations. Set it with {@link
+ * de.geeksfactory.opacclient.networking.HttpClientFactory#setMetricsSink(MetricsSink)}.
+ * <p>
+ * Implementations are called from OkHttp's threads after each request and must be thread-safe
+ * and fast.
+ */
+public interface MetricsSink {
+    void record(RequestTiming timing);
+}
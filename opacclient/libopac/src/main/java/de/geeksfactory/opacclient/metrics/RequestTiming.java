@@ -0,0 +1,74 @@
+package de.geeksfactory.opacclient.metrics;
+
+import de.geeksfactory.opacclient.networking.OperationContext.Operation;
+
+/**
+ * Timing of a single HTTP request, split into its phases. Durations are given in milliseconds
+ * and are -1 if a phase did not take place, e.g. no DNS lookup and connect if a pooled
+ * connection was reused.
+ */
+public class RequestTiming {
+    /**
+     * Identifier of the library, or {@code null} if the request was not made by an API.
+     */
+    public final String library;
+    /**
+     * Simple class name of the API implementation, or {@code null}
+     */
+    public final String api;
+    public final Operation operation;
+    public final String host;
+    public final String method;
+    /**
+     * HTTP status code of the final response, -1 if the request failed
+     */
+    public final int status;
+    public final boolean cached;
+    public final long dnsMillis;
+    public final long connectMillis;
+    public final long tlsMillis;
+    public final long ttfbMillis;
+    public final long totalMillis;
+    public final long bodyBytes;
+
+    public RequestTiming(String library, String api, Operation operation, String host,
+            String method, int status, boolean cached, long dnsMillis, long connectMillis,
+            long tlsMillis, long ttfbMillis, long totalMillis, long bodyBytes) {
+        this.library = library;
+        this.api = api;
+        this.operation = operation;
+        this.host = host;
+        this.method = method;
+        this.status = status;
+        this.cached = cached;
+        this.dnsMillis = dnsMillis;
+        this.connectMillis = connectMillis;
+        this.tlsMillis = tlsMillis;
+        this.ttfbMillis = ttfbMillis;
+        this.totalMillis = totalMillis;
+        this.bodyBytes = bodyBytes;
+    }
+
+    public boolean isFailed() {
+        return status < 0;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestTiming{" +
+                "library='" + library + '\'' +
+                ", api='" + api + '\'' +
+                ", operation=" + operation +
+                ", host='" + host + '\'' +
+                ", method='" + method + '\'' +
+                ", status=" + status +
+                ", cached=" + cached +
+                ", dnsMillis=" + dnsMillis +
+                ", connectMillis=" + connectMillis +
+                ", tlsMillis=" + tlsMillis +
+                ", ttfbMillis=" + ttfbMillis +
+                ", totalMillis=" + totalMillis +
+                ", bodyBytes=" + bodyBytes +
+                '}';
+    }
+}
@@ -0,0 +1,291 @@
+package de.geeksfactory.opacclient.networking;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * Limits the number of concurrent requests per host, adapting the limit to what the server can
+ * sustain (additive increase, multiplicative decrease). The limit grows slowly while response
+ * times stay close to the fastest observed response time and is cut back on timeouts, network
+ * errors and 5xx responses. Requests exceeding the limit wait until a slot is free. A slot is
+ * only freed when the response body is closed or read completely, as the server is busy until
+ * then. Calls cancelled by the client, e.g. the slower copy of a hedged request, neither lower
+ * nor raise the limit.
+ * <p>
+ * {@link HttpClientFactory} starts every host at the dispatcher's per-host limit, which is also
+ * the maximum, so the limiter only ever lowers the concurrency a host would otherwise get, and
+ * lets it recover up to that limit.
+ * <p>
+ * Small municipal OPAC servers tend to slow down or fail when we burst requests for
+ * availability or covers against them, so this keeps us from overloading them without
+ * hard-coding a conservative limit for all libraries.
+ */
+public class AdaptiveConcurrencyLimiter implements Interceptor {
+    /**
+     * Responses taking longer than this factor times the fastest observed response do not
+     * increase the limit.
+     */
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double BACKOFF_RATIO = 0.75;
+    /**
+     * The fastest observed response time is forgotten after this number of samples, so that
+     * the limiter adapts if a server becomes permanently slower.
+     */
+    private static final int MIN_LATENCY_WINDOW = 250;
+    /**
+     * How often a waiting request checks whether its call was cancelled or timed out
+     */
+    private static final long WAIT_SLICE_MILLIS = 50;
+    /**
+     * A cancelled call that ran for its call timeout minus this tolerance counts as timed out
+     */
+    private static final long TIMEOUT_TOLERANCE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private volatile int initialLimit;
+    private final int minLimit;
+    private volatile int maxLimit;
+    private final ConcurrentHashMap<String, HostLimit> hosts = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Current state of the limit for one host.
+     */
+    public static class HostStats {
+        public final int limit;
+        public final int inFlight;
+        public final int queued;
+        public final long minLatencyMillis;
+
+        HostStats(int limit, int inFlight, int queued, long minLatencyMillis) {
+            this.limit = limit;
+            this.inFlight = inFlight;
+            this.queued = queued;
+            this.minLatencyMillis = minLatencyMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "HostStats{" +
+                    "limit=" + limit +
+                    ", inFlight=" + inFlight +
+                    ", queued=" + queued +
+                    ", minLatencyMillis=" + minLatencyMillis +
+                    '}';
+        }
+    }
+
+    class HostLimit {
+        double limit = Math.min(initialLimit, maxLimit);
+        int inFlight = 0;
+        int queued = 0;
+        long minLatency = Long.MAX_VALUE;
+        int samples = 0;
+
+        synchronized void acquire(Chain chain) throws InterruptedIOException {
+            queued++;
+            try {
+                // woken up by release(), or after a slice to notice cancelled and timed out calls
+                while (inFlight >= Math.min((int) limit, maxLimit)) {
+                    if (chain.call().isCanceled()) {
+                        throw new InterruptedIOException("Canceled");
+                    }
+                    wait(WAIT_SLICE_MILLIS);
+                }
+                inFlight++;
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException(e.getMessage());
+            } finally {
+                queued--;
+            }
+        }
+
+        /**
+         * Frees the slot of a request and adapts the limit to its outcome.
+         */
+        void release(long latency, boolean dropped) {
+            update(latency, dropped);
+            release();
+        }
+
+        synchronized void release() {
+            inFlight--;
+            notifyAll();
+        }
+
+        /**
+         * Adapts the limit to the outcome of a request.
+         */
+        synchronized void update(long latency, boolean dropped) {
+            if (dropped) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            } else {
+                if (++samples >= MIN_LATENCY_WINDOW) {
+                    samples = 0;
+                    minLatency = latency;
+                } else {
+                    minLatency = Math.min(minLatency, latency);
+                }
+                if (latency <= minLatency * LATENCY_TOLERANCE) {
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+            }
+            // the limit may have grown
+            notifyAll();
+        }
+
+        synchronized HostStats getStats() {
+            return new HostStats((int) limit, inFlight, queued,
+                    minLatency == Long.MAX_VALUE ? -1 : minLatency / 1000000);
+        }
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Sets the limit of hosts without requests so far.
+     */
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    HostLimit getHostLimit(String host) {
+        HostLimit hostLimit = hosts.get(host);
+        if (hostLimit == null) {
+            hostLimit = new HostLimit();
+            HostLimit existing = hosts.putIfAbsent(host, hostLimit);
+            if (existing != null) {
+                hostLimit = existing;
+            }
+        }
+        return hostLimit;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        final HostLimit hostLimit = getHostLimit(chain.request().url().host());
+        long called = System.nanoTime();
+        hostLimit.acquire(chain);
+
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException | RuntimeException e) {
+            if (isCancelledByClient(chain, called)) {
+                hostLimit.release();
+            } else {
+                hostLimit.release(System.nanoTime() - start, true);
+            }
+            throw e;
+        }
+        hostLimit.update(System.nanoTime() - start, response.code() >= 500);
+        if (response.body() == null) {
+            hostLimit.release();
+            return response;
+        }
+        return response.newBuilder()
+                       .body(new ReleasingBody(response.body(), hostLimit::release))
+                       .build();
+    }
+
+    /**
+     * @return whether the call was cancelled, but not by its call timeout, which indicates an
+     * overloaded server
+     */
+    private static boolean isCancelledByClient(Chain chain, long called) {
+        if (!chain.call().isCanceled()) {
+            return false;
+        }
+        long timeout = chain.call().timeout().timeoutNanos();
+        return timeout == 0 || System.nanoTime() - called < timeout - TIMEOUT_TOLERANCE_NANOS;
+    }
+
+    /**
+     * Runs an action once the body was read completely or closed.
+     */
+    private static class ReleasingBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final Runnable onRelease;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private BufferedSource source;
+
+        ReleasingBody(ResponseBody delegate, Runnable onRelease) {
+            this.delegate = delegate;
+            this.onRelease = onRelease;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public synchronized BufferedSource source() {
+            if (source == null) {
+                source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                    @Override
+                    public long read(Buffer sink, long byteCount) throws IOException {
+                        long read = super.read(sink, byteCount);
+                        if (read == -1) {
+                            release();
+                        }
+                        return read;
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            release();
+                        }
+                    }
+                });
+            }
+            return source;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                onRelease.run();
+            }
+        }
+    }
+
+    /**
+     * @return the current limits, in-flight requests and queue depths of all hosts
+     */
+    public Map<String, HostStats> getStats() {
+        Map<String, HostStats> stats = new HashMap<>();
+        for (Map.Entry<String, HostLimit> entry : hosts.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().getStats());
+        }
+        return stats;
+    }
+}
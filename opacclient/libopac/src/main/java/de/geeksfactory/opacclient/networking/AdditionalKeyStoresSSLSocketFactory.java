@@ -44,6 +44,18 @@ public class AdditionalKeyStoresSSLSocketFactory {
             throws NoSuchAlgorithmException, KeyManagementException {
         SSLContext sslContext = SSLContext.getInstance("TLS");
         sslContext.init(null, new TrustManager[]{trustManager}, null);
+        return create(socketFactory, sslContext);
+    }
+
+    /**
+     * Creates a customized socket factory for an already initialized {@link SSLContext}
+     *
+     * @param socketFactory The class that should be used to instantiate a new socket factory, must
+     *                      be a subclass of {@link SSLConnectionSocketFactory}.
+     * @return a new {@link SSLConnectionSocketFactory}
+     */
+    public static SSLConnectionSocketFactory create(Class<?> socketFactory,
+            SSLContext sslContext) {
         if (socketFactory != null) {
             try {
                 return (SSLConnectionSocketFactory) socketFactory
@@ -0,0 +1,94 @@
+package de.geeksfactory.opacclient.networking;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import de.geeksfactory.opacclient.utils.JsonKeyIterator;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+
+/**
+ * Forces responses for URLs matching a pattern to be cached for a given time, regardless of the
+ * caching headers sent by the OPAC. Most OPACs send {@code no-cache} even for semi-static pages
+ * like search forms or cover images.
+ * <p>
+ * Rules can be specified in the library configuration as a {@code cache} object mapping
+ * regular expressions (matched against the full URL) to a TTL in seconds, for example:
+ * <pre>
+ * "cache": {
+ *     ".*&#47;search\\.do\\?methodToCall=init.*": 86400
+ * }
+ * </pre>
+ * Only GET requests without credentials are cached: requests sending an {@code Authorization}
+ * header or cookies are always passed to the server, as their responses may belong to a
+ * session.
+ */
+public class CacheRule {
+    private final Pattern pattern;
+    private final int ttlSeconds;
+
+    public CacheRule(String regex, int ttlSeconds) {
+        this(Pattern.compile(regex), ttlSeconds);
+    }
+
+    public CacheRule(Pattern pattern, int ttlSeconds) {
+        this.pattern = pattern;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public boolean matches(HttpUrl url) {
+        return pattern.matcher(url.toString()).matches();
+    }
+
+    public int getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    /**
+     * @return whether the response to the request may be served from or stored in the cache
+     */
+    public static boolean isCacheable(Request request) {
+        return request.method().equals("GET") && request.header("Authorization") == null
+                && request.header("Cookie") == null;
+    }
+
+    /**
+     * @return the first rule of the list matching the URL, or {@code null}
+     */
+    public static CacheRule find(List<CacheRule> rules, HttpUrl url) {
+        for (CacheRule rule : rules) {
+            if (rule.matches(url)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the rules from the {@code cache} object in a library's configuration data.
+     * A TTL of 0 disables forced caching for matching URLs. Rules with an invalid regular
+     * expression are skipped.
+     */
+    public static List<CacheRule> fromLibraryData(JSONObject data) {
+        List<CacheRule> rules = new ArrayList<>();
+        JSONObject cache = data.optJSONObject("cache");
+        if (cache == null) {
+            return rules;
+        }
+        Iterator<String> keys = new JsonKeyIterator(cache);
+        while (keys.hasNext()) {
+            String regex = keys.next();
+            try {
+                rules.add(new CacheRule(regex, cache.optInt(regex, 0)));
+            } catch (PatternSyntaxException e) {
+                e.printStackTrace();
+            }
+        }
+        return rules;
+    }
+}
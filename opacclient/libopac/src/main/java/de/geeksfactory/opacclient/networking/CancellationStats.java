@@ -0,0 +1,34 @@
+package de.geeksfactory.opacclient.networking;
+
+/**
+ * Snapshot of the counters kept by {@link CancellationToken}.
+ */
+public class CancellationStats {
+    /**
+     * Number of cancelled tokens
+     */
+    public final long operations;
+    /**
+     * Number of blocking HTTP calls aborted because their operation was cancelled
+     */
+    public final long calls;
+    /**
+     * Number of background tasks and asynchronous requests cancelled before they finished
+     */
+    public final long tasks;
+
+    public CancellationStats(long operations, long calls, long tasks) {
+        this.operations = operations;
+        this.calls = calls;
+        this.tasks = tasks;
+    }
+
+    @Override
+    public String toString() {
+        return "CancellationStats{" +
+                "operations=" + operations +
+                ", calls=" + calls +
+                ", tasks=" + tasks +
+                '}';
+    }
+}
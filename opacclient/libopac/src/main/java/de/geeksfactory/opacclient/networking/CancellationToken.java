@@ -0,0 +1,161 @@
+package de.geeksfactory.opacclient.networking;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+
+/**
+ * Cancels an {@link de.geeksfactory.opacclient.apis.OpacApi} operation from another thread, e.g.
+ * when the user leaves a search. Bind it to the operation with {@link
+ * OperationContext#enter(OperationContext.Operation, CancellationToken)}:
+ * <pre>
+ * CancellationToken token = new CancellationToken();
+ * try (OperationContext ctx = OperationContext.enter(Operation.SEARCH, token)) {
+ *     api.search(query);
+ * }
+ * // on another thread
+ * token.cancel();
+ * </pre>
+ * Cancelling aborts the HTTP calls the operation created, cancels its background tasks such as
+ * cover and availability lookups and stops the parsing of search results. The operation then
+ * throws an {@link OperationCancelledException}. Cancellation is cooperative: code between
+ * requests runs until it reaches the next request or check.
+ * <p>
+ * Calls and tasks are unregistered when they complete, so a token living as long as a screen
+ * does not hold on to every request made while it was shown.
+ */
+public class CancellationToken {
+    private static final AtomicLong cancelledOperations = new AtomicLong();
+    private static final AtomicLong cancelledCalls = new AtomicLong();
+    private static final AtomicLong cancelledTasks = new AtomicLong();
+
+    private final Set<Registration> registrations = new LinkedHashSet<>();
+    private volatile boolean cancelled;
+
+    /**
+     * @return the token of the operation active on the current thread, or {@code null}
+     */
+    public static CancellationToken current() {
+        OperationContext ctx = OperationContext.current();
+        return ctx != null ? ctx.getCancellationToken() : null;
+    }
+
+    /**
+     * Throws an {@link OperationCancelledException} if the operation active on the current thread
+     * was cancelled.
+     */
+    public static void throwIfCurrentCancelled() {
+        CancellationToken token = current();
+        if (token != null) {
+            token.throwIfCancelled();
+        }
+    }
+
+    public static CancellationStats getStats() {
+        return new CancellationStats(cancelledOperations.get(), cancelledCalls.get(),
+                cancelledTasks.get());
+    }
+
+    static void callCancelled() {
+        cancelledCalls.incrementAndGet();
+    }
+
+    public void cancel() {
+        List<Registration> pending;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            pending = new ArrayList<>(registrations);
+            registrations.clear();
+        }
+        cancelledOperations.incrementAndGet();
+        for (Registration registration : pending) {
+            registration.callback.run();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new OperationCancelledException();
+        }
+    }
+
+    /**
+     * Runs a callback when the token is cancelled, or right away if it already is.
+     *
+     * @return a registration to remove the callback once it is no longer needed
+     */
+    public Registration onCancel(Runnable callback) {
+        Registration registration = new Registration(this, callback);
+        synchronized (this) {
+            if (!cancelled) {
+                registrations.add(registration);
+                return registration;
+            }
+        }
+        callback.run();
+        return registration;
+    }
+
+    /**
+     * Cancels a future, interrupting its task, when the token is cancelled.
+     *
+     * @return a registration to remove when the future is done
+     */
+    public Registration register(final Future<?> future) {
+        return onCancel(() -> {
+            if (future.cancel(true)) {
+                cancelledTasks.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Cancels a call when the token is cancelled.
+     *
+     * @return a registration to remove when the call completed
+     */
+    public Registration register(final Call call) {
+        return onCancel(call::cancel);
+    }
+
+    /**
+     * @return the number of callbacks waiting for the token to be cancelled
+     */
+    synchronized int getRegisteredCount() {
+        return registrations.size();
+    }
+
+    /**
+     * A callback registered with {@link #onCancel(Runnable)}.
+     */
+    public static final class Registration {
+        private final CancellationToken token;
+        private final Runnable callback;
+
+        Registration(CancellationToken token, Runnable callback) {
+            this.token = token;
+            this.callback = callback;
+        }
+
+        /**
+         * Removes the callback from the token. Does nothing if it already ran.
+         */
+        public void unregister() {
+            synchronized (token) {
+                token.registrations.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package de.geeksfactory.opacclient.networking;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+import okio.Okio;
+
+/**
+ * {@link SessionStore} keeping one JSON file per session in a directory, so that sessions survive
+ * a restart of the process. Sessions are also kept in memory, the files are only read once. The
+ * secret the credentials are hashed with is kept in the file {@code secret} in the same directory,
+ * which therefore needs to be private to the application.
+ */
+public class FileSessionStore extends InMemorySessionStore {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int SECRET_LENGTH = 32;
+
+    private final File directory;
+    private byte[] secret;
+
+    public FileSessionStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the secret stored in the directory, which is created on first use. If it can't be
+     * stored, the sessions can only be continued until the process ends.
+     */
+    @Override
+    protected synchronized byte[] getSecret() {
+        if (secret != null) {
+            return secret;
+        }
+        File file = new File(directory, "secret");
+        InputStream in = null;
+        OutputStream out = null;
+        try {
+            if (file.length() == SECRET_LENGTH) {
+                in = new FileInputStream(file);
+                secret = Okio.buffer(Okio.source(in)).readByteArray();
+            } else {
+                secret = Session.newSecret();
+                directory.mkdirs();
+                out = new FileOutputStream(file);
+                out.write(secret);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            secret = super.getSecret();
+        } finally {
+            closeQuietly(in);
+            closeQuietly(out);
+        }
+        return secret;
+    }
+
+    private File file(String library, long account, String credentials) {
+        return new File(directory, library.replaceAll("[^A-Za-z0-9_-]", "_") + "_" + account +
+                "_" + credentials.replaceAll("[^A-Za-z0-9]", "") + ".json");
+    }
+
+    @Override
+    public synchronized Session load(String library, long account, String credentials) {
+        Session session = super.load(library, account, credentials);
+        if (session != null) {
+            return session;
+        }
+        File file = file(library, account, credentials);
+        if (!file.exists()) {
+            return null;
+        }
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            session = Session.fromJSON(
+                    new JSONObject(Okio.buffer(Okio.source(in)).readString(UTF_8)));
+            super.save(session);
+            return session;
+        } catch (IOException | JSONException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    @Override
+    public synchronized void save(Session session) {
+        super.save(session);
+        directory.mkdirs();
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(file(session.getLibrary(), session.getAccount(),
+                    session.getCredentials()));
+            out.write(session.toJSON().toString().getBytes(UTF_8));
+        } catch (IOException | JSONException e) {
+            e.printStackTrace();
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    @Override
+    public synchronized void remove(String library, long account, String credentials) {
+        super.remove(library, account, credentials);
+        file(library, account, credentials).delete();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
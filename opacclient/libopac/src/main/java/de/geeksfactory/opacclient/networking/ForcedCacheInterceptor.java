@@ -0,0 +1,44 @@
+package de.geeksfactory.opacclient.networking;
+
+import java.io.IOException;
+import java.util.List;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Network interceptor rewriting the caching headers of responses matched by a {@link CacheRule},
+ * so that OkHttp's disk cache stores them. Validators ({@code ETag}, {@code Last-Modified}) are
+ * kept, so expired entries are revalidated with a conditional request.
+ * <p>
+ * Responses setting cookies and responses to requests sending credentials are never forced into
+ * the cache, as they are likely part of a session.
+ */
+public class ForcedCacheInterceptor implements Interceptor {
+    private final List<CacheRule> rules;
+
+    public ForcedCacheInterceptor(List<CacheRule> rules) {
+        this.rules = rules;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+
+        if (!CacheRule.isCacheable(request) || response.code() != 200
+                || response.header("Set-Cookie") != null) {
+            return response;
+        }
+        CacheRule rule = CacheRule.find(rules, request.url());
+        if (rule == null || rule.getTtlSeconds() <= 0) {
+            return response;
+        }
+        return response.newBuilder()
+                       .removeHeader("Pragma")
+                       .removeHeader("Expires")
+                       .header("Cache-Control", "max-age=" + rule.getTtlSeconds())
+                       .build();
+    }
+}
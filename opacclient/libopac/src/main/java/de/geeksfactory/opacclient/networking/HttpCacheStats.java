@@ -0,0 +1,39 @@
+package de.geeksfactory.opacclient.networking;
+
+/**
+ * Snapshot of the hit and miss counters of the HTTP caches configured in {@link
+ * HttpClientFactory}.
+ */
+public class HttpCacheStats {
+    public final long memoryHits;
+    public final long memoryMisses;
+    public final long memorySize;
+    public final long diskRequests;
+    public final long diskHits;
+    public final long networkRequests;
+    public final long diskSize;
+
+    public HttpCacheStats(long memoryHits, long memoryMisses, long memorySize,
+            long diskRequests, long diskHits, long networkRequests, long diskSize) {
+        this.memoryHits = memoryHits;
+        this.memoryMisses = memoryMisses;
+        this.memorySize = memorySize;
+        this.diskRequests = diskRequests;
+        this.diskHits = diskHits;
+        this.networkRequests = networkRequests;
+        this.diskSize = diskSize;
+    }
+
+    @Override
+    public String toString() {
+        return "HttpCacheStats{" +
+                "memoryHits=" + memoryHits +
+                ", memoryMisses=" + memoryMisses +
+                ", memorySize=" + memorySize +
+                ", diskRequests=" + diskRequests +
+                ", diskHits=" + diskHits +
+                ", networkRequests=" + networkRequests +
+                ", diskSize=" + diskSize +
+                '}';
+    }
+}
@@ -31,6 +31,7 @@ import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.Args;
 import org.apache.http.util.Asserts;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -39,23 +40,24 @@ import java.net.CookieManager;
 import java.net.CookiePolicy;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.TimeUnit;
 
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocketFactory;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.TrustManagerFactory;
-import javax.net.ssl.X509TrustManager;
-
+import de.geeksfactory.opacclient.metrics.MetricsSink;
+import okhttp3.Cache;
 import okhttp3.CipherSuite;
+import okhttp3.ConnectionPool;
 import okhttp3.ConnectionSpec;
+import okhttp3.CookieJar;
+import okhttp3.Dispatcher;
 import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.JavaNetCookieJar;
@@ -66,12 +68,45 @@ import okhttp3.TlsVersion;
 
 /**
  * Utility to create a new HTTP client.
+ *
+ * All OkHttp clients handed out by this class are derived from one process-wide root client,
+ * so they share a single connection pool and dispatcher. This way, keep-alive connections and
+ * TLS sessions to the same OPAC host can be reused across {@link de.geeksfactory.opacclient.apis.OpacApi}
+ * instances. The pool can be tuned with {@link #configureSharedPool(int, long, TimeUnit, int, int)}.
  */
 public class HttpClientFactory {
 
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 16;
+    public static final long DEFAULT_KEEP_ALIVE_SECONDS = 5 * 60;
+    public static final int DEFAULT_MAX_REQUESTS = 64;
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 10;
+
+    private static final Object rootClientLock = new Object();
+    private static OkHttpClient rootClient;
+    private static int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+    private static long keepAliveSeconds = DEFAULT_KEEP_ALIVE_SECONDS;
+    private static int maxRequests = DEFAULT_MAX_REQUESTS;
+    private static int maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+
+    private static final AdaptiveConcurrencyLimiter concurrencyLimiter =
+            new AdaptiveConcurrencyLimiter(DEFAULT_MAX_REQUESTS_PER_HOST, 1,
+                    DEFAULT_MAX_REQUESTS_PER_HOST);
+
+    private static Cache diskCache;
+    private static MemoryResponseCache memoryCache;
+    private static volatile MetricsSink metricsSink;
+    private static volatile TlsSpecMemory tlsSpecMemory = new TlsSpecMemory(null);
+    /**
+     * Clients derived by {@link #withRememberedTlsSpec(OkHttpClient, HttpUrl)}, by the client
+     * they were derived from and the spec tried first.
+     */
+    private static final Map<OkHttpClient, Map<ConnectionSpec, OkHttpClient>> tlsSpecClients =
+            new WeakHashMap<>();
+    private static volatile SessionStore sessionStore = new InMemorySessionStore();
+    private static final RequestCoalescer requestCoalescer = new RequestCoalescer();
+
     public String user_agent;
     public String ssl_store_path = "ssl_trust_store.bks";
-    private KeyStore trust_store;
 
     /**
      * Initialize a new client factory.
@@ -93,6 +128,275 @@ public class HttpClientFactory {
         this.ssl_store_path = ssl_store_path;
     }
 
+    /**
+     * Configures the connection pool and dispatcher shared by all OkHttp clients. Dispatcher
+     * limits are applied immediately, a changed pool size or keep-alive duration takes effect for
+     * clients created after this call.
+     *
+     * @param maxIdleConnections maximum number of idle connections kept in the global pool
+     * @param keepAlive          time after which idle connections are evicted
+     * @param unit               unit of {@code keepAlive}
+     * @param maxRequests        maximum number of concurrent asynchronous requests
+     * @param maxRequestsPerHost maximum number of concurrent asynchronous requests per host, also
+     *                           the initial limit and upper bound for the {@link
+     *                           AdaptiveConcurrencyLimiter}
+     */
+    public static void configureSharedPool(int maxIdleConnections, long keepAlive, TimeUnit unit,
+            int maxRequests, int maxRequestsPerHost) {
+        synchronized (rootClientLock) {
+            long keepAliveSeconds = unit.toSeconds(keepAlive);
+            if (rootClient != null && (maxIdleConnections != HttpClientFactory.maxIdleConnections
+                    || keepAliveSeconds != HttpClientFactory.keepAliveSeconds)) {
+                rootClient.connectionPool().evictAll();
+                rootClient = null;
+            }
+            HttpClientFactory.maxIdleConnections = maxIdleConnections;
+            HttpClientFactory.keepAliveSeconds = keepAliveSeconds;
+            HttpClientFactory.maxRequests = maxRequests;
+            HttpClientFactory.maxRequestsPerHost = maxRequestsPerHost;
+            concurrencyLimiter.setMaxLimit(maxRequestsPerHost);
+            concurrencyLimiter.setInitialLimit(maxRequestsPerHost);
+            if (rootClient != null) {
+                rootClient.dispatcher().setMaxRequests(maxRequests);
+                rootClient.dispatcher().setMaxRequestsPerHost(maxRequestsPerHost);
+            }
+        }
+    }
+
+    /**
+     * @return the process-wide root client all other OkHttp clients are derived from. It should
+     * not be used for requests directly, as it has neither cookies nor custom SSL settings.
+     */
+    public static OkHttpClient getSharedOkHttpClient() {
+        synchronized (rootClientLock) {
+            if (rootClient == null) {
+                Dispatcher dispatcher = new Dispatcher();
+                dispatcher.setMaxRequests(maxRequests);
+                dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+                rootClient = new OkHttpClient.Builder()
+                        .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds,
+                                TimeUnit.SECONDS))
+                        .dispatcher(dispatcher)
+                        .addInterceptor(concurrencyLimiter)
+                        .eventListenerFactory(new TimingEventListener.Factory(null, null))
+                        .build();
+            }
+            return rootClient;
+        }
+    }
+
+    /**
+     * @return the limiter adapting the number of concurrent requests to each host, e.g. to read
+     * its current limits and queue depths.
+     */
+    public static AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Closes all idle connections in the shared pool, e.g. when the app is sent to the
+     * background.
+     */
+    public static void evictIdleConnections() {
+        synchronized (rootClientLock) {
+            if (rootClient != null) {
+                rootClient.connectionPool().evictAll();
+            }
+        }
+    }
+
+    /**
+     * Enables the HTTP response cache for all OkHttp clients created afterwards. The disk tier is
+     * a regular OkHttp {@link Cache} honouring the caching headers sent by the servers, the memory
+     * tier only holds responses matched by a {@link CacheRule}.
+     *
+     * @param directory      directory for the disk cache, or {@code null} to disable it
+     * @param maxDiskSize    maximum size of the disk cache in bytes
+     * @param maxMemorySize  maximum size of the memory cache in bytes, 0 to disable it
+     */
+    public static synchronized void configureCache(File directory, long maxDiskSize,
+            long maxMemorySize) {
+        if (diskCache == null || !diskCache.directory().equals(directory)
+                || diskCache.maxSize() != maxDiskSize) {
+            if (diskCache != null) {
+                try {
+                    diskCache.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            diskCache = directory != null ? new Cache(directory, maxDiskSize) : null;
+        }
+        if (memoryCache != null) {
+            memoryCache.evictAll();
+        }
+        memoryCache = maxMemorySize > 0 ? new MemoryResponseCache(maxMemorySize) : null;
+    }
+
+    public static synchronized Cache getDiskCache() {
+        return diskCache;
+    }
+
+    /**
+     * @return current hit and miss counters of the configured caches
+     */
+    public static synchronized HttpCacheStats getCacheStats() {
+        return new HttpCacheStats(
+                memoryCache != null ? memoryCache.hitCount() : 0,
+                memoryCache != null ? memoryCache.missCount() : 0,
+                memoryCache != null ? memoryCache.size() : 0,
+                diskCache != null ? diskCache.requestCount() : 0,
+                diskCache != null ? diskCache.hitCount() : 0,
+                diskCache != null ? diskCache.networkCount() : 0,
+                diskCache != null ? getDiskCacheSize() : 0);
+    }
+
+    private static long getDiskCacheSize() {
+        try {
+            return diskCache.size();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Sets the file in which the TLS versions and cipher suites negotiated with the servers of
+     * {@code customssl} libraries are remembered across restarts.
+     */
+    public static void configureTlsSpecMemory(File file) {
+        TlsSpecMemory previous = tlsSpecMemory;
+        tlsSpecMemory = new TlsSpecMemory(file);
+        previous.flush();
+    }
+
+    /**
+     * Derives a client which tries the connection spec known to work with the host of the given
+     * URL first. This only makes a difference for {@code customssl} clients, which have a list
+     * of fallback specs for legacy servers.
+     */
+    public OkHttpClient withRememberedTlsSpec(OkHttpClient client, String url) {
+        HttpUrl httpUrl = url != null ? HttpUrl.parse(url) : null;
+        return httpUrl != null ? withRememberedTlsSpec(client, httpUrl) : client;
+    }
+
+    /**
+     * Like {@link #withRememberedTlsSpec(OkHttpClient, String)}, but cheap enough to be called
+     * for every request, so that each host a library talks to gets its own remembered spec.
+     * Derived clients are reused as long as the client they were derived from is.
+     */
+    public OkHttpClient withRememberedTlsSpec(OkHttpClient client, HttpUrl url) {
+        List<ConnectionSpec> specs =
+                tlsSpecMemory.prioritize(url.host(), client.connectionSpecs());
+        if (specs == client.connectionSpecs()) {
+            return client;
+        }
+        synchronized (tlsSpecClients) {
+            Map<ConnectionSpec, OkHttpClient> derived = tlsSpecClients.get(client);
+            if (derived == null) {
+                derived = new HashMap<>();
+                tlsSpecClients.put(client, derived);
+            }
+            OkHttpClient result = derived.get(specs.get(0));
+            if (result == null) {
+                result = client.newBuilder().connectionSpecs(specs).build();
+                derived.put(specs.get(0), result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Sets the cookie jar of a client builder. Always use this instead of {@link
+     * OkHttpClient.Builder#cookieJar(CookieJar)}, as identical concurrent requests are only
+     * coalesced if they would send the same cookies.
+     */
+    public static OkHttpClient.Builder withCookieJar(OkHttpClient.Builder builder,
+            CookieJar cookieJar) {
+        MemoryResponseCache.withCookieJar(builder.interceptors(), cookieJar);
+        return requestCoalescer.withCookieJar(builder, cookieJar);
+    }
+
+    /**
+     * Creates a copy of a client with an empty cookie jar, so that it starts a new session with
+     * the server. The copy shares the connection pool, dispatcher, cache and interceptors of the
+     * client.
+     */
+    public static OkHttpClient withNewSession(OkHttpClient client) {
+        return withCookieJar(client.newBuilder(), newCookieJar()).build();
+    }
+
+    private static CookieJar newCookieJar() {
+        CookieManager cookieManager = new CookieManager();
+        cookieManager.setCookiePolicy(CookiePolicy.ACCEPT_ALL);
+        return new JavaNetCookieJar(cookieManager);
+    }
+
+    /**
+     * @return the coalescer sharing responses between identical concurrent requests, e.g. to
+     * read how many requests it saved
+     */
+    public static RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * Sets the store used by the API implementations to continue logged-in sessions across
+     * instances. By default, sessions are only kept in memory.
+     */
+    public static void setSessionStore(SessionStore store) {
+        sessionStore = store;
+    }
+
+    public static SessionStore getSessionStore() {
+        return sessionStore;
+    }
+
+    /**
+     * Sets the sink receiving the timing of every request made by the OkHttp clients, or {@code
+     * null} to disable timing.
+     */
+    public static void setMetricsSink(MetricsSink sink) {
+        metricsSink = sink;
+    }
+
+    public static MetricsSink getMetricsSink() {
+        return metricsSink;
+    }
+
+    /**
+     * Derives a client whose request timings are tagged with the given library and API
+     * implementation.
+     */
+    public OkHttpClient withMetricsTags(OkHttpClient client, String library, String api) {
+        return client.newBuilder()
+                .eventListenerFactory(new TimingEventListener.Factory(library, api))
+                .build();
+    }
+
+    /**
+     * Derives a client that caches responses matched by the given rules for the rule's TTL,
+     * even if the server forbids caching.
+     */
+    public OkHttpClient withCacheRules(OkHttpClient client, List<CacheRule> rules) {
+        if (rules.isEmpty()) {
+            return client;
+        }
+        OkHttpClient.Builder builder = client.newBuilder();
+        synchronized (HttpClientFactory.class) {
+            if (memoryCache != null) {
+                builder.addInterceptor(memoryCache.interceptor(rules, client.cookieJar()));
+            }
+        }
+        if (client.cache() != null) {
+            builder.addNetworkInterceptor(new ForcedCacheInterceptor(rules));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Loads the additional trust store. The result is cached process-wide per factory class and
+     * store path, so this is only called once.
+     */
     protected KeyStore getKeyStore()
             throws KeyStoreException, IOException, CertificateException, NoSuchAlgorithmException {
         final KeyStore trustStore = KeyStore.getInstance("BKS");
@@ -106,6 +410,17 @@ public class HttpClientFactory {
         return trustStore;
     }
 
+    /**
+     * Configures a client builder to use the cached TLS socket factory and trust manager, e.g.
+     * for clients not created by this factory that need to trust the additional key store.
+     */
+    public OkHttpClient.Builder withSslConfig(OkHttpClient.Builder builder, boolean customssl,
+            boolean tls_only, boolean allCipherSuites) throws Exception {
+        TlsConfigCache.SslConfig sslConfig = TlsConfigCache.getSslConfig(this,
+                customssl && ssl_store_path != null, tls_only, allCipherSuites);
+        return builder.sslSocketFactory(sslConfig.socketFactory, sslConfig.trustManager);
+    }
+
     protected Class<?> getSocketFactoryClass(boolean tls_only, boolean allCipherSuites) {
         return null;
     }
@@ -131,15 +446,10 @@ public class HttpClientFactory {
 
         if (customssl && ssl_store_path != null) {
             try {
-                if (trust_store == null) {
-                    trust_store = getKeyStore();
-                }
                 SSLConnectionSocketFactory sf =
                         AdditionalKeyStoresSSLSocketFactory.create(
                                 getSocketFactoryClass(tls_only, allCipherSuites),
-                                new AdditionalKeyStoresSSLSocketFactory
-                                        .AdditionalKeyStoresTrustManager(
-                                        trust_store)
+                                TlsConfigCache.getSslContext(this, true)
                         );
 
                 Registry<ConnectionSocketFactory> registry =
@@ -194,36 +504,22 @@ public class HttpClientFactory {
             boolean ellipticCurvesWorkaround,
             int timeout
     ) {
-        OkHttpClient.Builder builder = new OkHttpClient.Builder();
+        OkHttpClient.Builder builder = getSharedOkHttpClient().newBuilder();
 
-        CookieManager cookieManager = new CookieManager();
-        cookieManager.setCookiePolicy(CookiePolicy.ACCEPT_ALL);
-        builder.cookieJar(new JavaNetCookieJar(cookieManager));
+        withCookieJar(builder, newCookieJar());
 
         builder.addNetworkInterceptor(new CustomRedirectInterceptor());
+        Cache cache = getDiskCache();
+        if (cache != null) {
+            builder.cache(cache);
+        }
         builder.connectTimeout(timeout, TimeUnit.SECONDS);
         builder.readTimeout(timeout, TimeUnit.SECONDS);
         builder.writeTimeout(timeout, TimeUnit.SECONDS);
 
         if (customssl && ssl_store_path != null) {
             try {
-                if (trust_store == null) {
-                    trust_store = getKeyStore();
-                }
-                X509TrustManager trustManager =
-                        new AdditionalKeyStoresSSLSocketFactory.AdditionalKeyStoresTrustManager(
-                                trust_store);
-
-                SSLSocketFactory sf = AdditionalKeyStoresSSLSocketFactory.createForOkHttp(
-                        trustManager
-                );
-
-                if (allCipherSuites) {
-                    sf = new AllCiphersProxySocketFactory(sf);
-                }
-                sf = new TLS12ProxySocketFactory(sf);
-
-                builder.sslSocketFactory(sf, trustManager);
+                withSslConfig(builder, true, tls_only, allCipherSuites);
 
                 List<ConnectionSpec> connectionSpecs = new ArrayList<ConnectionSpec>();
 
@@ -254,6 +550,7 @@ public class HttpClientFactory {
 
                 connectionSpecs.add(ConnectionSpec.CLEARTEXT);
                 builder.connectionSpecs(connectionSpecs);
+                builder.addNetworkInterceptor(tlsSpecMemory.interceptor());
 
                 return builder;
             } catch (Exception e) {
@@ -262,35 +559,14 @@ public class HttpClientFactory {
             }
         } else {
             try {
-                X509TrustManager trustManager = getSystemDefaultTrustManager();
-                SSLSocketFactory socketFactory = getSystemDefaultSSLSocketFactory(trustManager);
-
-                builder.sslSocketFactory(new TLS12ProxySocketFactory(socketFactory), trustManager);
-            } catch (NoSuchAlgorithmException | KeyStoreException | KeyManagementException
-                    ignored) {
+                withSslConfig(builder, false, tls_only, false);
+            } catch (Exception ignored) {
 
             }
             return builder;
         }
     }
 
-    private SSLSocketFactory getSystemDefaultSSLSocketFactory(X509TrustManager trustManager)
-            throws NoSuchAlgorithmException, KeyManagementException {
-        SSLContext sslContext = SSLContext.getInstance("TLS");
-        sslContext.init(null, new TrustManager[]{trustManager}, null);
-        return sslContext.getSocketFactory();
-    }
-
-    private X509TrustManager getSystemDefaultTrustManager()
-            throws NoSuchAlgorithmException, KeyStoreException {
-        TrustManagerFactory tmf;
-        tmf = TrustManagerFactory
-                .getInstance(TrustManagerFactory.getDefaultAlgorithm());
-        tmf.init((KeyStore) null);
-        return AdditionalKeyStoresSSLSocketFactory.AdditionalKeyStoresTrustManager
-                .findX509TrustManager(tmf);
-    }
-
     public static class CustomRedirectInterceptor implements Interceptor {
 
         @Override
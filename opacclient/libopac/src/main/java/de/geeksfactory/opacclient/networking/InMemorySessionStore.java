@@ -0,0 +1,43 @@
+package de.geeksfactory.opacclient.networking;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link SessionStore} keeping the sessions for the lifetime of the process.
+ */
+public class InMemorySessionStore implements SessionStore {
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final byte[] secret = Session.newSecret();
+
+    private static String key(String library, long account, String credentials) {
+        return library + ":" + account + ":" + credentials;
+    }
+
+    /**
+     * @return the key for {@link #hashCredentials(String, String, String)}
+     */
+    protected byte[] getSecret() {
+        return secret;
+    }
+
+    @Override
+    public String hashCredentials(String library, String username, String password) {
+        return Session.hashCredentials(getSecret(), library, username, password);
+    }
+
+    @Override
+    public Session load(String library, long account, String credentials) {
+        return sessions.get(key(library, account, credentials));
+    }
+
+    @Override
+    public void save(Session session) {
+        sessions.put(key(session.getLibrary(), session.getAccount(), session.getCredentials()),
+                session);
+    }
+
+    @Override
+    public void remove(String library, long account, String credentials) {
+        sessions.remove(key(library, account, credentials));
+    }
+}
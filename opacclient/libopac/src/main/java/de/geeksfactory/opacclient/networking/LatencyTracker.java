@@ -0,0 +1,58 @@
+package de.geeksfactory.opacclient.networking;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the most recent response times per host to estimate percentiles, which are used to
+ * decide when a request is slow enough to be hedged.
+ */
+public class LatencyTracker {
+    private static final int WINDOW = 128;
+    private static final int MIN_SAMPLES = 20;
+
+    private final ConcurrentHashMap<String, Window> hosts = new ConcurrentHashMap<>();
+
+    private static class Window {
+        final long[] samples = new long[WINDOW];
+        int count = 0;
+        int next = 0;
+
+        synchronized void add(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+        }
+
+        synchronized long percentile(double p) {
+            if (count < MIN_SAMPLES) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[Math.min(count - 1, (int) Math.ceil(p * count) - 1)];
+        }
+    }
+
+    public void record(String host, long millis) {
+        Window window = hosts.get(host);
+        if (window == null) {
+            window = new Window();
+            Window existing = hosts.putIfAbsent(host, window);
+            if (existing != null) {
+                window = existing;
+            }
+        }
+        window.add(millis);
+    }
+
+    /**
+     * @param p percentile between 0 and 1
+     * @return the percentile of the recent response times of this host in milliseconds, or -1
+     * if there are not enough samples yet
+     */
+    public long getPercentile(String host, double p) {
+        Window window = hosts.get(host);
+        return window != null ? window.percentile(p) : -1;
+    }
+}
@@ -0,0 +1,65 @@
+package de.geeksfactory.opacclient.networking;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import okhttp3.Cookie;
+import okhttp3.CookieJar;
+import okhttp3.HttpUrl;
+
+/**
+ * A simple in-memory {@link CookieJar}. It can be passed to the request methods of {@link
+ * de.geeksfactory.opacclient.apis.OkHttpBaseApi} to use a separate set of cookies for some
+ * requests, like a {@code CookieStore} in a local Apache HttpClient context.
+ */
+public class MemoryCookieJar implements CookieJar {
+    private final List<Cookie> cookies = new ArrayList<>();
+
+    @Override
+    public synchronized void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
+        for (Cookie cookie : cookies) {
+            addCookie(cookie);
+        }
+    }
+
+    @Override
+    public synchronized List<Cookie> loadForRequest(HttpUrl url) {
+        List<Cookie> result = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        Iterator<Cookie> iterator = cookies.iterator();
+        while (iterator.hasNext()) {
+            Cookie cookie = iterator.next();
+            if (cookie.expiresAt() < now) {
+                iterator.remove();
+            } else if (cookie.matches(url)) {
+                result.add(cookie);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds a cookie, replacing any existing cookie with the same name, domain and path.
+     */
+    public synchronized void addCookie(Cookie cookie) {
+        Iterator<Cookie> iterator = cookies.iterator();
+        while (iterator.hasNext()) {
+            Cookie existing = iterator.next();
+            if (existing.name().equals(cookie.name())
+                    && existing.domain().equals(cookie.domain())
+                    && existing.path().equals(cookie.path())) {
+                iterator.remove();
+            }
+        }
+        cookies.add(cookie);
+    }
+
+    public synchronized List<Cookie> getCookies() {
+        return new ArrayList<>(cookies);
+    }
+
+    public synchronized void clear() {
+        cookies.clear();
+    }
+}
@@ -0,0 +1,197 @@
+package de.geeksfactory.opacclient.networking;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.CookieJar;
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * Small in-memory tier in front of the disk cache, holding the bodies of responses matched by a
+ * {@link CacheRule} until their TTL expires. The total size of all bodies is bounded, least
+ * recently used entries are evicted first.
+ * <p>
+ * As entries are shared by all sessions, requests for which the client's cookie jar holds
+ * cookies are not served from this cache.
+ */
+public class MemoryResponseCache {
+    private final long maxSize;
+    private final long maxEntrySize;
+    private long size;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * @param maxSize maximum number of bytes of all response bodies kept in memory
+     */
+    public MemoryResponseCache(long maxSize) {
+        this.maxSize = maxSize;
+        this.maxEntrySize = maxSize / 8;
+    }
+
+    private static class Entry {
+        final int code;
+        final String message;
+        final Headers headers;
+        final MediaType contentType;
+        final byte[] body;
+        final long expiresAt;
+
+        Entry(Response response, byte[] body, long expiresAt) {
+            this.code = response.code();
+            this.message = response.message();
+            this.headers = response.headers();
+            this.contentType = response.body().contentType();
+            this.body = body;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    synchronized Response get(Request request) {
+        String key = request.url().toString();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            remove(key);
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(entry.code)
+                .message(entry.message)
+                .headers(entry.headers)
+                .body(ResponseBody.create(entry.body, entry.contentType))
+                .sentRequestAtMillis(now)
+                .receivedResponseAtMillis(now)
+                .build();
+    }
+
+    synchronized void put(Request request, Response response, byte[] body, int ttlSeconds) {
+        if (body.length > maxEntrySize) {
+            return;
+        }
+        String key = request.url().toString();
+        remove(key);
+        entries.put(key, new Entry(response, body,
+                System.currentTimeMillis() + ttlSeconds * 1000L));
+        size += body.length;
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= iterator.next().getValue().body.length;
+            iterator.remove();
+        }
+    }
+
+    private void remove(String key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            size -= old.body.length;
+        }
+    }
+
+    public synchronized void evictAll() {
+        entries.clear();
+        size = 0;
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    public long hitCount() {
+        return hitCount.get();
+    }
+
+    public long missCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Creates an application interceptor serving GET requests matched by one of the rules from
+     * this cache.
+     *
+     * @param cookieJar the cookie jar of the client, requests it has cookies for bypass the cache
+     */
+    public Interceptor interceptor(List<CacheRule> rules, CookieJar cookieJar) {
+        return new CacheInterceptor(rules, cookieJar);
+    }
+
+    /**
+     * Binds the cache interceptors of a client builder to a new cookie jar.
+     */
+    static void withCookieJar(List<Interceptor> interceptors, CookieJar cookieJar) {
+        for (int i = 0; i < interceptors.size(); i++) {
+            Interceptor interceptor = interceptors.get(i);
+            if (interceptor instanceof CacheInterceptor) {
+                interceptors.set(i, ((CacheInterceptor) interceptor).withCookieJar(cookieJar));
+            }
+        }
+    }
+
+    private class CacheInterceptor implements Interceptor {
+        private final List<CacheRule> rules;
+        private final CookieJar cookieJar;
+
+        CacheInterceptor(List<CacheRule> rules, CookieJar cookieJar) {
+            this.rules = rules;
+            this.cookieJar = cookieJar;
+        }
+
+        CacheInterceptor withCookieJar(CookieJar cookieJar) {
+            return new CacheInterceptor(rules, cookieJar);
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            CacheRule rule = CacheRule.find(rules, request.url());
+            if (rule == null || rule.getTtlSeconds() <= 0 || !CacheRule.isCacheable(request)
+                    || !cookieJar.loadForRequest(request.url()).isEmpty()) {
+                return chain.proceed(request);
+            }
+
+            Response cached = get(request);
+            if (cached != null) {
+                hitCount.incrementAndGet();
+                return cached;
+            }
+            missCount.incrementAndGet();
+
+            Response response = chain.proceed(request);
+            if (response.code() != 200 || response.header("Set-Cookie") != null
+                    || response.body() == null
+                    || response.body().contentLength() > maxEntrySize) {
+                return response;
+            }
+            // the length of chunked bodies is unknown, so read at most one byte more than fits
+            BufferedSource source = response.body().source();
+            if (source.request(maxEntrySize + 1)) {
+                // too large, the bytes read so far stay buffered for the caller
+                return response;
+            }
+            byte[] body = source.readByteArray();
+            response.close();
+            put(request, response, body, rule.getTtlSeconds());
+            return response.newBuilder()
+                           .body(ResponseBody.create(body, response.body().contentType()))
+                           .build();
+        }
+    }
+}
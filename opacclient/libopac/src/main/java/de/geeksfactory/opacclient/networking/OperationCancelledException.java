@@ -0,0 +1,16 @@
+package de.geeksfactory.opacclient.networking;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Thrown by an operation whose {@link CancellationToken} was cancelled. It is unchecked, so that
+ * it passes through the {@link de.geeksfactory.opacclient.apis.OpacApi} methods unchanged, and
+ * extends {@link CancellationException} like the exception of a cancelled future.
+ */
+public class OperationCancelledException extends CancellationException {
+    private static final long serialVersionUID = 4126315427846185421L;
+
+    public OperationCancelledException() {
+        super("Operation was cancelled");
+    }
+}
@@ -0,0 +1,118 @@
+package de.geeksfactory.opacclient.networking;
+
+import java.io.Closeable;
+
+/**
+ * Describes the logical {@link de.geeksfactory.opacclient.apis.OpacApi} operation the current
+ * thread is working on. HTTP requests made while an operation is active share its time budget,
+ * which is taken from the library's {@link RetryPolicy}.
+ * <p>
+ * Usage:
+ * <pre>
+ * try (OperationContext ctx = OperationContext.enter(OperationContext.Operation.SEARCH)) {
+ *     api.search(query);
+ * }
+ * </pre>
+ * Requests made outside of an operation are attributed to {@link Operation#OTHER}. An operation
+ * can be bound to a {@link CancellationToken}, which nested operations and the background tasks
+ * it starts (see {@link #join(OperationContext)}) share.
+ */
+public class OperationContext implements Closeable {
+    public enum Operation {
+        SEARCH, SEARCH_GET_PAGE, GET_RESULT, ACCOUNT, PROLONG, OTHER
+    }
+
+    private static final ThreadLocal<OperationContext> current = new ThreadLocal<>();
+
+    private final Operation operation;
+    private final OperationContext previous;
+    private final long startNanos;
+    private final CancellationToken cancellationToken;
+
+    private OperationContext(Operation operation, OperationContext previous, long startNanos,
+            CancellationToken cancellationToken) {
+        this.operation = operation;
+        this.previous = previous;
+        this.startNanos = startNanos;
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * Starts a new operation on the current thread. It needs to be closed when the operation is
+     * finished, which restores the previously active operation (if any).
+     */
+    public static OperationContext enter(Operation operation) {
+        return enter(operation, null);
+    }
+
+    /**
+     * Starts a new operation on the current thread that is cancelled with the given token. If the
+     * token is {@code null}, the token of the previously active operation (if any) is used.
+     */
+    public static OperationContext enter(Operation operation,
+            CancellationToken cancellationToken) {
+        OperationContext previous = current.get();
+        if (cancellationToken == null && previous != null) {
+            cancellationToken = previous.cancellationToken;
+        }
+        OperationContext ctx = new OperationContext(operation, previous, System.nanoTime(),
+                cancellationToken);
+        current.set(ctx);
+        return ctx;
+    }
+
+    /**
+     * Continues an operation started on another thread, e.g. in a background task. The current
+     * thread shares its time budget and cancellation token until the returned context is closed.
+     */
+    public static OperationContext join(OperationContext other) {
+        OperationContext ctx = new OperationContext(other.operation, current.get(),
+                other.startNanos, other.cancellationToken);
+        current.set(ctx);
+        return ctx;
+    }
+
+    /**
+     * @return the operation active on the current thread, or {@code null}
+     */
+    public static OperationContext current() {
+        return current.get();
+    }
+
+    /**
+     * @return the operation active on the current thread, or {@link Operation#OTHER}
+     */
+    public static Operation currentOperation() {
+        OperationContext ctx = current.get();
+        return ctx != null ? ctx.operation : Operation.OTHER;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the token cancelling this operation, or {@code null}
+     */
+    public CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
+    /**
+     * @return milliseconds since the operation was started
+     */
+    public long getElapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1000000;
+    }
+
+    @Override
+    public void close() {
+        if (current.get() == this) {
+            if (previous != null) {
+                current.set(previous);
+            } else {
+                current.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package de.geeksfactory.opacclient.networking;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Cookie;
+import okhttp3.CookieJar;
+import okhttp3.Handshake;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * Lets identical requests that are in flight at the same time share one response. The first
+ * request is sent to the server. If other requests arrived while it was running, its body is
+ * buffered once and handed to all of them. Otherwise, the response is returned as it is, so that
+ * it can be parsed while it streams in, and requests arriving later are sent on their own.
+ * <p>
+ * Requests are identical if method, URL, headers and the cookies the client would send for the
+ * URL are the same, so different sessions never see each other's pages. GET and HEAD requests
+ * are coalesced by default, other requests only if they carry a key set with {@link
+ * #coalesce(Request.Builder, String)}. Responses setting cookies or with large bodies are not
+ * shared, the waiting requests are sent on their own instead.
+ */
+public class RequestCoalescer {
+    static final long MAX_BODY_SIZE = 1024 * 1024;
+    /**
+     * How often a waiting request checks whether its own call was cancelled or timed out
+     */
+    private static final long WAIT_SLICE_MILLIS = 50;
+
+    private final Map<String, Flight> flights = new HashMap<>();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Marks a non-idempotent request as safe to share, e.g. a POST only querying data.
+     *
+     * @param key identifies the request body, requests with the same URL and key are considered
+     *            identical
+     */
+    public static Request.Builder coalesce(Request.Builder builder, String key) {
+        return builder.tag(Key.class, new Key(key));
+    }
+
+    /**
+     * @return a copy of the request that is never coalesced, e.g. a hedged duplicate that is
+     * supposed to reach the server
+     */
+    public static Request bypass(Request request) {
+        return request.newBuilder().tag(Bypass.class, Bypass.INSTANCE).build();
+    }
+
+    static final class Key {
+        final String value;
+
+        Key(String value) {
+            this.value = value;
+        }
+    }
+
+    private enum Bypass {
+        INSTANCE
+    }
+
+    /**
+     * Sets the cookie jar of a client builder and binds request coalescing to it, replacing the
+     * interceptor for a previous jar.
+     */
+    public OkHttpClient.Builder withCookieJar(OkHttpClient.Builder builder, CookieJar cookieJar) {
+        List<Interceptor> interceptors = builder.interceptors();
+        for (int i = interceptors.size() - 1; i >= 0; i--) {
+            if (interceptors.get(i) instanceof CoalescingInterceptor) {
+                interceptors.remove(i);
+            }
+        }
+        // first, so that waiting requests do not hold a slot of the concurrency limiter
+        interceptors.add(0, new CoalescingInterceptor(cookieJar));
+        return builder.cookieJar(cookieJar);
+    }
+
+    /**
+     * @return the number of requests that were answered with the response of another request
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    private static class Flight {
+        // guarded by flights
+        int waiters;
+        // guarded by the flight
+        boolean done;
+        SharedResponse response;
+    }
+
+    private static class SharedResponse {
+        final HttpUrl url;
+        final Protocol protocol;
+        final int code;
+        final String message;
+        final Handshake handshake;
+        final Headers headers;
+        final MediaType contentType;
+        final byte[] body;
+        final long sentRequestAtMillis;
+        final long receivedResponseAtMillis;
+
+        SharedResponse(Response response, byte[] body) {
+            this.url = response.request().url();
+            this.protocol = response.protocol();
+            this.code = response.code();
+            this.message = response.message();
+            this.handshake = response.handshake();
+            this.headers = response.headers();
+            this.contentType = response.body().contentType();
+            this.body = body;
+            this.sentRequestAtMillis = response.sentRequestAtMillis();
+            this.receivedResponseAtMillis = response.receivedResponseAtMillis();
+        }
+
+        /**
+         * @param request the request to answer. It gets the final URL of the shared response, in
+         *                case redirects were followed.
+         */
+        Response toResponse(Request request) {
+            return new Response.Builder()
+                    .request(request.url().equals(url) ? request
+                            : request.newBuilder().url(url).build())
+                    .protocol(protocol)
+                    .code(code)
+                    .message(message)
+                    .handshake(handshake)
+                    .headers(headers)
+                    .body(ResponseBody.create(body, contentType))
+                    .sentRequestAtMillis(sentRequestAtMillis)
+                    .receivedResponseAtMillis(receivedResponseAtMillis)
+                    .build();
+        }
+    }
+
+    private class CoalescingInterceptor implements Interceptor {
+        private final CookieJar cookieJar;
+
+        CoalescingInterceptor(CookieJar cookieJar) {
+            this.cookieJar = cookieJar;
+        }
+
+        private String key(Request request) {
+            Key explicitKey = request.tag(Key.class);
+            boolean idempotent = "GET".equals(request.method()) || "HEAD".equals(request.method());
+            if (request.tag(Bypass.class) != null || (!idempotent && explicitKey == null)) {
+                return null;
+            }
+            StringBuilder key = new StringBuilder();
+            key.append(request.method()).append(' ').append(request.url()).append('\n');
+            key.append(request.headers());
+            for (Cookie cookie : cookieJar.loadForRequest(request.url())) {
+                key.append("Cookie: ").append(cookie.name()).append('=')
+                   .append(cookie.value()).append('\n');
+            }
+            if (explicitKey != null) {
+                key.append(explicitKey.value);
+            }
+            return key.toString();
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            String key = key(request);
+            if (key == null) {
+                return chain.proceed(request);
+            }
+
+            Flight flight;
+            boolean leader = false;
+            synchronized (flights) {
+                flight = flights.get(key);
+                if (flight == null) {
+                    flight = new Flight();
+                    flights.put(key, flight);
+                    leader = true;
+                } else {
+                    flight.waiters++;
+                }
+            }
+
+            if (!leader) {
+                SharedResponse shared = await(chain, key, flight);
+                if (shared != null) {
+                    coalescedCount.incrementAndGet();
+                    return shared.toResponse(request);
+                }
+                return chain.proceed(request);
+            }
+
+            SharedResponse shared = null;
+            try {
+                Response response = chain.proceed(request);
+                int waiters;
+                synchronized (flights) {
+                    // requests arriving from now on start a flight of their own
+                    flights.remove(key);
+                    waiters = flight.waiters;
+                }
+                if (waiters == 0) {
+                    return response;
+                }
+                shared = share(response);
+                return shared != null ? shared.toResponse(request) : response;
+            } finally {
+                synchronized (flights) {
+                    if (flights.get(key) == flight) {
+                        flights.remove(key);
+                    }
+                }
+                synchronized (flight) {
+                    flight.done = true;
+                    flight.response = shared;
+                    flight.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Waits for the leader of the flight. A call timeout, cancellation by the caller (which
+         * is also how OkHttp enforces the call timeout) or an interrupt ends the wait early.
+         */
+        private SharedResponse await(Chain chain, String key, Flight flight) throws IOException {
+            try {
+                synchronized (flight) {
+                    while (!flight.done) {
+                        if (chain.call().isCanceled()) {
+                            throw new InterruptedIOException("Canceled");
+                        }
+                        flight.wait(WAIT_SLICE_MILLIS);
+                    }
+                    return flight.response;
+                }
+            } catch (InterruptedException | InterruptedIOException e) {
+                synchronized (flights) {
+                    // the leader does not need to buffer its response for this request any more
+                    if (flights.get(key) == flight) {
+                        flight.waiters--;
+                    }
+                }
+                if (e instanceof InterruptedIOException) {
+                    throw (InterruptedIOException) e;
+                }
+                throw new InterruptedIOException(e.getMessage());
+            }
+        }
+
+        /**
+         * Buffers the body of the response, if it may be handed to other requests.
+         *
+         * @return the buffered response or {@code null} if the response must not be shared. In
+         * this case, the response is left untouched.
+         */
+        private SharedResponse share(Response response) throws IOException {
+            ResponseBody body = response.body();
+            if (body == null || body.contentLength() > MAX_BODY_SIZE) {
+                return null;
+            }
+            for (Response r = response; r != null; r = r.priorResponse()) {
+                if (!r.headers("Set-Cookie").isEmpty()) {
+                    return null;
+                }
+            }
+            BufferedSource source = body.source();
+            if (source.request(MAX_BODY_SIZE + 1)) {
+                // already buffered data stays available to the caller
+                return null;
+            }
+            byte[] bytes;
+            try {
+                bytes = source.readByteArray();
+            } finally {
+                response.close();
+            }
+            return new SharedResponse(response, bytes);
+        }
+    }
+}
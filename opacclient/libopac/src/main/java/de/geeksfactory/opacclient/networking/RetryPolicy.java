@@ -0,0 +1,109 @@
+package de.geeksfactory.opacclient.networking;
+
+import org.json.JSONObject;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+import de.geeksfactory.opacclient.networking.OperationContext.Operation;
+
+/**
+ * Time budgets and retry settings for the requests of one library. The defaults can be changed
+ * in the {@code retry} object of the library configuration, for example:
+ * <pre>
+ * "retry": {
+ *     "attempts": 3,
+ *     "hedge": true,
+ *     "budget_search": 20,
+ *     "budget_account": 120
+ * }
+ * </pre>
+ * Budgets are given in seconds, 0 means no budget. Only GET and HEAD requests are retried or
+ * hedged, and only during operations that just read data. Many OPACs prolong or cancel media with
+ * GET requests, so requests made for {@link Operation#PROLONG} and {@link Operation#OTHER} (which
+ * includes reservations and cancellations) are sent once, unless {@code attempts_prolong} or
+ * {@code attempts_other} is set. Hedging sends a second copy of a request once it takes longer
+ * than the 95th percentile of the host's response times, so it is disabled by default and should
+ * only be enabled for OPACs whose GET requests do not change the session state.
+ */
+public class RetryPolicy {
+    private static final Random random = new Random();
+
+    private boolean hedge = false;
+    private long baseBackoffMillis = 250;
+    private final Map<Operation, Integer> attempts = new EnumMap<>(Operation.class);
+    private final Map<Operation, Integer> budgets = new EnumMap<>(Operation.class);
+
+    public RetryPolicy() {
+        attempts.put(Operation.SEARCH, 2);
+        attempts.put(Operation.SEARCH_GET_PAGE, 2);
+        attempts.put(Operation.GET_RESULT, 2);
+        attempts.put(Operation.ACCOUNT, 2);
+        attempts.put(Operation.PROLONG, 1);
+        attempts.put(Operation.OTHER, 1);
+        budgets.put(Operation.SEARCH, 40);
+        budgets.put(Operation.SEARCH_GET_PAGE, 30);
+        budgets.put(Operation.GET_RESULT, 30);
+        budgets.put(Operation.ACCOUNT, 90);
+        budgets.put(Operation.PROLONG, 60);
+        budgets.put(Operation.OTHER, 0);
+    }
+
+    public static RetryPolicy fromLibraryData(JSONObject data) {
+        RetryPolicy policy = new RetryPolicy();
+        JSONObject retry = data.optJSONObject("retry");
+        if (retry == null) {
+            return policy;
+        }
+        policy.hedge = retry.optBoolean("hedge", policy.hedge);
+        policy.baseBackoffMillis = retry.optLong("backoff_ms", policy.baseBackoffMillis);
+        for (Operation operation : Operation.values()) {
+            String name = operation.name().toLowerCase();
+            if (retry.has("attempts_" + name)) {
+                policy.attempts.put(operation,
+                        Math.max(1, retry.optInt("attempts_" + name, 1)));
+            } else if (retry.has("attempts") && policy.getMaxAttempts(operation) > 1) {
+                policy.attempts.put(operation, Math.max(1, retry.optInt("attempts", 1)));
+            }
+            if (retry.has("budget_" + name)) {
+                policy.budgets.put(operation, retry.optInt("budget_" + name, 0));
+            }
+        }
+        return policy;
+    }
+
+    /**
+     * @return how often a GET or HEAD request made for the given operation may be sent, 1 for
+     * operations that may change data on the server
+     */
+    public int getMaxAttempts(Operation operation) {
+        Integer max = attempts.get(operation);
+        return max != null ? max : 1;
+    }
+
+    /**
+     * @return whether GET and HEAD requests made for the given operation may be hedged, which is
+     * only the case for operations that may be retried
+     */
+    public boolean isHedgingEnabled(Operation operation) {
+        return hedge && getMaxAttempts(operation) > 1;
+    }
+
+    /**
+     * @return the time budget for the given operation in milliseconds, 0 for no budget
+     */
+    public long getBudgetMillis(Operation operation) {
+        Integer budget = budgets.get(operation);
+        return budget != null ? budget * 1000L : 0;
+    }
+
+    /**
+     * @param attempt number of the failed attempt, starting with 1
+     * @return time to wait before the next attempt, with exponential backoff and jitter
+     */
+    public long getBackoffMillis(int attempt) {
+        double jitter = 0.5 + random.nextDouble();
+        return (long) (baseBackoffMillis * (1 << Math.min(attempt - 1, 10)) * jitter);
+    }
+}
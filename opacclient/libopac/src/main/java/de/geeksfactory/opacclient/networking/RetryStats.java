@@ -0,0 +1,32 @@
+package de.geeksfactory.opacclient.networking;
+
+/**
+ * Snapshot of the counters kept by {@link RetryingCallExecutor}.
+ */
+public class RetryStats {
+    public final long requests;
+    public final long retries;
+    public final long hedges;
+    public final long hedgeWins;
+    public final long budgetExceeded;
+
+    public RetryStats(long requests, long retries, long hedges, long hedgeWins,
+            long budgetExceeded) {
+        this.requests = requests;
+        this.retries = retries;
+        this.hedges = hedges;
+        this.hedgeWins = hedgeWins;
+        this.budgetExceeded = budgetExceeded;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryStats{" +
+                "requests=" + requests +
+                ", retries=" + retries +
+                ", hedges=" + hedges +
+                ", hedgeWins=" + hedgeWins +
+                ", budgetExceeded=" + budgetExceeded +
+                '}';
+    }
+}
@@ -0,0 +1,265 @@
+package de.geeksfactory.opacclient.networking;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLException;
+
+import de.geeksfactory.opacclient.networking.OperationContext.Operation;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Executes requests within the time budget of the current {@link OperationContext}. GET and HEAD
+ * requests made for operations that only read data (see {@link RetryPolicy}) are retried with
+ * jittered exponential backoff after network errors and 502, 503 and 504 responses, as long as
+ * the budget allows it, and can be hedged with a second request if the first one takes longer
+ * than the host usually needs.
+ * <p>
+ * Each attempt gets a call timeout derived from the remaining budget, so that one stalled
+ * connection cannot use up the whole operation. The call timeout also covers reading the
+ * response body. If the caller set a call timeout on the client, e.g. for a request known to be
+ * slow, each attempt gets that timeout instead and the budget is not applied.
+ */
+public class RetryingCallExecutor {
+    /**
+     * Share of the remaining budget that an attempt may use if it is not the last one.
+     */
+    private static final double ATTEMPT_SHARE = 0.6;
+    private static final double HEDGE_PERCENTILE = 0.95;
+    private static final long MIN_HEDGE_DELAY = 200;
+
+    private static final LatencyTracker latencyTracker = new LatencyTracker();
+    private static final AtomicLong requests = new AtomicLong();
+    private static final AtomicLong retries = new AtomicLong();
+    private static final AtomicLong hedges = new AtomicLong();
+    private static final AtomicLong hedgeWins = new AtomicLong();
+    private static final AtomicLong budgetExceeded = new AtomicLong();
+
+    private final RetryPolicy policy;
+
+    public RetryingCallExecutor(RetryPolicy policy) {
+        this.policy = policy;
+    }
+
+    public static RetryStats getStats() {
+        return new RetryStats(requests.get(), retries.get(), hedges.get(), hedgeWins.get(),
+                budgetExceeded.get());
+    }
+
+    static LatencyTracker getLatencyTracker() {
+        return latencyTracker;
+    }
+
+    public Response execute(OkHttpClient client, Request request) throws IOException {
+        requests.incrementAndGet();
+        OperationContext ctx = OperationContext.current();
+        // a call timeout set on the client by the caller takes precedence over the budget
+        Operation operation = OperationContext.currentOperation();
+        long explicitTimeout = client.callTimeoutMillis();
+        long budget = explicitTimeout > 0 ? 0 : policy.getBudgetMillis(operation);
+        boolean idempotent = isIdempotent(request);
+        int maxAttempts = idempotent ? policy.getMaxAttempts(operation) : 1;
+        CancellationToken token = ctx != null ? ctx.getCancellationToken() : null;
+
+        for (int attempt = 1; ; attempt++) {
+            if (token != null) {
+                token.throwIfCancelled();
+            }
+            long remaining = budget > 0 ? budget - (ctx != null ? ctx.getElapsedMillis() : 0)
+                    : 0;
+            if (budget > 0 && remaining <= 0) {
+                budgetExceeded.incrementAndGet();
+                throw new InterruptedIOException("time budget exceeded");
+            }
+            long timeout = 0;
+            if (explicitTimeout > 0) {
+                timeout = explicitTimeout;
+            } else if (remaining > 0) {
+                timeout = attempt < maxAttempts ? (long) (remaining * ATTEMPT_SHARE) : remaining;
+            }
+
+            long start = System.nanoTime();
+            try {
+                Response response = idempotent && policy.isHedgingEnabled(operation)
+                        ? executeHedged(client, request, timeout, token)
+                        : execute(newCall(client, request, timeout), token);
+                latencyTracker.record(request.url().host(),
+                        (System.nanoTime() - start) / 1000000);
+                if (attempt < maxAttempts && isRetryable(response.code())) {
+                    response.close();
+                } else {
+                    return response;
+                }
+            } catch (IOException e) {
+                if (token != null && token.isCancelled()) {
+                    CancellationToken.callCancelled();
+                    throw new OperationCancelledException();
+                }
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+            }
+
+            retries.incrementAndGet();
+            long backoff = policy.getBackoffMillis(attempt);
+            if (budget > 0 && ctx != null && ctx.getElapsedMillis() + backoff >= budget) {
+                budgetExceeded.incrementAndGet();
+                throw new InterruptedIOException("time budget exceeded");
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                if (token != null && token.isCancelled()) {
+                    throw new OperationCancelledException();
+                }
+                throw new InterruptedIOException(e.getMessage());
+            }
+        }
+    }
+
+    private static Call newCall(OkHttpClient client, Request request, long timeout) {
+        Call call = client.newCall(request);
+        if (timeout > 0) {
+            call.timeout().timeout(timeout, TimeUnit.MILLISECONDS);
+        }
+        return call;
+    }
+
+    /**
+     * Executes the call, cancelling it if the token is cancelled until the response arrived.
+     */
+    private static Response execute(Call call, CancellationToken token) throws IOException {
+        CancellationToken.Registration registration = register(call, token);
+        try {
+            return call.execute();
+        } finally {
+            unregister(registration);
+        }
+    }
+
+    private static CancellationToken.Registration register(Call call, CancellationToken token) {
+        return token != null ? token.register(call) : null;
+    }
+
+    private static void unregister(CancellationToken.Registration registration) {
+        if (registration != null) {
+            registration.unregister();
+        }
+    }
+
+    /**
+     * Sends the request and, if no response arrived after the host's 95th percentile response
+     * time, a second copy of it. The first successful response wins, the other call is
+     * cancelled.
+     */
+    private Response executeHedged(OkHttpClient client, Request request, long timeout,
+            CancellationToken token) throws IOException {
+        long delay = latencyTracker.getPercentile(request.url().host(), HEDGE_PERCENTILE);
+        if (delay < 0 || (timeout > 0 && delay >= timeout)) {
+            return execute(newCall(client, request, timeout), token);
+        }
+
+        final BlockingQueue<Object> results = new LinkedBlockingQueue<>();
+        // set by the first successful response, a response losing the race closes itself
+        final AtomicBoolean claimed = new AtomicBoolean(false);
+        Callback callback = new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                results.add(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                if (claimed.compareAndSet(false, true)) {
+                    results.add(new Object[]{call, response});
+                } else {
+                    response.close();
+                }
+            }
+        };
+
+        Call first = newCall(client, request, timeout);
+        Call second = null;
+        CancellationToken.Registration firstRegistration = register(first, token);
+        CancellationToken.Registration secondRegistration = null;
+        first.enqueue(callback);
+        try {
+            Object result = results.poll(Math.max(delay, MIN_HEDGE_DELAY), TimeUnit.MILLISECONDS);
+            int pending = 1;
+            if (result == null) {
+                hedges.incrementAndGet();
+                // the copy must not wait for the first request to finish
+                second = newCall(client, RequestCoalescer.bypass(request), timeout);
+                secondRegistration = register(second, token);
+                second.enqueue(callback);
+                pending = 2;
+                result = results.take();
+            }
+            while (result instanceof IOException && --pending > 0) {
+                result = results.take();
+            }
+            if (result instanceof IOException) {
+                throw (IOException) result;
+            }
+            Object[] winner = (Object[]) result;
+            if (winner[0] == first) {
+                if (second != null) second.cancel();
+            } else {
+                hedgeWins.incrementAndGet();
+                first.cancel();
+            }
+            return (Response) winner[1];
+        } catch (InterruptedException e) {
+            first.cancel();
+            if (second != null) second.cancel();
+            if (!claimed.compareAndSet(false, true)) {
+                // a response was handed over, but will not be read
+                Object late;
+                while ((late = results.poll()) != null) {
+                    if (late instanceof Object[]) {
+                        ((Response) ((Object[]) late)[1]).close();
+                    }
+                }
+            }
+            throw new InterruptedIOException(e.getMessage());
+        } finally {
+            unregister(firstRegistration);
+            unregister(secondRegistration);
+        }
+    }
+
+    private static boolean isIdempotent(Request request) {
+        return "GET".equals(request.method()) || "HEAD".equals(request.method());
+    }
+
+    private static boolean isRetryable(int code) {
+        return code == 502 || code == 503 || code == 504;
+    }
+
+    private static boolean isRetryable(IOException e) {
+        if (e instanceof UnknownHostException || e instanceof SSLException) {
+            // retrying won't help with DNS or certificate problems
+            return false;
+        }
+        if (e instanceof InterruptedIOException) {
+            // timeouts are retried, cancelled calls and exceeded budgets are not
+            String message = e.getMessage();
+            return message != null
+                    && (message.contains("timeout") || message.contains("timed out"));
+        }
+        return e instanceof ConnectException || e instanceof SocketException
+                || (e.getMessage() != null && e.getMessage().contains("unexpected end of stream"));
+    }
+}
@@ -0,0 +1,143 @@
+package de.geeksfactory.opacclient.networking;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * The state of a logged-in session with an OPAC: its cookies and the tokens the backend needs to
+ * continue it (like a session ID passed in URLs or forms). Passwords are never part of it, only a
+ * keyed hash of the credentials the session was opened with (see {@link
+ * SessionStore#hashCredentials(String, String, String)}), so that it is not continued for another
+ * user or after the credentials were changed.
+ */
+public class Session {
+    private final String library;
+    private final long account;
+    private final String credentials;
+    private final Map<String, String> tokens;
+    private final List<String> cookies;
+    private final long updatedAt;
+
+    public Session(String library, long account, String credentials, Map<String, String> tokens,
+            List<String> cookies, long updatedAt) {
+        this.library = library;
+        this.account = account;
+        this.credentials = credentials;
+        this.tokens = tokens;
+        this.cookies = cookies;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getLibrary() {
+        return library;
+    }
+
+    public long getAccount() {
+        return account;
+    }
+
+    /**
+     * @return the hash of the credentials the session belongs to
+     */
+    public String getCredentials() {
+        return credentials;
+    }
+
+    /**
+     * @return a random secret for {@link #hashCredentials(byte[], String, String, String)}
+     */
+    public static byte[] newSecret() {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        return secret;
+    }
+
+    /**
+     * Library passwords are often short PINs, so a plain hash of them could be reversed by trying
+     * all of them. The hash is therefore keyed with a random secret of the installation, without
+     * which a stored hash can not be checked against guessed passwords.
+     *
+     * @param secret the key, see {@link #newSecret()}
+     * @return a hex encoded HMAC-SHA256 identifying a user of a library, used to tell sessions of
+     * different users with the same account ID apart
+     */
+    public static String hashCredentials(byte[] secret, String library, String username,
+            String password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            byte[] hash = mac.doFinal((library + "\0" + username + "\0" + password)
+                    .getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (GeneralSecurityException | UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public String getToken(String key) {
+        return tokens.get(key);
+    }
+
+    public Map<String, String> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * @return the cookies in {@code Set-Cookie} header format
+     */
+    public List<String> getCookies() {
+        return cookies;
+    }
+
+    /**
+     * @return time of the last successful use of the session in milliseconds since the epoch
+     */
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public JSONObject toJSON() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("library", library);
+        json.put("account", account);
+        json.put("credentials", credentials);
+        json.put("tokens", new JSONObject(tokens));
+        json.put("cookies", new JSONArray(cookies));
+        json.put("updated_at", updatedAt);
+        return json;
+    }
+
+    public static Session fromJSON(JSONObject json) throws JSONException {
+        Map<String, String> tokens = new HashMap<>();
+        JSONObject tokensJson = json.getJSONObject("tokens");
+        Iterator<?> keys = tokensJson.keys();
+        while (keys.hasNext()) {
+            String key = (String) keys.next();
+            tokens.put(key, tokensJson.getString(key));
+        }
+        List<String> cookies = new ArrayList<>();
+        JSONArray cookiesJson = json.getJSONArray("cookies");
+        for (int i = 0; i < cookiesJson.length(); i++) {
+            cookies.add(cookiesJson.getString(i));
+        }
+        return new Session(json.getString("library"), json.getLong("account"),
+                json.optString("credentials", ""), tokens, cookies, json.getLong("updated_at"));
+    }
+}
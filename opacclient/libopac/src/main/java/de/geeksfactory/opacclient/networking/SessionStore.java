@@ -0,0 +1,28 @@
+package de.geeksfactory.opacclient.networking;
+
+/**
+ * Keeps the {@link Session}s of logged-in accounts, so that a new {@link
+ * de.geeksfactory.opacclient.apis.OpacApi} instance can continue a session instead of logging in
+ * again. Set it with {@link HttpClientFactory#setSessionStore(SessionStore)}.
+ * <p>
+ * Implementations need to be thread-safe.
+ */
+public interface SessionStore {
+    /**
+     * @return a hash identifying the credentials of a user of a library, keyed with a secret of
+     * this store (see {@link Session#hashCredentials(byte[], String, String, String)}), so that
+     * the stored sessions do not allow to guess the password
+     */
+    String hashCredentials(String library, String username, String password);
+
+    /**
+     * @param credentials the hash of the account's credentials, see {@link
+     *                    #hashCredentials(String, String, String)}
+     * @return the session stored for the given library, account and credentials, or {@code null}
+     */
+    Session load(String library, long account, String credentials);
+
+    void save(Session session);
+
+    void remove(String library, long account, String credentials);
+}
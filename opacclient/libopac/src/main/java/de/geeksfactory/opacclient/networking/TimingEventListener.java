@@ -0,0 +1,159 @@
+package de.geeksfactory.opacclient.networking;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import de.geeksfactory.opacclient.metrics.MetricsSink;
+import de.geeksfactory.opacclient.metrics.RequestTiming;
+import de.geeksfactory.opacclient.networking.OperationContext.Operation;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * Measures the phases of a call (DNS, connect, TLS handshake, time to first byte, body size and
+ * total time) and reports them to the {@link MetricsSink} configured in {@link
+ * HttpClientFactory}. If a call follows redirects, the durations of all connections made are
+ * added up.
+ */
+public class TimingEventListener extends EventListener {
+    private final MetricsSink sink;
+    private final String library;
+    private final String api;
+    private final Operation operation;
+
+    private long callStart;
+    private long dnsStart;
+    private long dnsMillis = -1;
+    private long connectStart;
+    private long connectMillis = -1;
+    private long tlsStart;
+    private long tlsMillis = -1;
+    private long ttfbMillis = -1;
+    private long bodyBytes = -1;
+    private int status = -1;
+    private boolean cached = false;
+
+    TimingEventListener(MetricsSink sink, String library, String api, Operation operation) {
+        this.sink = sink;
+        this.library = library;
+        this.api = api;
+        this.operation = operation;
+    }
+
+    /**
+     * Creates listeners tagged with a library and API class. The logical operation is taken from
+     * the {@link OperationContext} of the thread creating the call.
+     */
+    public static class Factory implements EventListener.Factory {
+        private final String library;
+        private final String api;
+
+        public Factory(String library, String api) {
+            this.library = library;
+            this.api = api;
+        }
+
+        @Override
+        public EventListener create(Call call) {
+            MetricsSink sink = HttpClientFactory.getMetricsSink();
+            if (sink == null) {
+                return EventListener.NONE;
+            }
+            return new TimingEventListener(sink, library, api,
+                    OperationContext.currentOperation());
+        }
+    }
+
+    private static long add(long total, long start) {
+        long millis = (System.nanoTime() - start) / 1000000;
+        return total < 0 ? millis : total + millis;
+    }
+
+    @Override
+    public void callStart(Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        dnsMillis = add(dnsMillis, dnsStart);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        tlsStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        tlsMillis = add(tlsMillis, tlsStart);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+            Protocol protocol) {
+        connectMillis = add(connectMillis, connectStart);
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+            Protocol protocol, IOException ioe) {
+        connectMillis = add(connectMillis, connectStart);
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        if (ttfbMillis < 0) {
+            ttfbMillis = (System.nanoTime() - callStart) / 1000000;
+        }
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        status = response.code();
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        bodyBytes = byteCount;
+    }
+
+    @Override
+    public void cacheHit(Call call, Response response) {
+        cached = true;
+        status = response.code();
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        report(call, false);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        report(call, true);
+    }
+
+    private void report(Call call, boolean failed) {
+        long totalMillis = (System.nanoTime() - callStart) / 1000000;
+        sink.record(new RequestTiming(library, api, operation, call.request().url().host(),
+                call.request().method(), failed ? -1 : status, cached, dnsMillis,
+                connectMillis, tlsMillis, ttfbMillis, totalMillis, bodyBytes));
+    }
+}
@@ -0,0 +1,119 @@
+package de.geeksfactory.opacclient.networking;
+
+import java.security.KeyStore;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * Process-wide cache for the TLS setup of {@link HttpClientFactory}: the additional trust
+ * store, the trust managers, the {@link SSLContext}s and the socket factories derived from them.
+ * <p>
+ * Loading the BKS trust store and initializing a {@link TrustManagerFactory} is expensive and
+ * used to happen whenever a new API instance was created. Also, OkHttp can only reuse pooled
+ * connections if the socket factory instance is the same, and TLS sessions can only be resumed if
+ * the connections are created by the same {@link SSLContext}. Therefore, there is one context per
+ * trust configuration shared by all factories, and one socket factory per combination of {@code
+ * customssl}, {@code tls_only} and {@code allCipherSuites}.
+ */
+class TlsConfigCache {
+    private static final int SESSION_CACHE_SIZE = 100;
+    private static final int SESSION_TIMEOUT_SECONDS = 24 * 60 * 60;
+
+    private static final Map<String, KeyStore> keyStores = new HashMap<>();
+    private static final Map<String, X509TrustManager> trustManagers = new HashMap<>();
+    private static final Map<String, SSLContext> sslContexts = new HashMap<>();
+    private static final Map<String, SslConfig> sslConfigs = new HashMap<>();
+
+    static class SslConfig {
+        final SSLSocketFactory socketFactory;
+        final X509TrustManager trustManager;
+
+        SslConfig(SSLSocketFactory socketFactory, X509TrustManager trustManager) {
+            this.socketFactory = socketFactory;
+            this.trustManager = trustManager;
+        }
+    }
+
+    private TlsConfigCache() {
+    }
+
+    /**
+     * Trust stores are identified by the factory class, which might override {@link
+     * HttpClientFactory#getKeyStore()}, and the store path.
+     */
+    private static String trustKey(HttpClientFactory factory, boolean customssl) {
+        return customssl && factory.ssl_store_path != null
+                ? factory.getClass().getName() + ":" + factory.ssl_store_path
+                : "default";
+    }
+
+    static synchronized KeyStore getKeyStore(HttpClientFactory factory) throws Exception {
+        String key = trustKey(factory, true);
+        KeyStore keyStore = keyStores.get(key);
+        if (keyStore == null) {
+            keyStore = factory.getKeyStore();
+            keyStores.put(key, keyStore);
+        }
+        return keyStore;
+    }
+
+    static synchronized X509TrustManager getTrustManager(HttpClientFactory factory,
+            boolean customssl) throws Exception {
+        String key = trustKey(factory, customssl);
+        X509TrustManager trustManager = trustManagers.get(key);
+        if (trustManager == null) {
+            if (key.equals("default")) {
+                TrustManagerFactory tmf = TrustManagerFactory
+                        .getInstance(TrustManagerFactory.getDefaultAlgorithm());
+                tmf.init((KeyStore) null);
+                trustManager = AdditionalKeyStoresSSLSocketFactory.AdditionalKeyStoresTrustManager
+                        .findX509TrustManager(tmf);
+            } else {
+                trustManager = new AdditionalKeyStoresSSLSocketFactory
+                        .AdditionalKeyStoresTrustManager(getKeyStore(factory));
+            }
+            trustManagers.put(key, trustManager);
+        }
+        return trustManager;
+    }
+
+    static synchronized SSLContext getSslContext(HttpClientFactory factory, boolean customssl)
+            throws Exception {
+        String key = trustKey(factory, customssl);
+        SSLContext sslContext = sslContexts.get(key);
+        if (sslContext == null) {
+            sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, new TrustManager[]{getTrustManager(factory, customssl)}, null);
+            SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+            if (sessionContext != null) {
+                sessionContext.setSessionCacheSize(SESSION_CACHE_SIZE);
+                sessionContext.setSessionTimeout(SESSION_TIMEOUT_SECONDS);
+            }
+            sslContexts.put(key, sslContext);
+        }
+        return sslContext;
+    }
+
+    static synchronized SslConfig getSslConfig(HttpClientFactory factory, boolean customssl,
+            boolean tls_only, boolean allCipherSuites) throws Exception {
+        String key = trustKey(factory, customssl) + ":" + tls_only + ":" + allCipherSuites;
+        SslConfig sslConfig = sslConfigs.get(key);
+        if (sslConfig == null) {
+            SSLSocketFactory sf = getSslContext(factory, customssl).getSocketFactory();
+            if (customssl && allCipherSuites) {
+                sf = new AllCiphersProxySocketFactory(sf);
+            }
+            sf = new TLS12ProxySocketFactory(sf);
+            sslConfig = new SslConfig(sf, getTrustManager(factory, customssl));
+            sslConfigs.put(key, sslConfig);
+        }
+        return sslConfig;
+    }
+}
@@ -0,0 +1,206 @@
+package de.geeksfactory.opacclient.networking;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.CipherSuite;
+import okhttp3.ConnectionSpec;
+import okhttp3.Handshake;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import okhttp3.TlsVersion;
+
+/**
+ * Remembers the TLS version and cipher suite negotiated with each host, so that clients for
+ * libraries with legacy servers can try the matching {@link ConnectionSpec} first instead of
+ * failing through several handshakes on every new connection.
+ * <p>
+ * Entries are persisted to a properties file if one is configured and are ignored after {@link
+ * #REPROBE_INTERVAL}, so that servers which were upgraded get the most secure specs again. The
+ * file is written {@link #SAVE_DELAY} after a change on a background thread, as changes are
+ * recorded on OkHttp's network threads.
+ */
+public class TlsSpecMemory {
+    static final long REPROBE_INTERVAL = TimeUnit.DAYS.toMillis(7);
+    static final long SAVE_DELAY = TimeUnit.SECONDS.toMillis(2);
+
+    private static final ScheduledThreadPoolExecutor saver = createSaver();
+
+    private final Properties entries = new Properties();
+    private final File file;
+    private final Object saveLock = new Object();
+    private boolean savePending;
+    private final Interceptor interceptor = new Interceptor() {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Response response = chain.proceed(chain.request());
+            if (chain.connection() != null && chain.connection().handshake() != null) {
+                record(chain.request().url().host(), chain.connection().handshake());
+            }
+            return response;
+        }
+    };
+
+    /**
+     * @param file properties file to persist to, or {@code null} to keep the entries in memory
+     */
+    public TlsSpecMemory(File file) {
+        this.file = file;
+        if (file != null && file.exists()) {
+            InputStream in = null;
+            try {
+                in = new FileInputStream(file);
+                entries.load(in);
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                closeQuietly(in);
+            }
+        }
+    }
+
+    private static class Entry {
+        final TlsVersion tlsVersion;
+        final CipherSuite cipherSuite;
+        final long learnedAt;
+
+        Entry(TlsVersion tlsVersion, CipherSuite cipherSuite, long learnedAt) {
+            this.tlsVersion = tlsVersion;
+            this.cipherSuite = cipherSuite;
+            this.learnedAt = learnedAt;
+        }
+    }
+
+    private synchronized Entry get(String host) {
+        String value = entries.getProperty(host);
+        if (value == null) {
+            return null;
+        }
+        String[] parts = value.split("\\|");
+        try {
+            return new Entry(TlsVersion.forJavaName(parts[0]),
+                    CipherSuite.forJavaName(parts[1]), Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Remembers a successful handshake. Known entries are only updated if the negotiated
+     * parameters changed or the entry is due for a re-probe.
+     */
+    public synchronized void record(String host, Handshake handshake) {
+        Entry entry = get(host);
+        long now = System.currentTimeMillis();
+        if (entry != null && entry.tlsVersion == handshake.tlsVersion()
+                && entry.cipherSuite.equals(handshake.cipherSuite())
+                && now - entry.learnedAt < REPROBE_INTERVAL) {
+            return;
+        }
+        entries.setProperty(host, handshake.tlsVersion().javaName() + "|" +
+                handshake.cipherSuite().javaName() + "|" + now);
+        if (file != null && !savePending) {
+            savePending = true;
+            saver.schedule(this::flush, SAVE_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes changes not saved yet to the file right away, e.g. before the memory is replaced.
+     */
+    public void flush() {
+        synchronized (saveLock) {
+            Properties snapshot = new Properties();
+            synchronized (this) {
+                if (!savePending) {
+                    return;
+                }
+                savePending = false;
+                snapshot.putAll(entries);
+            }
+            OutputStream out = null;
+            try {
+                out = new FileOutputStream(file);
+                snapshot.store(out, null);
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                closeQuietly(out);
+            }
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createSaver() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "libopac-tls-memory");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setKeepAliveTime(SAVE_DELAY * 2, TimeUnit.MILLISECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Moves the first spec compatible with the remembered handshake of the host to the front of
+     * the list. Returns the list unchanged if nothing (current) is known about the host.
+     */
+    public List<ConnectionSpec> prioritize(String host, List<ConnectionSpec> specs) {
+        Entry entry = get(host);
+        if (entry == null || System.currentTimeMillis() - entry.learnedAt >= REPROBE_INTERVAL) {
+            return specs;
+        }
+        for (int i = 0; i < specs.size(); i++) {
+            if (isCompatible(specs.get(i), entry)) {
+                if (i == 0) {
+                    return specs;
+                }
+                List<ConnectionSpec> result = new ArrayList<>(specs.size());
+                result.add(specs.get(i));
+                for (int j = 0; j < specs.size(); j++) {
+                    if (j != i) {
+                        result.add(specs.get(j));
+                    }
+                }
+                return result;
+            }
+        }
+        return specs;
+    }
+
+    private static boolean isCompatible(ConnectionSpec spec, Entry entry) {
+        if (!spec.isTls()) {
+            return false;
+        }
+        List<TlsVersion> versions = spec.tlsVersions();
+        List<CipherSuite> suites = spec.cipherSuites();
+        return (versions == null || versions.contains(entry.tlsVersion))
+                && (suites == null || suites.contains(entry.cipherSuite));
+    }
+
+    /**
+     * @return a network interceptor recording the handshakes of all connections
+     */
+    public Interceptor interceptor() {
+        return interceptor;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,630 @@
+package de.geeksfactory.opacclient.utils;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The parts of a page a parser actually looks at, e.g. the table of lent items and the hidden
+ * fields of a form.
+ * <p>
+ * Many OPAC pages consist mostly of navigation, view state, scripts and styles. {@link
+ * #parse(String, String)} scans the HTML once without building a tree, cuts out the elements
+ * matching the region selectors and only gives those to jsoup. Each region is wrapped in copies
+ * of the start tags of its ancestors, so descendant selectors such as {@code #content table.data
+ * tr} and table context still work. Scripts, styles and comments inside the regions are dropped
+ * unless {@link #keepScripts()} is used.
+ * <p>
+ * The region selectors support a single compound selector each: a tag name, {@code #id}, {@code
+ * .class} and attribute conditions with {@code =}, {@code ^=}, {@code $=} and {@code *=}, e.g.
+ * {@code table.data}, {@code div[id$=divMedium]} or {@code input[name=__VIEWSTATE]}. If none of
+ * them matches, the whole page is parsed, so error pages still reach the parsers intact.
+ */
+public final class HtmlRegions {
+    private static final Set<String> VOID_ELEMENTS = new HashSet<>(Arrays.asList("area", "base",
+            "br", "col", "embed", "hr", "img", "input", "keygen", "link", "meta", "param",
+            "source", "track", "wbr"));
+    private static final Set<String> RAW_TEXT_ELEMENTS = new HashSet<>(Arrays.asList("script",
+            "style", "textarea", "title", "xmp", "iframe", "noembed", "noframes"));
+    private static final Set<String> DROPPED_ELEMENTS = new HashSet<>(Arrays.asList("script",
+            "style"));
+    /**
+     * Elements whose end tag is optional, so that a start tag of the same kind closes them.
+     */
+    private static final Set<String> IMPLIED_END_ELEMENTS = new HashSet<>(Arrays.asList("p",
+            "li", "dt", "dd", "option", "tr", "td", "th", "thead", "tbody", "tfoot"));
+    private static final Set<String> DOCUMENT_ELEMENTS = new HashSet<>(Arrays.asList("html",
+            "head", "body"));
+
+    private final List<Matcher> matchers;
+    private final boolean keepScripts;
+
+    private HtmlRegions(List<Matcher> matchers, boolean keepScripts) {
+        this.matchers = matchers;
+        this.keepScripts = keepScripts;
+    }
+
+    /**
+     * @param selectors region selectors, each of them may also be a comma separated list
+     */
+    public static HtmlRegions of(String... selectors) {
+        List<Matcher> matchers = new ArrayList<>();
+        for (String selector : selectors) {
+            for (String part : splitList(selector)) {
+                matchers.add(Matcher.parse(part));
+            }
+        }
+        return new HtmlRegions(matchers, false);
+    }
+
+    /**
+     * @return regions that keep script elements, for parsers reading e.g. cover URLs from inline
+     * scripts
+     */
+    public HtmlRegions keepScripts() {
+        return new HtmlRegions(matchers, true);
+    }
+
+    /**
+     * Parses the regions of the page, or the whole page if it does not contain any of them.
+     */
+    public Document parse(String html, String baseUri) {
+        Document doc = parse(html);
+        doc.setBaseUri(baseUri);
+        return doc;
+    }
+
+    public Document parse(String html) {
+        String regions = extract(html);
+        return Jsoup.parse(regions != null ? regions : html);
+    }
+
+    /**
+     * @return an HTML document consisting only of the regions, or {@code null} if there are none
+     */
+    public String extract(String html) {
+        return new Scanner(html).run();
+    }
+
+    private static List<String> splitList(String selector) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        boolean inBrackets = false;
+        for (int i = 0; i < selector.length(); i++) {
+            char c = selector.charAt(i);
+            if (c == '[') {
+                inBrackets = true;
+            } else if (c == ']') {
+                inBrackets = false;
+            } else if (c == ',' && !inBrackets) {
+                parts.add(selector.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        parts.add(selector.substring(start).trim());
+        return parts;
+    }
+
+    /**
+     * An element opened in the page, referring to its start tag by offsets.
+     */
+    private static class StartTag {
+        final String name;
+        final int start;
+        final int end;
+
+        StartTag(String name, int start, int end) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * A compound selector like {@code div#id.class[attr$=value]}, evaluated directly on the
+     * attributes in the page.
+     */
+    private static class Matcher {
+        private String tag;
+        private final List<String> classes = new ArrayList<>();
+        private final List<String[]> conditions = new ArrayList<>();
+
+        static Matcher parse(String selector) {
+            Matcher matcher = new Matcher();
+            int i = 0;
+            int n = selector.length();
+            int end = i;
+            while (end < n && isNameChar(selector.charAt(end))) end++;
+            if (end > i) {
+                matcher.tag = selector.substring(i, end).toLowerCase(Locale.ROOT);
+                i = end;
+            }
+            while (i < n) {
+                char c = selector.charAt(i);
+                if (c == '#' || c == '.') {
+                    end = i + 1;
+                    while (end < n && isNameChar(selector.charAt(end))) end++;
+                    String name = selector.substring(i + 1, end);
+                    if (c == '#') {
+                        matcher.conditions.add(new String[]{"id", "=", name});
+                    } else {
+                        matcher.classes.add(name);
+                    }
+                    i = end;
+                } else if (c == '[') {
+                    end = selector.indexOf(']', i);
+                    if (end < 0) {
+                        throw new IllegalArgumentException("Unclosed [ in " + selector);
+                    }
+                    matcher.conditions.add(parseCondition(selector.substring(i + 1, end)));
+                    i = end + 1;
+                } else {
+                    throw new IllegalArgumentException(
+                            "Unsupported region selector: " + selector);
+                }
+            }
+            return matcher;
+        }
+
+        private static String[] parseCondition(String condition) {
+            int eq = condition.indexOf('=');
+            if (eq < 0) {
+                return new String[]{condition.trim().toLowerCase(Locale.ROOT), null, null};
+            }
+            String op = "=";
+            int nameEnd = eq;
+            if (eq > 0 && "^$*".indexOf(condition.charAt(eq - 1)) >= 0) {
+                op = condition.charAt(eq - 1) + "=";
+                nameEnd = eq - 1;
+            }
+            String value = condition.substring(eq + 1).trim();
+            if (value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\'')) {
+                value = value.substring(1, value.length() - 1);
+            }
+            return new String[]{condition.substring(0, nameEnd).trim().toLowerCase(Locale.ROOT),
+                    op, value};
+        }
+
+        /**
+         * @param from start of the attributes of the tag
+         * @param to   end of the attributes of the tag
+         */
+        boolean matches(String html, String name, int from, int to) {
+            if (tag != null && !tag.equals(name)) {
+                return false;
+            }
+            for (String cls : classes) {
+                long range = findAttribute(html, from, to, "class");
+                if (range < 0 || !hasClass(html, (int) (range >>> 32), (int) range, cls)) {
+                    return false;
+                }
+            }
+            for (String[] condition : conditions) {
+                long range = findAttribute(html, from, to, condition[0]);
+                if (range < 0) {
+                    return false;
+                }
+                if (condition[1] != null && !matchesValue(html, (int) (range >>> 32),
+                        (int) range, condition[1], condition[2])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Compares case-insensitively and ignoring surrounding whitespace, like jsoup.
+         */
+        private static boolean matchesValue(String html, int start, int end, String op,
+                String value) {
+            while (start < end && Character.isWhitespace(html.charAt(start))) start++;
+            while (end > start && Character.isWhitespace(html.charAt(end - 1))) end--;
+            int length = value.length();
+            switch (op) {
+                case "^=":
+                    return end - start >= length
+                            && html.regionMatches(true, start, value, 0, length);
+                case "$=":
+                    return end - start >= length
+                            && html.regionMatches(true, end - length, value, 0, length);
+                case "*=":
+                    for (int i = start; i <= end - length; i++) {
+                        if (html.regionMatches(true, i, value, 0, length)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                default:
+                    return end - start == length
+                            && html.regionMatches(true, start, value, 0, length);
+            }
+        }
+
+        private static boolean hasClass(String html, int start, int end, String cls) {
+            int i = start;
+            while (i < end) {
+                while (i < end && Character.isWhitespace(html.charAt(i))) i++;
+                int tokenStart = i;
+                while (i < end && !Character.isWhitespace(html.charAt(i))) i++;
+                if (i - tokenStart == cls.length()
+                        && html.regionMatches(true, tokenStart, cls, 0, cls.length())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == ':';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f';
+    }
+
+    /**
+     * Looks up an attribute between {@code from} and {@code to}, the part of a start tag after
+     * its name.
+     *
+     * @return start and end of the value packed into a long, or -1 if there is no such attribute
+     */
+    private static long findAttribute(String html, int from, int to, String name) {
+        int i = from;
+        while (i < to) {
+            char c = html.charAt(i);
+            if (isWhitespace(c) || c == '/') {
+                i++;
+                continue;
+            }
+            int nameStart = i;
+            while (i < to && !isWhitespace(html.charAt(i)) && "=>/".indexOf(html.charAt(i)) < 0) {
+                i++;
+            }
+            boolean found = i - nameStart == name.length()
+                    && html.regionMatches(true, nameStart, name, 0, name.length());
+            while (i < to && isWhitespace(html.charAt(i))) i++;
+            int valueStart = i;
+            int valueEnd = i;
+            if (i < to && html.charAt(i) == '=') {
+                i++;
+                while (i < to && isWhitespace(html.charAt(i))) i++;
+                if (i < to && (html.charAt(i) == '"' || html.charAt(i) == '\'')) {
+                    int end = html.indexOf(html.charAt(i), i + 1);
+                    if (end < 0 || end > to) {
+                        end = to;
+                    }
+                    valueStart = i + 1;
+                    valueEnd = end;
+                    i = end + 1;
+                } else {
+                    valueStart = i;
+                    while (i < to && !isWhitespace(html.charAt(i))) i++;
+                    valueEnd = i;
+                }
+            }
+            if (found) {
+                return ((long) valueStart << 32) | valueEnd;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * One pass over a page, keeping a stack of the open elements outside of regions and one of
+     * the elements opened inside the current region. Names are interned per page and tags are
+     * referred to by offsets, so that the pass allocates little besides the output.
+     */
+    private class Scanner {
+        private final String html;
+        private final int length;
+        private final List<StartTag> open = new ArrayList<>();
+        private final List<StartTag> inner = new ArrayList<>();
+        /**
+         * The ancestors currently open in the output, shared by consecutive regions.
+         */
+        private final List<StartTag> emitted = new ArrayList<>();
+        private final StringBuilder out = new StringBuilder();
+        private final String[] names = new String[256];
+        private boolean found;
+        private boolean inRegion;
+        private int copyFrom;
+
+        private String name;
+        private boolean closing;
+        private boolean selfClosing;
+        private int attributesStart;
+        private int attributesEnd;
+
+        Scanner(String html) {
+            this.html = html;
+            this.length = html.length();
+        }
+
+        String run() {
+            out.append("<html><head></head><body>");
+            int i = 0;
+            while (i < length) {
+                int lt = html.indexOf('<', i);
+                if (lt < 0 || lt + 1 >= length) {
+                    break;
+                }
+                char next = html.charAt(lt + 1);
+                if (html.startsWith("<!--", lt)) {
+                    int end = html.indexOf("-->", lt + 4);
+                    end = end < 0 ? length : end + 3;
+                    if (inRegion) {
+                        skip(lt, end);
+                    }
+                    i = end;
+                    continue;
+                } else if (next == '!' || next == '?') {
+                    int end = html.indexOf('>', lt);
+                    i = end < 0 ? length : end + 1;
+                    continue;
+                }
+
+                int tagEnd = readTag(lt);
+                if (tagEnd < 0) {
+                    i = lt + 1;
+                } else if (inRegion) {
+                    i = inRegion(lt, tagEnd);
+                } else {
+                    i = outsideRegion(lt, tagEnd);
+                }
+            }
+            if (inRegion) {
+                endRegion(length);
+            }
+            if (!found) {
+                return null;
+            }
+            closeEmitted(0);
+            return out.append("</body></html>").toString();
+        }
+
+        /**
+         * Reads the tag starting at {@code lt} into the fields.
+         *
+         * @return the index after the tag, or -1 if it is not a tag
+         */
+        private int readTag(int lt) {
+            closing = html.charAt(lt + 1) == '/';
+            int i = lt + (closing ? 2 : 1);
+            int start = i;
+            while (i < length && isNameChar(html.charAt(i))) i++;
+            if (i == start || !Character.isLetter(html.charAt(start))) {
+                return -1;
+            }
+            name = intern(start, i);
+            attributesStart = i;
+            char quote = 0;
+            for (; i < length; i++) {
+                char c = html.charAt(i);
+                if (quote != 0) {
+                    if (c == quote) quote = 0;
+                } else if (c == '"' || c == '\'') {
+                    // only quotes starting a value, not e.g. in onclick=a('b')
+                    int j = i - 1;
+                    while (j > attributesStart && isWhitespace(html.charAt(j))) j--;
+                    if (html.charAt(j) == '=') quote = c;
+                } else if (c == '>') {
+                    attributesEnd = i;
+                    selfClosing = html.charAt(i - 1) == '/';
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return the lower case name, allocated only once per page
+         */
+        private String intern(int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + Character.toLowerCase(html.charAt(i));
+            }
+            int slot = hash & (names.length - 1);
+            for (int probe = 0; probe < names.length; probe++) {
+                String candidate = names[slot];
+                if (candidate == null) {
+                    candidate = html.substring(start, end).toLowerCase(Locale.ROOT);
+                    names[slot] = candidate;
+                    return candidate;
+                } else if (candidate.length() == end - start
+                        && html.regionMatches(true, start, candidate, 0, end - start)) {
+                    return candidate;
+                }
+                slot = (slot + 1) & (names.length - 1);
+            }
+            return html.substring(start, end).toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * @return the index after the end tag of the raw text element started before {@code
+         * from}
+         */
+        private int rawTextEnd(int from) {
+            int i = from;
+            while (true) {
+                int lt = html.indexOf("</", i);
+                if (lt < 0) {
+                    return length;
+                }
+                if (html.regionMatches(true, lt + 2, name, 0, name.length())) {
+                    int gt = html.indexOf('>', lt);
+                    return gt < 0 ? length : gt + 1;
+                }
+                i = lt + 2;
+            }
+        }
+
+        private int outsideRegion(int lt, int tagEnd) {
+            if (closing) {
+                int j = lastIndexOf(open, name);
+                if (j >= 0) {
+                    truncate(open, j);
+                }
+                return tagEnd;
+            }
+
+            boolean rawText = RAW_TEXT_ELEMENTS.contains(name);
+            int j = impliedEnd(open, name);
+            if (j >= 0) {
+                truncate(open, j);
+            }
+            boolean matches = false;
+            for (Matcher matcher : matchers) {
+                if (matcher.matches(html, name, attributesStart, attributesEnd)) {
+                    matches = true;
+                    break;
+                }
+            }
+
+            if (matches && (VOID_ELEMENTS.contains(name) || selfClosing)) {
+                found = true;
+                emitAncestors();
+                out.append(html, lt, tagEnd);
+                return tagEnd;
+            } else if (matches) {
+                found = true;
+                inRegion = true;
+                inner.clear();
+                inner.add(new StartTag(name, lt, tagEnd));
+                copyFrom = lt;
+                emitAncestors();
+                if (rawText) {
+                    int end = rawTextEnd(tagEnd);
+                    if (!keepScripts && DROPPED_ELEMENTS.contains(name)) {
+                        skip(lt, end);
+                    }
+                    endRegion(end);
+                    return end;
+                }
+                return tagEnd;
+            }
+
+            if (rawText) {
+                return rawTextEnd(tagEnd);
+            }
+            if (!VOID_ELEMENTS.contains(name) && !selfClosing
+                    && !DOCUMENT_ELEMENTS.contains(name)) {
+                open.add(new StartTag(name, lt, tagEnd));
+            }
+            return tagEnd;
+        }
+
+        private int inRegion(int lt, int tagEnd) {
+            if (closing) {
+                int j = lastIndexOf(inner, name);
+                if (j == 0) {
+                    endRegion(tagEnd);
+                    return tagEnd;
+                } else if (j > 0) {
+                    truncate(inner, j);
+                } else if (lastIndexOf(open, name) >= 0) {
+                    // the region element was closed implicitly by the end tag of an ancestor
+                    endRegion(lt);
+                    return lt;
+                }
+                return tagEnd;
+            }
+
+            int j = impliedEnd(inner, name);
+            if (j == 0) {
+                endRegion(lt);
+                return lt;
+            } else if (j > 0) {
+                truncate(inner, j);
+            }
+            if (RAW_TEXT_ELEMENTS.contains(name)) {
+                int end = rawTextEnd(tagEnd);
+                if (!keepScripts && DROPPED_ELEMENTS.contains(name)) {
+                    skip(lt, end);
+                }
+                return end;
+            }
+            if (!VOID_ELEMENTS.contains(name) && !selfClosing) {
+                inner.add(new StartTag(name, lt, tagEnd));
+            }
+            return tagEnd;
+        }
+
+        private int lastIndexOf(List<StartTag> stack, String name) {
+            for (int j = stack.size() - 1; j >= 0; j--) {
+                if (stack.get(j).name.equals(name)) {
+                    return j;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return the index of the element closed implicitly by a start tag, e.g. of an open
+         * {@code <tr>} by the next {@code <tr>} of the same table, or -1
+         */
+        private int impliedEnd(List<StartTag> stack, String name) {
+            if (!IMPLIED_END_ELEMENTS.contains(name)) {
+                return -1;
+            }
+            for (int j = stack.size() - 1; j >= 0; j--) {
+                String openName = stack.get(j).name;
+                if (openName.equals(name)) {
+                    return j;
+                } else if (!IMPLIED_END_ELEMENTS.contains(openName)) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        private void truncate(List<StartTag> stack, int size) {
+            while (stack.size() > size) stack.remove(stack.size() - 1);
+        }
+
+        /**
+         * Leaves out the part between {@code start} and {@code end} of the current region.
+         */
+        private void skip(int start, int end) {
+            out.append(html, copyFrom, start);
+            copyFrom = end;
+        }
+
+        private void endRegion(int end) {
+            out.append(html, copyFrom, end);
+            inRegion = false;
+        }
+
+        /**
+         * Makes the output match the open elements, reusing the ancestors of the previous region
+         * as far as they are the same elements.
+         */
+        private void emitAncestors() {
+            int common = 0;
+            while (common < emitted.size() && common < open.size()
+                    && emitted.get(common) == open.get(common)) {
+                common++;
+            }
+            closeEmitted(common);
+            for (int j = common; j < open.size(); j++) {
+                StartTag ancestor = open.get(j);
+                out.append(html, ancestor.start, ancestor.end);
+                emitted.add(ancestor);
+            }
+        }
+
+        private void closeEmitted(int size) {
+            for (int j = emitted.size() - 1; j >= size; j--) {
+                out.append("</").append(emitted.get(j).name).append(">");
+            }
+            truncate(emitted, size);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package de.geeksfactory.opacclient.utils;
+
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.JsonEncodingException;
+
+import org.json.JSONException;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+
+import okio.Buffer;
+import okio.BufferedSource;
+
+/**
+ * Pull parser reading a JSON document token by token, for APIs mapping large responses directly
+ * to their own objects instead of building a {@link org.json.JSONObject} tree first.
+ * <p>
+ * This wraps Moshi's {@link com.squareup.moshi.JsonReader} in lenient mode, which accepts the same
+ * relaxed syntax as org.json (single quotes, comments, {@code =} and {@code ;} as separators).
+ * Values are converted like org.json's getters do, e.g. {@link #nextInt()} also accepts numeric
+ * strings and {@link #nextString()} also returns numbers and booleans as their text. Syntax errors
+ * throw a {@link JSONException}, so callers can keep their existing error handling.
+ */
+public final class JsonReader implements Closeable {
+
+    public enum Token {
+        BEGIN_ARRAY, END_ARRAY, BEGIN_OBJECT, END_OBJECT, NAME, STRING, NUMBER, BOOLEAN, NULL,
+        END_DOCUMENT
+    }
+
+    private final com.squareup.moshi.JsonReader in;
+    private int depth;
+    /**
+     * Whether the top-level value has been started, so that anything after it is an error
+     */
+    private boolean started;
+
+    public JsonReader(BufferedSource source) {
+        in = com.squareup.moshi.JsonReader.of(source);
+        in.setLenient(true);
+    }
+
+    public JsonReader(String json) {
+        this(new Buffer().writeUtf8(json));
+    }
+
+    /**
+     * @return the type of the next token without consuming it
+     */
+    public Token peek() throws IOException, JSONException {
+        Token token;
+        try {
+            token = Token.valueOf(in.peek().name());
+        } catch (JsonEncodingException | JsonDataException | EOFException e) {
+            throw new JSONException(e);
+        }
+        if (depth == 0 && started && token != Token.END_DOCUMENT) {
+            throw new JSONException("Expected end of document but was " + token);
+        }
+        return token;
+    }
+
+    /**
+     * @return whether the current array or object has another element
+     */
+    public boolean hasNext() throws IOException, JSONException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY
+                && token != Token.END_DOCUMENT;
+    }
+
+    public void beginArray() throws IOException, JSONException {
+        start();
+        try {
+            in.beginArray();
+        } catch (JsonEncodingException | JsonDataException | EOFException e) {
+            throw new JSONException(e);
+        }
+        depth++;
+    }
+
+    public void endArray() throws IOException, JSONException {
+        try {
+            in.endArray();
+        } catch (JsonEncodingException | JsonDataException | EOFException e) {
+            throw new JSONException(e);
+        }
+        depth--;
+    }
+
+    public void beginObject() throws IOException, JSONException {
+        start();
+        try {
+            in.beginObject();
+        } catch (JsonEncodingException | JsonDataException | EOFException e) {
+            throw new JSONException(e);
+        }
+        depth++;
+    }
+
+    public void endObject() throws IOException, JSONException {
+        try {
+            in.endObject();
+        } catch (JsonEncodingException | JsonDataException | EOFException e) {
+            throw new JSONException(e);
+        }
+        depth--;
+    }
+
+    public String nextName() throws IOException, JSONException {
+        try {
+            return in.nextName();
+        } catch (JsonEncodingException | JsonDataException | EOFException e) {
+            throw new JSONException(e);
+        }
+    }
+
+    /**
+     * @return the next string, number or boolean as text
+     */
+    public String nextString() throws IOException, JSONException {
+        Token token = peek();
+        start();
+        try {
+            if (token == Token.STRING || token == Token.NUMBER) {
+                return in.nextString();
+            } else if (token == Token.BOOLEAN) {
+                return String.valueOf(in.nextBoolean());
+            }
+        } catch (JsonEncodingException | JsonDataException | EOFException e) {
+            throw new JSONException(e);
+        }
+        throw new JSONException("Expected a string but was " + token);
+    }
+
+    /**
+     * Like {@link #nextString()}, but returns {@code null} for a JSON {@code null}.
+     */
+    public String nextStringOrNull() throws IOException, JSONException {
+        if (peek() == Token.NULL) {
+            nextNull();
+            return null;
+        }
+        return nextString();
+    }
+
+    public boolean nextBoolean() throws IOException, JSONException {
+        Token token = peek();
+        if (token == Token.BOOLEAN) {
+            start();
+            try {
+                return in.nextBoolean();
+            } catch (JsonEncodingException | JsonDataException | EOFException e) {
+                throw new JSONException(e);
+            }
+        } else if (token != Token.STRING) {
+            throw new JSONException("Expected a boolean but was " + token);
+        }
+        String value = nextString();
+        if (value.equalsIgnoreCase("true")) {
+            return true;
+        } else if (value.equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw new JSONException("Expected a boolean but was " + value);
+    }
+
+    /**
+     * @return the next number or numeric string, truncated to an int like {@link
+     * org.json.JSONObject#getInt(String)} does
+     */
+    public int nextInt() throws IOException, JSONException {
+        Token token = peek();
+        if (token != Token.NUMBER && token != Token.STRING) {
+            throw new JSONException("Expected an int but was " + token);
+        }
+        String value = nextString();
+        Integer result = toInt(value);
+        if (result == null) {
+            throw new JSONException("Expected an int but was " + value);
+        }
+        return result;
+    }
+
+    /**
+     * Like {@link org.json.JSONObject#optInt(String, int)}, consumes the next value and returns
+     * {@code fallback} if it is not a number.
+     */
+    public int nextIntOrDefault(int fallback) throws IOException, JSONException {
+        Token token = peek();
+        if (token != Token.NUMBER && token != Token.STRING) {
+            skipValue();
+            return fallback;
+        }
+        Integer result = toInt(nextString());
+        return result != null ? result : fallback;
+    }
+
+    public void nextNull() throws IOException, JSONException {
+        start();
+        try {
+            in.nextNull();
+        } catch (JsonEncodingException | JsonDataException | EOFException e) {
+            throw new JSONException(e);
+        }
+    }
+
+    /**
+     * Skips the next value, including all of its contents if it is an array or an object.
+     */
+    public void skipValue() throws IOException, JSONException {
+        if (peek() == Token.END_DOCUMENT) {
+            throw new JSONException("Unexpected end of document");
+        }
+        start();
+        try {
+            in.skipValue();
+        } catch (JsonEncodingException | JsonDataException | EOFException e) {
+            throw new JSONException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void start() {
+        if (depth == 0) {
+            started = true;
+        }
+    }
+
+    private static Integer toInt(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            try {
+                return (int) Double.parseDouble(value.trim());
+            } catch (NumberFormatException e2) {
+                return null;
+            }
+        }
+    }
+}
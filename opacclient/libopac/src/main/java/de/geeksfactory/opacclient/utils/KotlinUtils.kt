@@ -25,9 +25,33 @@ val Elements.text: String
 val TextNode.text: String
     get() = this.text()
 
+/**
+ * Like [Regex], but compiled only once, see [Selectors.pattern].
+ */
+fun regex(pattern: String): Regex = Selectors.pattern(pattern).toRegex()
+
 // JSONArray extension functions
 inline fun <reified T, R> JSONArray.map(transform: (T) -> R): List<R> =
         (0.until(length())).map { i -> transform(get(i) as T) }
 
 inline fun <reified T> JSONArray.forEach(function: (T) -> Unit) =
         (0.until(length())).forEach { i -> function(get(i) as T) }
+
+// JsonReader extension functions
+/**
+ * Reads an object, calling [readField] with each name. It has to consume the value.
+ */
+inline fun JsonReader.readObject(readField: JsonReader.(String) -> Unit) {
+    beginObject()
+    while (hasNext()) readField(nextName())
+    endObject()
+}
+
+/**
+ * Reads an array, calling [readElement] for each element. It has to consume the element.
+ */
+inline fun JsonReader.readArray(readElement: JsonReader.() -> Unit) {
+    beginArray()
+    while (hasNext()) readElement()
+    endArray()
+}
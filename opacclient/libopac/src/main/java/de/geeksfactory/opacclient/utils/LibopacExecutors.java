@@ -0,0 +1,497 @@
+package de.geeksfactory.opacclient.utils;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.geeksfactory.opacclient.networking.CancellationToken;
+import de.geeksfactory.opacclient.networking.OperationCancelledException;
+import de.geeksfactory.opacclient.networking.OperationContext;
+import java8.util.concurrent.CompletableFuture;
+import java8.util.concurrent.ForkJoinPool;
+import java8.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * The threads libopac uses for background work. There are three pools, all of them bounded and
+ * made of named daemon threads, so they never keep a JVM from exiting:
+ * <ul>
+ * <li>{@link #operations()} runs whole blocking API operations, e.g. for {@link
+ * de.geeksfactory.opacclient.apis.AsyncOpacApiAdapter}.</li>
+ * <li>{@link #io()} runs small blocking requests an operation fans out, e.g. for covers or
+ * availability. API implementations use it through their {@link Scope}.</li>
+ * <li>{@link #cpu()} is a fork-join pool for parsing, see {@link ParallelRecordParser}.</li>
+ * </ul>
+ * Operations and their requests use separate pools because an operation waits for its
+ * requests; sharing a pool could deadlock once all threads are waiting.
+ * <p>
+ * When a pool is full, it rejects further tasks with a {@link RejectedExecutionException}. A
+ * {@link Scope} instead runs a rejected task on the submitting thread, which slows down the
+ * operation producing the tasks. On JDK 21 and newer, the operation and I/O pools use virtual
+ * threads unless turned off with {@link Builder#virtualThreads(boolean)}, with the same bound on
+ * the number of tasks.
+ * <p>
+ * An instance is passed to the APIs with {@link de.geeksfactory.opacclient.OpacApiFactory}.
+ * Without one, the APIs use {@link #getDefault()}.
+ */
+public class LibopacExecutors {
+    private static LibopacExecutors defaultInstance;
+
+    private final Pool operations;
+    private final Pool io;
+    private final ForkJoinPool cpu;
+
+    private LibopacExecutors(Builder builder) {
+        ThreadFactory virtual = builder.virtualThreads ?
+                virtualThreadFactory(builder.name + "-virtual-") : null;
+        operations = virtual != null ?
+                new VirtualPool(builder.operationThreads + builder.queueSize, virtual) :
+                new PlatformPool(builder.name + "-op", builder.operationThreads,
+                        builder.queueSize);
+        io = virtual != null ?
+                new VirtualPool(builder.ioThreads + builder.queueSize, virtual) :
+                new PlatformPool(builder.name + "-io", builder.ioThreads, builder.queueSize);
+        final String cpuName = builder.name + "-cpu-";
+        final AtomicInteger count = new AtomicInteger();
+        cpu = new ForkJoinPool(builder.cpuThreads, pool -> {
+            ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {
+            };
+            thread.setName(cpuName + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * @return a process-wide instance with the default sizes, created on first use
+     */
+    public static synchronized LibopacExecutors getDefault() {
+        if (defaultInstance == null) {
+            defaultInstance = new Builder().build();
+        }
+        return defaultInstance;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Executor operations() {
+        return operations;
+    }
+
+    public Executor io() {
+        return io;
+    }
+
+    public ForkJoinPool cpu() {
+        return cpu;
+    }
+
+    /**
+     * @return a new scope for the I/O tasks of one API instance
+     */
+    public Scope newScope() {
+        return new Scope(io);
+    }
+
+    /**
+     * @return the current state of the pools
+     */
+    public Stats getStats() {
+        return new Stats(operations.getStats("operations"), io.getStats("io"),
+                new PoolStats("cpu", cpu.getActiveThreadCount(), cpu.getPoolSize(),
+                        cpu.getQueuedSubmissionCount() + (int) cpu.getQueuedTaskCount(),
+                        cpu.getStealCount(), 0));
+    }
+
+    /**
+     * Stops accepting new tasks. Tasks already submitted are still run.
+     */
+    public void shutdown() {
+        operations.shutdown();
+        io.shutdown();
+        cpu.shutdown();
+    }
+
+    public static class Builder {
+        private String name = "libopac";
+        private int operationThreads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        private int ioThreads = 10;
+        private int cpuThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        private int queueSize = 1024;
+        private boolean virtualThreads = true;
+
+        /**
+         * @param name prefix of the thread names
+         */
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * @param threads number of operations run at the same time
+         */
+        public Builder operationThreads(int threads) {
+            operationThreads = threads;
+            return this;
+        }
+
+        /**
+         * @param threads number of I/O tasks run at the same time. Requests to a single server
+         *                are further limited by the HTTP client.
+         */
+        public Builder ioThreads(int threads) {
+            ioThreads = threads;
+            return this;
+        }
+
+        /**
+         * @param threads parallelism of the parsing pool
+         */
+        public Builder cpuThreads(int threads) {
+            cpuThreads = threads;
+            return this;
+        }
+
+        /**
+         * @param size number of tasks the operation and I/O pools each keep waiting before they
+         *             reject further tasks
+         */
+        public Builder queueSize(int size) {
+            queueSize = size;
+            return this;
+        }
+
+        /**
+         * @param enabled use virtual threads for the operation and I/O pools if the JVM supports
+         *                them
+         */
+        public Builder virtualThreads(boolean enabled) {
+            virtualThreads = enabled;
+            return this;
+        }
+
+        public LibopacExecutors build() {
+            return new LibopacExecutors(this);
+        }
+    }
+
+    /**
+     * The I/O tasks started by one API instance. Tasks still waiting or running when the scope
+     * is cancelled are cancelled, and tasks submitted afterwards fail immediately, in both cases
+     * with a {@link CancellationException}.
+     * <p>
+     * A task continues the {@link OperationContext} of the thread submitting it, so it shares the
+     * operation's time budget and is cancelled together with it (failing with an {@link
+     * OperationCancelledException}).
+     */
+    public static class Scope implements Executor {
+        private final Executor executor;
+        private final Set<ScopedTask<?>> tasks =
+                Collections.newSetFromMap(new ConcurrentHashMap<ScopedTask<?>, Boolean>());
+        private volatile boolean cancelled;
+
+        Scope(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            runAsync(command);
+        }
+
+        public CompletableFuture<Void> runAsync(final Runnable runnable) {
+            return submit(() -> {
+                runnable.run();
+                return null;
+            });
+        }
+
+        /**
+         * Runs a task on the I/O pool, or on the calling thread if the pool is full.
+         *
+         * @return a future completed with the result of the task
+         */
+        @SuppressWarnings("try")
+        public <T> CompletableFuture<T> submit(final Callable<T> callable) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            if (cancelled) {
+                future.completeExceptionally(new CancellationException("Scope was cancelled"));
+                return future;
+            }
+            final OperationContext ctx = OperationContext.current();
+            CancellationToken token = ctx != null ? ctx.getCancellationToken() : null;
+            ScopedTask<T> task;
+            if (ctx != null) {
+                task = new ScopedTask<>(() -> {
+                    try (OperationContext joined = OperationContext.join(ctx)) {
+                        return callable.call();
+                    }
+                }, future, token);
+            } else {
+                task = new ScopedTask<>(callable, future, null);
+            }
+            tasks.add(task);
+            if (cancelled) {
+                task.cancel(false);
+                return future;
+            }
+            if (token != null) {
+                task.registration = token.register(task);
+            }
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+            return future;
+        }
+
+        /**
+         * Cancels all tasks of this scope, interrupting those already running.
+         */
+        public void cancel() {
+            cancelled = true;
+            for (ScopedTask<?> task : tasks) {
+                task.cancel(true);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @return the number of tasks of this scope that are waiting or running
+         */
+        public int getPendingCount() {
+            return tasks.size();
+        }
+
+        private class ScopedTask<T> extends FutureTask<T> {
+            private final CompletableFuture<T> future;
+            private final CancellationToken token;
+            private volatile CancellationToken.Registration registration;
+
+            ScopedTask(Callable<T> callable, CompletableFuture<T> future,
+                    CancellationToken token) {
+                super(callable);
+                this.future = future;
+                this.token = token;
+            }
+
+            @Override
+            public void run() {
+                // a task that did not start yet when the token was cancelled is cancelled by it
+                // right after, so it must not start late
+                if (token != null && token.isCancelled()) {
+                    return;
+                }
+                super.run();
+            }
+
+            @Override
+            protected void done() {
+                tasks.remove(this);
+                CancellationToken.Registration registration = this.registration;
+                if (registration != null) {
+                    registration.unregister();
+                }
+                if (isCancelled()) {
+                    future.completeExceptionally(token != null && token.isCancelled()
+                            ? new OperationCancelledException()
+                            : new CancellationException("Scope was cancelled"));
+                    return;
+                }
+                try {
+                    future.complete(get());
+                } catch (ExecutionException e) {
+                    future.completeExceptionally(e.getCause());
+                } catch (InterruptedException | CancellationException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * State of one pool.
+     */
+    public static class PoolStats {
+        public final String name;
+        public final int active;
+        public final int poolSize;
+        public final int queued;
+        public final long completed;
+        public final long rejected;
+
+        PoolStats(String name, int active, int poolSize, int queued, long completed,
+                long rejected) {
+            this.name = name;
+            this.active = active;
+            this.poolSize = poolSize;
+            this.queued = queued;
+            this.completed = completed;
+            this.rejected = rejected;
+        }
+
+        @Override
+        public String toString() {
+            return "PoolStats{" +
+                    "name='" + name + '\'' +
+                    ", active=" + active +
+                    ", poolSize=" + poolSize +
+                    ", queued=" + queued +
+                    ", completed=" + completed +
+                    ", rejected=" + rejected +
+                    '}';
+        }
+    }
+
+    /**
+     * State of all pools. For the fork-join pool, {@code completed} counts stolen tasks.
+     */
+    public static class Stats {
+        public final PoolStats operations;
+        public final PoolStats io;
+        public final PoolStats cpu;
+
+        Stats(PoolStats operations, PoolStats io, PoolStats cpu) {
+            this.operations = operations;
+            this.io = io;
+            this.cpu = cpu;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "operations=" + operations +
+                    ", io=" + io +
+                    ", cpu=" + cpu +
+                    '}';
+        }
+    }
+
+    private interface Pool extends Executor {
+        PoolStats getStats(String name);
+
+        void shutdown();
+    }
+
+    private static class PlatformPool implements Pool {
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong rejected = new AtomicLong();
+
+        PlatformPool(final String name, int threads, int queueSize) {
+            final AtomicInteger count = new AtomicInteger();
+            ThreadFactory threadFactory = r -> {
+                Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(queueSize), threadFactory);
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            try {
+                executor.execute(command);
+            } catch (RejectedExecutionException e) {
+                rejected.incrementAndGet();
+                throw e;
+            }
+        }
+
+        @Override
+        public PoolStats getStats(String name) {
+            return new PoolStats(name, executor.getActiveCount(), executor.getPoolSize(),
+                    executor.getQueue().size(), executor.getCompletedTaskCount(),
+                    rejected.get());
+        }
+
+        @Override
+        public void shutdown() {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Starts a virtual thread per task. Virtual threads do not queue, so the number of tasks
+     * in progress is bounded instead.
+     */
+    private static class VirtualPool implements Pool {
+        private final Semaphore permits;
+        private final ThreadFactory threadFactory;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private volatile boolean shutdown;
+
+        VirtualPool(int maxTasks, ThreadFactory threadFactory) {
+            this.permits = new Semaphore(maxTasks);
+            this.threadFactory = threadFactory;
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            if (shutdown || !permits.tryAcquire()) {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException();
+            }
+            threadFactory.newThread(() -> {
+                active.incrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    active.decrementAndGet();
+                    completed.incrementAndGet();
+                    permits.release();
+                }
+            }).start();
+        }
+
+        @Override
+        public PoolStats getStats(String name) {
+            int running = active.get();
+            return new PoolStats(name, running, running, 0, completed.get(), rejected.get());
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+    }
+
+    /**
+     * @return a factory for virtual threads if the JVM supports them (JDK 21 and newer),
+     * otherwise {@code null}
+     */
+    static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, prefix, 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
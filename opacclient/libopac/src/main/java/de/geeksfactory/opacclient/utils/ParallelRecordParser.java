@@ -0,0 +1,126 @@
+package de.geeksfactory.opacclient.utils;
+
+import org.jsoup.nodes.Element;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.geeksfactory.opacclient.networking.CancellationToken;
+import de.geeksfactory.opacclient.networking.OperationCancelledException;
+import java8.util.concurrent.ForkJoinPool;
+import java8.util.concurrent.RecursiveAction;
+
+/**
+ * Turns the rows of a result list into records on several cores.
+ * <p>
+ * The rows are split recursively and parsed in the fork-join pool of {@link
+ * LibopacExecutors#cpu()} into a result array of the size of the list, so the records keep the
+ * order of their rows. Pages with fewer than {@link #SEQUENTIAL_THRESHOLD} rows are parsed on the
+ * calling thread, where splitting costs more than it saves.
+ * <p>
+ * A {@link RowParser} must be free of side effects: it may only read its row, the document and
+ * immutable state of the API, and must not do any requests. Note that {@code Element.html()} and
+ * {@code outerHtml()} share the document's {@code CharsetEncoder}, which is not thread-safe, so
+ * parsers needing the HTML of a row call them on a {@code clone()} of it.
+ */
+public final class ParallelRecordParser {
+    /**
+     * Smallest number of rows parsed in parallel
+     */
+    public static final int SEQUENTIAL_THRESHOLD = 16;
+    private static final int MIN_LEAF_SIZE = 4;
+
+    public interface RowParser<T> {
+        /**
+         * @param row   the row element
+         * @param index the position of the row in the list
+         */
+        T parse(Element row, int index);
+    }
+
+    private ParallelRecordParser() {
+    }
+
+    /**
+     * Parses the rows in the pool of {@link LibopacExecutors#getDefault()}.
+     */
+    public static <T> List<T> parse(List<Element> rows, RowParser<T> parser) {
+        return parse(LibopacExecutors.getDefault().cpu(), rows, parser);
+    }
+
+    /**
+     * @param pool the pool to parse the rows in
+     * @return the records of all rows, in the order of the rows. Exceptions thrown by the parser
+     * are rethrown, and an {@link OperationCancelledException} if the current operation is
+     * cancelled while parsing.
+     */
+    public static <T> List<T> parse(ForkJoinPool pool, List<Element> rows,
+            final RowParser<T> parser) {
+        final CancellationToken token = CancellationToken.current();
+        if (token != null) {
+            return parseRows(pool, rows, (row, index) -> {
+                token.throwIfCancelled();
+                return parser.parse(row, index);
+            });
+        }
+        return parseRows(pool, rows, parser);
+    }
+
+    private static <T> List<T> parseRows(ForkJoinPool pool, List<Element> rows,
+            RowParser<T> parser) {
+        int size = rows.size();
+        Object[] records = new Object[size];
+        int parallelism = pool.getParallelism();
+        if (size < SEQUENTIAL_THRESHOLD || parallelism < 2) {
+            parseRange(rows, parser, records, 0, size);
+        } else {
+            int leafSize = Math.max(MIN_LEAF_SIZE, size / (4 * parallelism));
+            pool.invoke(new ParseTask<>(rows, parser, records, 0, size, leafSize));
+        }
+        List<T> result = new ArrayList<>(size);
+        for (Object record : records) {
+            @SuppressWarnings("unchecked") T typed = (T) record;
+            result.add(typed);
+        }
+        return result;
+    }
+
+    private static <T> void parseRange(List<Element> rows, RowParser<T> parser, Object[] records,
+            int from, int to) {
+        for (int i = from; i < to; i++) {
+            records[i] = parser.parse(rows.get(i), i);
+        }
+    }
+
+    private static class ParseTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = -3141489785021645723L;
+
+        private final List<Element> rows;
+        private final RowParser<T> parser;
+        private final Object[] records;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        ParseTask(List<Element> rows, RowParser<T> parser, Object[] records, int from, int to,
+                int leafSize) {
+            this.rows = rows;
+            this.parser = parser;
+            this.records = records;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                parseRange(rows, parser, records, from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask<>(rows, parser, records, from, middle, leafSize),
+                        new ParseTask<>(rows, parser, records, middle, to, leafSize));
+            }
+        }
+    }
+}
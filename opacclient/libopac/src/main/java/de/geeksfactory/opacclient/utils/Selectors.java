@@ -0,0 +1,123 @@
+package de.geeksfactory.opacclient.utils;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.Selector;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Process-wide registry of compiled CSS selectors and regular expressions for the parsers.
+ * <p>
+ * {@link Element#select(String)} parses the query into an {@link Evaluator} on every call and
+ * {@link Pattern#compile(String)} compiles the expression again, which adds up when it happens
+ * for every result row. Use {@link #select(Element, String)} and {@link #pattern(String)} with
+ * literals instead, or keep the result of {@link #evaluator(String)} in a constant.
+ * <p>
+ * jsoup 1.8 does not expose its query parser, so it is called reflectively once per query. If
+ * that is not possible, the selectors fall back to {@link Element#select(String)}.
+ */
+public final class Selectors {
+    /**
+     * Upper bound for the number of cached entries, in case queries are built dynamically.
+     */
+    static final int MAX_ENTRIES = 2048;
+
+    private static final ConcurrentHashMap<String, Evaluator> evaluators =
+            new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Pattern> patterns = new ConcurrentHashMap<>();
+    private static final Method parseMethod = findParseMethod();
+    private static volatile boolean cachingEnabled = true;
+
+    private Selectors() {
+    }
+
+    /**
+     * Turns off compiling ahead of time, so that the parsers behave as with plain {@link
+     * Element#select(String)} and {@link Pattern#compile(String)}. Used to measure the effect.
+     */
+    public static void setCachingEnabled(boolean enabled) {
+        cachingEnabled = enabled;
+    }
+
+    private static Method findParseMethod() {
+        try {
+            Method method = Class.forName("org.jsoup.select.QueryParser")
+                                 .getMethod("parse", String.class);
+            method.setAccessible(true);
+            return method;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the compiled CSS query, or {@code null} if it cannot be compiled ahead of time
+     */
+    public static Evaluator evaluator(String query) {
+        if (!cachingEnabled) {
+            return null;
+        }
+        Evaluator evaluator = evaluators.get(query);
+        if (evaluator == null && parseMethod != null) {
+            try {
+                evaluator = (Evaluator) parseMethod.invoke(null, query.trim());
+            } catch (Exception e) {
+                return null;
+            }
+            if (evaluators.size() < MAX_ENTRIES) {
+                evaluators.putIfAbsent(query, evaluator);
+            }
+        }
+        return evaluator;
+    }
+
+    /**
+     * Equivalent to {@code root.select(query)}, but parses the query only once.
+     */
+    public static Elements select(Element root, String query) {
+        Evaluator evaluator = evaluator(query);
+        return evaluator != null ? Selector.select(evaluator, root) : root.select(query);
+    }
+
+    public static Elements select(Element root, Evaluator evaluator) {
+        return Selector.select(evaluator, root);
+    }
+
+    /**
+     * @return the first element matching the query, or {@code null}
+     */
+    public static Element selectFirst(Element root, String query) {
+        return select(root, query).first();
+    }
+
+    public static Element selectFirst(Element root, Evaluator evaluator) {
+        return Selector.select(evaluator, root).first();
+    }
+
+    public static Pattern pattern(String regex) {
+        return pattern(regex, 0);
+    }
+
+    /**
+     * Equivalent to {@link Pattern#compile(String, int)}, but compiles each expression only once.
+     * Patterns are immutable, the {@link java.util.regex.Matcher}s created from them are not.
+     */
+    public static Pattern pattern(String regex, int flags) {
+        if (!cachingEnabled) {
+            return Pattern.compile(regex, flags);
+        }
+        String key = flags + ":" + regex;
+        Pattern pattern = patterns.get(key);
+        if (pattern == null) {
+            pattern = Pattern.compile(regex, flags);
+            if (patterns.size() < MAX_ENTRIES) {
+                patterns.putIfAbsent(key, pattern);
+            }
+        }
+        return pattern;
+    }
+}
@@ -0,0 +1,178 @@
+package de.geeksfactory.opacclient;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.geeksfactory.opacclient.apis.OpacApi;
+import de.geeksfactory.opacclient.objects.Account;
+import de.geeksfactory.opacclient.objects.Library;
+import de.geeksfactory.opacclient.utils.LibopacExecutors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OpacApiPoolTest {
+    private final LibopacExecutors executors =
+            LibopacExecutors.builder().virtualThreads(false).build();
+    private final AtomicInteger sessions = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        executors.shutdown();
+    }
+
+    private OpacApi mockApi() {
+        OpacApi api = Mockito.mock(OpacApi.class);
+        when(api.newSession()).thenAnswer(invocation -> {
+            sessions.incrementAndGet();
+            return mockApi();
+        });
+        return api;
+    }
+
+    private OpacApiPool.Builder pool() {
+        return OpacApiPool.builder(library -> mockApi()).executors(executors)
+                          .maintenanceIntervalMillis(0).warmSessions(0);
+    }
+
+    private static Library library(String ident) {
+        Library library = new Library();
+        library.setIdent(ident);
+        return library;
+    }
+
+    @Test
+    public void testReusesSessions() throws Exception {
+        OpacApiPool pool = pool().build();
+        OpacApi api;
+        try (OpacApiPool.Lease lease = pool.lease(library("A"), null, 1000)) {
+            api = lease.getApi();
+            verify(api).start();
+        }
+        try (OpacApiPool.Lease lease = pool.lease(library("A"), null, 1000)) {
+            assertSame(api, lease.getApi());
+        }
+        try (OpacApiPool.Lease lease = pool.lease(library("B"), null, 1000)) {
+            assertNotSame(api, lease.getApi());
+        }
+
+        OpacApiPool.Stats stats = pool.getStats();
+        assertEquals(1, stats.hits);
+        assertEquals(2, stats.misses);
+        assertEquals(2, stats.idle);
+        assertEquals(3, pool.getLeaseWaitHistogram().getCount());
+        pool.close();
+    }
+
+    private static Account account(String name, String password) {
+        Account account = new Account();
+        account.setName(name);
+        account.setPassword(password);
+        return account;
+    }
+
+    @Test
+    public void testSessionsPerCredentials() throws Exception {
+        OpacApiPool pool = pool().build();
+        OpacApi api;
+        // services usually don't set account IDs, so both accounts have ID 0
+        try (OpacApiPool.Lease lease = pool.lease(library("A"), account("alice", "1234"), 1000)) {
+            api = lease.getApi();
+        }
+        try (OpacApiPool.Lease lease = pool.lease(library("A"), account("bob", "1234"), 1000)) {
+            assertNotSame(api, lease.getApi());
+        }
+        try (OpacApiPool.Lease lease = pool.lease(library("A"), account("alice", "4321"), 1000)) {
+            assertNotSame(api, lease.getApi());
+        }
+        try (OpacApiPool.Lease lease = pool.lease(library("A"), account("alice", "1234"), 1000)) {
+            assertSame(api, lease.getApi());
+        }
+        pool.close();
+    }
+
+    @Test
+    public void testLeaseTimeout() throws Exception {
+        OpacApiPool pool = pool().maxSessions(1).build();
+        OpacApiPool.Lease lease = pool.lease(library("A"), null, 1000);
+        try {
+            pool.lease(library("A"), null, 50);
+            fail();
+        } catch (TimeoutException e) {
+            // expected
+        }
+        assertEquals(1, pool.getStats().timeouts);
+
+        lease.close();
+        pool.lease(library("A"), null, 50).close();
+        pool.close();
+    }
+
+    @Test
+    public void testExpiredAndInvalidSessions() throws Exception {
+        OpacApiPool pool = pool().maxIdleMillis(50).build();
+        OpacApi api;
+        try (OpacApiPool.Lease lease = pool.lease(library("A"), null, 1000)) {
+            api = lease.getApi();
+        }
+        Thread.sleep(100);
+        pool.evictIdle();
+        verify(api).dispose();
+        assertEquals(0, pool.getStats().idle);
+
+        OpacApiPool.Lease lease = pool.lease(library("A"), null, 1000);
+        lease.invalidate();
+        lease.close();
+        verify(lease.getApi()).dispose();
+        assertEquals(2, pool.getStats().evicted);
+        pool.close();
+    }
+
+    private static void awaitStarted(OpacApiPool pool) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (pool.getStats().starting > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, pool.getStats().starting);
+    }
+
+    @Test
+    public void testWarmSessions() throws Exception {
+        OpacApiPool pool = pool().warmSessions(2).build();
+        OpacApiPool.Lease lease = pool.lease(library("A"), null, 1000);
+        // the leased session counts, so one more is started
+        awaitStarted(pool);
+        assertEquals(1, pool.getStats().idle);
+        assertEquals(1, pool.getStats().leased);
+
+        lease.close();
+        pool.evictIdle();
+        awaitStarted(pool);
+        assertEquals(2, pool.getStats().idle);
+        assertEquals(2, sessions.get());
+
+        pool.close();
+        assertEquals(0, pool.getStats().idle);
+    }
+
+    @Test
+    public void testUnusedKeysAreNotWarmed() throws Exception {
+        OpacApiPool pool = pool().warmSessions(1).maxIdleMillis(50).build();
+        pool.lease(library("A"), null, 1000).close();
+        Thread.sleep(100);
+        pool.evictIdle();
+        awaitStarted(pool);
+        assertEquals(0, pool.getStats().idle);
+        assertEquals(1, pool.getStats().evicted);
+        assertEquals(1, sessions.get());
+        pool.close();
+    }
+}
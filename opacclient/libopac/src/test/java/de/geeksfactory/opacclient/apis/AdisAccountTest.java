@@ -5,6 +5,8 @@ import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.json.JSONException;
 import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
@@ -18,6 +20,7 @@ import de.geeksfactory.opacclient.i18n.DummyStringProvider;
 import de.geeksfactory.opacclient.objects.LentItem;
 import de.geeksfactory.opacclient.objects.ReservedItem;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -73,4 +76,29 @@ public class AdisAccountTest extends BaseHtmlTest {
             assertNotNull(item.getTitle());
         }
     }
+
+    @Test
+    public void testParseMediaListRegions() {
+        String html = readResource("/adis/medialist/" + file);
+        if (html == null) return; // we may not have all files for all libraries
+        Document doc = Jsoup.parse(html);
+        Document regions = Adis.MEDIA_LIST_REGIONS.parse(html);
+
+        List<LentItem> expected = new ArrayList<>();
+        Adis.parseMediaList(doc, "", expected, false);
+        List<LentItem> media = new ArrayList<>();
+        Adis.parseMediaList(regions, "", media, false);
+        assertEquals(expected.toString(), media.toString());
+
+        // the form is sent back to the server
+        assertEquals(formFields(doc), formFields(regions));
+    }
+
+    private static List<String> formFields(Document doc) {
+        List<String> fields = new ArrayList<>();
+        for (Element input : doc.select("input, select")) {
+            fields.add(input.attr("type") + " " + input.attr("name") + "=" + input.val());
+        }
+        return fields;
+    }
 }
@@ -3,6 +3,8 @@ package de.geeksfactory.opacclient.apis
 import de.geeksfactory.opacclient.i18n.DummyStringProvider
 import de.geeksfactory.opacclient.networking.HttpClientFactory
 import de.geeksfactory.opacclient.objects.Library
+import de.geeksfactory.opacclient.objects.SearchRequestResult
+import de.geeksfactory.opacclient.objects.SearchResult
 import de.geeksfactory.opacclient.utils.html
 import org.json.JSONObject
 import org.junit.Assert
@@ -15,6 +17,8 @@ import org.mockito.Matchers.eq
 import org.mockito.Mockito.doReturn
 import org.mockito.Mockito.spy
 import java.util.*
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
 
 class ArenaSearchTest : BaseHtmlTest() {
     val arena = spy(Arena::class.java)
@@ -64,6 +68,77 @@ class ArenaSearchTest : BaseHtmlTest() {
         val cover = arena.getCover(doc.select("div").first(), emptyMap())
         assertEquals("https://arena.stabi-ludwigsburg.de/arena-portlets/portletResources?resource=resourceCover&portalSiteId=37779237&recordId=104266&agencyName=ASE100117&width=0&height=0", cover)
     }
+
+    private fun streamingArena(answerAjax: CountDownLatch): Arena {
+        val script = "<script type=\"text/javascript\" >Wicket.Event.add(window,\"domready\",function(b){var a=wicketAjaxGet(\"https://url\",function(){}.bind(this),function(){}.bind(this),function(){return Wicket.\$(\"cover1\")!=null}.bind(this))});</script>"
+        val record = "<div class=\"arena-record\"><div class=\"arena-record-id\">1</div>" +
+                "<div class=\"arena-record-title\">Test</div>" +
+                "<div class=\"arena-record-cover\" id=\"cover1\"></div></div>"
+        val doc = "<html><head>$script</head><body>$record</body></html>".html
+        val api = object : Arena() {
+            override fun searchGetPage(page: Int) = parseSearch(doc, page)
+
+            override fun httpGet(url: String, encoding: String): String {
+                answerAjax.await()
+                return "<img src=\"/cover.jpg\">"
+            }
+        }
+        api.init(Library().apply {
+            data = JSONObject().apply {
+                put("baseurl", "https://arena.stabi-ludwigsburg.de/web/arena")
+            }
+        }, HttpClientFactory("test"), false)
+        return api
+    }
+
+    private class RecordingListener : SearchResultListener {
+        val updated: MutableList<SearchResult> = Collections.synchronizedList(ArrayList())
+        val completed = CountDownLatch(1)
+
+        override fun onResultUpdated(result: SearchResult) {
+            updated.add(result)
+        }
+
+        override fun onComplete(result: SearchRequestResult) {
+            completed.countDown()
+        }
+    }
+
+    @Test
+    fun `test streaming search returns before ajax covers`() {
+        val answerAjax = CountDownLatch(1)
+        val listener = RecordingListener()
+        val result = streamingArena(answerAjax).searchGetPage(2, listener)
+        assertEquals(1, result.results.size)
+        Assert.assertNull(result.results[0].cover)
+
+        answerAjax.countDown()
+        Assert.assertTrue(listener.completed.await(2, TimeUnit.SECONDS))
+        assertEquals(listOf(result.results[0]), listener.updated)
+        assertEquals("https://arena.stabi-ludwigsburg.de/cover.jpg", result.results[0].cover)
+    }
+
+    @Test
+    fun `test search with time budget`() {
+        // the lookup is slower than the budget
+        val answerAjax = CountDownLatch(1)
+        val listener = RecordingListener()
+        val start = System.nanoTime()
+        val result = streamingArena(answerAjax).searchGetPage(2, 200, listener)
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200))
+        Assert.assertNull(result.results[0].cover)
+        assertEquals(SearchResult.Status.UNKNOWN, result.results[0].status)
+        answerAjax.countDown()
+        Assert.assertTrue(listener.completed.await(2, TimeUnit.SECONDS))
+        assertEquals(listOf(result.results[0]), listener.updated)
+
+        // the lookup finishes within the budget
+        val fastListener = RecordingListener()
+        val fast = streamingArena(CountDownLatch(0)).searchGetPage(2, 5000, fastListener)
+        assertEquals("https://arena.stabi-ludwigsburg.de/cover.jpg", fast.results[0].cover)
+        Assert.assertTrue(fastListener.completed.await(2, TimeUnit.SECONDS))
+        Assert.assertTrue(fastListener.updated.isEmpty())
+    }
 }
 
 @RunWith(Parameterized::class)
@@ -0,0 +1,80 @@
+package de.geeksfactory.opacclient.apis;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.geeksfactory.opacclient.objects.DetailedItem;
+import de.geeksfactory.opacclient.objects.SearchRequestResult;
+import de.geeksfactory.opacclient.objects.SearchResult;
+import de.geeksfactory.opacclient.searchfields.SearchQuery;
+import java8.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+public class AsyncOpacApiAdapterTest {
+    @Test
+    public void testOperationsRunInOrder() throws Exception {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        OpacApi api = Mockito.mock(OpacApi.class);
+        when(api.search(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(100);
+            calls.add("search");
+            return new SearchRequestResult(new ArrayList<SearchResult>(), 0, 1);
+        });
+        when(api.searchGetPage(anyInt())).thenAnswer(invocation -> {
+            calls.add("page");
+            return new SearchRequestResult(new ArrayList<SearchResult>(), 0, 2);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AsyncOpacApi async = AsyncOpacApiAdapter.wrap(api, executor);
+            CompletableFuture<SearchRequestResult> search =
+                    async.search(new ArrayList<SearchQuery>());
+            CompletableFuture<SearchRequestResult> page = async.searchGetPage(2);
+            assertEquals(2, page.get().getPage_index());
+            assertTrue(search.isDone());
+            assertEquals(2, calls.size());
+            assertEquals("search", calls.get(0));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testExceptionIsPassedOn() throws Exception {
+        OpacApi api = Mockito.mock(OpacApi.class);
+        when(api.getResultById("1", null))
+                .thenThrow(new OpacApi.OpacErrorException("not found"));
+        when(api.getResultById("2", null)).thenReturn(new DetailedItem());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncOpacApi async = AsyncOpacApiAdapter.wrap(api, executor);
+            CompletableFuture<DetailedItem> failing = async.getResultById("1", null);
+            CompletableFuture<DetailedItem> next = async.getResultById("2", null);
+            try {
+                failing.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof OpacApi.OpacErrorException);
+            }
+            // a failed operation does not block the following ones
+            next.get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
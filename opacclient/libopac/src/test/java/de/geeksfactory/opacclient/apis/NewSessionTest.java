@@ -0,0 +1,62 @@
+package de.geeksfactory.opacclient.apis;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import de.geeksfactory.opacclient.CoverDownloadStrategy;
+import de.geeksfactory.opacclient.networking.HttpClientFactory;
+import de.geeksfactory.opacclient.objects.Library;
+import de.geeksfactory.opacclient.utils.LibopacExecutors;
+import okhttp3.Cookie;
+import okhttp3.HttpUrl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NewSessionTest {
+
+    private static OpenSearch openSearch() throws Exception {
+        Library library = new Library();
+        library.setIdent("Test");
+        JSONObject data = new JSONObject();
+        data.put("baseurl", "https://opac.example.com");
+        library.setData(data);
+        OpenSearch api = new OpenSearch(CoverDownloadStrategy.ASYNCHRONOUS);
+        api.init(library, new HttpClientFactory("test"), false);
+        return api;
+    }
+
+    @Test
+    public void testSharesConfiguration() throws Exception {
+        OpenSearch api = openSearch();
+        LibopacExecutors executors = LibopacExecutors.builder().virtualThreads(false).build();
+        api.setExecutors(executors);
+
+        OpenSearch session = (OpenSearch) api.newSession();
+        assertNotSame(api, session);
+        assertSame(api.library, session.library);
+        assertEquals("https://opac.example.com", session.opac_url);
+        assertEquals(CoverDownloadStrategy.ASYNCHRONOUS, session.coverDownloadStrategy);
+        assertSame(executors, session.executors);
+        assertSame(api.call_executor, session.call_executor);
+        assertSame(api.http_client.connectionPool(), session.http_client.connectionPool());
+        assertSame(api.http_client.dispatcher(), session.http_client.dispatcher());
+        executors.shutdown();
+    }
+
+    @Test
+    public void testSeparateCookies() throws Exception {
+        OpenSearch api = openSearch();
+        OpenSearch session = (OpenSearch) api.newSession();
+
+        HttpUrl url = HttpUrl.get("https://opac.example.com/");
+        api.http_client.cookieJar().saveFromResponse(url,
+                Collections.singletonList(Cookie.parse(url, "SESSION=1")));
+        assertEquals(1, api.http_client.cookieJar().loadForRequest(url).size());
+        assertTrue(session.http_client.cookieJar().loadForRequest(url).isEmpty());
+    }
+}
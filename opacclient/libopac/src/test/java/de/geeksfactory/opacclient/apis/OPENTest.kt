@@ -5,6 +5,7 @@ import de.geeksfactory.opacclient.objects.Account
 import de.geeksfactory.opacclient.objects.AccountData
 import de.geeksfactory.opacclient.utils.html
 import org.json.JSONObject
+import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNotNull
 import org.junit.Assert.assertTrue
 import org.junit.Test
@@ -59,6 +60,27 @@ class OPENAccountTest(private val file: String) : BaseHtmlTest() {
         }
     }
 
+    @Test
+    fun testParseRegions() {
+        val html = readResource("/open/$file")
+        val doc = html?.html
+        val regions = OpenAccountScraper.ACCOUNT_REGIONS.parse(html)
+        val expected = AccountData(0L)
+        open.parse_lent(expected, doc, Account())
+        open.parse_reservations(expected, doc)
+        val adata = AccountData(0L)
+        open.parse_lent(adata, regions, Account())
+        open.parse_reservations(adata, regions)
+
+        assertEquals(expected.lent.toString(), adata.lent.toString())
+        assertEquals(expected.reservations.toString(), adata.reservations.toString())
+        // needed to fetch the prolongability
+        for (query in arrayOf("input[name\$=Culture]", "input[name\$=PatronRndId]",
+                "script[src*=open.js]")) {
+            assertEquals(doc!!.select(query).outerHtml(), regions.select(query).outerHtml())
+        }
+    }
+
     companion object {
 
         private val FILES = arrayOf("erlangen.html")
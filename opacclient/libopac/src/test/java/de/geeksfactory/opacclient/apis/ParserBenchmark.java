@@ -0,0 +1,72 @@
+package de.geeksfactory.opacclient.apis;
+
+import org.json.JSONObject;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import de.geeksfactory.opacclient.objects.LentItem;
+import de.geeksfactory.opacclient.utils.Selectors;
+
+/**
+ * Compares the account list parsers of SISIS and TouchPoint on the test fixtures with and
+ * without the compiled selectors and patterns of {@link Selectors}. Not run as part of the
+ * tests, start it with {@code main}.
+ */
+public class ParserBenchmark extends BaseHtmlTest {
+    private static final int WARMUP_ROUNDS = 50;
+    private static final int ROUNDS = 200;
+
+    private final List<Document> sisisDocs = new ArrayList<>();
+    private final List<Document> touchPointDocs = new ArrayList<>();
+
+    private ParserBenchmark() {
+        for (String file : new String[]{"dresden.html", "dresden2.html", "erfurt.html",
+                "witten.html"}) {
+            sisisDocs.add(Jsoup.parse(readResource("/sisis/medialist/" + file)));
+        }
+        for (String file : new String[]{"chemnitz.html", "munchenbsb.html", "munchenbsb2.html",
+                "winterthur.html"}) {
+            touchPointDocs.add(Jsoup.parse(readResource("/touchpoint/medialist/" + file)));
+        }
+    }
+
+    private void parseAll() {
+        for (Document doc : sisisDocs) {
+            SISIS.parse_medialist(new ArrayList<LentItem>(), doc, 1, new JSONObject());
+        }
+        for (Document doc : touchPointDocs) {
+            TouchPoint.parse_medialist(doc);
+        }
+    }
+
+    private double measure(boolean caching) {
+        Selectors.setCachingEnabled(caching);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            parseAll();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            parseAll();
+        }
+        return (System.nanoTime() - start) / 1e6 / ROUNDS;
+    }
+
+    public static void main(String[] args) {
+        ParserBenchmark benchmark = new ParserBenchmark();
+        // the parsers print stack traces for rows of the fixtures they cannot handle
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(new ByteArrayOutputStream()));
+        double before = benchmark.measure(false);
+        double after = benchmark.measure(true);
+        System.setErr(err);
+        System.out.println(String.format(Locale.ROOT,
+                "plain select: %.3f ms/round, compiled: %.3f ms/round, speedup %.2fx",
+                before, after, before / after));
+    }
+}
@@ -0,0 +1,152 @@
+package de.geeksfactory.opacclient.apis;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.geeksfactory.opacclient.objects.Account;
+import de.geeksfactory.opacclient.objects.SearchRequestResult;
+import de.geeksfactory.opacclient.objects.SearchResult;
+import de.geeksfactory.opacclient.searchfields.SearchQuery;
+import de.geeksfactory.opacclient.utils.LibopacExecutors;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PrefetchingOpacApiTest {
+    private final LibopacExecutors executors =
+            LibopacExecutors.builder().virtualThreads(false).build();
+
+    @After
+    public void tearDown() {
+        executors.shutdown();
+    }
+
+    private static SearchRequestResult page(int page) {
+        List<SearchResult> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            SearchResult result = new SearchResult();
+            result.setInnerhtml("Result " + page + "." + i);
+            results.add(result);
+        }
+        return new SearchRequestResult(results, 35, page);
+    }
+
+    private static <T extends OpacApi> T mockApi(Class<T> cls) throws Exception {
+        T api = Mockito.mock(cls);
+        when(api.getSupportFlags()).thenReturn(OpacApi.SUPPORT_FLAG_ENDLESS_SCROLLING);
+        when(api.search(anyList())).thenReturn(page(1));
+        when(api.searchGetPage(anyInt()))
+                .thenAnswer(invocation -> page(invocation.<Integer>getArgument(0)));
+        return api;
+    }
+
+    @Test
+    public void testServesPrefetchedPage() throws Exception {
+        OpacApi api = mockApi(OpacApi.class);
+        PrefetchingOpacApi prefetching = new PrefetchingOpacApi(api, executors, 1024 * 1024);
+
+        prefetching.search(new ArrayList<SearchQuery>());
+        verify(api, timeout(2000)).searchGetPage(2);
+        assertEquals(2, prefetching.searchGetPage(2).getPage_index());
+        verify(api, times(1)).searchGetPage(2);
+
+        verify(api, timeout(2000)).searchGetPage(3);
+        assertEquals(3, prefetching.searchGetPage(3).getPage_index());
+        verify(api, times(1)).searchGetPage(3);
+
+        // 35 results, so there is no page 5 to prefetch
+        verify(api, timeout(2000)).searchGetPage(4);
+        prefetching.searchGetPage(4);
+        Thread.sleep(200);
+        verify(api, times(0)).searchGetPage(5);
+    }
+
+    @Test
+    public void testNewSearchDropsPage() throws Exception {
+        OpacApi api = mockApi(OpacApi.class);
+        PrefetchingOpacApi prefetching = new PrefetchingOpacApi(api, executors, 1024 * 1024);
+
+        prefetching.search(new ArrayList<SearchQuery>());
+        verify(api, timeout(2000)).searchGetPage(2);
+        prefetching.search(new ArrayList<SearchQuery>());
+        verify(api, timeout(2000).times(2)).searchGetPage(2);
+        prefetching.searchGetPage(2);
+        verify(api, times(2)).searchGetPage(2);
+    }
+
+    @Test
+    public void testMemoryBudget() throws Exception {
+        OpacApi api = mockApi(OpacApi.class);
+        PrefetchingOpacApi prefetching = new PrefetchingOpacApi(api, executors, 100);
+
+        prefetching.search(new ArrayList<SearchQuery>());
+        verify(api, timeout(2000)).searchGetPage(2);
+        prefetching.searchGetPage(2);
+        verify(api, times(2)).searchGetPage(2);
+    }
+
+    @Test
+    public void testServerSideCursor() throws Exception {
+        SISIS api = mockApi(SISIS.class);
+        PrefetchingOpacApi prefetching = new PrefetchingOpacApi(api, executors, 1024 * 1024);
+
+        prefetching.search(new ArrayList<SearchQuery>());
+        verify(api, timeout(2000)).searchGetPage(2);
+        // opening a result changes the session, so page 2 has to be loaded again
+        prefetching.getResult(3);
+        prefetching.searchGetPage(2);
+        verify(api, times(2)).searchGetPage(2);
+
+        // a stateless backend keeps the page
+        OpacApi stateless = mockApi(OpacApi.class);
+        prefetching = new PrefetchingOpacApi(stateless, executors, 1024 * 1024);
+        prefetching.search(new ArrayList<SearchQuery>());
+        verify(stateless, timeout(2000)).searchGetPage(2);
+        prefetching.getResult(3);
+        prefetching.searchGetPage(2);
+        verify(stateless, times(1)).searchGetPage(2);
+    }
+
+    @Test
+    public void testCursorRestoredBeforeOtherCalls() throws Exception {
+        // like Adis, moves its cursor with each page and returns null for the current page
+        final int[] cursor = {1};
+        Adis api = mockApi(Adis.class);
+        when(api.searchGetPage(anyInt())).thenAnswer(invocation -> {
+            int page = invocation.<Integer>getArgument(0);
+            if (page == cursor[0]) {
+                return null;
+            }
+            cursor[0] = page;
+            return page(page);
+        });
+        PrefetchingOpacApi prefetching = new PrefetchingOpacApi(api, executors, 1024 * 1024);
+
+        prefetching.search(new ArrayList<SearchQuery>());
+        verify(api, timeout(2000)).searchGetPage(2);
+        prefetching.account(new Account());
+        assertEquals(1, cursor[0]);
+        assertEquals(2, prefetching.searchGetPage(2).getPage_index());
+        verify(api, times(2)).searchGetPage(2);
+    }
+
+    @Test
+    public void testWithoutEndlessScrolling() throws Exception {
+        OpacApi api = mockApi(OpacApi.class);
+        when(api.getSupportFlags()).thenReturn(0);
+        PrefetchingOpacApi prefetching = new PrefetchingOpacApi(api, executors, 1024 * 1024);
+
+        prefetching.search(new ArrayList<SearchQuery>());
+        Thread.sleep(200);
+        verify(api, times(0)).searchGetPage(anyInt());
+    }
+}
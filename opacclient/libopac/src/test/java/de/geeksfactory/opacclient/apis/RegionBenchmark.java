@@ -0,0 +1,77 @@
+package de.geeksfactory.opacclient.apis;
+
+import org.jsoup.Jsoup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+import de.geeksfactory.opacclient.utils.HtmlRegions;
+
+/**
+ * Compares parsing the account page fixtures into a whole document with parsing only their
+ * {@link HtmlRegions}, in time and allocated memory per page. Not run as part of the tests, start
+ * it with {@code main}.
+ */
+public class RegionBenchmark extends BaseHtmlTest {
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 100;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private void compare(String file, HtmlRegions regions) {
+        String html = readResource(file);
+        measure(html, null);
+        measure(html, regions);
+        long[] whole = measure(html, null);
+        long[] region = measure(html, regions);
+        String extracted = regions.extract(html);
+        System.out.println(String.format(Locale.ROOT,
+                "%-40s %7d -> %6d chars  %7.3f -> %7.3f ms  %8d -> %7d KB", file,
+                html.length(), extracted != null ? extracted.length() : html.length(),
+                whole[0] / 1e6, region[0] / 1e6, whole[1] / 1024, region[1] / 1024));
+    }
+
+    /**
+     * @return time in ns and allocated bytes per page
+     */
+    private long[] measure(String html, HtmlRegions regions) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            parse(html, regions);
+        }
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            parse(html, regions);
+        }
+        long time = System.nanoTime() - start;
+        return new long[]{time / ROUNDS, (allocatedBytes() - bytes) / ROUNDS};
+    }
+
+    private static Object parse(String html, HtmlRegions regions) {
+        return regions != null ? regions.parse(html) : Jsoup.parse(html);
+    }
+
+    @SuppressWarnings("restriction")
+    private long allocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    public static void main(String[] args) {
+        RegionBenchmark benchmark = new RegionBenchmark();
+        for (String file : new String[]{"dresden.html", "dresden2.html", "erfurt.html",
+                "witten.html"}) {
+            benchmark.compare("/sisis/medialist/" + file, SISIS.ACCOUNT_REGIONS);
+        }
+        for (String file : new String[]{"medialist/chemnitz.html", "medialist/munchenbsb.html",
+                "medialist/winterthur.html", "reslist/munchenbsb.html"}) {
+            benchmark.compare("/touchpoint/" + file, TouchPoint.ACCOUNT_REGIONS);
+        }
+        benchmark.compare("/adis/medialist/tuebingen.html", Adis.MEDIA_LIST_REGIONS);
+        benchmark.compare("/open/erlangen.html", OpenAccountScraper.ACCOUNT_REGIONS);
+    }
+}
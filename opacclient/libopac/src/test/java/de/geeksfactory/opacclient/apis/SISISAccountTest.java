@@ -14,6 +14,8 @@ import java.util.Map;
 
 import de.geeksfactory.opacclient.objects.LentItem;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -66,4 +68,29 @@ public class SISISAccountTest extends BaseHtmlTest {
                             .equals(11));
         }
     }
+
+    @Test
+    public void testIsAccountPage() {
+        String html = readResource("/sisis/medialist/" + file);
+        if (html == null) return; // we may not have all files for all libraries
+
+        assertTrue(SISIS.isAccountPage(html));
+        assertFalse(SISIS.isAccountPage(readResource("/sisis/result_detail/bremen_1.html")));
+    }
+
+    @Test
+    public void testParseMediaListRegions() {
+        String html = readResource("/sisis/medialist/" + file);
+        if (html == null) return; // we may not have all files for all libraries
+
+        List<LentItem> expected = new ArrayList<>();
+        Document doc = Jsoup.parse(html);
+        SISIS.parse_medialist(expected, doc, 0, new JSONObject());
+        List<LentItem> media = new ArrayList<>();
+        Document regions = SISIS.ACCOUNT_REGIONS.parse(html);
+        SISIS.parse_medialist(media, regions, 0, new JSONObject());
+
+        assertEquals(expected.toString(), media.toString());
+        assertEquals(SISIS.getAccountPageLinks(doc, ""), SISIS.getAccountPageLinks(regions, ""));
+    }
 }
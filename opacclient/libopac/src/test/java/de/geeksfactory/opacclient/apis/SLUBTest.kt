@@ -76,7 +76,7 @@ class SLUBAccountTest : BaseHtmlTest() {
 
     @Test
     fun testParseEmptyAccountData() {
-        val json = JSONObject(readResource("/slub/account/empty-account.json"))
+        val json = readResource("/slub/account/empty-account.json")
 
         val accountdata = slub.parseAccountData(Account(), json)
 
@@ -88,7 +88,7 @@ class SLUBAccountTest : BaseHtmlTest() {
 
     @Test
     fun testParseAccountData() {
-        val json = JSONObject(readResource("/slub/account/account.json"))
+        val json = readResource("/slub/account/account.json")
         val fmt = DateTimeFormat.shortDate()
         val lentitem1 = LentItem().apply {
             title = "Der neue Kosmos-Baumführer"
@@ -139,7 +139,7 @@ class SLUBAccountTest : BaseHtmlTest() {
     @Test
     fun testParseAccountDataIll() {
         val fmt = DateTimeFormat.shortDate()
-        val json = JSONObject(readResource("/slub/account/account-ill.json"))
+        val json = readResource("/slub/account/account-ill.json")
         // hold request filed --> show ill in reservations
         val reserveditem1 = ReservedItem().apply {
             title = "Title1"
@@ -188,7 +188,7 @@ class SLUBAccountTest : BaseHtmlTest() {
 
     @Test
     fun testParseAccountDataStatus() {
-        val json = JSONObject(readResource("/slub/account/account-status.json"))
+        val json = readResource("/slub/account/account-status.json")
 
         val accountdata = slub.parseAccountData(Account(), json)
 
@@ -206,7 +206,7 @@ class SLUBSearchTest : BaseHtmlTest() {
 
     @Test
     fun testParseEmptySearchResults() {
-        val json = JSONObject(readResource("/slub/search/empty-search.json"))
+        val json = readResource("/slub/search/empty-search.json")
 
         val searchresults = slub.parseSearchResults(json)
 
@@ -216,7 +216,7 @@ class SLUBSearchTest : BaseHtmlTest() {
 
     @Test
     fun testParseSearchResults() {
-        val json = JSONObject(readResource("/slub/search/simple-search.json"))
+        val json = readResource("/slub/search/simple-search.json")
         val result1 = SearchResult().apply {
             innerhtml = "<b>Mastering software testing with JUnit 5 comprehensive guide to develop high quality Java applications Boni García</b><br>Garcia, Boni<br>(2017)"
             type = SearchResult.MediaType.BOOK
@@ -237,7 +237,7 @@ class SLUBSearchTest : BaseHtmlTest() {
 
     @Test
     fun testParseSearchResultsWithNullCreationDate() {
-        val json = JSONObject(readResource("/slub/search/search-null_creation_date.json"))
+        val json = readResource("/slub/search/search-null_creation_date.json")
         val result1 = SearchResult().apply {
             innerhtml = "<b>Tu en hagiois patros hēmōn Maximu tu homologetu Hapanta = S.P.N. Maximi Confessoris Opera omnia eruta, Latine transl., notisque ill. opera et studio Francisci Combefis. Adauxit Franciscus Oehler. Accurante et denuo recognoscente J.-P. Migne</b><br>Maximus Confessor"
             type = SearchResult.MediaType.BOOK
@@ -0,0 +1,87 @@
+package de.geeksfactory.opacclient.apis;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.junit.Test;
+
+import java.util.List;
+
+import de.geeksfactory.opacclient.apis.SRUResponseParser.Field;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SRUResponseParserTest {
+    private static final String RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<zs:searchRetrieveResponse xmlns:zs=\"http://www.loc.gov/zing/srw/\">" +
+            "<zs:version>1.1</zs:version><zs:numberOfRecords>42</zs:numberOfRecords>" +
+            "<zs:records>" +
+            "<zs:record><zs:recordSchema>mods</zs:recordSchema><zs:recordData>" +
+            "<mods xmlns=\"http://www.loc.gov/mods/v3\">" +
+            "<titleInfo><nonSort>Der </nonSort><title>Hobbit oder <i>Hin</i> und" +
+            " zur\u00fcck</title></titleInfo>" +
+            "<titleInfo type=\"alternative\"><title>Other</title></titleInfo>" +
+            "<name><namePart type=\"date\">1892-1973</namePart>" +
+            "<namePart type=\"given\">J. R. R.</namePart>" +
+            "<namePart type=\"family\">Tolkien</namePart></name>" +
+            "<originInfo><dateIssued>2012</dateIssued></originInfo>" +
+            "<physicalDescription><form authority=\"marcform\">print</form>" +
+            "</physicalDescription>" +
+            "<form>ignored</form>" +
+            "<abstract>Bilbo &amp;\n  <b>friends</b> </abstract>" +
+            "<identifier type=\"isbn\">9783423715669</identifier>" +
+            "<recordInfo><recordIdentifier>id1</recordIdentifier></recordInfo>" +
+            "</mods></zs:recordData></zs:record>" +
+            "<zs:record><zs:recordData><mods xmlns=\"http://www.loc.gov/mods/v3\">" +
+            "<titleInfo><title><![CDATA[Second <title>]]></title></titleInfo>" +
+            "<location><url displayLabel=\"C Cover\">http://example.com/c.jpg</url></location>" +
+            "<recordInfo><recordIdentifier>id2</recordIdentifier></recordInfo>" +
+            "</mods></zs:recordData></zs:record>" +
+            "</zs:records></zs:searchRetrieveResponse>";
+
+    private static final String DIAGNOSTIC = "<zs:searchRetrieveResponse " +
+            "xmlns:zs=\"http://www.loc.gov/zing/srw/\" " +
+            "xmlns:diag=\"http://www.loc.gov/zing/srw/diagnostic/\">" +
+            "<zs:numberOfRecords>0</zs:numberOfRecords><zs:diagnostics><diag:diagnostic>" +
+            "<diag:uri>info:srw/diagnostic/1/10</diag:uri>" +
+            "<diag:message>Query syntax error</diag:message>" +
+            "</diag:diagnostic></zs:diagnostics></zs:searchRetrieveResponse>";
+
+    private static final String[] SELECTORS = {"titleInfo title",
+            "name > namePart[type=given]", "name > namePart[type=family]", "dateIssued",
+            "physicalDescription > form", "identifier[type=isbn]",
+            "url[displayLabel=C Cover]", "recordIdentifier", "abstract"};
+
+    @Test
+    public void testMatchesSelectors() throws Exception {
+        SRUResponseParser response = SRUResponseParser.parse(RESPONSE);
+        Document doc = Jsoup.parse(RESPONSE, "", Parser.xmlParser());
+        List<Element> expected = doc.select("zs|records > zs|record");
+
+        assertFalse(response.hasDiagnostics());
+        assertEquals("42", response.getNumberOfRecords());
+        assertEquals(expected.size(), response.getRecords().size());
+        for (int i = 0; i < expected.size(); i++) {
+            for (Field field : Field.values()) {
+                Element element = expected.get(i).select(SELECTORS[field.ordinal()]).first();
+                assertEquals(field.name(), element != null ? element.text() : "",
+                        response.getRecords().get(i).get(field));
+            }
+        }
+        assertEquals("Hobbit oder Hin und zur\u00fcck",
+                response.getRecords().get(0).get(Field.TITLE));
+        assertEquals("Bilbo & friends", response.getRecords().get(0).get(Field.ABSTRACT));
+        assertEquals("Second <title>", response.getRecords().get(1).get(Field.TITLE));
+    }
+
+    @Test
+    public void testDiagnostics() throws Exception {
+        SRUResponseParser response = SRUResponseParser.parse(DIAGNOSTIC);
+        assertTrue(response.hasDiagnostics());
+        assertEquals("Query syntax error", response.getDiagnosticMessage());
+        assertTrue(response.getRecords().isEmpty());
+    }
+}
@@ -0,0 +1,140 @@
+package de.geeksfactory.opacclient.apis;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.geeksfactory.opacclient.networking.HttpClientFactory;
+import de.geeksfactory.opacclient.networking.NotReachableException;
+import de.geeksfactory.opacclient.objects.DetailedItem;
+import de.geeksfactory.opacclient.objects.Library;
+import de.geeksfactory.opacclient.objects.SearchRequestResult;
+import de.geeksfactory.opacclient.searchfields.SearchQuery;
+import de.geeksfactory.opacclient.searchfields.TextSearchField;
+import java8.util.concurrent.CompletableFuture;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SRUTest {
+    private static final String RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<zs:searchRetrieveResponse xmlns:zs=\"http://www.loc.gov/zing/srw/\">" +
+            "<zs:numberOfRecords>1</zs:numberOfRecords><zs:records>" +
+            "<zs:record><zs:recordData><mods xmlns=\"http://www.loc.gov/mods/v3\">" +
+            "<titleInfo><title>Der Hobbit</title></titleInfo>" +
+            "<name><namePart type=\"given\">J. R. R.</namePart>" +
+            "<namePart type=\"family\">Tolkien</namePart></name>" +
+            "<originInfo><dateIssued>2012</dateIssued></originInfo>" +
+            "<location><url displayLabel=\"C Cover\">http://example.com/c.jpg</url></location>" +
+            "<recordInfo><recordIdentifier>id1</recordIdentifier></recordInfo>" +
+            "</mods></zs:recordData></zs:record>" +
+            "</zs:records></zs:searchRetrieveResponse>";
+
+    private static final String DIAGNOSTIC = "<zs:searchRetrieveResponse " +
+            "xmlns:zs=\"http://www.loc.gov/zing/srw/\" " +
+            "xmlns:diag=\"http://www.loc.gov/zing/srw/diagnostic/\">" +
+            "<zs:numberOfRecords>0</zs:numberOfRecords><zs:diagnostics><diag:diagnostic>" +
+            "<diag:message>Query syntax error</diag:message>" +
+            "</diag:diagnostic></zs:diagnostics></zs:searchRetrieveResponse>";
+
+    private SRU sru;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        Library library = new Library();
+        library.setIdent("Test");
+        library.setData(new JSONObject("{\"baseurl\": \"https://sru.example.com/sru\", " +
+                "\"searchqueries\": {\"free\": \"cql.anywhere\", \"id\": \"rec.id\"}}"));
+        sru = new SRU();
+        sru.init(library, new HttpClientFactory("test"), false);
+        // answers with the XML given in the query, or with an HTTP error
+        sru.http_client = new OkHttpClient.Builder().addInterceptor(chain -> {
+            String query = chain.request().url().queryParameter("query");
+            Response.Builder response = new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .message("OK")
+                    .code(200);
+            if (query.endsWith("=diagnostic")) {
+                response.body(ResponseBody.create(DIAGNOSTIC, MediaType.get("text/xml")));
+            } else if (query.endsWith("=missing")) {
+                response.code(404).message("Not Found")
+                        .body(ResponseBody.create("", MediaType.get("text/html")));
+            } else {
+                response.body(ResponseBody.create(RESPONSE, MediaType.get("text/xml")));
+            }
+            return response.build();
+        }).build();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    private static <T> Throwable failure(CompletableFuture<T> future) throws Exception {
+        try {
+            future.get();
+            fail();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    private static SearchQuery query(String value) {
+        return new SearchQuery(new TextSearchField("free", "Free", false, false, "", true,
+                false), value);
+    }
+
+    @Test
+    public void testAsyncSearch() throws Exception {
+        AsyncOpacApi async = sru.createAsyncApi(executor);
+        SearchRequestResult result =
+                async.search(Collections.singletonList(query("hobbit"))).get();
+        assertEquals(1, result.getTotal_result_count());
+        assertEquals("id1", result.getResults().get(0).getId());
+        assertEquals("http://example.com/c.jpg", result.getResults().get(0).getCover());
+
+        DetailedItem item = async.getResultById("id1", null).get();
+        assertEquals("Der Hobbit", item.getTitle());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testAsyncErrors() throws Exception {
+        AsyncOpacApi async = sru.createAsyncApi(executor);
+        // the OpacErrorException thrown while parsing is not wrapped in a CompletionException
+        Throwable error = failure(async.search(Collections.singletonList(query("diagnostic"))));
+        assertTrue(error instanceof OpacApi.OpacErrorException);
+        assertEquals("Query syntax error", error.getMessage());
+
+        error = failure(async.getResultById("diagnostic", null));
+        assertTrue(error instanceof OpacApi.OpacErrorException);
+
+        error = failure(async.getResultById("missing", null));
+        assertTrue(error instanceof NotReachableException);
+
+        // thrown before the request is sent
+        error = failure(async.search(Collections.singletonList(query(""))));
+        assertTrue(error instanceof OpacApi.OpacErrorException);
+
+        // failed operations do not block the following ones
+        assertEquals("Der Hobbit", async.getResultById("id1", null).get().getTitle());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testWrapReturnsSameFacade() {
+        assertSame(AsyncOpacApiAdapter.wrap(sru), AsyncOpacApiAdapter.wrap(sru));
+    }
+}
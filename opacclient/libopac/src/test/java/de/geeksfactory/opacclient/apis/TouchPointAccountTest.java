@@ -12,6 +12,7 @@ import java.util.List;
 import de.geeksfactory.opacclient.objects.LentItem;
 import de.geeksfactory.opacclient.objects.ReservedItem;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -55,4 +56,20 @@ public class TouchPointAccountTest extends BaseHtmlTest {
         List<ReservedItem> media = TouchPoint.parse_reslist(Jsoup.parse(html));
         assertTrue(media.size() > 0);
     }
+
+    @Test
+    public void testParseRegions() {
+        String html = readResource("/touchpoint/medialist/" + file);
+        if (html != null) {
+            assertEquals(String.valueOf(TouchPoint.parse_medialist(Jsoup.parse(html))),
+                    String.valueOf(TouchPoint.parse_medialist(
+                            TouchPoint.ACCOUNT_REGIONS.parse(html))));
+        }
+        html = readResource("/touchpoint/reslist/" + file);
+        if (html != null) {
+            assertEquals(String.valueOf(TouchPoint.parse_reslist(Jsoup.parse(html))),
+                    String.valueOf(TouchPoint.parse_reslist(
+                            TouchPoint.ACCOUNT_REGIONS.parse(html))));
+        }
+    }
 }
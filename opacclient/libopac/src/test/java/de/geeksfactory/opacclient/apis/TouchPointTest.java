@@ -9,6 +9,7 @@ import de.geeksfactory.opacclient.objects.Account;
 import okhttp3.RequestBody;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -54,6 +55,16 @@ public class TouchPointTest extends BaseHtmlTest {
         fail("no OpacErrorException thrown");
     }
 
+    @Test
+    public void testIsAccountPage() {
+        assertTrue(TouchPoint.isAccountPage(readResource("/touchpoint/medialist/chemnitz.html")));
+        assertTrue(TouchPoint.isAccountPage(readResource("/touchpoint/reslist/munchenbsb.html")));
+        assertFalse(TouchPoint.isAccountPage(readResource("/touchpoint/login/loginPage.html")));
+        assertFalse(TouchPoint.isAccountPage(readResource("/touchpoint/login/errorMessage.html")));
+        // the start page after logging in
+        assertFalse(TouchPoint.isAccountPage(readResource("/touchpoint/login/loggedIn.html")));
+    }
+
     @Test
     public void testLoginSuccess() throws OpacApi.OpacErrorException, IOException {
         doReturn(readResource("/touchpoint/login/loginPage.html"))
@@ -1,7 +1,6 @@
 package de.geeksfactory.opacclient.apis;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -32,10 +31,10 @@ public class WebOpacNetAccountTest extends BaseHtmlTest {
     }
 
     @Test
-    public void testParseMediaList() throws JSONException {
+    public void testParseMediaList() throws JSONException, IOException {
         String json = readResource("/webopac.net/account.json");
         AccountData data = new AccountData(0);
-        WebOpacNet.parseAccount(new JSONObject(json), data);
+        WebOpacNet.parseAccount(json, data);
         assertEquals(4, data.getLent().size());
         assertEquals(1, data.getReservations().size());
         for (LentItem item : data.getLent()) {
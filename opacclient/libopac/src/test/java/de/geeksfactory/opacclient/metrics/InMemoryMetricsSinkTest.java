@@ -0,0 +1,45 @@
+package de.geeksfactory.opacclient.metrics;
+
+import org.junit.Test;
+
+import de.geeksfactory.opacclient.metrics.InMemoryMetricsSink.Phase;
+import de.geeksfactory.opacclient.networking.OperationContext.Operation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class InMemoryMetricsSinkTest {
+    private static RequestTiming timing(int status, long dns, long total) {
+        return new RequestTiming("Test", "SISIS", Operation.SEARCH, "example.com", "GET", status,
+                false, dns, -1, -1, total / 2, total, 1000);
+    }
+
+    @Test
+    public void testAggregatesPerLibraryAndOperation() {
+        InMemoryMetricsSink sink = new InMemoryMetricsSink();
+        sink.record(timing(200, 10, 100));
+        sink.record(timing(200, -1, 300));
+        sink.record(timing(-1, -1, 5000));
+
+        Histogram total = sink.getHistogram("Test", Operation.SEARCH, Phase.TOTAL);
+        assertEquals(3, total.getCount());
+        assertEquals(5000, total.getMax());
+        // reused connections do not count for DNS
+        assertEquals(1, sink.getHistogram("Test", Operation.SEARCH, Phase.DNS).getCount());
+        assertEquals(0, sink.getHistogram("Test", Operation.SEARCH, Phase.CONNECT).getCount());
+        assertEquals(1, sink.getFailures("Test", Operation.SEARCH));
+        assertNull(sink.getHistogram("Test", Operation.ACCOUNT, Phase.TOTAL));
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(63, histogram.getPercentile(0.5));
+        assertEquals(100, histogram.getPercentile(0.95));
+        assertEquals(50.5, histogram.getMean(), 0.001);
+    }
+}
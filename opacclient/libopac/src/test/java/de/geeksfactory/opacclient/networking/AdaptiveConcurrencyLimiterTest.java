@@ -0,0 +1,206 @@
+package de.geeksfactory.opacclient.networking;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AdaptiveConcurrencyLimiterTest {
+    private static final long MS = 1000000;
+
+    @Test
+    public void testIncreasesWhileLatencyIsStable() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 5);
+        AdaptiveConcurrencyLimiter.HostLimit limit = limiter.getHostLimit("example.com");
+        for (int i = 0; i < 100; i++) {
+            limit.inFlight++;
+            limit.release(100 * MS, false);
+        }
+        assertEquals(5, limiter.getStats().get("example.com").limit);
+    }
+
+    @Test
+    public void testDoesNotIncreaseWhenLatencyGrows() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 5);
+        AdaptiveConcurrencyLimiter.HostLimit limit = limiter.getHostLimit("example.com");
+        limit.inFlight++;
+        limit.release(100 * MS, false);
+        for (int i = 0; i < 100; i++) {
+            limit.inFlight++;
+            limit.release(500 * MS, false);
+        }
+        assertEquals(2, limiter.getStats().get("example.com").limit);
+    }
+
+    @Test
+    public void testBacksOffOnErrors() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10);
+        AdaptiveConcurrencyLimiter.HostLimit limit = limiter.getHostLimit("example.com");
+        limit.inFlight++;
+        limit.release(100 * MS, true);
+        assertEquals(3, limiter.getStats().get("example.com").limit);
+        for (int i = 0; i < 10; i++) {
+            limit.inFlight++;
+            limit.release(100 * MS, true);
+        }
+        AdaptiveConcurrencyLimiter.HostStats stats = limiter.getStats().get("example.com");
+        assertEquals(1, stats.limit);
+        assertEquals(0, stats.inFlight);
+    }
+
+    @Test
+    public void testStartsAtDispatcherLimit() {
+        AdaptiveConcurrencyLimiter limiter = HttpClientFactory.getConcurrencyLimiter();
+        limiter.getHostLimit("new.example.com");
+        assertEquals(HttpClientFactory.DEFAULT_MAX_REQUESTS_PER_HOST,
+                limiter.getStats().get("new.example.com").limit);
+    }
+
+    @Test
+    public void testWaitingRequestStartsOnRelease() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+        final CountDownLatch first = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(limiter)
+                .addInterceptor(chain -> {
+                    first.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    return new Response.Builder()
+                            .request(chain.request())
+                            .protocol(Protocol.HTTP_1_1)
+                            .code(200)
+                            .message("OK")
+                            .body(ResponseBody.create("", null))
+                            .build();
+                })
+                .build();
+        final CountDownLatch done = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            new Thread(() -> {
+                Request request = new Request.Builder().url("https://example.com/").build();
+                try {
+                    client.newCall(request).execute().close();
+                    done.countDown();
+                } catch (IOException e) {
+                    // the count stays too high
+                }
+            }).start();
+        }
+        first.await();
+        while (limiter.getStats().get("example.com").queued == 0) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(0, limiter.getStats().get("example.com").inFlight);
+    }
+
+    private static OkHttpClient client(AdaptiveConcurrencyLimiter limiter,
+            Interceptor interceptor) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(limiter)
+                .addInterceptor(interceptor)
+                .build();
+    }
+
+    private static Response ok(Interceptor.Chain chain) {
+        return new Response.Builder()
+                .request(chain.request())
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create("body", null))
+                .build();
+    }
+
+    private static Request request() {
+        return new Request.Builder().url("https://example.com/").build();
+    }
+
+    @Test
+    public void testReleasesWhenBodyIsClosed() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 2);
+        OkHttpClient client = client(limiter, AdaptiveConcurrencyLimiterTest::ok);
+
+        Response response = client.newCall(request()).execute();
+        assertEquals(1, limiter.getStats().get("example.com").inFlight);
+        response.close();
+        assertEquals(0, limiter.getStats().get("example.com").inFlight);
+
+        response = client.newCall(request()).execute();
+        assertEquals("body", response.body().string());
+        assertEquals(0, limiter.getStats().get("example.com").inFlight);
+    }
+
+    @Test
+    public void testCancelledCallKeepsLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 4);
+        OkHttpClient client = client(limiter, chain -> {
+            chain.call().cancel();
+            throw new IOException("Canceled");
+        });
+        try {
+            client.newCall(request()).execute();
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        AdaptiveConcurrencyLimiter.HostStats stats = limiter.getStats().get("example.com");
+        assertEquals(4, stats.limit);
+        assertEquals(0, stats.inFlight);
+
+        client = client(limiter, chain -> {
+            throw new IOException("unexpected end of stream");
+        });
+        try {
+            client.newCall(request()).execute();
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals(3, limiter.getStats().get("example.com").limit);
+    }
+
+    @Test
+    public void testCancelledWaiterGivesUp() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+        OkHttpClient client = client(limiter, AdaptiveConcurrencyLimiterTest::ok);
+        Response first = client.newCall(request()).execute();
+
+        final Call waiting = client.newCall(request());
+        final CountDownLatch failed = new CountDownLatch(1);
+        new Thread(() -> {
+            try {
+                waiting.execute().close();
+                // not expected
+            } catch (IOException e) {
+                failed.countDown();
+            }
+        }).start();
+        while (limiter.getStats().get("example.com").queued == 0) {
+            Thread.sleep(10);
+        }
+        waiting.cancel();
+        assertTrue(failed.await(1, TimeUnit.SECONDS));
+        first.close();
+        assertEquals(0, limiter.getStats().get("example.com").inFlight);
+    }
+}
@@ -0,0 +1,59 @@
+package de.geeksfactory.opacclient.networking;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CacheRuleTest {
+
+    @Test
+    public void testFind() {
+        CacheRule search = new CacheRule(".*/search\\.do\\?methodToCall=init.*", 3600);
+        CacheRule covers = new CacheRule(".*\\.jpg", 86400);
+        List<CacheRule> rules = Arrays.asList(search, covers);
+
+        assertSame(search, CacheRule.find(rules,
+                HttpUrl.get("https://opac.example.com/search.do?methodToCall=init&x=1")));
+        assertSame(covers, CacheRule.find(rules, HttpUrl.get("https://opac.example.com/a.jpg")));
+        // the whole URL has to match
+        assertNull(CacheRule.find(rules, HttpUrl.get("https://opac.example.com/a.jpg?x=1")));
+    }
+
+    @Test
+    public void testFromLibraryData() throws Exception {
+        JSONObject cache = new JSONObject();
+        cache.put(".*\\.jpg", 86400);
+        cache.put(".*[broken", 3600);
+        JSONObject data = new JSONObject();
+        data.put("cache", cache);
+
+        List<CacheRule> rules = CacheRule.fromLibraryData(data);
+        assertEquals(1, rules.size());
+        assertEquals(86400, rules.get(0).getTtlSeconds());
+        assertTrue(CacheRule.fromLibraryData(new JSONObject()).isEmpty());
+    }
+
+    @Test
+    public void testIsCacheable() {
+        Request.Builder request = new Request.Builder().url("https://opac.example.com/");
+        assertTrue(CacheRule.isCacheable(request.build()));
+        assertFalse(CacheRule.isCacheable(
+                request.post(RequestBody.create("", null)).build()));
+        assertFalse(CacheRule.isCacheable(new Request.Builder().url("https://opac.example.com/")
+                .header("Authorization", "Basic dTpw").build()));
+        assertFalse(CacheRule.isCacheable(new Request.Builder().url("https://opac.example.com/")
+                .header("Cookie", "SESSION=1").build()));
+    }
+}
@@ -0,0 +1,179 @@
+package de.geeksfactory.opacclient.networking;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.geeksfactory.opacclient.networking.OperationContext.Operation;
+import de.geeksfactory.opacclient.utils.LibopacExecutors;
+import java8.util.concurrent.CompletableFuture;
+import java8.util.concurrent.CompletionException;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@SuppressWarnings("try")
+public class CancellationTokenTest {
+
+    @Test
+    public void testCallbacks() {
+        CancellationToken token = new CancellationToken();
+        AtomicInteger calls = new AtomicInteger();
+        token.onCancel(calls::incrementAndGet);
+        token.cancel();
+        token.cancel();
+        assertEquals(1, calls.get());
+
+        // registered after cancelling, runs right away
+        token.onCancel(calls::incrementAndGet);
+        assertEquals(2, calls.get());
+        try {
+            token.throwIfCancelled();
+            fail();
+        } catch (OperationCancelledException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUnregister() {
+        CancellationToken token = new CancellationToken();
+        AtomicInteger calls = new AtomicInteger();
+        CancellationToken.Registration registration = token.onCancel(calls::incrementAndGet);
+        assertEquals(1, token.getRegisteredCount());
+        registration.unregister();
+        assertEquals(0, token.getRegisteredCount());
+        token.cancel();
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    public void testUnregistersCompletedWork() throws Exception {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(200)
+                        .message("OK")
+                        .body(ResponseBody.create("", null))
+                        .build())
+                .build();
+        LibopacExecutors executors = LibopacExecutors.builder().name("test").ioThreads(1)
+                                                     .virtualThreads(false).build();
+        CancellationToken token = new CancellationToken();
+        try (OperationContext ctx = OperationContext.enter(Operation.SEARCH, token)) {
+            Request request = new Request.Builder().url("https://opac.example.com/").build();
+            new RetryingCallExecutor(new RetryPolicy()).execute(client, request).close();
+            executors.newScope().runAsync(() -> {
+            }).join();
+        }
+        assertEquals(0, token.getRegisteredCount());
+        executors.shutdown();
+    }
+
+    @Test
+    public void testNestedOperationsShareToken() {
+        CancellationToken token = new CancellationToken();
+        try (OperationContext outer = OperationContext.enter(Operation.SEARCH, token)) {
+            try (OperationContext inner = OperationContext.enter(Operation.GET_RESULT)) {
+                assertSame(token, CancellationToken.current());
+            }
+        }
+        assertNull(CancellationToken.current());
+    }
+
+    @Test
+    public void testCancelsCall() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final OkHttpClient client = new OkHttpClient.Builder()
+                .eventListenerFactory(new TimingEventListener.Factory(null, null))
+                .addInterceptor(chain -> {
+                    started.countDown();
+                    while (!chain.call().isCanceled()) {
+                        try {
+                            Thread.sleep(10);
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                    }
+                    throw new IOException("Canceled");
+                })
+                .build();
+        final CancellationToken token = new CancellationToken();
+        final AtomicReference<Throwable> thrown = new AtomicReference<>();
+        long cancelledCalls = CancellationToken.getStats().calls;
+
+        Thread thread = new Thread(() -> {
+            try (OperationContext ctx = OperationContext.enter(Operation.SEARCH, token)) {
+                Request request = new Request.Builder().url("https://opac.example.com/").build();
+                new RetryingCallExecutor(new RetryPolicy()).execute(client, request);
+            } catch (Throwable e) {
+                thrown.set(e);
+            }
+        });
+        thread.start();
+        started.await();
+        token.cancel();
+        thread.join(5000);
+
+        assertTrue(thrown.get() instanceof OperationCancelledException);
+        assertEquals(cancelledCalls + 1, CancellationToken.getStats().calls);
+    }
+
+    @Test
+    public void testCancelsScopedTasks() throws Exception {
+        LibopacExecutors executors = LibopacExecutors.builder().name("test").ioThreads(1)
+                                                     .virtualThreads(false).build();
+        LibopacExecutors.Scope scope = executors.newScope();
+        CancellationToken token = new CancellationToken();
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicReference<CancellationToken> taskToken = new AtomicReference<>();
+        long cancelledTasks = CancellationToken.getStats().tasks;
+
+        CompletableFuture<Void> running;
+        CompletableFuture<Void> waiting;
+        try (OperationContext ctx = OperationContext.enter(Operation.SEARCH, token)) {
+            running = scope.runAsync(() -> {
+                taskToken.set(CancellationToken.current());
+                started.countDown();
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            waiting = scope.runAsync(() -> {
+            });
+        }
+        started.await();
+        assertSame(token, taskToken.get());
+
+        token.cancel();
+        assertCancelled(running);
+        assertCancelled(waiting);
+        assertEquals(cancelledTasks + 2, CancellationToken.getStats().tasks);
+        executors.shutdown();
+    }
+
+    private static void assertCancelled(CompletableFuture<?> future) {
+        try {
+            future.join();
+            fail();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof OperationCancelledException);
+        } catch (OperationCancelledException e) {
+            // expected
+        }
+    }
+}
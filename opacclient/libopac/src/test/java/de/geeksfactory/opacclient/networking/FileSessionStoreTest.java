@@ -0,0 +1,69 @@
+package de.geeksfactory.opacclient.networking;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class FileSessionStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Session session(String library, long account) {
+        Map<String, String> tokens = new HashMap<>();
+        tokens.put("CSId", "abc123");
+        return new Session(library, account, "hash", tokens,
+                Collections.singletonList("JSESSIONID=xyz; path=/opac"), 1000);
+    }
+
+    @Test
+    public void testSessionSurvivesNewStore() {
+        File directory = new File(folder.getRoot(), "sessions");
+        new FileSessionStore(directory).save(session("Test/Library", 42));
+
+        Session session = new FileSessionStore(directory).load("Test/Library", 42, "hash");
+        assertEquals("abc123", session.getToken("CSId"));
+        assertEquals(Collections.singletonList("JSESSIONID=xyz; path=/opac"),
+                session.getCookies());
+        assertEquals(1000, session.getUpdatedAt());
+        assertNull(new FileSessionStore(directory).load("Test/Library", 43, "hash"));
+        // same account ID, other credentials
+        assertNull(new FileSessionStore(directory).load("Test/Library", 42, "other"));
+    }
+
+    @Test
+    public void testHashCredentials() {
+        File directory = new File(folder.getRoot(), "sessions");
+        FileSessionStore store = new FileSessionStore(directory);
+        String hash = store.hashCredentials("Test", "user", "1234");
+        assertEquals(hash, store.hashCredentials("Test", "user", "1234"));
+        assertNotEquals(hash, store.hashCredentials("Test", "user", "4321"));
+        assertNotEquals(hash, store.hashCredentials("Test", "other", "1234"));
+        assertNotEquals(hash, store.hashCredentials("Other", "user", "1234"));
+
+        // the secret is kept with the sessions, but differs between installations
+        assertEquals(hash, new FileSessionStore(directory).hashCredentials("Test", "user", "1234"));
+        assertNotEquals(hash, new FileSessionStore(new File(folder.getRoot(), "other"))
+                .hashCredentials("Test", "user", "1234"));
+        assertNotEquals(hash, new InMemorySessionStore().hashCredentials("Test", "user", "1234"));
+    }
+
+    @Test
+    public void testRemove() {
+        File directory = new File(folder.getRoot(), "sessions");
+        FileSessionStore store = new FileSessionStore(directory);
+        store.save(session("Test", 1));
+        store.remove("Test", 1, "hash");
+
+        assertNull(store.load("Test", 1, "hash"));
+        assertNull(new FileSessionStore(directory).load("Test", 1, "hash"));
+    }
+}
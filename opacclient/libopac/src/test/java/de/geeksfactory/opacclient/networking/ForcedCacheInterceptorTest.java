@@ -0,0 +1,80 @@
+package de.geeksfactory.opacclient.networking;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ForcedCacheInterceptorTest {
+
+    private static OkHttpClient client(final String setCookie) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(new ForcedCacheInterceptor(Collections.singletonList(
+                        new CacheRule(".*/static/.*", 600))))
+                .addInterceptor(chain -> {
+                    Response.Builder response = new Response.Builder()
+                            .request(chain.request())
+                            .protocol(Protocol.HTTP_1_1)
+                            .code(200)
+                            .message("OK")
+                            .header("Cache-Control", "no-cache")
+                            .header("Pragma", "no-cache")
+                            .header("ETag", "\"1\"")
+                            .body(ResponseBody.create("", null));
+                    if (setCookie != null) {
+                        response.header("Set-Cookie", setCookie);
+                    }
+                    return response.build();
+                })
+                .build();
+    }
+
+    private static Response get(OkHttpClient client, Request request) throws Exception {
+        try (Response response = client.newCall(request).execute()) {
+            return response;
+        }
+    }
+
+    private static Request.Builder request(String url) {
+        return new Request.Builder().url(url);
+    }
+
+    @Test
+    public void testRewritesMatchingResponses() throws Exception {
+        Response response = get(client(null), request("https://opac.example.com/static/a.css")
+                .build());
+        assertEquals("max-age=600", response.header("Cache-Control"));
+        assertNull(response.header("Pragma"));
+        assertEquals("\"1\"", response.header("ETag"));
+
+        response = get(client(null), request("https://opac.example.com/search").build());
+        assertEquals("no-cache", response.header("Cache-Control"));
+    }
+
+    @Test
+    public void testBypass() throws Exception {
+        String url = "https://opac.example.com/static/a.css";
+        Response response = get(client(null), request(url)
+                .post(RequestBody.create("", null)).build());
+        assertEquals("no-cache", response.header("Cache-Control"));
+
+        response = get(client(null), request(url).header("Cookie", "SESSION=1").build());
+        assertEquals("no-cache", response.header("Cache-Control"));
+
+        response = get(client(null), request(url).header("Authorization", "Basic dTpw")
+                .build());
+        assertEquals("no-cache", response.header("Cache-Control"));
+
+        response = get(client("SESSION=1"), request(url).build());
+        assertEquals("no-cache", response.header("Cache-Control"));
+    }
+}
@@ -0,0 +1,182 @@
+package de.geeksfactory.opacclient.networking;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Cache;
+import okhttp3.Cookie;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MemoryResponseCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger sent = new AtomicInteger();
+    private final MemoryCookieJar cookieJar = new MemoryCookieJar();
+
+    private OkHttpClient client(OkHttpClient.Builder builder) {
+        return builder.addInterceptor(chain -> {
+            sent.incrementAndGet();
+            // the body size is given by the last path segment
+            int size = Integer.parseInt(chain.request().url().pathSegments().get(1));
+            char[] body = new char[size];
+            Arrays.fill(body, 'x');
+            // like a chunked response, the length is unknown until the body was read
+            boolean chunked = chain.request().url().queryParameter("chunked") != null;
+            return new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .header("Cache-Control", "no-cache")
+                    .body(chunked
+                            ? ResponseBody.create(new Buffer().writeUtf8(new String(body)),
+                                    null, -1)
+                            : ResponseBody.create(new String(body), null))
+                    .build();
+        }).build();
+    }
+
+    private OkHttpClient client(MemoryResponseCache cache, int ttlSeconds) {
+        List<CacheRule> rules = Collections.singletonList(
+                new CacheRule(".*/cached/.*", ttlSeconds));
+        return client(new OkHttpClient.Builder().addInterceptor(
+                cache.interceptor(rules, cookieJar)));
+    }
+
+    private static String get(OkHttpClient client, Request request) throws Exception {
+        try (Response response = client.newCall(request).execute()) {
+            return response.body().string();
+        }
+    }
+
+    private static Request request(String path) {
+        return new Request.Builder().url("https://opac.example.com" + path).build();
+    }
+
+    @Test
+    public void testCachesMatchingRequests() throws Exception {
+        MemoryResponseCache cache = new MemoryResponseCache(1024);
+        OkHttpClient client = client(cache, 600);
+
+        assertEquals(10, get(client, request("/cached/10")).length());
+        assertEquals(10, get(client, request("/cached/10")).length());
+        assertEquals(1, sent.get());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(10, cache.size());
+
+        get(client, request("/other/10"));
+        get(client, request("/other/10"));
+        assertEquals(3, sent.get());
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        MemoryResponseCache cache = new MemoryResponseCache(1024);
+        OkHttpClient client = client(cache, 1);
+
+        get(client, request("/cached/10"));
+        Thread.sleep(1100);
+        get(client, request("/cached/10"));
+        assertEquals(2, sent.get());
+        assertEquals(0, cache.hitCount());
+    }
+
+    @Test
+    public void testBypass() throws Exception {
+        MemoryResponseCache cache = new MemoryResponseCache(1024);
+        OkHttpClient client = client(cache, 600);
+
+        for (int i = 0; i < 2; i++) {
+            get(client, new Request.Builder().url("https://opac.example.com/cached/10")
+                    .post(RequestBody.create("", null)).build());
+            get(client, new Request.Builder().url("https://opac.example.com/cached/10")
+                    .header("Authorization", "Basic dTpw").build());
+        }
+        assertEquals(4, sent.get());
+
+        HttpUrl url = HttpUrl.get("https://opac.example.com/cached/10");
+        cookieJar.saveFromResponse(url, Collections.singletonList(Cookie.parse(url, "S=1")));
+        get(client, request("/cached/10"));
+        get(client, request("/cached/10"));
+        assertEquals(6, sent.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSizeBound() throws Exception {
+        // allows entries of up to 100 bytes
+        MemoryResponseCache cache = new MemoryResponseCache(800);
+        OkHttpClient client = client(cache, 600);
+
+        get(client, request("/cached/101"));
+        assertEquals(0, cache.size());
+        for (int i = 0; i < 10; i++) {
+            get(client, request("/cached/100?" + i));
+        }
+        assertEquals(800, cache.size());
+
+        // least recently used entries were evicted
+        sent.set(0);
+        get(client, request("/cached/100?9"));
+        assertEquals(0, sent.get());
+        get(client, request("/cached/100?0"));
+        assertEquals(1, sent.get());
+    }
+
+    @Test
+    public void testSizeBoundWithoutContentLength() throws Exception {
+        MemoryResponseCache cache = new MemoryResponseCache(800);
+        OkHttpClient client = client(cache, 600);
+
+        // passed through completely, but not cached
+        assertEquals(1000, get(client, request("/cached/1000?chunked")).length());
+        assertEquals(0, cache.size());
+        assertEquals(100, get(client, request("/cached/100?chunked")).length());
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    public void testCacheStats() throws Exception {
+        HttpClientFactory.configureCache(folder.newFolder(), 1024 * 1024, 1024);
+        try {
+            Cache diskCache = HttpClientFactory.getDiskCache();
+            OkHttpClient cached = new HttpClientFactory("test").withCacheRules(
+                    new OkHttpClient.Builder().cookieJar(cookieJar).build(),
+                    Collections.singletonList(new CacheRule(".*/cached/.*", 600)));
+            OkHttpClient client = client(cached.newBuilder());
+            get(client, request("/cached/10"));
+            get(client, request("/cached/10"));
+
+            HttpCacheStats stats = HttpClientFactory.getCacheStats();
+            assertEquals(1, stats.memoryHits);
+            assertEquals(1, stats.memoryMisses);
+            assertEquals(10, stats.memorySize);
+
+            // reconfiguring closes the previous disk cache
+            HttpClientFactory.configureCache(folder.newFolder(), 1024 * 1024, 1024);
+            assertTrue(diskCache.isClosed());
+            assertFalse(HttpClientFactory.getDiskCache().isClosed());
+        } finally {
+            HttpClientFactory.configureCache(null, 0, 0);
+        }
+    }
+}
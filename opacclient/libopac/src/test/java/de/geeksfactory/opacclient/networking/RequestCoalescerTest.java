@@ -0,0 +1,150 @@
+package de.geeksfactory.opacclient.networking;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.CookieJar;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestCoalescerTest {
+    private final AtomicInteger sent = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private OkHttpClient client(RequestCoalescer coalescer, final String setCookie) {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder();
+        coalescer.withCookieJar(builder, CookieJar.NO_COOKIES);
+        builder.addInterceptor(chain -> {
+            sent.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            Response.Builder response = new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .body(ResponseBody.create("result", null));
+            if (setCookie != null) {
+                response.header("Set-Cookie", setCookie);
+            }
+            return response.build();
+        });
+        return builder.build();
+    }
+
+    private String[] fetchConcurrently(OkHttpClient client, int count) throws Exception {
+        final String[] results = new String[count];
+        Thread[] threads = new Thread[count];
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            threads[i] = new Thread(() -> {
+                Request request = new Request.Builder().url("https://opac.example.com/a").build();
+                try (Response response = client.newCall(request).execute()) {
+                    results[index] = response.body().string();
+                } catch (IOException e) {
+                    results[index] = e.toString();
+                }
+            });
+            threads[i].start();
+        }
+        // give all requests time to reach the coalescer before the first one completes
+        Thread.sleep(300);
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return results;
+    }
+
+    @Test
+    public void testIdenticalRequestsShareResponse() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        String[] results = fetchConcurrently(client(coalescer, null), 3);
+
+        assertEquals(1, sent.get());
+        assertEquals(2, coalescer.getCoalescedCount());
+        for (String result : results) {
+            assertEquals("result", result);
+        }
+    }
+
+    @Test
+    public void testResponseSettingCookiesIsNotShared() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        String[] results = fetchConcurrently(client(coalescer, "JSESSIONID=abc"), 2);
+
+        assertEquals(2, sent.get());
+        assertEquals(0, coalescer.getCoalescedCount());
+        assertEquals("result", results[1]);
+    }
+
+    @Test
+    public void testSingleRequestIsNotBuffered() throws Exception {
+        final ResponseBody[] body = new ResponseBody[1];
+        OkHttpClient.Builder builder = new OkHttpClient.Builder();
+        new RequestCoalescer().withCookieJar(builder, CookieJar.NO_COOKIES);
+        builder.addInterceptor(chain -> {
+            body[0] = ResponseBody.create("result", null);
+            return new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .body(body[0])
+                    .build();
+        });
+        Request request = new Request.Builder().url("https://opac.example.com/a").build();
+        try (Response response = builder.build().newCall(request).execute()) {
+            assertSame(body[0], response.body());
+        }
+    }
+
+    @Test
+    public void testWaitingRequestTimesOut() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        OkHttpClient client = client(coalescer, null);
+        final Request request = new Request.Builder().url("https://opac.example.com/a").build();
+        Thread leader = new Thread(() -> {
+            try (Response response = client.newCall(request).execute()) {
+                response.body().string();
+            } catch (IOException e) {
+                // not expected
+            }
+        });
+        leader.start();
+        while (sent.get() == 0) {
+            Thread.sleep(10);
+        }
+
+        OkHttpClient impatient = client.newBuilder().callTimeout(200, TimeUnit.MILLISECONDS)
+                                       .build();
+        long start = System.nanoTime();
+        try {
+            impatient.newCall(request).execute();
+            fail();
+        } catch (IOException e) {
+            // expected, while the leader is still waiting for its response
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+        release.countDown();
+        leader.join();
+        assertEquals(1, sent.get());
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+}
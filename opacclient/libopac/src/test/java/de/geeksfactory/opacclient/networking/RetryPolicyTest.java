@@ -0,0 +1,57 @@
+package de.geeksfactory.opacclient.networking;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import de.geeksfactory.opacclient.networking.OperationContext.Operation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+    @Test
+    public void testDefaults() throws JSONException {
+        RetryPolicy policy = RetryPolicy.fromLibraryData(new JSONObject("{}"));
+        assertEquals(2, policy.getMaxAttempts(Operation.SEARCH));
+        assertEquals(1, policy.getMaxAttempts(Operation.PROLONG));
+        assertEquals(1, policy.getMaxAttempts(Operation.OTHER));
+        assertFalse(policy.isHedgingEnabled(Operation.SEARCH));
+        assertEquals(40000, policy.getBudgetMillis(Operation.SEARCH));
+        assertEquals(0, policy.getBudgetMillis(Operation.OTHER));
+    }
+
+    @Test
+    public void testLibraryData() throws JSONException {
+        RetryPolicy policy = RetryPolicy.fromLibraryData(new JSONObject(
+                "{\"retry\": {\"attempts\": 3, \"hedge\": true, \"budget_search\": 20}}"));
+        assertEquals(3, policy.getMaxAttempts(Operation.SEARCH));
+        assertEquals(3, policy.getMaxAttempts(Operation.ACCOUNT));
+        assertEquals(1, policy.getMaxAttempts(Operation.PROLONG));
+        assertTrue(policy.isHedgingEnabled(Operation.SEARCH));
+        assertFalse(policy.isHedgingEnabled(Operation.PROLONG));
+        assertEquals(20000, policy.getBudgetMillis(Operation.SEARCH));
+        assertEquals(90000, policy.getBudgetMillis(Operation.ACCOUNT));
+    }
+
+    @Test
+    public void testAttemptsPerOperation() throws JSONException {
+        RetryPolicy policy = RetryPolicy.fromLibraryData(new JSONObject(
+                "{\"retry\": {\"attempts_prolong\": 2, \"attempts_search\": 1}}"));
+        assertEquals(2, policy.getMaxAttempts(Operation.PROLONG));
+        assertEquals(1, policy.getMaxAttempts(Operation.SEARCH));
+        assertEquals(2, policy.getMaxAttempts(Operation.GET_RESULT));
+    }
+
+    @Test
+    public void testPercentileNeedsSamples() {
+        LatencyTracker tracker = new LatencyTracker();
+        tracker.record("example.com", 100);
+        assertEquals(-1, tracker.getPercentile("example.com", 0.95));
+        for (int i = 1; i <= 100; i++) {
+            tracker.record("example.com", i);
+        }
+        assertEquals(96, tracker.getPercentile("example.com", 0.95));
+    }
+}
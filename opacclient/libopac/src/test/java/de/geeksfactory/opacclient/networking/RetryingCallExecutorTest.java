@@ -0,0 +1,63 @@
+package de.geeksfactory.opacclient.networking;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.geeksfactory.opacclient.networking.OperationContext.Operation;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class RetryingCallExecutorTest {
+    private final AtomicInteger sent = new AtomicInteger();
+
+    private OkHttpClient failingClient() {
+        return new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    sent.incrementAndGet();
+                    throw new IOException("unexpected end of stream");
+                })
+                .build();
+    }
+
+    @SuppressWarnings("try")
+    private void execute(Operation operation, String url) {
+        Request request = new Request.Builder().url(url).build();
+        RetryingCallExecutor executor = new RetryingCallExecutor(new RetryPolicy());
+        try (OperationContext ctx = OperationContext.enter(operation)) {
+            executor.execute(failingClient(), request).close();
+            fail();
+        } catch (IOException e) {
+            assertEquals("unexpected end of stream", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRenewalIsSentOnce() {
+        execute(Operation.PROLONG,
+                "https://opac.example.com/webOPACClient/renewal.do?methodToCall=renewal");
+        assertEquals(1, sent.get());
+    }
+
+    @Test
+    public void testRequestOutsideOperationIsSentOnce() {
+        Request request = new Request.Builder()
+                .url("https://opac.example.com/webOPACClient/cancelReservation.do").build();
+        try {
+            new RetryingCallExecutor(new RetryPolicy()).execute(failingClient(), request);
+            fail();
+        } catch (IOException e) {
+            assertEquals(1, sent.get());
+        }
+    }
+
+    @Test
+    public void testSearchRequestIsRetried() {
+        execute(Operation.SEARCH, "https://opac.example.com/webOPACClient/search.do");
+        assertEquals(2, sent.get());
+    }
+}
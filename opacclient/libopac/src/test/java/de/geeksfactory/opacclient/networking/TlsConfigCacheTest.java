@@ -0,0 +1,27 @@
+package de.geeksfactory.opacclient.networking;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class TlsConfigCacheTest {
+    @Test
+    public void testSharedBetweenFactories() throws Exception {
+        TlsConfigCache.SslConfig first =
+                TlsConfigCache.getSslConfig(new HttpClientFactory("test"), false, true, false);
+        TlsConfigCache.SslConfig second =
+                TlsConfigCache.getSslConfig(new HttpClientFactory("test"), false, true, false);
+        assertSame(first.socketFactory, second.socketFactory);
+        assertSame(first.trustManager, second.trustManager);
+        assertSame(TlsConfigCache.getSslContext(new HttpClientFactory("test"), false),
+                TlsConfigCache.getSslContext(new HttpClientFactory("other"), false));
+    }
+
+    @Test
+    public void testKeyedByTlsSettings() throws Exception {
+        HttpClientFactory factory = new HttpClientFactory("test");
+        assertNotSame(TlsConfigCache.getSslConfig(factory, false, true, false).socketFactory,
+                TlsConfigCache.getSslConfig(factory, false, false, false).socketFactory);
+    }
+}
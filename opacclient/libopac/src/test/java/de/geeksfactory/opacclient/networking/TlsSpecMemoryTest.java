@@ -0,0 +1,58 @@
+package de.geeksfactory.opacclient.networking;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.security.cert.Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.CipherSuite;
+import okhttp3.ConnectionSpec;
+import okhttp3.Handshake;
+import okhttp3.TlsVersion;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class TlsSpecMemoryTest {
+    private static final ConnectionSpec LEGACY =
+            new ConnectionSpec.Builder(ConnectionSpec.COMPATIBLE_TLS)
+                    .tlsVersions(TlsVersion.SSL_3_0, TlsVersion.TLS_1_0)
+                    .allEnabledCipherSuites()
+                    .build();
+    private static final List<ConnectionSpec> SPECS = Arrays.asList(ConnectionSpec.MODERN_TLS,
+            LEGACY, ConnectionSpec.CLEARTEXT);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Handshake handshake(TlsVersion version) {
+        return Handshake.get(version, CipherSuite.TLS_RSA_WITH_AES_128_CBC_SHA,
+                Collections.<Certificate>emptyList(), Collections.<Certificate>emptyList());
+    }
+
+    @Test
+    public void testUnknownHostKeepsOrder() {
+        TlsSpecMemory memory = new TlsSpecMemory(null);
+        assertSame(SPECS, memory.prioritize("example.com", SPECS));
+    }
+
+    @Test
+    public void testLegacySpecFirstAfterRestart() throws Exception {
+        File file = new File(folder.getRoot(), "tls.properties");
+        TlsSpecMemory memory = new TlsSpecMemory(file);
+        memory.record("example.com", handshake(TlsVersion.TLS_1_0));
+        // written later, not on the thread recording the handshake
+        assertFalse(file.exists());
+        memory.flush();
+
+        List<ConnectionSpec> specs = new TlsSpecMemory(file).prioritize("example.com", SPECS);
+        assertSame(LEGACY, specs.get(0));
+        assertSame(ConnectionSpec.MODERN_TLS, specs.get(1));
+        assertSame(SPECS, new TlsSpecMemory(file).prioritize("other.com", SPECS));
+    }
+}
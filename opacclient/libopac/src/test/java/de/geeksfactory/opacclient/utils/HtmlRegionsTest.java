@@ -0,0 +1,73 @@
+package de.geeksfactory.opacclient.utils;
+
+import org.jsoup.nodes.Document;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HtmlRegionsTest {
+    private static final String HTML = "<!DOCTYPE html><html><head><title>Konto</title>" +
+            "<script>var a = '<table class=\"data\">';</script><style>p {}</style></head>" +
+            "<body><div id=\"content\"><form action=\"x\">" +
+            "<input type=\"hidden\" name=\"__VIEWSTATE\" value=\"abc\">" +
+            "<input type=\"hidden\" name=\"other\" value=\"def\">" +
+            "<table><tr><td>Menu</td></tr></table>" +
+            "<!-- <table class=\"data\"> -->" +
+            "<table class=\"list data\"><tr><th>Titel</th></tr>" +
+            "<tr><td>Buch<script>cover()</script></td></tr>" +
+            "<tr><td><table class=\"data\"><tr><td>inner</td></tr></table></td></tr></table>" +
+            "<p>Text<p>Geb\u00fchren <span id=\"fees\">1,00 EUR</span>" +
+            "</form></div></body></html>";
+
+    @Test
+    public void testExtractsRegionsWithAncestors() {
+        HtmlRegions regions = HtmlRegions.of("table.data, #fees", "input[name=__VIEWSTATE]");
+        Document doc = regions.parse(HTML, "http://example.com/");
+
+        assertEquals(3, doc.select("#content table.list > tbody > tr").size());
+        assertEquals(4, doc.select("#content table.data tr").size());
+        assertEquals("Titel Buch inner", doc.select("table.list").text());
+        assertEquals("1,00 EUR", doc.select("#content form p #fees").text());
+        assertEquals("abc", doc.select("form input[name=__VIEWSTATE]").val());
+        assertEquals(0, doc.select("input[name=other]").size());
+        assertEquals(0, doc.select("script, style, title").size());
+        assertEquals(0, doc.select("td:contains(Menu)").size());
+        assertEquals("http://example.com/x", doc.select("form").first().absUrl("action"));
+    }
+
+    @Test
+    public void testKeepScripts() {
+        Document doc = HtmlRegions.of("table.data").keepScripts().parse(HTML);
+        assertEquals("cover()", doc.select("table.data script").html());
+    }
+
+    @Test
+    public void testTableRowRegion() {
+        String html = "<table id=\"t\"><tr class=\"a\"><td>1<tr><td>2<tr class=\"a\"><td>3" +
+                "</table><div>x</div>";
+        Document doc = HtmlRegions.of("tr.a").parse(html);
+        assertEquals(2, doc.select("table#t tr.a").size());
+        assertEquals("1 3", doc.select("tr.a").text());
+        assertEquals(0, doc.select("div").size());
+    }
+
+    @Test
+    public void testAttributeConditions() {
+        String html = "<div id=\"dnn_ctr1_tpnlLoans_grdViewLoans\">a</div>" +
+                "<div id=\"LoansOther\">b</div><a href=\"?requestCount=3\">c</a><a href=\"/\">d</a>";
+        Document doc = HtmlRegions.of("div[id$=grdviewloans]", "a[href*=requestCount]")
+                                  .parse(html);
+        assertEquals("a", doc.select("div").text());
+        assertEquals("c", doc.select("a").text());
+    }
+
+    @Test
+    public void testFallsBackToWholePage() {
+        HtmlRegions regions = HtmlRegions.of(".hitlist");
+        assertNull(regions.extract(HTML));
+        Document doc = regions.parse(HTML);
+        assertTrue(doc.select("td:contains(Menu)").size() > 0);
+    }
+}
@@ -0,0 +1,196 @@
+package de.geeksfactory.opacclient.utils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class JsonReaderTest {
+
+    @Test
+    public void testValues() throws Exception {
+        JsonReader reader = new JsonReader("{\"a\": \"x\\\"y\\u00fc\\n\", \"b\": -1.5e2, " +
+                "\"c\": [true, false, null], 'd': \"42\", /* comment */ \"e\": {}}");
+        reader.beginObject();
+        assertEquals("a", reader.nextName());
+        assertEquals("x\"y\u00fc\n", reader.nextString());
+        assertEquals("b", reader.nextName());
+        assertEquals(JsonReader.Token.NUMBER, reader.peek());
+        assertEquals(-150, reader.nextInt());
+        assertEquals("c", reader.nextName());
+        reader.beginArray();
+        assertEquals(true, reader.nextBoolean());
+        assertEquals("false", reader.nextString());
+        assertNull(reader.nextStringOrNull());
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        assertEquals("d", reader.nextName());
+        assertEquals(42, reader.nextInt());
+        assertEquals("e", reader.nextName());
+        reader.skipValue();
+        reader.endObject();
+        assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void testOptIntSemantics() throws Exception {
+        JsonReader reader = new JsonReader("[\"1\", \"x\", null, {\"a\": 1}, 7]");
+        reader.beginArray();
+        assertEquals(1, reader.nextIntOrDefault(0));
+        assertEquals(0, reader.nextIntOrDefault(0));
+        assertEquals(-1, reader.nextIntOrDefault(-1));
+        assertEquals(0, reader.nextIntOrDefault(0));
+        assertEquals(7, reader.nextIntOrDefault(0));
+        reader.endArray();
+    }
+
+    @Test
+    public void testMatchesOrgJsonAcrossBufferBoundaries() throws Exception {
+        JSONArray expected = new JSONArray();
+        for (int i = 0; i < 200; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j < i * 7; j++) {
+                text.append(j % 13 == 0 ? '"' : j % 17 == 0 ? '\u00e4' : (char) ('a' + j % 26));
+            }
+            expected.put(new JSONObject().put("id", i).put("text", text.toString())
+                                         .put("nested", new JSONArray().put(i).put("x")));
+        }
+        // read one byte at a time, so that every token crosses a buffer boundary
+        BufferedSource slow = Okio.buffer(
+                new ForwardingSource(new Buffer().writeUtf8(expected.toString())) {
+                    @Override
+                    public long read(Buffer sink, long byteCount) throws IOException {
+                        return super.read(sink, Math.min(byteCount, 1));
+                    }
+                });
+        JsonReader reader = new JsonReader(slow);
+        List<String> texts = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("text")) {
+                    texts.add(reader.nextString());
+                } else if (name.equals("id")) {
+                    ids.add(reader.nextInt());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+
+        assertEquals(expected.length(), texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            assertEquals(i, (int) ids.get(i));
+            assertEquals(expected.getJSONObject(i).getString("text"), texts.get(i));
+        }
+    }
+
+    @Test
+    public void testSyntaxErrors() throws Exception {
+        for (String json : new String[]{"<!doctype html>", "{\"a\" 1}", "[1 2]", "{\"a\": \"b",
+                "[1,", "{\"a\": 1} x"}) {
+            try {
+                JsonReader reader = new JsonReader(json);
+                reader.skipValue();
+                reader.peek();
+                fail("No exception for " + json);
+            } catch (JSONException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testLenientSyntax() throws Exception {
+        JsonReader reader = new JsonReader("{a: 1; 'b' => 'x', // comment\n \"c\" = [1, 2,]}");
+        reader.beginObject();
+        assertEquals("a", reader.nextName());
+        assertEquals(1, reader.nextInt());
+        assertEquals("b", reader.nextName());
+        assertEquals("x", reader.nextString());
+        assertEquals("c", reader.nextName());
+        reader.skipValue();
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void testStrings() throws Exception {
+        JsonReader reader = new JsonReader("[\"\\ud83d\\ude00\", \"\ud83d\ude00\", " +
+                "\"\\/\\\\\\b\\f\\r\\t\", \"\", \"\u00e4\u00df\"]");
+        reader.beginArray();
+        assertEquals("\ud83d\ude00", reader.nextString());
+        assertEquals("\ud83d\ude00", reader.nextString());
+        assertEquals("/\\\b\f\r\t", reader.nextString());
+        assertEquals("", reader.nextString());
+        assertEquals("\u00e4\u00df", reader.nextString());
+        reader.endArray();
+    }
+
+    @Test
+    public void testNumbers() throws Exception {
+        JsonReader reader = new JsonReader("[0, -0, 1e3, 2.9, -2.9, \" 12 \", 12345678901, true]");
+        reader.beginArray();
+        assertEquals(0, reader.nextInt());
+        assertEquals(0, reader.nextInt());
+        assertEquals(1000, reader.nextInt());
+        assertEquals(2, reader.nextInt());
+        assertEquals(-2, reader.nextInt());
+        assertEquals(12, reader.nextInt());
+        assertEquals("12345678901", reader.nextString());
+        try {
+            reader.nextInt();
+            fail();
+        } catch (JSONException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDeepNesting() throws Exception {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            json.append("{\"a\": [");
+        }
+        for (int i = 0; i < 100; i++) {
+            json.append("]}");
+        }
+        JsonReader reader = new JsonReader(json.toString());
+        reader.skipValue();
+        assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void testTruncatedInput() throws Exception {
+        for (String json : new String[]{"", "{", "{\"a\"", "{\"a\":", "[\"abc", "[1, {\"b\": [",
+                "\"\\u00"}) {
+            try {
+                JsonReader reader = new JsonReader(json);
+                reader.skipValue();
+                fail("No exception for " + json);
+            } catch (JSONException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package de.geeksfactory.opacclient.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import java8.util.concurrent.CompletableFuture;
+import java8.util.concurrent.CompletionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LibopacExecutorsTest {
+
+    private static LibopacExecutors executors(int threads, int queueSize) {
+        return LibopacExecutors.builder().name("test").ioThreads(threads)
+                               .operationThreads(threads).queueSize(queueSize)
+                               .virtualThreads(false).build();
+    }
+
+    @Test
+    public void testNamedDaemonThreads() throws Exception {
+        LibopacExecutors executors = executors(2, 4);
+        CompletableFuture<Thread> thread = new CompletableFuture<>();
+        executors.io().execute(() -> thread.complete(Thread.currentThread()));
+        assertTrue(thread.get().isDaemon());
+        assertTrue(thread.get().getName().startsWith("test-io-"));
+
+        CompletableFuture<Thread> cpuThread = new CompletableFuture<>();
+        executors.cpu().execute(() -> cpuThread.complete(Thread.currentThread()));
+        assertTrue(cpuThread.get().isDaemon());
+        assertTrue(cpuThread.get().getName().startsWith("test-cpu-"));
+        executors.shutdown();
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        LibopacExecutors executors = executors(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executors.io().execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        started.await();
+        executors.io().execute(() -> await(release));
+
+        LibopacExecutors.Stats stats = executors.getStats();
+        assertEquals(1, stats.io.active);
+        assertEquals(1, stats.io.queued);
+        try {
+            executors.io().execute(() -> {
+            });
+            fail();
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        assertEquals(1, executors.getStats().io.rejected);
+
+        // a scope runs the task on the submitting thread instead
+        Thread caller = Thread.currentThread();
+        assertEquals(caller, executors.newScope().submit(Thread::currentThread).join());
+        release.countDown();
+        executors.shutdown();
+    }
+
+    @Test
+    public void testScopeCancel() throws Exception {
+        LibopacExecutors executors = executors(1, 4);
+        LibopacExecutors.Scope scope = executors.newScope();
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Void> running = scope.runAsync(() -> {
+            started.countDown();
+            await(new CountDownLatch(1));
+        });
+        CompletableFuture<Void> waiting = scope.runAsync(() -> {
+        });
+        started.await();
+        assertEquals(2, scope.getPendingCount());
+
+        scope.cancel();
+        assertCancelled(running);
+        assertCancelled(waiting);
+        assertCancelled(scope.runAsync(() -> {
+        }));
+        assertEquals(0, scope.getPendingCount());
+
+        // other scopes are not affected
+        assertEquals("ok", executors.newScope().submit(() -> "ok").get(1, TimeUnit.SECONDS));
+        executors.shutdown();
+    }
+
+    private static void assertCancelled(CompletableFuture<?> future) {
+        try {
+            future.join();
+            fail();
+        } catch (CompletionException | CancellationException e) {
+            assertTrue(future.isCompletedExceptionally());
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package de.geeksfactory.opacclient.utils;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import java8.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelRecordParserTest {
+
+    private static Elements rows(int count) {
+        StringBuilder html = new StringBuilder("<table>");
+        for (int i = 0; i < count; i++) {
+            html.append("<tr><td>").append(i).append("</td><td><b>Titel \uD83D\uDCDA ")
+                .append(i).append("</b></td></tr>");
+        }
+        return Jsoup.parse(html.append("</table>").toString()).select("tr");
+    }
+
+    @Test
+    public void testKeepsOrder() {
+        Elements rows = rows(500);
+        Set<String> threads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        List<String> records = ParallelRecordParser.parse(rows, (row, index) -> {
+            threads.add(Thread.currentThread().getName());
+            assertEquals(String.valueOf(index), row.child(0).text());
+            return row.child(1).child(0).clone().html();
+        });
+
+        assertEquals(500, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals("Titel \uD83D\uDCDA " + i, records.get(i));
+        }
+        assertTrue(threads.size() >= 1);
+    }
+
+    @Test
+    public void testSmallPagesOnCallingThread() {
+        Thread caller = Thread.currentThread();
+        List<Integer> records = ParallelRecordParser.parse(
+                rows(ParallelRecordParser.SEQUENTIAL_THRESHOLD - 1), (row, index) -> {
+                    assertEquals(caller, Thread.currentThread());
+                    return index;
+                });
+        assertEquals(ParallelRecordParser.SEQUENTIAL_THRESHOLD - 1, records.size());
+
+        ForkJoinPool singleCore = new ForkJoinPool(1);
+        try {
+            ParallelRecordParser.parse(singleCore, rows(100), (row, index) -> {
+                assertEquals(caller, Thread.currentThread());
+                return index;
+            });
+        } finally {
+            singleCore.shutdown();
+        }
+    }
+
+    @Test
+    public void testRethrowsExceptions() {
+        try {
+            ParallelRecordParser.parse(rows(100), (Element row, int index) -> {
+                if (index == 77) {
+                    throw new IllegalStateException("row " + index);
+                }
+                return index;
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("row 77"));
+        }
+    }
+}
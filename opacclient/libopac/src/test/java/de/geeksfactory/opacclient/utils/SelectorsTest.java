@@ -0,0 +1,47 @@
+package de.geeksfactory.opacclient.utils;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+public class SelectorsTest {
+    private static final String HTML = "<div id=\"a\"><span id=\"x_LblAuthorValue\">Author</span>" +
+            "<a href=\"?q=1\" class=\"title\">Title</a></div><div><span>Other</span></div>";
+
+    @After
+    public void tearDown() {
+        Selectors.setCachingEnabled(true);
+    }
+
+    @Test
+    public void testSelectMatchesJsoup() {
+        Document doc = Jsoup.parse(HTML);
+        String[] queries = {"span[id$=LblAuthorValue]", "div > span, a.title", "#a span",
+                "div:has(a)"};
+        for (String query : queries) {
+            assertEquals(doc.select(query).outerHtml(),
+                    Selectors.select(doc, query).outerHtml());
+        }
+        assertEquals("Title", Selectors.selectFirst(doc, "a.title").text());
+    }
+
+    @Test
+    public void testCompiledOnce() {
+        assertNotNull(Selectors.evaluator("div > span"));
+        assertSame(Selectors.evaluator("div > span"), Selectors.evaluator("div > span"));
+        assertSame(Selectors.pattern("[0-9]+"), Selectors.pattern("[0-9]+"));
+    }
+
+    @Test
+    public void testCachingDisabled() {
+        Selectors.setCachingEnabled(false);
+        Document doc = Jsoup.parse(HTML);
+        assertEquals("Author", Selectors.select(doc, "span[id$=LblAuthorValue]").text());
+        assertEquals(0, Selectors.pattern("a").flags());
+    }
+}
@@ -56,6 +56,7 @@ import de.geeksfactory.opacclient.R;
 import de.geeksfactory.opacclient.apis.OpacApi;
 import de.geeksfactory.opacclient.apis.OpacApi.OpacErrorException;
 import de.geeksfactory.opacclient.barcode.BarcodeScanIntegrator;
+import de.geeksfactory.opacclient.networking.OperationContext;
 import de.geeksfactory.opacclient.objects.Account;
 import de.geeksfactory.opacclient.objects.Library;
 import de.geeksfactory.opacclient.reminder.ReminderHelper;
@@ -415,7 +416,8 @@ public class AccountEditActivity extends AppCompatActivity {
 
         @Override
         protected Exception doInBackground(Account... params) {
-            try {
+            try (OperationContext ctx = OperationContext.enter(
+                    OperationContext.Operation.ACCOUNT)) {
                 OpacApi api = ((OpacClient) getApplication()).getNewApi(lib);
                 api.start();
                 api.checkAccountData(account);
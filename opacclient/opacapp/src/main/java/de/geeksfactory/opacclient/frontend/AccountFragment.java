@@ -95,6 +95,7 @@ import de.geeksfactory.opacclient.frontend.adapter.AccountAdapter;
 import de.geeksfactory.opacclient.frontend.adapter.LentAdapter;
 import de.geeksfactory.opacclient.frontend.adapter.ReservationsAdapter;
 import de.geeksfactory.opacclient.networking.NotReachableException;
+import de.geeksfactory.opacclient.networking.OperationContext;
 import de.geeksfactory.opacclient.networking.SSLSecurityException;
 import de.geeksfactory.opacclient.objects.Account;
 import de.geeksfactory.opacclient.objects.AccountData;
@@ -1680,7 +1681,8 @@ public class AccountFragment extends Fragment implements
         @Override
         protected AccountData doInBackground(Void... voids) {
             AccountData data;
-            try {
+            try (OperationContext ctx = OperationContext.enter(
+                    OperationContext.Operation.ACCOUNT)) {
                 data = app.getApi().account(account);
 
                 if (data == null) {
@@ -1756,7 +1758,8 @@ public class AccountFragment extends Fragment implements
 
         @Override
         protected CancelResult doInBackground(Void... voids) {
-            try {
+            try (OperationContext ctx = OperationContext.enter(
+                    OperationContext.Operation.OTHER)) {
                 return app.getApi().cancel(itemId, account, useraction, selection);
             } catch (java.net.UnknownHostException | NoHttpResponseException | java.net
                     .SocketException e) {
@@ -1841,7 +1844,8 @@ public class AccountFragment extends Fragment implements
 
         @Override
         protected ProlongResult doInBackground(Void... voids) {
-            try {
+            try (OperationContext ctx = OperationContext.enter(
+                    OperationContext.Operation.PROLONG)) {
                 ProlongResult res = app.getApi().prolong(itemId, account,
                         useraction, selection);
                 success = true;
@@ -1894,7 +1898,8 @@ public class AccountFragment extends Fragment implements
 
         @Override
         protected ProlongAllResult doInBackground(Void... voids) {
-            try {
+            try (OperationContext ctx = OperationContext.enter(
+                    OperationContext.Operation.PROLONG)) {
                 return app.getApi().prolongAll(account,
                         useraction, selection);
             } catch (IOException e) {
@@ -1944,7 +1949,8 @@ public class AccountFragment extends Fragment implements
 
         @Override
         protected ProlongAllResult doInBackground(Void... voids) {
-            try {
+            try (OperationContext ctx = OperationContext.enter(
+                    OperationContext.Operation.PROLONG)) {
                 return app.getApi().prolongMultiple(dueItems, account,
                         useraction, selection);
             } catch (IOException e) {
@@ -2045,7 +2051,8 @@ public class AccountFragment extends Fragment implements
 
         @Override
         protected BookingResult doInBackground(Void... voids) {
-            try {
+            try (OperationContext ctx = OperationContext.enter(
+                    OperationContext.Operation.OTHER)) {
                 return ((EbookServiceApi) app.getApi()).booking(
                         item, app.getAccount(), useraction, selection);
             } catch (IOException e) {
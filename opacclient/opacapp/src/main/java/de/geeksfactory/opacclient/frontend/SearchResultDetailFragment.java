@@ -65,6 +65,7 @@ import de.geeksfactory.opacclient.apis.OpacApi.ReservationResult;
 import de.geeksfactory.opacclient.frontend.MultiStepResultHelper.Callback;
 import de.geeksfactory.opacclient.frontend.MultiStepResultHelper.StepTask;
 import de.geeksfactory.opacclient.networking.CoverDownloadTask;
+import de.geeksfactory.opacclient.networking.OperationContext;
 import de.geeksfactory.opacclient.objects.Account;
 import de.geeksfactory.opacclient.objects.Copy;
 import de.geeksfactory.opacclient.objects.CoverHolder;
@@ -1351,7 +1352,8 @@ public class SearchResultDetailFragment extends Fragment
 
         @Override
         protected DetailedItem doInBackground(Void... voids) {
-            try {
+            try (OperationContext ctx = OperationContext.enter(
+                    OperationContext.Operation.GET_RESULT)) {
                 DetailedItem res;
                 if (id != null && !id.equals("")) {
                     SharedPreferences sp = PreferenceManager
@@ -1447,7 +1449,8 @@ public class SearchResultDetailFragment extends Fragment
 
         @Override
         protected ReservationResult doInBackground(Void... voids) {
-            try {
+            try (OperationContext ctx = OperationContext.enter(
+                    OperationContext.Operation.OTHER)) {
                 return getCurrentApi().reservation(item,
                         getCurrentAccount(), useraction, selection);
             } catch (IOException e) {
@@ -1498,7 +1501,8 @@ public class SearchResultDetailFragment extends Fragment
 
         @Override
         protected BookingResult doInBackground(Void... voids) {
-            try {
+            try (OperationContext ctx = OperationContext.enter(
+                    OperationContext.Operation.OTHER)) {
                 return ((EbookServiceApi) getCurrentApi()).booking(
                         item, getCurrentAccount(), useraction, selection);
             } catch (IOException | OpacClient.LibraryRemovedException e) {
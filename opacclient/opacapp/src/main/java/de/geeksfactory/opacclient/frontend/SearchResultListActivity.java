@@ -20,6 +20,7 @@ import de.geeksfactory.opacclient.R;
 import de.geeksfactory.opacclient.apis.OpacApi;
 import de.geeksfactory.opacclient.apis.OpacApi.OpacErrorException;
 import de.geeksfactory.opacclient.networking.NotReachableException;
+import de.geeksfactory.opacclient.networking.OperationContext;
 import de.geeksfactory.opacclient.networking.SSLSecurityException;
 import de.geeksfactory.opacclient.objects.SearchRequestResult;
 import de.geeksfactory.opacclient.objects.SearchResult;
@@ -267,7 +268,8 @@ public class SearchResultListActivity extends OpacActivity implements
 
         @Override
         protected SearchRequestResult doInBackground(Void... voids) {
-            try {
+            try (OperationContext ctx = OperationContext.enter(
+                    OperationContext.Operation.SEARCH_GET_PAGE)) {
                 return app.getApi().searchGetPage(searchResult.getPage());
             } catch (IOException | OpacErrorException e) {
                 exception = e;
@@ -34,6 +34,7 @@ import de.geeksfactory.opacclient.apis.OpacApi;
 import de.geeksfactory.opacclient.apis.OpacApi.OpacErrorException;
 import de.geeksfactory.opacclient.frontend.ResultsAdapterEndless.OnLoadMoreListener;
 import de.geeksfactory.opacclient.networking.NotReachableException;
+import de.geeksfactory.opacclient.networking.OperationContext;
 import de.geeksfactory.opacclient.networking.SSLSecurityException;
 import de.geeksfactory.opacclient.objects.Account;
 import de.geeksfactory.opacclient.objects.SearchRequestResult;
@@ -319,8 +320,11 @@ public class SearchResultListFragment extends CustomListFragment {
                     @Override
                     public SearchRequestResult onLoadMore(int page)
                             throws Exception {
-                        SearchRequestResult res = app.getApi().searchGetPage(
-                                page);
+                        SearchRequestResult res;
+                        try (OperationContext ctx = OperationContext.enter(
+                                OperationContext.Operation.SEARCH_GET_PAGE)) {
+                            res = app.getApi().searchGetPage(page);
+                        }
                         for (SearchResult result : res.getResults()) {
                             result.setLibraryIdent(app.getLibrary().getIdent());
                         }
@@ -486,7 +490,8 @@ public class SearchResultListFragment extends CustomListFragment {
                     ErrorReporter.handleException(e);
                 }
             } else if (query != null) {
-                try {
+                try (OperationContext ctx = OperationContext.enter(
+                        OperationContext.Operation.SEARCH)) {
                     // Load cover images, if search worked and covers available
                     return api.search(query);
                 } catch (IOException | OpacErrorException e) {
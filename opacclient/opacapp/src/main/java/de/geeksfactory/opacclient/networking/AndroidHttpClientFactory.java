@@ -21,6 +21,7 @@ package de.geeksfactory.opacclient.networking;
 
 import android.os.Build;
 
+import java.io.File;
 import java.io.IOException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
@@ -29,13 +30,14 @@ import java.security.cert.CertificateException;
 
 import de.geeksfactory.opacclient.OpacClient;
 import de.geeksfactory.opacclient.utils.DebugTools;
-import okhttp3.Cache;
 import okhttp3.OkHttpClient;
 
 public class AndroidHttpClientFactory extends HttpClientFactory {
+    private static boolean configured = false;
 
     public AndroidHttpClientFactory() {
         super("OpacApp/" + OpacClient.versionName);
+        configureOnce();
     }
 
     @Override
@@ -63,8 +65,6 @@ public class AndroidHttpClientFactory extends HttpClientFactory {
         OkHttpClient.Builder client =
                 super.getOkHttpClientBuilder(customssl, tls_only, allCipherSuites,
                         Build.VERSION.SDK_INT == 24);
-        int cacheSize = 50 * 1024 * 1024; // 50MB
-        client.cache(new Cache(OpacClient.context.getCacheDir(), cacheSize));
         return DebugTools.prepareHttpClient(client).build();
     }
 
@@ -73,8 +73,19 @@ public class AndroidHttpClientFactory extends HttpClientFactory {
         OkHttpClient.Builder client =
                 super.getOkHttpClientBuilder(customssl, tls_only, allCipherSuites,
                         Build.VERSION.SDK_INT == 24, timeout);
-        int cacheSize = 50 * 1024 * 1024; // 50MB
-        client.cache(new Cache(OpacClient.context.getCacheDir(), cacheSize));
         return DebugTools.prepareHttpClient(client).build();
     }
+
+    private static synchronized void configureOnce() {
+        if (!configured) {
+            int diskCacheSize = 50 * 1024 * 1024; // 50MB
+            int memoryCacheSize = 2 * 1024 * 1024; // 2MB
+            configureCache(OpacClient.context.getCacheDir(), diskCacheSize, memoryCacheSize);
+            configureTlsSpecMemory(
+                    new File(OpacClient.context.getFilesDir(), "tls_specs.properties"));
+            setSessionStore(
+                    new FileSessionStore(new File(OpacClient.context.getFilesDir(), "sessions")));
+            configured = true;
+        }
+    }
 }
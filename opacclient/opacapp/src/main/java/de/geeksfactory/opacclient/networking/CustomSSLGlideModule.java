@@ -8,16 +8,7 @@ import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
 import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.module.GlideModule;
 
-import java.io.IOException;
 import java.io.InputStream;
-import java.security.KeyManagementException;
-import java.security.KeyStore;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
-import java.security.cert.CertificateException;
-
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
 
 import okhttp3.OkHttpClient;
 
@@ -30,22 +21,13 @@ public class CustomSSLGlideModule implements GlideModule {
     @Override
     public void registerComponents(Context context, Glide glide) {
         try {
-            KeyStore keyStore = new AndroidHttpClientFactory().getKeyStore();
-
-            SSLContext sslContext = SSLContext.getInstance("TLS");
-            AdditionalKeyStoresSSLSocketFactory.AdditionalKeyStoresTrustManager
-                    trustManager =
-                    new AdditionalKeyStoresSSLSocketFactory.AdditionalKeyStoresTrustManager(
-                            keyStore);
-            sslContext.init(null, new TrustManager[]{trustManager}, null);
-
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .sslSocketFactory(sslContext.getSocketFactory(), trustManager)
+            // shares the connection pool and the cached TLS setup with the OPAC clients
+            OkHttpClient client = new AndroidHttpClientFactory().withSslConfig(
+                    HttpClientFactory.getSharedOkHttpClient().newBuilder(), true, true, false)
                     .build();
             OkHttpUrlLoader.Factory factory = new OkHttpUrlLoader.Factory(client);
             glide.register(GlideUrl.class, InputStream.class, factory);
-        } catch (KeyStoreException | IOException | NoSuchAlgorithmException |
-                CertificateException | KeyManagementException e) {
+        } catch (Exception e) {
             throw new RuntimeException(e);
         }
 
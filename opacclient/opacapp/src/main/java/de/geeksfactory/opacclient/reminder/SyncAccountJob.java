@@ -45,6 +45,7 @@ import androidx.work.WorkerParameters;
 import de.geeksfactory.opacclient.BuildConfig;
 import de.geeksfactory.opacclient.OpacClient;
 import de.geeksfactory.opacclient.apis.OpacApi;
+import de.geeksfactory.opacclient.networking.OperationContext;
 import de.geeksfactory.opacclient.objects.Account;
 import de.geeksfactory.opacclient.objects.AccountData;
 import de.geeksfactory.opacclient.objects.Library;
@@ -213,7 +214,8 @@ public class SyncAccountJob extends Worker {
             }
 
             AccountData res;
-            try {
+            try (OperationContext ctx = OperationContext.enter(
+                    OperationContext.Operation.ACCOUNT)) {
                 Library library = app.getLibrary(account.getLibrary());
                 if (!library.isAccountSupported()) {
                     data.deleteAccountData(account);
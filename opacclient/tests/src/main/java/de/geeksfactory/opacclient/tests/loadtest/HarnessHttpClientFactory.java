@@ -0,0 +1,36 @@
+package de.geeksfactory.opacclient.tests.loadtest;
+
+import java.util.function.Supplier;
+
+import de.geeksfactory.opacclient.networking.HttpClientFactory;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+
+/**
+ * Client factory adding an interceptor, e.g. a {@link RecordingInterceptor} or {@link
+ * ReplayInterceptor}, to all OkHttp clients it creates.
+ */
+public class HarnessHttpClientFactory extends HttpClientFactory {
+    private final Supplier<Interceptor> interceptors;
+
+    public HarnessHttpClientFactory(String user_agent, Interceptor interceptor) {
+        this(user_agent, () -> interceptor);
+    }
+
+    /**
+     * @param interceptors creates the interceptor for each client, e.g. {@link
+     *                     ReplayInterceptor#forNewClient()} to give each API instance its own
+     *                     position in the archive
+     */
+    public HarnessHttpClientFactory(String user_agent, Supplier<Interceptor> interceptors) {
+        super(user_agent);
+        this.interceptors = interceptors;
+    }
+
+    @Override
+    protected OkHttpClient.Builder getOkHttpClientBuilder(boolean customssl, boolean tls_only,
+            boolean allCipherSuites, boolean ellipticCurvesWorkaround, int timeout) {
+        return super.getOkHttpClientBuilder(customssl, tls_only, allCipherSuites,
+                ellipticCurvesWorkaround, timeout).addInterceptor(interceptors.get());
+    }
+}
@@ -0,0 +1,205 @@
+package de.geeksfactory.opacclient.tests.loadtest;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.HttpUrl;
+import okio.ByteString;
+
+/**
+ * Recorded HTTP exchanges of an OPAC, stored as a versioned JSON file similar to HAR. Bodies are
+ * stored Base64-encoded, so that binary responses like covers survive the round trip.
+ * <p>
+ * Requests are matched by method, URL and body first. As URLs often contain session IDs, a
+ * request without an exact match is answered with a recorded exchange for the same path. If
+ * several exchanges match, they are served in the recorded order and start over after the last
+ * one. The position in this order is kept by a {@link Cursor}, so that many virtual users can
+ * replay an archive at the same time, each of them seeing the recorded sequence.
+ */
+public class HttpArchive {
+    public static final int VERSION = 1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final List<Entry> entries = new ArrayList<>();
+    /**
+     * Entries by {@link #exactKey(String, String, ByteString)} and {@link #pathKey(String,
+     * String)}. The lists are replaced instead of modified, so they can be read without locking.
+     */
+    private final Map<String, List<Entry>> exactIndex = new ConcurrentHashMap<>();
+    private final Map<String, List<Entry>> pathIndex = new ConcurrentHashMap<>();
+
+    public static class Entry {
+        public final String method;
+        public final String url;
+        public final ByteString requestBody;
+        public final String finalUrl;
+        public final int code;
+        public final String message;
+        public final List<String[]> headers;
+        public final ByteString body;
+        public final long timeMillis;
+
+        public Entry(String method, String url, ByteString requestBody, String finalUrl,
+                int code, String message, List<String[]> headers, ByteString body,
+                long timeMillis) {
+            this.method = method;
+            this.url = url;
+            this.requestBody = requestBody;
+            this.finalUrl = finalUrl;
+            this.code = code;
+            this.message = message;
+            this.headers = headers;
+            this.body = body;
+            this.timeMillis = timeMillis;
+        }
+
+        JSONObject toJSON() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("method", method);
+            json.put("url", url);
+            if (requestBody != null) {
+                json.put("request_body", requestBody.base64());
+            }
+            json.put("final_url", finalUrl);
+            json.put("code", code);
+            json.put("message", message);
+            JSONArray headersJson = new JSONArray();
+            for (String[] header : headers) {
+                headersJson.put(new JSONObject().put("name", header[0]).put("value", header[1]));
+            }
+            json.put("headers", headersJson);
+            json.put("body", body.base64());
+            json.put("time_ms", timeMillis);
+            return json;
+        }
+
+        static Entry fromJSON(JSONObject json) throws JSONException {
+            List<String[]> headers = new ArrayList<>();
+            JSONArray headersJson = json.getJSONArray("headers");
+            for (int i = 0; i < headersJson.length(); i++) {
+                JSONObject header = headersJson.getJSONObject(i);
+                headers.add(new String[]{header.getString("name"), header.getString("value")});
+            }
+            return new Entry(json.getString("method"), json.getString("url"),
+                    json.has("request_body") ?
+                            ByteString.decodeBase64(json.getString("request_body")) : null,
+                    json.getString("final_url"), json.getInt("code"), json.getString("message"),
+                    headers, ByteString.decodeBase64(json.getString("body")),
+                    json.getLong("time_ms"));
+        }
+    }
+
+    public synchronized void add(Entry entry) {
+        entries.add(entry);
+        addToIndex(exactIndex, exactKey(entry.method, entry.url, entry.requestBody), entry);
+        addToIndex(pathIndex, pathKey(entry.method, entry.url), entry);
+    }
+
+    private static void addToIndex(Map<String, List<Entry>> index, String key, Entry entry) {
+        List<Entry> list = index.get(key);
+        List<Entry> updated = new ArrayList<>(list != null ? list.size() + 1 : 1);
+        if (list != null) {
+            updated.addAll(list);
+        }
+        updated.add(entry);
+        index.put(key, Collections.unmodifiableList(updated));
+    }
+
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    private static String exactKey(String method, String url, ByteString requestBody) {
+        return method + " " + url + " " + (requestBody != null ? requestBody.md5().hex() : "");
+    }
+
+    private static String pathKey(String method, String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        return method + " " + (httpUrl != null ?
+                httpUrl.scheme() + "://" + httpUrl.host() + httpUrl.encodedPath() : url);
+    }
+
+    /**
+     * @return a new position in the archive, e.g. for one virtual user
+     */
+    public Cursor newCursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Position of one client in the recorded sequence of each request.
+     */
+    public class Cursor {
+        private final Map<String, Integer> positions = new HashMap<>();
+
+        private Cursor() {
+        }
+
+        /**
+         * @return the next recorded exchange matching the request, or {@code null} if there is
+         * none
+         */
+        public Entry find(String method, String url, ByteString requestBody) {
+            String key = exactKey(method, url, requestBody);
+            List<Entry> matches = exactIndex.get(key);
+            if (matches == null) {
+                key = pathKey(method, url);
+                matches = pathIndex.get(key);
+            }
+            if (matches == null) {
+                return null;
+            }
+            int index;
+            synchronized (this) {
+                Integer position = positions.get(key);
+                index = position != null ? position : 0;
+                positions.put(key, (index + 1) % matches.size());
+            }
+            return matches.get(index % matches.size());
+        }
+    }
+
+    public synchronized void save(File file) throws IOException {
+        try {
+            JSONObject json = new JSONObject();
+            json.put("version", VERSION);
+            JSONArray entriesJson = new JSONArray();
+            for (Entry entry : entries) {
+                entriesJson.put(entry.toJSON());
+            }
+            json.put("entries", entriesJson);
+            Files.write(file.toPath(), json.toString().getBytes(UTF_8));
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public static HttpArchive load(File file) throws IOException {
+        try {
+            JSONObject json = new JSONObject(new String(Files.readAllBytes(file.toPath()), UTF_8));
+            if (json.getInt("version") != VERSION) {
+                throw new IOException("Unsupported archive version " + json.getInt("version"));
+            }
+            HttpArchive archive = new HttpArchive();
+            JSONArray entriesJson = json.getJSONArray("entries");
+            for (int i = 0; i < entriesJson.length(); i++) {
+                archive.add(Entry.fromJSON(entriesJson.getJSONObject(i)));
+            }
+            return archive;
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package de.geeksfactory.opacclient.tests.loadtest;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.geeksfactory.opacclient.OpacApiFactory;
+import de.geeksfactory.opacclient.apis.OpacApi;
+import de.geeksfactory.opacclient.i18n.DummyStringProvider;
+import de.geeksfactory.opacclient.networking.HttpClientFactory;
+import de.geeksfactory.opacclient.networking.OperationContext;
+import de.geeksfactory.opacclient.networking.OperationContext.Operation;
+import de.geeksfactory.opacclient.objects.Account;
+import de.geeksfactory.opacclient.objects.Library;
+import de.geeksfactory.opacclient.objects.SearchRequestResult;
+import de.geeksfactory.opacclient.objects.SearchResult;
+import de.geeksfactory.opacclient.searchfields.MeaningDetectorImpl;
+import de.geeksfactory.opacclient.searchfields.SearchField;
+import de.geeksfactory.opacclient.searchfields.SearchQuery;
+import de.geeksfactory.opacclient.searchfields.TextSearchField;
+import de.geeksfactory.opacclient.tests.apitests.LibraryApiTestCases;
+
+/**
+ * Runs the flow search -> searchGetPage -> getResultById -> account of a backend, either once
+ * against the real library to record an {@link HttpArchive}, or with many concurrent virtual
+ * users against the recorded archive, reporting throughput and latency percentiles per
+ * operation.
+ * <p>
+ * Usage, from the project root like {@link LibraryApiTestCases}:
+ * <pre>
+ * record &lt;library&gt; &lt;archive&gt; [query]
+ * replay &lt;library&gt; &lt;archive&gt; [users] [iterations] [latency ms] [bytes/s] [query]
+ * </pre>
+ * The account step is only run if the system properties {@code loadtest.username} and {@code
+ * loadtest.password} are set.
+ */
+public class LoadTestRunner {
+    private static final String FOLDER = "opacapp/src/main";
+    private static final String USER_AGENT = "OpacApp/LoadTest";
+
+    private final Library library;
+    private final HttpClientFactory factory;
+    private final String query;
+    private final Account account;
+    private final Map<String, List<Long>> latencies = new LinkedHashMap<>();
+    private final AtomicInteger errors = new AtomicInteger();
+
+    public LoadTestRunner(Library library, HttpClientFactory factory, String query,
+            Account account) {
+        this.library = library;
+        this.factory = factory;
+        this.query = query;
+        this.account = account;
+    }
+
+    private interface Step<T> {
+        T run() throws Exception;
+    }
+
+    private <T> T measure(String name, Operation operation, Step<T> step) throws Exception {
+        long start = System.nanoTime();
+        try (OperationContext ctx = OperationContext.enter(operation)) {
+            return step.run();
+        } finally {
+            long millis = (System.nanoTime() - start) / 1000000;
+            synchronized (latencies) {
+                List<Long> list = latencies.get(name);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    latencies.put(name, list);
+                }
+                list.add(millis);
+            }
+        }
+    }
+
+    /**
+     * Runs the whole flow once with a new API instance.
+     */
+    public void runFlow() throws Exception {
+        final OpacApi api = OpacApiFactory.create(library, new DummyStringProvider(), factory,
+                null);
+        List<SearchField> fields = measure("getSearchFields", Operation.OTHER,
+                api::getSearchFields);
+        MeaningDetectorImpl detector = new MeaningDetectorImpl(library);
+        SearchField field = null;
+        for (SearchField candidate : fields) {
+            candidate = detector.detectMeaning(candidate);
+            if (candidate instanceof TextSearchField && (field == null ||
+                    ((TextSearchField) candidate).isFreeSearch())) {
+                field = candidate;
+            }
+        }
+        if (field == null) {
+            throw new IllegalStateException("There is no text search field");
+        }
+
+        final List<SearchQuery> queries =
+                Collections.singletonList(new SearchQuery(field, query));
+        SearchRequestResult result = measure("search", Operation.SEARCH,
+                () -> api.search(queries));
+        if (result.getPage_count() > 1 || result.getTotal_result_count() >
+                result.getResults().size()) {
+            measure("searchGetPage", Operation.SEARCH_GET_PAGE, () -> api.searchGetPage(2));
+        }
+        if (!result.getResults().isEmpty()) {
+            final SearchResult first = result.getResults().get(0);
+            measure("getResultById", Operation.GET_RESULT, () -> first.getId() != null
+                    ? api.getResultById(first.getId(), null)
+                    : api.getResult(first.getNr()));
+        }
+        if (account != null) {
+            measure("account", Operation.ACCOUNT, () -> api.account(account));
+        }
+    }
+
+    /**
+     * Runs the flow with concurrent virtual users and prints the results.
+     *
+     * @param users      number of concurrent virtual users
+     * @param iterations number of flows each user runs
+     */
+    public void runLoad(int users, final int iterations) throws InterruptedException {
+        HttpClientFactory.configureSharedPool(HttpClientFactory.DEFAULT_MAX_IDLE_CONNECTIONS,
+                HttpClientFactory.DEFAULT_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                Math.max(HttpClientFactory.DEFAULT_MAX_REQUESTS, users),
+                Math.max(HttpClientFactory.DEFAULT_MAX_REQUESTS_PER_HOST, users));
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < iterations; j++) {
+                    try {
+                        runFlow();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                        e.printStackTrace();
+                    }
+                }
+            }, "virtual-user-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long millis = (System.nanoTime() - start) / 1000000;
+        printReport(users * iterations, millis);
+    }
+
+    private static long percentile(List<Long> sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+
+    private void printReport(int flows, long millis) {
+        System.out.println(String.format(Locale.ROOT,
+                "%d flows in %d ms, %.2f flows/s, %d failed", flows, millis,
+                flows * 1000.0 / Math.max(1, millis), errors.get()));
+        System.out.println(String.format(Locale.ROOT, "%-16s %7s %8s %7s %7s %7s %7s",
+                "operation", "count", "ops/s", "p50", "p95", "p99", "max"));
+        synchronized (latencies) {
+            for (Map.Entry<String, List<Long>> entry : latencies.entrySet()) {
+                List<Long> sorted = new ArrayList<>(entry.getValue());
+                Collections.sort(sorted);
+                System.out.println(String.format(Locale.ROOT,
+                        "%-16s %7d %8.2f %7d %7d %7d %7d", entry.getKey(), sorted.size(),
+                        sorted.size() * 1000.0 / Math.max(1, millis), percentile(sorted, 50),
+                        percentile(sorted, 95), percentile(sorted, 99),
+                        sorted.get(sorted.size() - 1)));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3 || !(args[0].equals("record") || args[0].equals("replay"))) {
+            System.err.println("Usage: record <library> <archive> [query]\n" +
+                    "       replay <library> <archive> [users] [iterations] [latency ms] " +
+                    "[bytes/s] [query]");
+            System.exit(1);
+        }
+        Security.addProvider(new BouncyCastleProvider());
+        Library library = Library.fromJSON(args[1], new JSONObject(LibraryApiTestCases
+                .readFile(FOLDER + "/assets/bibs/" + args[1] + ".json",
+                        Charset.defaultCharset())));
+        File file = new File(args[2]);
+
+        Account account = null;
+        if (System.getProperty("loadtest.username") != null) {
+            account = new Account();
+            account.setLibrary(library.getIdent());
+            account.setName(System.getProperty("loadtest.username"));
+            account.setPassword(System.getProperty("loadtest.password"));
+        }
+
+        if (args[0].equals("record")) {
+            HttpArchive archive = new HttpArchive();
+            LoadTestRunner runner = new LoadTestRunner(library,
+                    new HarnessHttpClientFactory(USER_AGENT, new RecordingInterceptor(archive)),
+                    args.length > 3 ? args[3] : "harry", account);
+            runner.runFlow();
+            archive.save(file);
+            System.out.println("Recorded " + archive.getEntries().size() + " requests");
+        } else {
+            int users = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+            int iterations = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+            long latency = args.length > 5 ? Long.parseLong(args[5])
+                    : ReplayInterceptor.RECORDED_LATENCY;
+            long bandwidth = args.length > 6 ? Long.parseLong(args[6]) : 0;
+            ReplayInterceptor replay =
+                    new ReplayInterceptor(HttpArchive.load(file), latency, bandwidth);
+            LoadTestRunner runner = new LoadTestRunner(library,
+                    new HarnessHttpClientFactory(USER_AGENT, replay::forNewClient),
+                    args.length > 7 ? args[7] : "harry", account);
+            runner.runLoad(users, iterations);
+            System.out.println(replay.getMissCount() + " requests were not in the archive");
+        }
+    }
+}
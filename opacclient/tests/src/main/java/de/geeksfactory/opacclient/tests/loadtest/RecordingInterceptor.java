@@ -0,0 +1,59 @@
+package de.geeksfactory.opacclient.tests.loadtest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * Records every request made through a client and its final response (after redirects) into an
+ * {@link HttpArchive}.
+ * <p>
+ * Cookies are not recorded, but request bodies are, so an archive of account operations contains
+ * the login credentials and should not be shared.
+ */
+public class RecordingInterceptor implements Interceptor {
+    private final HttpArchive archive;
+
+    public RecordingInterceptor(HttpArchive archive) {
+        this.archive = archive;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        ByteString requestBody = null;
+        if (request.body() != null) {
+            Buffer buffer = new Buffer();
+            request.body().writeTo(buffer);
+            requestBody = buffer.readByteString();
+        }
+
+        long start = System.nanoTime();
+        Response response = chain.proceed(request);
+        ResponseBody body = response.body();
+        ByteString bytes = body != null ? body.source().readByteString() : ByteString.EMPTY;
+        long timeMillis = (System.nanoTime() - start) / 1000000;
+
+        List<String[]> headers = new ArrayList<>();
+        for (int i = 0; i < response.headers().size(); i++) {
+            if (!response.headers().name(i).equalsIgnoreCase("Set-Cookie")) {
+                headers.add(new String[]{response.headers().name(i),
+                        response.headers().value(i)});
+            }
+        }
+        archive.add(new HttpArchive.Entry(request.method(), request.url().toString(),
+                requestBody, response.request().url().toString(), response.code(),
+                response.message(), headers, bytes, timeMillis));
+
+        return response.newBuilder()
+                .body(ResponseBody.create(bytes, body != null ? body.contentType() : null))
+                .build();
+    }
+}
@@ -0,0 +1,120 @@
+package de.geeksfactory.opacclient.tests.loadtest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * Answers all requests of a client from an {@link HttpArchive} instead of the network, with a
+ * simulated latency and bandwidth. This replaces the server for any host, including HTTPS ones,
+ * without certificates or DNS changes.
+ * <p>
+ * Requests missing from the archive are answered with status 404 and counted, see {@link
+ * #getMissCount()}.
+ * <p>
+ * Each instance keeps its own position in the archive. Use {@link #forNewClient()} to give every
+ * virtual user its own position.
+ */
+public class ReplayInterceptor implements Interceptor {
+    /**
+     * Use the time the response took while recording as latency.
+     */
+    public static final long RECORDED_LATENCY = -1;
+
+    private final HttpArchive archive;
+    private final long latencyMillis;
+    private final long bytesPerSecond;
+    private final AtomicLong missCount;
+    private final HttpArchive.Cursor cursor;
+
+    /**
+     * @param latencyMillis  time until the response is available, or {@link #RECORDED_LATENCY}
+     * @param bytesPerSecond simulated bandwidth for the response body, 0 for unlimited
+     */
+    public ReplayInterceptor(HttpArchive archive, long latencyMillis, long bytesPerSecond) {
+        this(archive, latencyMillis, bytesPerSecond, new AtomicLong());
+    }
+
+    private ReplayInterceptor(HttpArchive archive, long latencyMillis, long bytesPerSecond,
+            AtomicLong missCount) {
+        this.archive = archive;
+        this.latencyMillis = latencyMillis;
+        this.bytesPerSecond = bytesPerSecond;
+        this.missCount = missCount;
+        this.cursor = archive.newCursor();
+    }
+
+    /**
+     * @return an interceptor replaying the same archive from the start, counting misses together
+     * with this one
+     */
+    public ReplayInterceptor forNewClient() {
+        return new ReplayInterceptor(archive, latencyMillis, bytesPerSecond, missCount);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        ByteString requestBody = null;
+        if (request.body() != null) {
+            Buffer buffer = new Buffer();
+            request.body().writeTo(buffer);
+            requestBody = buffer.readByteString();
+        }
+
+        HttpArchive.Entry entry = cursor.find(request.method(), request.url().toString(),
+                requestBody);
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(404)
+                    .message("Not recorded")
+                    .body(ResponseBody.create("", null))
+                    .build();
+        }
+
+        long delay = latencyMillis == RECORDED_LATENCY ? entry.timeMillis : latencyMillis;
+        if (bytesPerSecond > 0) {
+            delay += entry.body.size() * 1000L / bytesPerSecond;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException(e.getMessage());
+        }
+
+        Headers.Builder headers = new Headers.Builder();
+        for (String[] header : entry.headers) {
+            headers.add(header[0], header[1]);
+        }
+        String contentType = headers.get("Content-Type");
+        return new Response.Builder()
+                .request(request.newBuilder().url(entry.finalUrl).build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(entry.code)
+                .message(entry.message)
+                .headers(headers.build())
+                .body(ResponseBody.create(entry.body,
+                        contentType != null ? MediaType.parse(contentType) : null))
+                .build();
+    }
+
+    /**
+     * @return the number of requests that were not found in the archive
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+}
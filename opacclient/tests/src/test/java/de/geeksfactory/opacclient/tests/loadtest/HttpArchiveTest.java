@@ -0,0 +1,77 @@
+package de.geeksfactory.opacclient.tests.loadtest;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+
+import okio.ByteString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class HttpArchiveTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static HttpArchive.Entry entry(String method, String url, String requestBody,
+            String body) {
+        return new HttpArchive.Entry(method, url,
+                requestBody != null ? ByteString.encodeUtf8(requestBody) : null, url, 200, "OK",
+                Collections.singletonList(new String[]{"Content-Type", "text/html"}),
+                ByteString.encodeUtf8(body), 42);
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        HttpArchive archive = new HttpArchive();
+        archive.add(entry("GET", "https://opac.example.com/search?q=a", null, "page"));
+        archive.add(entry("POST", "https://opac.example.com/login", "user=a",
+                "\u00fc\u0000binary"));
+        File file = folder.newFile("archive.json");
+        archive.save(file);
+
+        HttpArchive loaded = HttpArchive.load(file);
+        assertEquals(2, loaded.getEntries().size());
+        HttpArchive.Entry entry = loaded.newCursor().find("POST",
+                "https://opac.example.com/login", ByteString.encodeUtf8("user=a"));
+        assertEquals("\u00fc\u0000binary", entry.body.utf8());
+        assertEquals(42, entry.timeMillis);
+        assertEquals("text/html", entry.headers.get(0)[1]);
+        assertEquals("page", loaded.newCursor().find("GET",
+                "https://opac.example.com/search?q=a", null).body.utf8());
+    }
+
+    @Test
+    public void testExactThenPathFallback() {
+        HttpArchive archive = new HttpArchive();
+        HttpArchive.Entry first = entry("GET", "https://opac.example.com/r;jsessionid=1?id=1",
+                null, "first");
+        HttpArchive.Entry second = entry("GET", "https://opac.example.com/r;jsessionid=1?id=2",
+                null, "second");
+        archive.add(first);
+        archive.add(second);
+        HttpArchive.Cursor cursor = archive.newCursor();
+
+        // an exact match is always served, regardless of the other entries for the path
+        assertSame(second, cursor.find("GET", "https://opac.example.com/r;jsessionid=1?id=2",
+                null));
+        assertSame(second, cursor.find("GET", "https://opac.example.com/r;jsessionid=1?id=2",
+                null));
+
+        // a different session ID only matches by path, in the recorded order
+        String url = "https://opac.example.com/r;jsessionid=1?id=3";
+        assertSame(first, cursor.find("GET", url, null));
+        assertSame(second, cursor.find("GET", url, null));
+        assertSame(first, cursor.find("GET", url, null));
+
+        // every cursor starts at the beginning
+        assertSame(first, archive.newCursor().find("GET", url, null));
+
+        assertNull(cursor.find("POST", url, null));
+        assertNull(cursor.find("GET", "https://opac.example.com/other", null));
+    }
+}